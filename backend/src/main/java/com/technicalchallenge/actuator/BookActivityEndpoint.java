@@ -0,0 +1,37 @@
+package com.technicalchallenge.actuator;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.technicalchallenge.service.BookActivityCounterService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint for recovering the book activity counters
+ * 
+ * POST /actuator/bookactivity recounts every book's activity counters from
+ * the trades, for when they no longer match them.
+ */
+@Component
+@Endpoint(id = "bookactivity")
+@RequiredArgsConstructor
+public class BookActivityEndpoint {
+        private static final Logger logger = LoggerFactory.getLogger(BookActivityEndpoint.class);
+
+        private final BookActivityCounterService bookActivityCounterService;
+
+        @WriteOperation
+        public Map<String, Integer> rebuild() {
+
+                logger.info("Rebuilding the book activity counters");
+                return Map.of("countersRebuilt", bookActivityCounterService.rebuild());
+
+        }
+
+}
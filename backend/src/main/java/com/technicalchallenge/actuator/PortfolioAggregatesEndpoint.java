@@ -0,0 +1,37 @@
+package com.technicalchallenge.actuator;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.technicalchallenge.service.TraderPortfolioAggregateService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint for recovering the trader portfolio aggregates
+ * 
+ * POST /actuator/portfolioaggregates recomputes every trader's portfolio
+ * summary from the trades in parallel, for after a reference data fix.
+ */
+@Component
+@Endpoint(id = "portfolioaggregates")
+@RequiredArgsConstructor
+public class PortfolioAggregatesEndpoint {
+        private static final Logger logger = LoggerFactory.getLogger(PortfolioAggregatesEndpoint.class);
+
+        private final TraderPortfolioAggregateService traderPortfolioAggregateService;
+
+        @WriteOperation
+        public Map<String, Integer> rebuild() {
+
+                logger.info("Rebuilding the trader portfolio aggregates");
+                return Map.of("figuresRebuilt", traderPortfolioAggregateService.rebuild());
+
+        }
+
+}
@@ -0,0 +1,293 @@
+package com.technicalchallenge.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.technicalchallenge.events.TradeWriteEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Dashboard Result Cache
+ *
+ * <p>
+ * Caches the trader dashboards per user so a refresh stampede (every trader's
+ * UI loading the dashboards at market open) computes each dashboard once.
+ *
+ * - Concurrent requests for the same dashboard share one computation, the
+ * first request computes it and the rest wait for its result
+ * - Results are served for trade.dashboard.cache.ttl-seconds, after that
+ * they're computed again, so a dashboard is never older than the TTL
+ * - A result read after trade.dashboard.cache.refresh-after-seconds is
+ * computed again in the background while the cached one is served
+ * - A committed {@link TradeWriteEvent} drops the trader's dashboards
+ *
+ * Failures, like a trader without trades, and partial dashboards aren't
+ * cached. Sits in front of the
+ * service's transaction so waiting requests don't hold a connection.
+ *
+ * Metrics: trade.dashboard.cache (result=hit|miss|coalesced),
+ * trade.dashboard.cache.refreshes and trade.dashboard.cache.size
+ * </p>
+ */
+@Component
+public class DashboardResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardResultCache.class);
+
+    private final Map<DashboardKey, CompletableFuture<Cached<?>>> entries = new ConcurrentHashMap<>();
+    private final Set<DashboardKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final int maxEntries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Counter refreshCounter;
+
+    /**
+     * Cache key, scoped to the user
+     *
+     * @param view       which dashboard
+     * @param username   trader's login
+     * @param parameters the dashboard's other parameters (page, count mode),
+     *                   null for none
+     */
+    public record DashboardKey(String view, String username, Object parameters) {
+    }
+
+    /**
+     * A computed dashboard
+     *
+     * @param value         the dashboard
+     * @param computedAt    when it was computed
+     * @param computedNanos {@link System#nanoTime()} when it was computed
+     */
+    public record Cached<T>(T value, Instant computedAt, long computedNanos) {
+
+        // Whole seconds since it was computed, for the Age header
+        public long ageSeconds() {
+            return Duration.ofNanos(System.nanoTime() - computedNanos).toSeconds();
+        }
+    }
+
+    public DashboardResultCache(MeterRegistry meterRegistry,
+            @Value("${trade.dashboard.cache.ttl-seconds:15}") long ttlSeconds,
+            @Value("${trade.dashboard.cache.refresh-after-seconds:10}") long refreshAfterSeconds,
+            @Value("${trade.dashboard.cache.max-entries:5000}") int maxEntries,
+            @Value("${trade.dashboard.cache.refresh-threads:2}") int refreshThreads) {
+
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.refreshAfterNanos = Duration.ofSeconds(Math.min(refreshAfterSeconds, ttlSeconds)).toNanos();
+        this.maxEntries = maxEntries;
+
+        // Refreshes use read connections, so the pool is small and bounded
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.hitCounter = Counter.builder("trade.dashboard.cache").tag("result", "hit")
+                .description("Dashboard cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("trade.dashboard.cache").tag("result", "miss")
+                .description("Dashboard cache lookups").register(meterRegistry);
+        this.coalescedCounter = Counter.builder("trade.dashboard.cache").tag("result", "coalesced")
+                .description("Dashboard cache lookups").register(meterRegistry);
+        this.refreshCounter = Counter.builder("trade.dashboard.cache.refreshes")
+                .description("Dashboards computed again in the background").register(meterRegistry);
+        Gauge.builder("trade.dashboard.cache.size", entries, Map::size)
+                .description("Cached dashboards").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached dashboard, waits for the computation already running
+     * or computes it on the calling thread.
+     *
+     * @param view       which dashboard
+     * @param username   trader's login
+     * @param parameters the dashboard's other parameters, null for none
+     * @param loader     computes the dashboard
+     * @return the dashboard, at most the TTL old
+     */
+    public <T> Cached<T> get(String view, String username, Object parameters, Supplier<T> loader) {
+        return get(view, username, parameters, loader, value -> true);
+    }
+
+    /**
+     * As {@link #get(String, String, Object, Supplier)}, a result that isn't
+     * cacheable (a partial dashboard) is handed to the requests waiting for it
+     * but not kept for the next.
+     *
+     * @param view       which dashboard
+     * @param username   trader's login
+     * @param parameters the dashboard's other parameters, null for none
+     * @param loader     computes the dashboard
+     * @param cacheable  whether the computed dashboard can be cached
+     * @return the dashboard, at most the TTL old
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Cached<T> get(String view, String username, Object parameters, Supplier<T> loader,
+            Predicate<? super T> cacheable) {
+
+        DashboardKey key = new DashboardKey(view, username, parameters);
+
+        while (true) {
+            CompletableFuture<Cached<?>> future = entries.get(key);
+
+            if (future != null && !future.isDone()) {
+                coalescedCounter.increment();
+                return (Cached<T>) join(future);
+            }
+
+            if (future != null && !future.isCompletedExceptionally()) {
+                Cached<T> cached = (Cached<T>) future.join();
+                long age = System.nanoTime() - cached.computedNanos();
+                if (age < ttlNanos) {
+                    hitCounter.increment();
+                    if (age >= refreshAfterNanos) {
+                        refresh(key, future, loader, cacheable);
+                    }
+                    return cached;
+                }
+            }
+
+            // Missing, expired or failed, the first request to get here computes it
+            CompletableFuture<Cached<?>> computation = new CompletableFuture<>();
+            boolean claimed = future == null ? entries.putIfAbsent(key, computation) == null
+                    : entries.replace(key, future, computation);
+            if (!claimed) {
+                continue;
+            }
+
+            missCounter.increment();
+            try {
+                Cached<T> cached = new Cached<>(loader.get(), Instant.now(), System.nanoTime());
+                computation.complete(cached);
+                if (!cacheable.test(cached.value())) {
+                    entries.remove(key, computation);
+                }
+                evictIfFull();
+                return cached;
+            } catch (RuntimeException e) {
+                entries.remove(key, computation);
+                computation.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Drops the traders' dashboards once a trade write commits, a computation
+     * that was running isn't kept.
+     *
+     * @param event the committed trade write
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTradeWrite(TradeWriteEvent event) {
+        Set<String> traders = new HashSet<>();
+        if (event.before() != null && event.before().traderLoginId() != null) {
+            traders.add(event.before().traderLoginId());
+        }
+        if (event.after() != null && event.after().traderLoginId() != null) {
+            traders.add(event.after().traderLoginId());
+        }
+        entries.keySet().removeIf(key -> traders.contains(key.username()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // One background refresh per dashboard, only kept if nothing replaced or
+    // dropped the entry while it ran
+    private <T> void refresh(DashboardKey key, CompletableFuture<Cached<?>> current, Supplier<T> loader,
+            Predicate<? super T> cacheable) {
+
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Cached<T> cached = new Cached<>(loader.get(), Instant.now(), System.nanoTime());
+                    if (cacheable.test(cached.value())) {
+                        entries.replace(key, current, CompletableFuture.completedFuture(cached));
+                        refreshCounter.increment();
+                    }
+                } catch (RuntimeException e) {
+                    // The cached dashboard expires and the next request computes it
+                    logger.debug("Background refresh of {} failed: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            throw e;
+        }
+    }
+
+    // Drops expired dashboards once the cache is over its size, then any
+    // computed ones if it's still over
+    private void evictIfFull() {
+
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        entries.values().removeIf(future -> future.isDone() && (future.isCompletedExceptionally()
+                || now - future.join().computedNanos() >= ttlNanos));
+
+        Iterator<CompletableFuture<Cached<?>>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Waits for another request's computation, its failure is rethrown as is
+    private static Cached<?> join(CompletableFuture<Cached<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.technicalchallenge.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Trade Count Cache
+ *
+ * <p>
+ * Caches the COUNT behind approximate page totals, so paging through a search
+ * counts its matches once rather than once per page. Counts are reused until
+ * they're older than the TTL, trade writes in between make the total
+ * approximate. Bounded LRU.
+ *
+ * Metrics: trade.search.count.cache (result=hit|miss) and
+ * trade.search.count.cache.size
+ * </p>
+ */
+@Component
+public class TradeCountCache {
+
+    private final Map<String, CachedCount> counts;
+    private final long ttlNanos;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    private record CachedCount(long count, long countedAt) {
+    }
+
+    public TradeCountCache(MeterRegistry meterRegistry,
+            @Value("${trade.search.count-cache.max-entries:1000}") int maxEntries,
+            @Value("${trade.search.count-cache.ttl-seconds:60}") long ttlSeconds) {
+
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+
+        // Access ordered LinkedHashMap evicts the least recently used count
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hitCounter = Counter.builder("trade.search.count.cache").tag("result", "hit")
+                .description("Trade count cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("trade.search.count.cache").tag("result", "miss")
+                .description("Trade count cache lookups").register(meterRegistry);
+        Gauge.builder("trade.search.count.cache.size", this, TradeCountCache::size)
+                .description("Cached trade counts").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached count or runs and caches it.
+     *
+     * @param key     what was counted, e.g. the search criteria
+     * @param counter runs the COUNT on a miss or when the count is stale
+     * @return count, at most the TTL old
+     */
+    public long get(String key, LongSupplier counter) {
+
+        CachedCount cached;
+        synchronized (counts) {
+            cached = counts.get(key);
+        }
+
+        long now = System.nanoTime();
+        if (cached != null && now - cached.countedAt() < ttlNanos) {
+            hitCounter.increment();
+            return cached.count();
+        }
+
+        missCounter.increment();
+        long count = counter.getAsLong();
+        synchronized (counts) {
+            counts.put(key, new CachedCount(count, now));
+        }
+        return count;
+    }
+
+    public int size() {
+        synchronized (counts) {
+            return counts.size();
+        }
+    }
+
+}
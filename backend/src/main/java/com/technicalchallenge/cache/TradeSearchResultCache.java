@@ -0,0 +1,303 @@
+package com.technicalchallenge.cache;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicalchallenge.dto.PaginationDTO;
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.SortDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Trade Search Result Cache
+ *
+ * <p>
+ * Caches mapped search and filter results per user, keyed by the normalised
+ * search criteria, sort and page. Bounded LRU, there's no TTL.
+ *
+ * Entries are invalidated when a committed {@link TradeWriteEvent} touches a
+ * trade that matches, before or after the write, the entry's criteria (book,
+ * counterparty, status, trader, inputter and trade date). Searches that were
+ * running while a write committed aren't cached, so a stale result can't be
+ * put back after its invalidation.
+ *
+ * Metrics: trade.search.cache (result=hit|miss), trade.search.cache.size,
+ * trade.search.cache.bytes, trade.search.cache.hit.ratio and
+ * trade.search.cache.invalidations
+ * </p>
+ */
+@Component
+public class TradeSearchResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(TradeSearchResultCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<SearchKey, CachedResult> entries;
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    /**
+     * Cache key, scoped to the user
+     *
+     * @param username   current user's login
+     * @param kind       search or filter, they return different shapes
+     * @param criteria   normalised search criteria
+     * @param pagination page, null for a list
+     * @param sort       normalised sort, null for a list
+     */
+    public record SearchKey(String username, String kind, SearchTradeByCriteria criteria,
+            PaginationDTO pagination, SortDTO sort) {
+    }
+
+    private record CachedResult(Object value, long bytes) {
+    }
+
+    public TradeSearchResultCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${trade.search.cache.max-entries:1000}") int maxEntries) {
+
+        this.objectMapper = objectMapper;
+
+        // Access ordered LinkedHashMap evicts the least recently used result
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, CachedResult> eldest) {
+                if (size() > maxEntries) {
+                    bytes.addAndGet(-eldest.getValue().bytes());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hitCounter = Counter.builder("trade.search.cache").tag("result", "hit")
+                .description("Trade search result cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("trade.search.cache").tag("result", "miss")
+                .description("Trade search result cache lookups").register(meterRegistry);
+        this.invalidationCounter = Counter.builder("trade.search.cache.invalidations")
+                .description("Cached results invalidated by trade writes").register(meterRegistry);
+        Gauge.builder("trade.search.cache.size", this, TradeSearchResultCache::size)
+                .description("Cached search results").register(meterRegistry);
+        Gauge.builder("trade.search.cache.bytes", bytes, AtomicLong::get)
+                .description("Approximate size of the cached results, as serialized JSON bytes")
+                .register(meterRegistry);
+        Gauge.builder("trade.search.cache.hit.ratio", this, TradeSearchResultCache::hitRatio)
+                .description("Trade search result cache hit ratio").register(meterRegistry);
+    }
+
+    /**
+     * Builds the key for the current user.
+     *
+     * @param kind       search or filter
+     * @param criteria   search criteria
+     * @param pagination page, null for a list
+     * @param sort       sort, null for a list
+     * @return cache key
+     */
+    public SearchKey key(String kind, SearchTradeByCriteria criteria, PaginationDTO pagination, SortDTO sort) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth != null ? auth.getName() : "anonymous";
+        return new SearchKey(username, kind, normalise(criteria), pagination, normalise(sort));
+    }
+
+    /**
+     * Returns the cached result or loads and caches it.
+     *
+     * @param key    cache key
+     * @param loader runs the search on a miss
+     * @return search result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(SearchKey key, Supplier<T> loader) {
+
+        CachedResult cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            hitCounter.increment();
+            return (T) cached.value();
+        }
+
+        misses.incrementAndGet();
+        missCounter.increment();
+
+        long generation = writeGeneration.get();
+        T value = loader.get();
+
+        // A write committed while we searched, the result may already be stale
+        if (writeGeneration.get() != generation) {
+            logger.debug("Search result not cached, a trade write committed during the search");
+            return value;
+        }
+
+        CachedResult result = new CachedResult(value, estimateBytes(value));
+        synchronized (entries) {
+            CachedResult previous = entries.put(key, result);
+            bytes.addAndGet(result.bytes() - (previous != null ? previous.bytes() : 0));
+        }
+        return value;
+    }
+
+    /**
+     * Invalidates the results whose criteria match the trade before or after
+     * the write, once the write has committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        writeGeneration.incrementAndGet();
+
+        List<SearchKey> invalidated = new ArrayList<>();
+        synchronized (entries) {
+            for (SearchKey key : entries.keySet()) {
+                if (matches(key.criteria(), event.before()) || matches(key.criteria(), event.after())) {
+                    invalidated.add(key);
+                }
+            }
+            for (SearchKey key : invalidated) {
+                bytes.addAndGet(-entries.remove(key).bytes());
+            }
+        }
+
+        if (!invalidated.isEmpty()) {
+            invalidationCounter.increment(invalidated.size());
+            logger.debug("Invalidated {} cached searches for trade {}", invalidated.size(), event.tradeId());
+        }
+    }
+
+    /**
+     * Applies the same rules as the TradeSpecification to a trade snapshot,
+     * string criteria are SQL LIKE patterns. Also used by the saved searches to
+     * skip writes that can't change their trades.
+     */
+    public static boolean matches(SearchTradeByCriteria criteria, TradeSnapshot trade) {
+
+        if (trade == null) {
+            return false;
+        }
+
+        if (criteria.tradeStartDate() != null && criteria.tradeEndDate() != null) {
+            LocalDate tradeDate = trade.tradeDate();
+            if (tradeDate == null || tradeDate.isBefore(criteria.tradeStartDate())
+                    || tradeDate.isAfter(criteria.tradeEndDate())) {
+                return false;
+            }
+        }
+
+        return like(trade.bookName(), criteria.bookName())
+                && like(trade.counterpartyName(), criteria.counterpartyName())
+                && like(trade.traderFirstName(), criteria.traderUserFirstName())
+                && like(trade.traderLastName(), criteria.traderUserLastName())
+                && like(trade.inputterFirstName(), criteria.inputterUserFirstName())
+                && like(trade.inputterLastName(), criteria.inputterUserLastName())
+                && like(trade.tradeStatus(), criteria.tradeStatus());
+    }
+
+    // SQL LIKE: % matches any run of characters and _ a single character
+    private static boolean like(String value, String pattern) {
+        if (pattern == null) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '%' || c == '_') {
+                regex.append(Pattern.quote(literal.toString())).append(c == '%' ? ".*" : ".");
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).matcher(value).matches();
+    }
+
+    // The date range only applies when both dates are given
+    private static SearchTradeByCriteria normalise(SearchTradeByCriteria criteria) {
+        if (criteria.tradeStartDate() != null && criteria.tradeEndDate() != null) {
+            return criteria;
+        }
+        return new SearchTradeByCriteria(criteria.bookName(), criteria.counterpartyName(),
+                criteria.traderUserFirstName(), criteria.traderUserLastName(), criteria.inputterUserFirstName(),
+                criteria.inputterUserLastName(), criteria.tradeStatus(), null, null);
+    }
+
+    // Blank sort column defaults to tradeId and directions ignore case
+    private static SortDTO normalise(SortDTO sort) {
+        if (sort == null) {
+            return null;
+        }
+        String sortBy = sort.sortBy() == null || sort.sortBy().isBlank() ? "tradeId" : sort.sortBy();
+        String sortDir = sort.sortDir();
+        if (sortDir != null && (sortDir.equalsIgnoreCase("ASC") || sortDir.equalsIgnoreCase("DESC"))) {
+            sortDir = sortDir.toUpperCase();
+        }
+        return new SortDTO(sortBy, sortDir);
+    }
+
+    private long estimateBytes(Object value) {
+        Object content = value instanceof Page<?> page ? page.getContent() : value;
+        try {
+            return objectMapper.writeValueAsBytes(content).length;
+        } catch (JsonProcessingException e) {
+            logger.debug("Couldn't estimate the cached result size: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+}
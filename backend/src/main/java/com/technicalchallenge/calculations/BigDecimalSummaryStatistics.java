@@ -2,92 +2,152 @@ package com.technicalchallenge.calculations;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.math.RoundingMode;
 import java.util.stream.Collector;
 
-import org.springframework.stereotype.Component;
-
 /**
  * BigDecimalSummaryStatistics class provides different calculations using
  * BigDecimals to use for DashBoardViews.
  *
+ * <p>
+ * UPDATED: Notionals are accumulated as long minor units (hundredths, the
+ * scale of the notional columns) instead of adding a new BigDecimal for every
+ * value. A value with more decimal places, or too large for a long, and a sum
+ * that overflows are kept in a BigDecimal, so the results are always exact.
+ * Results have the largest scale of the values accepted, the same as adding
+ * them as BigDecimals.
+ *
+ * Statistics merge by comparing their min and max, so the collector can be
+ * used with parallel streams. An instance itself isn't thread safe.
+ * </p>
  */
-@Component
 public class BigDecimalSummaryStatistics {
 
+    private static final int SCALE = 2;
+    private static final long MINOR_UNITS = 100;
+
+    // Whole digits that always fit in a long once in minor units
+    private static final int MAX_WHOLE_DIGITS = 16;
+
     public static Collector<BigDecimal, BigDecimalSummaryStatistics, BigDecimalSummaryStatistics> statistics() {
         return Collector.of(BigDecimalSummaryStatistics::new,
                 BigDecimalSummaryStatistics::accept, BigDecimalSummaryStatistics::merge);
     }
 
-    private BigDecimal sum = BigDecimal.ZERO;
-    private BigDecimal min = null;
-    private BigDecimal max = null;
+    // Values that fit in minor units
     private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    // Values that don't, and sums that overflowed
+    private long bigCount = 0;
+    private BigDecimal bigSum = null;
+    private BigDecimal bigMin = null;
+    private BigDecimal bigMax = null;
+
+    private int resultScale = 0;
 
     public void accept(BigDecimal value) {
 
         if (value == null)
             return;
 
-        if (count == 0) {
-            sum = value;
-            min = value;
-            max = value;
-            count = 1;
+        resultScale = Math.max(resultScale, value.scale());
+
+        if (value.scale() <= SCALE && value.precision() - value.scale() <= MAX_WHOLE_DIGITS) {
+            addValue(value.scale() == 0 ? value.longValue() * MINOR_UNITS
+                    : value.movePointRight(SCALE).longValue());
         } else {
-            sum = sum.add(value);
-            min = min.min(value);
-            max = max.max(value);
-            count++;
+            bigCount++;
+            bigSum = bigSum == null ? value : bigSum.add(value);
+            bigMin = bigMin == null || value.compareTo(bigMin) < 0 ? value : bigMin;
+            bigMax = bigMax == null || value.compareTo(bigMax) > 0 ? value : bigMax;
         }
     }
 
     public BigDecimalSummaryStatistics merge(BigDecimalSummaryStatistics statistics) {
 
-        if (statistics.count == 0)
-            return this;
+        if (statistics.count > 0) {
+            addMinorUnits(statistics.sum);
+            count += statistics.count;
+            min = Math.min(min, statistics.min);
+            max = Math.max(max, statistics.max);
+        }
 
-        if (this.count == 0) {
-            this.count = statistics.count;
-            this.sum = statistics.sum;
-            this.min = statistics.min;
-            this.max = statistics.max;
-        } else {
-            this.sum = sum.add(statistics.sum);
-            this.min = statistics.min;
-            this.max = statistics.max;
-            this.count += statistics.count;
+        if (statistics.bigSum != null) {
+            bigSum = bigSum == null ? statistics.bigSum : bigSum.add(statistics.bigSum);
+        }
+        if (statistics.bigCount > 0) {
+            bigCount += statistics.bigCount;
+            bigMin = bigMin == null || statistics.bigMin.compareTo(bigMin) < 0 ? statistics.bigMin : bigMin;
+            bigMax = bigMax == null || statistics.bigMax.compareTo(bigMax) > 0 ? statistics.bigMax : bigMax;
         }
 
+        resultScale = Math.max(resultScale, statistics.resultScale);
         return this;
     }
 
     public long getCount() {
-        return count;
+        return count + bigCount;
     }
 
     public BigDecimal getSum() {
-        return sum;
+        BigDecimal total = BigDecimal.valueOf(sum, SCALE);
+        if (bigSum != null) {
+            total = total.add(bigSum);
+        }
+        return scaled(total);
     }
 
     public BigDecimal getAverage(MathContext mc) {
-        if (count == 0)
+        if (getCount() == 0)
             return BigDecimal.ZERO;
-        return sum.divide(BigDecimal.valueOf(count), mc);
+        return getSum().divide(BigDecimal.valueOf(getCount()), mc);
     }
 
     public BigDecimal getMin() {
-        return min;
+        if (count == 0)
+            return bigMin == null ? null : scaled(bigMin);
+        BigDecimal smallest = scaled(BigDecimal.valueOf(min, SCALE));
+        return bigMin != null && bigMin.compareTo(smallest) < 0 ? scaled(bigMin) : smallest;
     }
 
     public BigDecimal getMax() {
-        return max;
+        if (count == 0)
+            return bigMax == null ? null : scaled(bigMax);
+        BigDecimal largest = scaled(BigDecimal.valueOf(max, SCALE));
+        return bigMax != null && bigMax.compareTo(largest) > 0 ? scaled(bigMax) : largest;
+    }
+
+    private void addValue(long minorUnits) {
+        addMinorUnits(minorUnits);
+        count++;
+        min = Math.min(min, minorUnits);
+        max = Math.max(max, minorUnits);
+    }
+
+    // Adds to the sum, moving the sum to bigSum when it would overflow
+    private void addMinorUnits(long minorUnits) {
+        long result = sum + minorUnits;
+        if (((sum ^ result) & (minorUnits ^ result)) < 0) {
+            BigDecimal overflow = BigDecimal.valueOf(sum, SCALE);
+            bigSum = bigSum == null ? overflow : bigSum.add(overflow);
+            result = minorUnits;
+        }
+        sum = result;
+    }
+
+    // Every value accepted has at most resultScale decimal places, so this
+    // never rounds
+    private BigDecimal scaled(BigDecimal value) {
+        return value.scale() == resultScale ? value : value.setScale(resultScale, RoundingMode.UNNECESSARY);
     }
 
     @Override
     public String toString() {
-        return count == 0 ? "BigSummaryStatistics: Empty"
-                : (count + " elements between " + min + " and " + max + ", sum=" + sum);
+        return getCount() == 0 ? "BigSummaryStatistics: Empty"
+                : (getCount() + " elements between " + getMin() + " and " + getMax() + ", sum=" + getSum());
     }
 
 }
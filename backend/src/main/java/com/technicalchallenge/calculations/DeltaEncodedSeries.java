@@ -0,0 +1,116 @@
+package com.technicalchallenge.calculations;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DeltaEncodedSeries class packs daily points of a long value into bytes and
+ * back.
+ *
+ * <p>
+ * Each point is the days since the point before it and the change in value,
+ * both as variable length integers (7 bits a byte, the change zigzag encoded
+ * so small falls are small too). A daily point whose value didn't move takes
+ * two bytes, a year of a slowly changing figure well under a kilobyte. The
+ * first point is from the series' first date and from 0.
+ *
+ * A series is only ever appended to in date order, the last date and value
+ * are kept next to the bytes so a point is added without decoding the rest.
+ * </p>
+ */
+public final class DeltaEncodedSeries {
+
+    public record Point(LocalDate date, long value) {
+    }
+
+    private DeltaEncodedSeries() {
+    }
+
+    /**
+     * Adds a point to the end of the series.
+     *
+     * @param encoded   the series so far, null or empty when it's new
+     * @param lastDate  date of the series' last point, or its first date when
+     *                  it's new
+     * @param lastValue value of the series' last point, 0 when it's new
+     * @param date      date of the point, not before lastDate
+     * @param value     value of the point
+     * @return the series with the point added
+     */
+    public static byte[] append(byte[] encoded, LocalDate lastDate, long lastValue, LocalDate date, long value) {
+
+        long days = date.toEpochDay() - lastDate.toEpochDay();
+        if (days < 0) {
+            throw new IllegalArgumentException("Point on " + date + " is before the series' last point " + lastDate);
+        }
+
+        ByteArrayOutputStream point = new ByteArrayOutputStream(4);
+        writeVarLong(point, days);
+        writeVarLong(point, zigzag(Math.subtractExact(value, lastValue)));
+
+        byte[] previous = encoded == null ? new byte[0] : encoded;
+        byte[] appended = Arrays.copyOf(previous, previous.length + point.size());
+        System.arraycopy(point.toByteArray(), 0, appended, previous.length, point.size());
+        return appended;
+    }
+
+    /**
+     * Every point of the series.
+     *
+     * @param encoded   the series
+     * @param firstDate the series' first date
+     * @return points in date order
+     */
+    public static List<Point> decode(byte[] encoded, LocalDate firstDate) {
+
+        List<Point> points = new ArrayList<>();
+        if (encoded == null) {
+            return points;
+        }
+
+        long epochDay = firstDate.toEpochDay();
+        long value = 0;
+        int[] position = { 0 };
+        while (position[0] < encoded.length) {
+            epochDay += readVarLong(encoded, position);
+            value += unzigzag(readVarLong(encoded, position));
+            points.add(new Point(LocalDate.ofEpochDay(epochDay), value));
+        }
+        return points;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] encoded, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= encoded.length) {
+                throw new IllegalArgumentException("Series ends part way through a point");
+            }
+            byte b = encoded[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Series has a point longer than a long");
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.technicalchallenge.calculations;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * LogHistogram class counts values in logarithmic buckets to estimate their
+ * quantiles in fixed memory.
+ *
+ * <p>
+ * A bucket covers (gamma^(i - 1), gamma^i] with gamma = 1.01 / 0.99, so any
+ * quantile is within 1% of the real value whatever the spread, from rates to
+ * notionals. Negative values have their own buckets and zero has bucket 0,
+ * buckets are numbered in value order.
+ *
+ * Histograms merge by adding their counts, and a count can be taken away
+ * again, so the same buckets can be kept up to date as values come and go
+ * and added together across books or traders. Buckets are clamped to
+ * MAX_INDEX either side of 1, a histogram never has more than
+ * 4 * MAX_INDEX + 3 of them. An instance isn't thread safe.
+ * </p>
+ */
+public class LogHistogram {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    // The migration's backfill buckets the stored legs with bucketOf too
+    private static final double GAMMA = 1.01 / 0.99;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // gamma^3000 is about 1e26, values beyond count as the largest bucket
+    public static final int MAX_INDEX = 3000;
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long count = 0;
+
+    /**
+     * The bucket the value is counted in.
+     *
+     * @param value any value
+     * @return 0 for zero, positive for positive values, negative for negative
+     */
+    public static int bucketOf(double value) {
+
+        if (value == 0 || Double.isNaN(value))
+            return 0;
+
+        int index = (int) Math.ceil(Math.log(Math.abs(value)) / LOG_GAMMA);
+        int bucket = Math.max(-MAX_INDEX, Math.min(MAX_INDEX, index)) + MAX_INDEX + 1;
+        return value > 0 ? bucket : -bucket;
+    }
+
+    /**
+     * The value the bucket's values are estimated as, within
+     * RELATIVE_ACCURACY of each of them.
+     *
+     * @param bucket bucket from bucketOf
+     * @return estimated value
+     */
+    public static double valueOf(int bucket) {
+
+        if (bucket == 0)
+            return 0;
+
+        int index = Math.abs(bucket) - MAX_INDEX - 1;
+        double value = 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+        return bucket > 0 ? value : -value;
+    }
+
+    public void accept(double value) {
+        add(bucketOf(value), 1);
+    }
+
+    /**
+     * Adds to the bucket's count, a negative count takes values away.
+     *
+     * @param bucket bucket from bucketOf
+     * @param delta  values added, or taken away when negative
+     */
+    public void add(int bucket, long delta) {
+        if (delta == 0)
+            return;
+        Long total = counts.merge(bucket, delta, Long::sum);
+        if (total == 0) {
+            counts.remove(bucket);
+        }
+        count += delta;
+    }
+
+    public LogHistogram merge(LogHistogram histogram) {
+        histogram.counts.forEach(this::add);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<Integer, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Estimated quantile, the value with quantile * (count - 1) values below
+     * it.
+     *
+     * @param quantile between 0 and 1, 0.5 is the median
+     * @return estimated value, null when there are no values
+     */
+    public Double getQuantile(double quantile) {
+
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        if (count <= 0)
+            return null;
+
+        long rank = (long) Math.floor(quantile * (count - 1));
+        long seen = 0;
+        Integer last = null;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            // A bucket only goes below zero when it was taken from twice
+            if (entry.getValue() <= 0)
+                continue;
+            seen += entry.getValue();
+            last = entry.getKey();
+            if (seen > rank)
+                return valueOf(last);
+        }
+        return last == null ? null : valueOf(last);
+    }
+
+    @Override
+    public String toString() {
+        return count == 0 ? "LogHistogram: Empty"
+                : (count + " values in " + counts.size() + " buckets, median=" + getQuantile(0.5));
+    }
+
+}
@@ -5,6 +5,7 @@ import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
 import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -31,7 +32,8 @@ public class SecurityConfig {
             HandlerMappingIntrospector handlerMappingIntrospector) throws Exception {
 
         MvcRequestMatcher.Builder mvc = new MvcRequestMatcher.Builder(handlerMappingIntrospector);
-        // All users can access the login endpoint but other endpoints are authenticated
+        // All users can access the login endpoint but other endpoints are authenticated,
+        // the actuator's write operations need the WRITE_ACTUATOR privilege
         http.csrf(AbstractHttpConfigurer::disable)
                 .headers(h -> h.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
                 .authorizeHttpRequests(auth -> auth.requestMatchers(mvc.pattern("/api/login")).permitAll()
@@ -39,6 +41,10 @@ public class SecurityConfig {
                                 mvc.pattern("/swagger-resources/**"), mvc.pattern("/webjars/**"),
                                 mvc.pattern("/actuator/health"))
                         .permitAll()
+                        .requestMatchers(mvc.pattern(HttpMethod.POST, "/actuator/**"),
+                                mvc.pattern(HttpMethod.PUT, "/actuator/**"),
+                                mvc.pattern(HttpMethod.DELETE, "/actuator/**"))
+                        .hasAuthority("WRITE_ACTUATOR")
                         .anyRequest().authenticated())
                 .httpBasic(withDefaults());
 
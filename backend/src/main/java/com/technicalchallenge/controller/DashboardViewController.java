@@ -2,20 +2,41 @@ package com.technicalchallenge.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.LocalDate;
+import java.util.List;
+
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.technicalchallenge.cache.DashboardResultCache;
+import com.technicalchallenge.cache.DashboardResultCache.Cached;
+import com.technicalchallenge.dto.CountMode;
+import com.technicalchallenge.dto.CounterpartyConcentrationDTO;
 import com.technicalchallenge.dto.DailySummaryDTO;
+import com.technicalchallenge.dto.DashboardDeltaDTO;
+import com.technicalchallenge.dto.DashboardHistoryDTO;
+import com.technicalchallenge.dto.DistributionDTO;
+import com.technicalchallenge.dto.HierarchyNodeDTO;
 import com.technicalchallenge.dto.TradeSummaryDTO;
 import com.technicalchallenge.security.ApplicationUserDetails;
+import com.technicalchallenge.service.CounterpartyExposureService;
+import com.technicalchallenge.service.DashboardSnapshotService;
+import com.technicalchallenge.service.DashboardStreamService;
 import com.technicalchallenge.service.DashboardViewService;
+import com.technicalchallenge.service.DistributionSketchService;
+import com.technicalchallenge.service.HierarchyRollupService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -29,6 +50,29 @@ import lombok.RequiredArgsConstructor;
  * Rest Controller for viewing personal dashboards and blotter system
  * 
  * API endpoints to complete READ operations.
+ * 
+ * UPDATED: The personal trades, portfolio summary and daily summary are served
+ * through the {@link DashboardResultCache}, the Age header is how many seconds
+ * old the dashboard is.
+ * 
+ * UPDATED: /stream pushes changes to the portfolio summary as server-sent
+ * events instead of polling it.
+ * 
+ * UPDATED: /hierarchy returns the desk hierarchy with the trade totals at
+ * every level.
+ * 
+ * UPDATED: /distribution and /book/{id}/distribution return the trader's and
+ * the book's leg notional and rate percentiles.
+ * 
+ * UPDATED: /history and /book/{id}/history return the trader's and the
+ * book's end of day figures between two dates.
+ * 
+ * UPDATED: /counterparties and /book/{id}/counterparties return the trader's
+ * and the book's largest counterparty exposures.
+ * 
+ * UPDATED: /hierarchy and the /book/{id} distribution, history and
+ * counterparties are firm-wide figures, not the caller's, so they need
+ * DASHBOARD_FIRM_VIEW.
  */
 @RestController
 @RequestMapping("/api/trades/dashboard")
@@ -38,35 +82,54 @@ public class DashboardViewController {
         private static final Logger logger = LoggerFactory.getLogger(DashboardViewController.class);
 
         private final DashboardViewService dashboardViewService;
+        private final DashboardResultCache dashboardResultCache;
+        private final DashboardStreamService dashboardStreamService;
+        private final HierarchyRollupService hierarchyRollupService;
+        private final DistributionSketchService distributionSketchService;
+        private final DashboardSnapshotService dashboardSnapshotService;
+        private final CounterpartyExposureService counterpartyExposureService;
 
-        @Operation(summary = "Get the trader's personal trades view", description = "Retrieves all the user's trades.")
+        @Operation(summary = "Get the trader's personal trades view", description = "Retrieves all the user's trades. count=EXACT (default) returns a page with an exact total, count=NONE returns a slice with hasNext only and count=APPROXIMATE adds a cached total, neither runs a count query with every page. Cached for up to trade.dashboard.cache.ttl-seconds, the Age header is its age in seconds. The trades and the totals are read at the same time, one that isn't read by trade.dashboard.query.deadline-ms is left out and named in partialSections.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved all the user's trades", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeSummaryDTO.class))),
                         @ApiResponse(responseCode = "401", description = "User's access denied"),
                         @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
-                        @ApiResponse(responseCode = "500", description = "Internal server error")
+                        @ApiResponse(responseCode = "500", description = "Internal server error"),
+                        @ApiResponse(responseCode = "503", description = "Neither the trades nor the totals were read in time")
         })
         @GetMapping("/my-trades")
         @PreAuthorize("hasAuthority('DASHBOARD_VIEW')")
         @ResponseBody
         public ResponseEntity<TradeSummaryDTO> getTraderDashboard(
                         @AuthenticationPrincipal ApplicationUserDetails userDetails,
-                        Pageable pageable) {
+                        Pageable pageable,
+                        @RequestParam(value = "count", defaultValue = "EXACT") CountMode count) {
                 String username = userDetails.getUsername();
                 logger.info("Fetching the user's personal trades: {}", username);
 
-                TradeSummaryDTO personalDashboard = dashboardViewService.getTraderDashboard(username, pageable);
+                Cached<TradeSummaryDTO> cached = dashboardResultCache.get("my-trades", username,
+                                List.of(pageable, count),
+                                () -> dashboardViewService.getTraderDashboard(username, pageable, count),
+                                dashboard -> !isPartial(dashboard, null));
+                TradeSummaryDTO personalDashboard = cached.value();
 
-                if (personalDashboard == null || personalDashboard.getTrades() == null
-                                || personalDashboard.getTrades().isEmpty()) {
+                // Trades that weren't read in time aren't the same as no trades
+                boolean noTrades = personalDashboard == null
+                                || !isPartial(personalDashboard, "trades")
+                                                && (personalDashboard.getTrades() == null
+                                                                || personalDashboard.getTrades().isEmpty())
+                                                && (personalDashboard.getTradeSlice() == null
+                                                                || personalDashboard.getTradeSlice().content().isEmpty());
+                if (noTrades) {
                         return ResponseEntity.noContent().build();
                 }
 
-                return ResponseEntity.ok(personalDashboard);
+                return ResponseEntity.ok().header(HttpHeaders.AGE, String.valueOf(cached.ageSeconds()))
+                                .body(personalDashboard);
 
         }
 
-        @Operation(summary = "Get the trader's portfolio summaries view", description = "Retrieves the trader's portfolio summary including the total notional amounts by currency, total number of trades by status, breakdowns by trade type and counterparties and risk exposure.")
+        @Operation(summary = "Get the trader's portfolio summaries view", description = "Retrieves the trader's portfolio summary including the total notional amounts by currency, total number of trades by status, breakdowns by trade type and counterparties and risk exposure. Cached for up to trade.dashboard.cache.ttl-seconds, the Age header is its age in seconds.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved all the user's trade summary", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeSummaryDTO.class))),
                         @ApiResponse(responseCode = "401", description = "User's access denied"),
@@ -81,7 +144,9 @@ public class DashboardViewController {
                 String username = userDetails.getUsername();
                 logger.info("Fetching the user's trade summary: {}", username);
 
-                TradeSummaryDTO portfolioDashboard = dashboardViewService.getTradePortfolioSummaries(username);
+                Cached<TradeSummaryDTO> cached = dashboardResultCache.get("summary", username, null,
+                                () -> dashboardViewService.getTradePortfolioSummaries(username));
+                TradeSummaryDTO portfolioDashboard = cached.value();
 
                 if (portfolioDashboard == null || portfolioDashboard.getNotionalByTradeType() == null
                                 || portfolioDashboard.getNotionalByCounterparty() == null
@@ -91,7 +156,8 @@ public class DashboardViewController {
                         return ResponseEntity.noContent().build();
                 }
 
-                return ResponseEntity.ok(portfolioDashboard);
+                return ResponseEntity.ok().header(HttpHeaders.AGE, String.valueOf(cached.ageSeconds()))
+                                .body(portfolioDashboard);
 
         }
 
@@ -123,7 +189,7 @@ public class DashboardViewController {
 
         }
 
-        @Operation(summary = "Get the trader's daily trading statistics view", description = "Retrieves the trader's daily summary including the daily summaried statistics and comparison to previous trading days.")
+        @Operation(summary = "Get the trader's daily trading statistics view", description = "Retrieves the trader's daily summary including the daily summaried statistics and comparison to previous trading days. Cached for up to trade.dashboard.cache.ttl-seconds, the Age header is its age in seconds.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved all the user's daily trading statistics", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DailySummaryDTO.class))),
                         @ApiResponse(responseCode = "401", description = "User's access denied"),
@@ -139,15 +205,173 @@ public class DashboardViewController {
                 String username = userDetails.getUsername();
                 logger.info("Fetching the user's daily trading statistics: {}", username);
 
-                DailySummaryDTO dailyTradingSummary = dashboardViewService.getDailyTradingStatistics(username);
+                Cached<DailySummaryDTO> cached = dashboardResultCache.get("daily-summary", username, null,
+                                () -> dashboardViewService.getDailyTradingStatistics(username));
+                DailySummaryDTO dailyTradingSummary = cached.value();
 
                 if (dailyTradingSummary == null || dailyTradingSummary.getComparison() == null
                                 || dailyTradingSummary.getSummarisedMetrics() == null) {
                         return ResponseEntity.noContent().build();
                 }
 
-                return ResponseEntity.ok(dailyTradingSummary);
+                return ResponseEntity.ok().header(HttpHeaders.AGE, String.valueOf(cached.ageSeconds()))
+                                .body(dailyTradingSummary);
+
+        }
+
+        @Operation(summary = "Stream changes to the trader's portfolio summary", description = "Server-sent events: connected when the stream opens, delta (DashboardDeltaDTO) with the figures changed by every committed write to one of the trader's trades, and resync when the client fell behind and should fetch the summary again. Deltas older than the summary's asOf are already in it.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Stream opened", content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = DashboardDeltaDTO.class))),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        @PreAuthorize("hasAuthority('DASHBOARD_VIEW')")
+        public SseEmitter streamDashboard(@AuthenticationPrincipal ApplicationUserDetails userDetails) {
+
+                String username = userDetails.getUsername();
+                logger.info("Opening the user's dashboard stream: {}", username);
+
+                return dashboardStreamService.subscribe(username);
+
+        }
+
+        @Operation(summary = "Get the desk hierarchy rollups", description = "Retrieves every desk with its sub desks, cost centers and books, and the count and notional of the live trades booked under each of them, read from the maintained rollups.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the hierarchy", content = @Content(mediaType = "application/json", schema = @Schema(implementation = HierarchyNodeDTO.class))),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/hierarchy")
+        @PreAuthorize("hasAuthority('DASHBOARD_FIRM_VIEW')")
+        public ResponseEntity<List<HierarchyNodeDTO>> getHierarchyRollups() {
+
+                logger.info("Fetching the desk hierarchy rollups");
+                return ResponseEntity.ok(hierarchyRollupService.getHierarchyTree());
+
+        }
+
+        @Operation(summary = "Get the trader's notional and rate distribution", description = "Retrieves the median, 95th and 99th percentile leg notional and rate of the trader's live trades, estimated to within 1% from the maintained histograms.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the user's distribution", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DistributionDTO.class))),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/distribution")
+        @PreAuthorize("hasAuthority('DASHBOARD_VIEW')")
+        public ResponseEntity<DistributionDTO> getTraderDistribution(
+                        @AuthenticationPrincipal ApplicationUserDetails userDetails) {
+
+                String username = userDetails.getUsername();
+                logger.info("Fetching the user's distribution: {}", username);
+
+                return ResponseEntity.ok(distributionSketchService.getTraderDistribution(username));
+
+        }
+
+        @Operation(summary = "Get the book's notional and rate distribution", description = "Retrieves the median, 95th and 99th percentile leg notional and rate of the book's live trades, estimated to within 1% from the maintained histograms.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the book's distribution", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DistributionDTO.class))),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/book/{id}/distribution")
+        @PreAuthorize("hasAuthority('DASHBOARD_FIRM_VIEW')")
+        public ResponseEntity<DistributionDTO> getBookDistribution(@PathVariable("id") Long id) {
+
+                logger.info("Fetching the book's distribution: {}", id);
+                return ResponseEntity.ok(distributionSketchService.getBookDistribution(id));
 
         }
 
+        @Operation(summary = "Get the trader's dashboard history", description = "Retrieves the trader's end of day trade count, notional and currency mix between fromDate and toDate (a year up to today by default, at most trade.dashboard.history.max-days), a point for every day snapshotted.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the user's history", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DashboardHistoryDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "fromDate is after toDate or the range is too long"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/history")
+        @PreAuthorize("hasAuthority('DASHBOARD_VIEW')")
+        public ResponseEntity<DashboardHistoryDTO> getTraderHistory(
+                        @AuthenticationPrincipal ApplicationUserDetails userDetails,
+                        @RequestParam(value = "fromDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam(value = "toDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+
+                String username = userDetails.getUsername();
+                logger.info("Fetching the user's dashboard history: {}", username);
+
+                return ResponseEntity.ok(dashboardSnapshotService.getTraderHistory(username, fromDate, toDate));
+
+        }
+
+        @Operation(summary = "Get the book's dashboard history", description = "Retrieves the book's end of day trade count, notional and currency mix between fromDate and toDate (a year up to today by default, at most trade.dashboard.history.max-days), a point for every day snapshotted.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the book's history", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DashboardHistoryDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "fromDate is after toDate or the range is too long"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/book/{id}/history")
+        @PreAuthorize("hasAuthority('DASHBOARD_FIRM_VIEW')")
+        public ResponseEntity<DashboardHistoryDTO> getBookHistory(@PathVariable("id") Long id,
+                        @RequestParam(value = "fromDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                        @RequestParam(value = "toDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+
+                logger.info("Fetching the book's dashboard history: {}", id);
+                return ResponseEntity.ok(dashboardSnapshotService.getBookHistory(id, fromDate, toDate));
+
+        }
+
+        @Operation(summary = "Get the trader's largest counterparty exposures", description = "Retrieves the top counterparties (10 by default, at most trade.dashboard.counterparties.max-top) by leg notional of the trader's live trades, largest first, each with its share of the trader's whole notional. Read from the maintained exposures, not the trades.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the user's counterparty exposures", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CounterpartyConcentrationDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "top is out of range"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/counterparties")
+        @PreAuthorize("hasAuthority('DASHBOARD_VIEW')")
+        public ResponseEntity<CounterpartyConcentrationDTO> getTraderCounterparties(
+                        @AuthenticationPrincipal ApplicationUserDetails userDetails,
+                        @RequestParam(value = "top", defaultValue = "10") int top) {
+
+                String username = userDetails.getUsername();
+                logger.info("Fetching the user's top {} counterparties: {}", top, username);
+
+                return ResponseEntity.ok(counterpartyExposureService.getTraderConcentration(username, top));
+
+        }
+
+        @Operation(summary = "Get the book's largest counterparty exposures", description = "Retrieves the top counterparties (10 by default, at most trade.dashboard.counterparties.max-top) by leg notional of the book's live trades, largest first, each with its share of the book's whole notional. Read from the maintained exposures, not the trades.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the book's counterparty exposures", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CounterpartyConcentrationDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "top is out of range"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "204", description = "No Data for Dashboard is found"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/book/{id}/counterparties")
+        @PreAuthorize("hasAuthority('DASHBOARD_FIRM_VIEW')")
+        public ResponseEntity<CounterpartyConcentrationDTO> getBookCounterparties(@PathVariable("id") Long id,
+                        @RequestParam(value = "top", defaultValue = "10") int top) {
+
+                logger.info("Fetching the book's top {} counterparties: {}", top, id);
+                return ResponseEntity.ok(counterpartyExposureService.getBookConcentration(id, top));
+
+        }
+
+        // Whether the dashboard left the section out, or any section when null
+        private static boolean isPartial(TradeSummaryDTO dashboard, String section) {
+                List<String> partialSections = dashboard == null ? null : dashboard.getPartialSections();
+                if (partialSections == null || partialSections.isEmpty()) {
+                        return false;
+                }
+                return section == null || partialSections.contains(section);
+        }
+
 }
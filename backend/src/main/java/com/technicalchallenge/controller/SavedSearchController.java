@@ -0,0 +1,127 @@
+package com.technicalchallenge.controller;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.technicalchallenge.dto.PaginationDTO;
+import com.technicalchallenge.dto.SavedSearchDTO;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.service.SavedSearchService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rest Controller for saved searches.
+ *
+ * A user's standing multi criteria or RSQL searches, their matching trades are
+ * kept up to date as trades are written so reading one is a lookup.
+ */
+@RestController
+@RequestMapping("/api/saved-searches")
+@Validated
+@Tag(name = "Saved Searches", description = "Standing trade searches with results maintained on every trade write")
+@RequiredArgsConstructor
+public class SavedSearchController {
+        private static final Logger logger = LoggerFactory.getLogger(SavedSearchController.class);
+
+        private final SavedSearchService savedSearchService;
+
+        @PostMapping
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Save a search", description = "Saves a multi criteria search (criteria) or an RSQL query (rsqlQuery) for the current user and stores the trades matching it")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "201", description = "Search saved", content = @Content(mediaType = "application/json", schema = @Schema(implementation = SavedSearchDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "Invalid search, duplicate name or the search matches too many trades"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        public ResponseEntity<SavedSearchDTO> createSavedSearch(@Valid @RequestBody SavedSearchDTO savedSearchDTO) {
+                logger.info("Saving search: {}", savedSearchDTO.name());
+                return ResponseEntity.status(HttpStatus.CREATED)
+                                .body(savedSearchService.createSavedSearch(savedSearchDTO));
+        }
+
+        @GetMapping
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Get saved searches", description = "Retrieves the current user's saved searches with the number of trades matching each")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved saved searches", content = @Content(mediaType = "application/json", schema = @Schema(implementation = SavedSearchDTO.class))),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        public List<SavedSearchDTO> getSavedSearches() {
+                return savedSearchService.getSavedSearches();
+        }
+
+        @GetMapping("/{id}/trades")
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Get a saved search's trades", description = "Returns the trades currently matching the saved search from its stored results, without running the search. Optionally paged with pageNo and pageSize")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Successfully retrieved the matching trades", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeDTO.class))),
+                        @ApiResponse(responseCode = "204", description = "No Trades match"),
+                        @ApiResponse(responseCode = "400", description = "Invalid page"),
+                        @ApiResponse(responseCode = "404", description = "Saved search not found"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        public ResponseEntity<Page<TradeDTO>> getSavedSearchTrades(
+                        @Parameter(description = "Saved search identifier", required = true) @PathVariable(name = "id") Long id,
+                        PaginationDTO pagination) {
+
+                Page<TradeDTO> trades = savedSearchService.getSavedSearchTrades(id, pagination);
+
+                if (trades.isEmpty()) {
+                        return ResponseEntity.noContent().build();
+                }
+
+                return ResponseEntity.ok(trades);
+        }
+
+        @PostMapping("/{id}/refresh")
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Refresh a saved search", description = "Runs the saved search again and replaces its stored trades, for reference data changes that aren't trade writes")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Saved search refreshed", content = @Content(mediaType = "application/json", schema = @Schema(implementation = SavedSearchDTO.class))),
+                        @ApiResponse(responseCode = "404", description = "Saved search not found"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        public SavedSearchDTO refreshSavedSearch(
+                        @Parameter(description = "Saved search identifier", required = true) @PathVariable(name = "id") Long id) {
+                return savedSearchService.refreshSavedSearch(id);
+        }
+
+        @DeleteMapping("/{id}")
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Delete a saved search")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "204", description = "Saved search deleted"),
+                        @ApiResponse(responseCode = "404", description = "Saved search not found"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied")
+        })
+        public ResponseEntity<Void> deleteSavedSearch(
+                        @Parameter(description = "Saved search identifier", required = true) @PathVariable(name = "id") Long id) {
+                logger.info("Deleting saved search: {}", id);
+                savedSearchService.deleteSavedSearch(id);
+                return ResponseEntity.noContent().build();
+        }
+
+}
@@ -80,6 +80,38 @@ public class TradeController {
                 return ResponseEntity.ok(tradeDTO);
         }
 
+        @GetMapping(params = "ids")
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Get trades by IDs", description = "Retrieves many trades by their unique identifiers in one request, in the order the IDs were given")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Trades found and returned successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeDTO.class))),
+                        @ApiResponse(responseCode = "404", description = "One or more trades not found"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "400", description = "No IDs or too many IDs requested")
+        })
+        public List<TradeDTO> getTradesByIds(
+                        @Parameter(description = "Comma separated trade identifiers", required = true) @RequestParam(name = "ids") List<Long> ids) {
+                logger.debug("Fetching {} trades by id", ids.size());
+
+                return tradeService.getTradesByIds(ids).stream()
+                                .map(tradeMapper::toDto)
+                                .toList();
+        }
+
+        @PostMapping("/multi-get")
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        @Operation(summary = "Get trades by IDs (long lists)", description = "Same as GET /api/trades?ids=... with the IDs in the request body, for lists too long for a URL")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Trades found and returned successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeDTO.class))),
+                        @ApiResponse(responseCode = "404", description = "One or more trades not found"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "400", description = "No IDs or too many IDs requested")
+        })
+        public List<TradeDTO> postTradesByIds(
+                        @Parameter(description = "Trade identifiers", required = true) @RequestBody List<Long> ids) {
+                return getTradesByIds(ids);
+        }
+
         @PostMapping
         @PreAuthorize("hasAuthority('CREATE_TRADE')")
         @Operation(summary = "Create new trade", description = "Creates a new trade with the provided details. Automatically generates cashflows and validates business rules.")
@@ -1,8 +1,13 @@
 package com.technicalchallenge.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
@@ -10,13 +15,23 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.technicalchallenge.dto.CountMode;
 import com.technicalchallenge.dto.PaginationDTO;
 import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.SliceDTO;
 import com.technicalchallenge.dto.SortDTO;
 import com.technicalchallenge.dto.TradeDTO;
 import com.technicalchallenge.mapper.TradeMapper;
+import com.technicalchallenge.model.Trade;
 import com.technicalchallenge.service.TradeSearchService;
+import com.technicalchallenge.service.TradeStream;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -42,6 +57,7 @@ public class TradeSearchController {
 
         private final TradeSearchService tradeSearchService;
         private final TradeMapper tradeMapper;
+        private final ObjectMapper objectMapper;
 
         @Operation(summary = "Get all trades by search criteria", description = "Retrieves Trades by counterparty, book, trader, status, date ranges and returns comprehensive trade information including legs and cashflows.")
         @ApiResponses(value = {
@@ -55,9 +71,7 @@ public class TradeSearchController {
         public ResponseEntity<List<TradeDTO>> getAllTradesByCriteria(
                         @Valid @RequestBody SearchTradeByCriteria searchTradeByCriteria) {
 
-                List<TradeDTO> trades = tradeSearchService.getAllTradesByCriteria(searchTradeByCriteria).stream()
-                                .map(tradeMapper::toDto)
-                                .toList();
+                List<TradeDTO> trades = tradeSearchService.searchTradesByCriteria(searchTradeByCriteria);
 
                 if (trades.isEmpty()) {
                         return ResponseEntity.noContent().build();
@@ -67,21 +81,49 @@ public class TradeSearchController {
 
         }
 
-        @Operation(summary = "Get a result of paginated filtered trades by filter", description = "Returns a page of trades, that can be filtered, paginated or sorted")
+        @Operation(summary = "Stream all trades by search criteria", description = "Streams the trades matching the search criteria as newline delimited JSON, one trade per line, when requested with Accept: application/x-ndjson. Trades are read through a database cursor and written as they arrive, so memory use doesn't grow with the result size.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Streaming trades, an empty body if none matched", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = TradeDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "Invalid search criteria"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        public ResponseEntity<StreamingResponseBody> streamTradesByCriteria(
+                        @Valid @RequestBody SearchTradeByCriteria searchTradeByCriteria) {
+
+                return ndjson(tradeSearchService.streamTradesByCriteria(searchTradeByCriteria));
+        }
+
+        @Operation(summary = "Get a result of paginated filtered trades by filter", description = "Returns a page of trades, that can be filtered, paginated or sorted. count=EXACT (default) returns a page with an exact total, count=NONE returns a slice with hasNext only and count=APPROXIMATE adds a cached total, neither runs a count query with every page.")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved paginated filtered trades", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeDTO.class))),
                         @ApiResponse(responseCode = "204", description = "No Trades found"),
+                        @ApiResponse(responseCode = "400", description = "Invalid search criteria, sort or page"),
                         @ApiResponse(responseCode = "401", description = "User's access denied"),
                         @ApiResponse(responseCode = "500", description = "Internal server error")
         })
         @GetMapping("/filter")
         @PreAuthorize("hasAuthority('READ_TRADE')")
-        public ResponseEntity<Page<TradeDTO>> getAllTrades(
+        public ResponseEntity<?> getAllTrades(
                         @Valid @RequestBody SearchTradeByCriteria searchTradeByCriteria,
-                        PaginationDTO pagination, SortDTO sort) {
+                        PaginationDTO pagination, SortDTO sort,
+                        @RequestParam(value = "count", defaultValue = "EXACT") CountMode count) {
+
+                // Count-free slice, hasNext and an optional approximate total
+                if (count != CountMode.EXACT) {
+                        SliceDTO<TradeDTO> slice = tradeSearchService.searchTradeSlice(searchTradeByCriteria,
+                                        pagination, sort, count);
+
+                        if (slice.content().isEmpty()) {
+                                return ResponseEntity.noContent().build();
+                        }
+
+                        return ResponseEntity.ok(slice);
+                }
 
-                Page<TradeDTO> trades = tradeSearchService.getAllTrades(searchTradeByCriteria, pagination, sort)
-                                .map(tradeMapper::toDto);
+                Page<TradeDTO> trades = tradeSearchService.searchTrades(searchTradeByCriteria, pagination, sort);
 
                 if (trades.isEmpty()) {
                         return ResponseEntity.noContent().build();
@@ -90,19 +132,23 @@ public class TradeSearchController {
                 return ResponseEntity.ok(trades);
         }
 
-        @Operation(summary = "Get all trades by rsql", description = "Retrieves a list of trades filtered by RSQL JPA Spring Boot starter query plugin, io.github.perplexhub:rsql-jpa-spring-boot-starter, to process dynamic RSQL query strings")
+        @Operation(summary = "Get all trades by rsql", description = "Retrieves a list of trades filtered by RSQL JPA Spring Boot starter query plugin, io.github.perplexhub:rsql-jpa-spring-boot-starter, to process dynamic RSQL query strings. Broad queries are returned a page at a time, a Link header with rel=\"next\" points to the next page when the results were cut off")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Successfully retrieved all trades by RSQL", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TradeDTO.class))),
                         @ApiResponse(responseCode = "204", description = "No Trades found"),
+                        @ApiResponse(responseCode = "400", description = "Invalid query, page or the query is too expensive to run"),
                         @ApiResponse(responseCode = "401", description = "User's access denied"),
-                        @ApiResponse(responseCode = "500", description = "Internal server error")
+                        @ApiResponse(responseCode = "500", description = "Internal server error"),
+                        @ApiResponse(responseCode = "503", description = "Query timed out")
         })
         @GetMapping("/rsql")
         @PreAuthorize("hasAuthority('READ_TRADE')")
         public ResponseEntity<List<TradeDTO>> getTradesByRSQL(
-                        @Valid @RequestParam(value = "query", required = false) String query) {
+                        @Valid @RequestParam(value = "query", required = false) String query,
+                        PaginationDTO pagination) {
 
-                List<TradeDTO> trades = tradeSearchService.getAllTradesByRSQL(query).stream()
+                Slice<Trade> results = tradeSearchService.getAllTradesByRSQL(query, pagination);
+                List<TradeDTO> trades = results.getContent().stream()
                                 .map(tradeMapper::toDto)
                                 .toList();
 
@@ -110,8 +156,57 @@ public class TradeSearchController {
                         return ResponseEntity.noContent().build();
                 }
 
+                if (results.hasNext()) {
+                        // Results were cut off, link to the next page
+                        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                                        .replaceQueryParam("pageNo", results.getNumber() + 2)
+                                        .replaceQueryParam("pageSize", results.getSize())
+                                        .toUriString();
+                        return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                                        .body(trades);
+                }
+
                 return ResponseEntity.ok(trades);
 
         }
 
+        @Operation(summary = "Stream all trades by rsql", description = "Streams the trades matching the RSQL query as newline delimited JSON, one trade per line, when requested with Accept: application/x-ndjson. Broad queries aren't paged when streamed, rejected queries still return a 400.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Streaming trades, an empty body if none matched", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = TradeDTO.class))),
+                        @ApiResponse(responseCode = "400", description = "Invalid query or the query is too expensive to run"),
+                        @ApiResponse(responseCode = "401", description = "User's access denied"),
+                        @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping(value = "/rsql", produces = MediaType.APPLICATION_NDJSON_VALUE)
+        @PreAuthorize("hasAuthority('READ_TRADE')")
+        public ResponseEntity<StreamingResponseBody> streamTradesByRSQL(
+                        @Valid @RequestParam(value = "query", required = false) String query) {
+
+                return ndjson(tradeSearchService.streamTradesByRSQL(query));
+        }
+
+        // Maps and writes each trade as it's read, one JSON document per line
+        private ResponseEntity<StreamingResponseBody> ndjson(TradeStream trades) {
+
+                // Leave flushing to the generator's buffer instead of every row
+                ObjectWriter writer = objectMapper.writer()
+                                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+                StreamingResponseBody body = outputStream -> {
+                        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                                trades.forEach(trade -> {
+                                        try {
+                                                writer.writeValue(generator, tradeMapper.toDto(trade));
+                                                generator.writeRaw('\n');
+                                        } catch (IOException e) {
+                                                throw new UncheckedIOException(e);
+                                        }
+                                });
+                        }
+                };
+
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+        }
+
 }
@@ -0,0 +1,17 @@
+package com.technicalchallenge.dto;
+
+/**
+ * How a paged search works out its total
+ * 
+ * <p>
+ * - EXACT: a page with an exact total, runs a COUNT query with every page
+ * 
+ * - APPROXIMATE: a slice with a cached count as the total, the count is only
+ * run when it isn't cached
+ * 
+ * - NONE: a slice with hasNext only, no COUNT query
+ * </p>
+ */
+public enum CountMode {
+    EXACT, APPROXIMATE, NONE
+}
@@ -0,0 +1,23 @@
+package com.technicalchallenge.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * CounterpartyConcentration
+ *
+ * <p>
+ * The largest counterparty exposures of the live trades in a book or of a
+ * trader, each with its share of the book's or trader's whole leg notional.
+ * </p>
+ */
+@Schema(description = "Largest counterparty exposures of a book's or trader's live trades")
+public record CounterpartyConcentrationDTO(
+
+        @Schema(description = "BOOK or TRADER", example = "BOOK") String level,
+        @Schema(description = "Book's or trader's unique identification", example = "1000") Long id,
+        @Schema(description = "Leg notional of all the live trades, the shares are of this", example = "25000000.00") BigDecimal totalNotional,
+        @Schema(description = "Largest exposures first") List<TradeSummaryDTO.CounterpartyBreakdown> topCounterparties) {
+}
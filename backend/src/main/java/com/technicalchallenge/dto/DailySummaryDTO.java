@@ -2,6 +2,7 @@ package com.technicalchallenge.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +38,9 @@ public class DailySummaryDTO {
         @Schema(description = "Today's date", example = "7-11-2025")
         private final LocalDate todaysDate;
 
+        @Schema(description = "When the dashboard was computed, cached dashboards are served for a few seconds")
+        private LocalDateTime asOf;
+
         // Summarised List of Book Activities
         @Schema(description = "Book-level activity summaries")
         private final List<BookActivity> bookActivites;
@@ -74,12 +78,15 @@ public class DailySummaryDTO {
          * 
          */
 
-        // Flatten Version of books
+        // Flatten Version of books, the trade count and last activity are
+        // from the maintained counters
         @Schema(description = "Book Activity")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public static record BookActivity(
                         String bookName,
                         String costCenterName, String subDeskName,
-                        BigDecimal totalNotional, Integer version) {
+                        BigDecimal totalNotional, Integer version,
+                        Long tradeCount, LocalDateTime lastActivityAt) {
         }
 
         // Flatten Version of metrics
@@ -87,7 +94,9 @@ public class DailySummaryDTO {
         public static record Metrics(
                         Long tradeCount,
                         BigDecimal averageNotional,
-                        BigDecimal totalNotional) {
+                        BigDecimal totalNotional,
+                        BigDecimal minNotional,
+                        BigDecimal maxNotional) {
         }
 
         // Flatten Version of comparison
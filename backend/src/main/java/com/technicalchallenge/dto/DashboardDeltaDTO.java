@@ -0,0 +1,46 @@
+package com.technicalchallenge.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Dashboard Delta
+ *
+ * <p>
+ * Pushed on the dashboard stream when one of the trader's trades is written,
+ * the changes are added to the matching figures of the portfolio summary
+ * (TradeSummaryDTO) the UI already holds, rather than fetching it again.
+ * </p>
+ */
+@Schema(description = "Changes to the trader's portfolio summary from one trade write")
+public record DashboardDeltaDTO(
+
+        @Schema(description = "What happened to the trade", example = "AMENDED") String writeType,
+        @Schema(description = "Trade's business identifier", example = "100001") Long tradeId,
+        @Schema(description = "Figures the write changed") List<Change> changes,
+        @Schema(description = "When the write was pushed") LocalDateTime asOf) {
+
+    /**
+     * Change to one figure
+     *
+     * @param dimension      STATUS (totalCountByStatus), CURRENCY
+     *                       (totalNotionalByCurrency), TRADE_TYPE, COUNTERPARTY
+     *                       or EXPOSURE
+     * @param key            status, currency, trade type or counterparty name
+     * @param payReceiveFlag pay/receive flag for EXPOSURE, null otherwise
+     * @param countChange    change to the trade count, STATUS only
+     * @param notionalChange change to the notional, null for STATUS
+     */
+    @Schema(description = "Change to one figure of the portfolio summary")
+    public record Change(
+            @Schema(description = "Which figures", example = "CURRENCY") String dimension,
+            @Schema(description = "Which figure", example = "EUR") String key,
+            @Schema(description = "Pay/receive flag of an EXPOSURE figure", example = "Pay") String payReceiveFlag,
+            @Schema(description = "Change to the trade count", example = "1") Long countChange,
+            @Schema(description = "Change to the notional", example = "1000000") BigDecimal notionalChange) {
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.technicalchallenge.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Dashboard History
+ *
+ * <p>
+ * A trader's or book's end of day figures between two dates, a point for
+ * every day the snapshot job ran.
+ * </p>
+ */
+@Schema(description = "End of day trade count, notional and currency mix of a trader or book")
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record DashboardHistoryDTO(
+
+        @Schema(description = "TRADER or BOOK", example = "TRADER") String level,
+        @Schema(description = "Trader's login id or book id", example = "victoria") String key,
+        @Schema(description = "First date asked for", example = "2024-11-08") LocalDate fromDate,
+        @Schema(description = "Last date asked for", example = "2025-11-07") LocalDate toDate,
+        @Schema(description = "End of day points in date order") List<Point> points) {
+
+    @Schema(description = "End of day figures")
+    public static record Point(
+            @Schema(description = "Trading day", example = "2025-11-07") LocalDate date,
+            @Schema(description = "Live trades", example = "12") Long tradeCount,
+            @Schema(description = "Notional of the live trades' legs", example = "45000000.00") BigDecimal totalNotional,
+            @Schema(description = "Notional by leg currency") Map<String, BigDecimal> currencyMix) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.technicalchallenge.dto;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Distribution
+ *
+ * <p>
+ * The median, 95th and 99th percentile leg notional and rate of the live
+ * trades in a book or of a trader, estimated from maintained histograms to
+ * within 1% of the real values.
+ * </p>
+ */
+@Schema(description = "Leg notional and rate percentiles of a book's or trader's live trades")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DistributionDTO(
+
+        @Schema(description = "BOOK or TRADER", example = "BOOK") String level,
+        @Schema(description = "Book's or trader's unique identification", example = "1000") Long id,
+        @Schema(description = "Leg notional percentiles") Quantiles notional,
+        @Schema(description = "Leg rate percentiles, legs without a rate aren't counted") Quantiles rate) {
+
+    @Schema(description = "Percentiles, each within 1% of the real value")
+    public static record Quantiles(
+            @Schema(description = "Legs counted", example = "240") Long legCount,
+            @Schema(description = "Median", example = "1000000.00") BigDecimal median,
+            @Schema(description = "95th percentile", example = "9950000.00") BigDecimal p95,
+            @Schema(description = "99th percentile", example = "24800000.00") BigDecimal p99) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.technicalchallenge.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Hierarchy Node
+ *
+ * <p>
+ * One desk, sub desk, cost center or book with the totals of the live trades
+ * booked under it and the nodes below it. Desks are the top of the tree,
+ * a node without a parent is at the top too.
+ * </p>
+ */
+@Schema(description = "A level of the desk hierarchy with the live trades booked under it")
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record HierarchyNodeDTO(
+
+        @Schema(description = "DESK, SUB_DESK, COST_CENTER or BOOK", example = "DESK") String level,
+        @Schema(description = "Node's unique identification", example = "1000") Long id,
+        @Schema(description = "Desk, sub desk, cost center or book name", example = "FX") String name,
+        @Schema(description = "Live trades booked under the node", example = "12") Long tradeCount,
+        @Schema(description = "Notional of the live trades booked under the node", example = "45000000") BigDecimal totalNotional,
+        @Schema(description = "Nodes one level down") List<HierarchyNodeDTO> children) {
+}
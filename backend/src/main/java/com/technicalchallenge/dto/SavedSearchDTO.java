@@ -0,0 +1,28 @@
+package com.technicalchallenge.dto;
+
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Saved Search
+ * 
+ * <p>
+ * A standing search kept on the server, either multi criteria or RSQL. The
+ * trades matching it are kept up to date as trades are written, so reading
+ * it doesn't re-run the search.
+ * </p>
+ */
+@Schema(description = "Saved trade search")
+public record SavedSearchDTO(
+
+        @Schema(description = "Unique identifier, set by the server", example = "1") Long id,
+        @NotBlank @Schema(description = "Name, unique per user", example = "Amended trades for Barclays") String name,
+        @Schema(description = "Multi criteria search, null for an RSQL search") SearchTradeByCriteria criteria,
+        @Schema(description = "RSQL query, null for a multi criteria search", example = "tradeStatus.tradeStatus==AMENDED") String rsqlQuery,
+        @Schema(description = "Number of trades currently matching, set by the server", example = "42") Long tradeCount,
+        @Schema(description = "When it was saved, set by the server") LocalDateTime createdDate,
+        @Schema(description = "When the matching trades were last rebuilt, set by the server") LocalDateTime lastRefreshedDate) {
+
+}
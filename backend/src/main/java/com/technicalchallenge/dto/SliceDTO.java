@@ -0,0 +1,59 @@
+package com.technicalchallenge.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Slice;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Count-free page of results
+ * 
+ * <p>
+ * Read with a page size + 1 fetch, so hasNext is known without counting the
+ * matches. The last page works out the exact total from its offset, earlier
+ * pages carry the approximate total if one was asked for.
+ * </p>
+ */
+@Schema(description = "Page of results without a count query")
+public record SliceDTO<T>(
+
+        @Schema(description = "Results on this page") List<T> content,
+        @Schema(description = "Page number, starts at 1", example = "1") int pageNo,
+        @Schema(description = "Page size", example = "20") int pageSize,
+        @Schema(description = "More results after this page") boolean hasNext,
+        @Schema(description = "Total results, null when it wasn't counted", example = "1000") Long totalElements,
+        @Schema(description = "The total is exact, otherwise it's approximate") boolean totalExact) {
+
+    /**
+     * Builds the page from the slice.
+     * 
+     * @param slice            slice of results
+     * @param approximateTotal cached count, null if not asked for
+     * @return page of results
+     */
+    public static <T> SliceDTO<T> of(Slice<T> slice, Long approximateTotal) {
+
+        long offset = slice.getPageable().getOffset();
+        long seen = offset + slice.getNumberOfElements();
+
+        // The last page knows the exact total, unless it's past the end
+        if (!slice.hasNext() && (slice.hasContent() || offset == 0)) {
+            return new SliceDTO<>(slice.getContent(), slice.getNumber() + 1, slice.getSize(), false, seen, true);
+        }
+
+        // There are at least as many results as have been read
+        Long total = approximateTotal == null ? null
+                : Math.max(approximateTotal, slice.hasNext() ? seen + 1 : seen);
+
+        return new SliceDTO<>(slice.getContent(), slice.getNumber() + 1, slice.getSize(), slice.hasNext(), total,
+                false);
+    }
+
+    public <R> SliceDTO<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new SliceDTO<>(mapped, pageNo, pageSize, hasNext, totalElements, totalExact);
+    }
+
+}
@@ -2,6 +2,7 @@ package com.technicalchallenge.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,14 @@ public class TradeSummaryDTO {
         private final BigDecimal totalNotional;
         @Schema(description = "Page of trade")
         private final Page<PersonalView> trades;
+        @Schema(description = "Slice of trades, returned instead of the page when the count is NONE or APPROXIMATE")
+        private SliceDTO<PersonalView> tradeSlice;
+
+        @Schema(description = "When the dashboard was computed, cached dashboards are served for a few seconds")
+        private LocalDateTime asOf;
+
+        @Schema(description = "Sections left out because they weren't read in time, empty when the dashboard is complete", example = "[\"totals\"]")
+        private List<String> partialSections;
 
         // Calculation of Fields
         @Schema(description = "Total notional amounts by currency")
@@ -123,8 +132,10 @@ public class TradeSummaryDTO {
 
         }
 
-        // Flatten Version of riskexposure
+        // Flatten Version of riskexposure, the portfolio summary leaves the leg
+        // fields out as it nets the exposure by currency and pay/receive
         @Schema(description = "Risk exposure")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         public static record RiskExposure(Long tradeLegId, Double rate, String deskName,
                         String payCurrency,
                         String payRecieveFlag,
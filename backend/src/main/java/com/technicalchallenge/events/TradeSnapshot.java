@@ -0,0 +1,92 @@
+package com.technicalchallenge.events;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.technicalchallenge.model.ApplicationUser;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.model.TradeLeg;
+
+/**
+ * Trade Snapshot
+ *
+ * <p>
+ * The searchable and aggregated fields of a trade at one point in time,
+ * copied out of the entity so listeners can use it after the transaction
+ * without touching lazy associations.
+ * </p>
+ */
+public record TradeSnapshot(
+        Long id,
+        Long tradeId,
+        Integer version,
+        boolean active,
+        Long bookId,
+        String bookName,
+        Long counterpartyId,
+        String counterpartyName,
+        String tradeStatus,
+        String tradeType,
+        Long traderUserId,
+        String traderLoginId,
+        String traderFirstName,
+        String traderLastName,
+        String inputterFirstName,
+        String inputterLastName,
+        LocalDate tradeDate,
+        List<LegSnapshot> legs) {
+
+    public record LegSnapshot(Long legId, BigDecimal notional, Double rate, String currency,
+            String payReceiveFlag) {
+    }
+
+    /**
+     * Copies the trade, call while the trade's session is still open.
+     *
+     * @param trade trade entity, may be null
+     * @return snapshot or null
+     */
+    public static TradeSnapshot of(Trade trade) {
+
+        if (trade == null) {
+            return null;
+        }
+
+        ApplicationUser trader = trade.getTraderUser();
+        ApplicationUser inputter = trade.getTradeInputterUser();
+
+        List<LegSnapshot> legs = trade.getTradeLegs() == null ? List.of()
+                : trade.getTradeLegs().stream().map(TradeSnapshot::leg).toList();
+
+        return new TradeSnapshot(
+                trade.getId(),
+                trade.getTradeId(),
+                trade.getVersion(),
+                Boolean.TRUE.equals(trade.getActive()),
+                trade.getBook() != null ? trade.getBook().getId() : null,
+                trade.getBook() != null ? trade.getBook().getBookName() : null,
+                trade.getCounterparty() != null ? trade.getCounterparty().getId() : null,
+                trade.getCounterparty() != null ? trade.getCounterparty().getName() : null,
+                trade.getTradeStatus() != null ? trade.getTradeStatus().getTradeStatus() : null,
+                trade.getTradeType() != null ? trade.getTradeType().getTradeType() : null,
+                trader != null ? trader.getId() : null,
+                trader != null ? trader.getLoginId() : null,
+                trader != null ? trader.getFirstName() : null,
+                trader != null ? trader.getLastName() : null,
+                inputter != null ? inputter.getFirstName() : null,
+                inputter != null ? inputter.getLastName() : null,
+                trade.getTradeDate(),
+                legs);
+    }
+
+    private static LegSnapshot leg(TradeLeg leg) {
+        return new LegSnapshot(
+                leg.getLegId(),
+                leg.getNotional(),
+                leg.getRate(),
+                leg.getCurrency() != null ? leg.getCurrency().getCurrency() : null,
+                leg.getPayReceiveFlag() != null ? leg.getPayReceiveFlag().getPayRec() : null);
+    }
+
+}
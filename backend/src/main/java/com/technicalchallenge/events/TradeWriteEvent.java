@@ -0,0 +1,28 @@
+package com.technicalchallenge.events;
+
+/**
+ * Trade Write Event
+ *
+ * <p>
+ * Published by the TradeService inside the write transaction whenever a
+ * trade is booked, amended, terminated or cancelled.
+ *
+ * - before: the trade as it was, null for a new booking
+ * - after: the trade as it is now, an amendment's new version
+ *
+ * Listeners that keep derived data in the database use @EventListener so
+ * they commit or roll back with the trade, in memory caches use
+ * {@code @TransactionalEventListener} so they only react to committed writes.
+ * </p>
+ */
+public record TradeWriteEvent(Type type, TradeSnapshot before, TradeSnapshot after) {
+
+    public enum Type {
+        CREATED, AMENDED, TERMINATED, CANCELLED
+    }
+
+    public Long tradeId() {
+        return after != null ? after.tradeId() : before.tradeId();
+    }
+
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -123,6 +124,24 @@ public class GlobalExceptionHandler {
                 return ResponseEntity.badRequest().body(errorResponse);
         }
 
+        /**
+         * QueryTimeoutException:
+         * 
+         * Handles searches that ran past the query timeout
+         */
+        @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+        @ExceptionHandler(QueryTimeoutException.class)
+        public ResponseEntity<ErrorResponse> handleQueryTimeout(
+                        QueryTimeoutException e, HttpServletRequest request) {
+
+                ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                                "Service Unavailable", "Query Timeout Exception", null,
+                                "Search took too long, narrow the query or request a smaller page",
+                                LocalDateTime.now(), request.getRequestURI());
+
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+        }
+
         /**
          * AccessDeniedException:
          * 
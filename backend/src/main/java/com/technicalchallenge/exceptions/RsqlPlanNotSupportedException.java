@@ -0,0 +1,16 @@
+package com.technicalchallenge.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an RSQL query can't be compiled into a plan (an unknown
+ * selector or a plugin-only operator), the query then goes through the RSQL
+ * plugin.
+ */
+@Getter
+public class RsqlPlanNotSupportedException extends RuntimeException {
+
+    public RsqlPlanNotSupportedException(String message) {
+        super(message);
+    }
+}
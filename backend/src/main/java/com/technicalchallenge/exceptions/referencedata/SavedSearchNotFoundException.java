@@ -0,0 +1,20 @@
+package com.technicalchallenge.exceptions.referencedata;
+
+import com.technicalchallenge.exceptions.EntityNotFoundException;
+
+/**
+ * Thrown when a saved search is not found for the current user.
+ */
+
+public class SavedSearchNotFoundException extends EntityNotFoundException {
+
+    /**
+     * Constructs a new SavedSearchNotFoundException when the saved search is
+     * not found.
+     */
+
+    public SavedSearchNotFoundException(String fieldName, Object value) {
+        super("Saved search is not found with " + fieldName + ": " + value);
+    }
+
+}
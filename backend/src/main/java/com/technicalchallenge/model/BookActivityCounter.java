@@ -0,0 +1,42 @@
+package com.technicalchallenge.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A trader's activity in a book while the book was at one version,
+// maintained on every trade write over live (active) trade rows
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "book_activity_counter")
+@IdClass(BookActivityCounterId.class)
+public class BookActivityCounter {
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Id
+    @Column(name = "trader_login_id")
+    private String traderLoginId;
+
+    @Id
+    @Column(name = "book_version")
+    private Integer bookVersion;
+
+    @Column(name = "trade_count", nullable = false)
+    private Long tradeCount; // Live trades gained while the book was at the version
+
+    @Column(name = "total_notional", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalNotional;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+}
@@ -0,0 +1,20 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BookActivityCounterId implements Serializable {
+    private Long bookId;
+    private String traderLoginId;
+    private Integer bookVersion;
+}
@@ -28,6 +28,10 @@ public class Cashflow {
     @JoinColumn(name = "leg_id", referencedColumnName = "legId")
     private TradeLeg tradeLeg; // Changed from 'leg' to match service expectations
 
+    // Copied from the leg's trade, it's the partition key when trades are
+    // partitioned by trade date
+    private LocalDate tradeDate;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pay_rec_id", referencedColumnName = "id")
     private PayRec payRec;
@@ -45,4 +49,12 @@ public class Cashflow {
     private LocalDateTime createdDate;
     private LocalDate validityStartDate; // Changed to LocalDate
     private LocalDate validityEndDate; // Changed to LocalDate
+
+    @PrePersist
+    @PreUpdate
+    void copyTradeDate() {
+        if (tradeLeg != null && tradeLeg.getTrade() != null) {
+            tradeDate = tradeLeg.getTrade().getTradeDate();
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.technicalchallenge.model;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A book's or trader's live leg notional with one counterparty, maintained
+// on every trade write. The row with counterparty id SCOPE_TOTAL is the total
+// of the book's or trader's counterparties
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "counterparty_exposure")
+@IdClass(CounterpartyExposureId.class)
+public class CounterpartyExposure {
+
+    public static final String BOOK = "BOOK";
+    public static final String TRADER = "TRADER";
+    public static final long SCOPE_TOTAL = 0L;
+
+    @Id
+    @Column(name = "scope_level", length = 16)
+    private String scopeLevel; // BOOK or TRADER
+
+    @Id
+    @Column(name = "scope_id")
+    private Long scopeId; // Book id or trader's user id
+
+    @Id
+    @Column(name = "counterparty_id")
+    private Long counterpartyId; // SCOPE_TOTAL for the scope's total
+
+    @Column(name = "counterparty_name")
+    private String counterpartyName; // As of the last trade written with it, null on the total
+
+    @Column(name = "leg_count", nullable = false)
+    private Long legCount; // Live (active) trade legs of trades that aren't cancelled
+
+    @Column(name = "total_notional", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalNotional;
+}
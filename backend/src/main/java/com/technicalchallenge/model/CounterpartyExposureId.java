@@ -0,0 +1,20 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class CounterpartyExposureId implements Serializable {
+    private String scopeLevel;
+    private Long scopeId;
+    private Long counterpartyId;
+}
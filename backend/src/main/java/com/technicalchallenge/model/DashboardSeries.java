@@ -0,0 +1,63 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+// One year of a trader's or book's end of day figure, delta encoded, written
+// by the snapshot job
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "dashboard_series")
+@IdClass(DashboardSeriesId.class)
+public class DashboardSeries {
+
+    public static final String TRADER = "TRADER";
+    public static final String BOOK = "BOOK";
+
+    public static final String TRADE_COUNT = "TRADE_COUNT";
+    public static final String NOTIONAL = "NOTIONAL";
+    public static final String CURRENCY = "CURRENCY";
+
+    @Id
+    @Column(name = "scope_level", length = 16)
+    private String scopeLevel; // TRADER or BOOK
+
+    @Id
+    @Column(name = "scope_key")
+    private String scopeKey; // Trader's login id or book id
+
+    @Id
+    @Column(name = "metric", length = 16)
+    private String metric; // TRADE_COUNT, NOTIONAL or CURRENCY
+
+    @Id
+    @Column(name = "metric_key", length = 16)
+    private String metricKey; // Currency for CURRENCY, empty otherwise
+
+    @Id
+    @Column(name = "series_year")
+    private Integer seriesYear;
+
+    @Column(name = "first_date", nullable = false)
+    private LocalDate firstDate;
+
+    @Column(name = "last_date", nullable = false)
+    private LocalDate lastDate;
+
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue; // Trades, or notional in hundredths
+
+    @Column(name = "point_count", nullable = false)
+    private Integer pointCount;
+
+    @Column(name = "points", nullable = false)
+    private byte[] points; // DeltaEncodedSeries from firstDate
+}
@@ -0,0 +1,22 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class DashboardSeriesId implements Serializable {
+    private String scopeLevel;
+    private String scopeKey;
+    private String metric;
+    private String metricKey;
+    private Integer seriesYear;
+}
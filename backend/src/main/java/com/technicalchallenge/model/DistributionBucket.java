@@ -0,0 +1,44 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One bucket of a book's or trader's live leg notional or rate histogram,
+// maintained on every trade write
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "distribution_bucket")
+@IdClass(DistributionBucketId.class)
+public class DistributionBucket {
+
+    public static final String BOOK = "BOOK";
+    public static final String TRADER = "TRADER";
+
+    public static final String NOTIONAL = "NOTIONAL";
+    public static final String RATE = "RATE";
+
+    @Id
+    @Column(name = "scope_level", length = 16)
+    private String scopeLevel; // BOOK or TRADER
+
+    @Id
+    @Column(name = "scope_id")
+    private Long scopeId; // Book id or trader's user id
+
+    @Id
+    @Column(name = "metric", length = 16)
+    private String metric; // NOTIONAL or RATE
+
+    @Id
+    @Column(name = "bucket")
+    private Integer bucket; // LogHistogram bucket
+
+    @Column(name = "leg_count", nullable = false)
+    private Long legCount;
+}
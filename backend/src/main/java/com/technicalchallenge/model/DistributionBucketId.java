@@ -0,0 +1,21 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class DistributionBucketId implements Serializable {
+    private String scopeLevel;
+    private Long scopeId;
+    private String metric;
+    private Integer bucket;
+}
@@ -0,0 +1,40 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// Live trades booked under one desk, sub desk, cost center or book, maintained
+// on every trade write and hierarchy edit
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "org_hierarchy_rollup")
+@IdClass(OrgHierarchyRollupId.class)
+public class OrgHierarchyRollup {
+
+    public static final String DESK = "DESK";
+    public static final String SUB_DESK = "SUB_DESK";
+    public static final String COST_CENTER = "COST_CENTER";
+    public static final String BOOK = "BOOK";
+
+    @Id
+    @Column(name = "node_level", length = 16)
+    private String nodeLevel; // DESK, SUB_DESK, COST_CENTER or BOOK
+
+    @Id
+    @Column(name = "node_id")
+    private Long nodeId;
+
+    @Column(name = "trade_count", nullable = false)
+    private Long tradeCount; // Active trade rows
+
+    @Column(name = "total_notional", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalNotional;
+}
@@ -0,0 +1,19 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class OrgHierarchyRollupId implements Serializable {
+    private String nodeLevel;
+    private Long nodeId;
+}
@@ -0,0 +1,51 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "saved_search")
+public class SavedSearch {
+
+    public static final String CRITERIA = "CRITERIA";
+    public static final String RSQL = "RSQL";
+
+    // Match key prefixes
+    public static final String BOOK_KEY = "BOOK:";
+    public static final String COUNTERPARTY_KEY = "COUNTERPARTY:";
+    public static final String STATUS_KEY = "STATUS:";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "owner_login_id", nullable = false)
+    private String ownerLoginId;
+
+    @Column(name = "query_type", nullable = false)
+    private String queryType; // "CRITERIA" or "RSQL"
+
+    @Column(name = "query_text", nullable = false, length = 4000)
+    private String queryText; // Criteria as JSON or the RSQL query
+
+    @Column(name = "match_key", length = 512)
+    private String matchKey; // Book, counterparty or status every match has, e.g. "BOOK:FX-BOOK-1", null if none
+
+    @Column(name = "created_date", nullable = false)
+    private LocalDateTime createdDate = LocalDateTime.now();
+
+    @Column(name = "last_refreshed_date")
+    private LocalDateTime lastRefreshedDate;
+}
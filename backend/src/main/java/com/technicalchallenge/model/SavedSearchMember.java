@@ -0,0 +1,25 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A trade (trade.id, not the tradeId) that currently matches a saved search
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "saved_search_member")
+@IdClass(SavedSearchMemberId.class)
+public class SavedSearchMember {
+    @Id
+    @Column(name = "saved_search_id")
+    private Long savedSearchId;
+
+    @Id
+    @Column(name = "trade_id")
+    private Long tradeId;
+}
@@ -2,6 +2,7 @@ package com.technicalchallenge.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +29,10 @@ public class TradeLeg {
     @JoinColumn(name = "trade_id", referencedColumnName = "id")
     private Trade trade;
 
+    // Copied from the trade, it's the partition key when trades are
+    // partitioned by trade date
+    private LocalDate tradeDate;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "currency_id", referencedColumnName = "id")
     private Currency currency;
@@ -68,4 +73,12 @@ public class TradeLeg {
     // Fixed: Creates a new Arraylist of Cashflows each time
     @OneToMany(mappedBy = "tradeLeg", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Cashflow> cashflows = new ArrayList<>();
+
+    @PrePersist
+    @PreUpdate
+    void copyTradeDate() {
+        if (trade != null) {
+            tradeDate = trade.getTradeDate();
+        }
+    }
 }
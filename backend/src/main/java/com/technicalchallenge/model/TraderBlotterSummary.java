@@ -0,0 +1,28 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// A trader's live trades, maintained on every trade write
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "trader_blotter_summary")
+public class TraderBlotterSummary {
+    @Id
+    @Column(name = "trader_login_id")
+    private String traderLoginId;
+
+    @Column(name = "trade_count", nullable = false)
+    private Long tradeCount; // Active trade rows
+
+    @Column(name = "total_notional", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalNotional;
+}
@@ -0,0 +1,43 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// A trader's trades on one trade date, maintained on every trade write
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "trader_daily_rollup")
+@IdClass(TraderDailyRollupId.class)
+public class TraderDailyRollup {
+    @Id
+    @Column(name = "trader_login_id")
+    private String traderLoginId;
+
+    @Id
+    @Column(name = "trade_date")
+    private LocalDate tradeDate;
+
+    @Column(name = "trade_count", nullable = false)
+    private Long tradeCount;
+
+    @Column(name = "leg_count", nullable = false)
+    private Long legCount; // Legs with a notional
+
+    @Column(name = "notional_sum", nullable = false, precision = 38, scale = 2)
+    private BigDecimal notionalSum;
+
+    @Column(name = "notional_min", precision = 38, scale = 2)
+    private BigDecimal notionalMin;
+
+    @Column(name = "notional_max", precision = 38, scale = 2)
+    private BigDecimal notionalMax;
+}
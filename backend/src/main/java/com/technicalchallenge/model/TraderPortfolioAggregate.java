@@ -0,0 +1,48 @@
+package com.technicalchallenge.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// One figure of a trader's portfolio summary, maintained on every trade write
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "trader_portfolio_aggregate")
+@IdClass(TraderPortfolioAggregateId.class)
+public class TraderPortfolioAggregate {
+
+    public static final String STATUS = "STATUS";
+    public static final String CURRENCY = "CURRENCY";
+    public static final String TRADE_TYPE = "TRADE_TYPE";
+    public static final String COUNTERPARTY = "COUNTERPARTY";
+    public static final String EXPOSURE = "EXPOSURE";
+
+    @Id
+    @Column(name = "trader_login_id")
+    private String traderLoginId;
+
+    @Id
+    @Column(name = "dimension", length = 32)
+    private String dimension; // STATUS, CURRENCY, TRADE_TYPE, COUNTERPARTY or EXPOSURE
+
+    @Id
+    @Column(name = "dimension_key")
+    private String dimensionKey; // Status, currency, trade type or counterparty name
+
+    @Id
+    @Column(name = "sub_key")
+    private String subKey; // Pay/receive flag for EXPOSURE, empty otherwise
+
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount; // Trades for STATUS, legs for the others
+
+    @Column(name = "total_notional", nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalNotional;
+}
@@ -0,0 +1,21 @@
+package com.technicalchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class TraderPortfolioAggregateId implements Serializable {
+    private String traderLoginId;
+    private String dimension;
+    private String dimensionKey;
+    private String subKey;
+}
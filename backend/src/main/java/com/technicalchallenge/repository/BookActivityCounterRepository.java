@@ -0,0 +1,56 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.dto.DailySummaryDTO.BookActivity;
+import com.technicalchallenge.model.BookActivityCounter;
+import com.technicalchallenge.model.BookActivityCounterId;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BookActivityCounterRepository extends JpaRepository<BookActivityCounter, BookActivityCounterId> {
+
+    // The trader's activity in the book by book version, the names are the
+    // book's now. A version only has a row once it's seen a trade write
+    @Query("SELECT new com.technicalchallenge.dto.DailySummaryDTO$BookActivity(b.bookName, cc.costCenterName, sd.subdeskName, a.totalNotional, a.bookVersion, a.tradeCount, a.lastActivityAt) FROM BookActivityCounter a, Book b JOIN b.costCenter cc JOIN cc.subDesk sd WHERE b.id = a.bookId AND a.traderLoginId = :username AND a.bookId = :bookId ORDER BY a.bookVersion")
+    List<BookActivity> findBookActivity(@Param("username") String username, @Param("bookId") Long bookId);
+
+    // Adds to the counters in place and moves the last activity on, returns 0
+    // when they don't exist yet
+    @Modifying
+    @Query(value = "UPDATE book_activity_counter SET trade_count = trade_count + :tradeCount, total_notional = total_notional + :notional, last_activity_at = :activityAt"
+            + " WHERE book_id = :bookId AND trader_login_id = :traderLoginId AND book_version = :bookVersion", nativeQuery = true)
+    int addToCounter(@Param("bookId") Long bookId, @Param("traderLoginId") String traderLoginId,
+            @Param("bookVersion") int bookVersion, @Param("tradeCount") long tradeCount,
+            @Param("notional") BigDecimal notional, @Param("activityAt") LocalDateTime activityAt);
+
+    // Creates the counters empty unless they exist, a write creating the same
+    // counters concurrently waits for the other and leaves them be instead of
+    // failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO book_activity_counter (book_id, trader_login_id, book_version, trade_count, total_notional, last_activity_at)"
+            + " VALUES (:bookId, :traderLoginId, :bookVersion, 0, 0, NULL) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createCounter(@Param("bookId") Long bookId, @Param("traderLoginId") String traderLoginId,
+            @Param("bookVersion") int bookVersion);
+
+    @Modifying
+    @Query(value = "DELETE FROM book_activity_counter", nativeQuery = true)
+    int deleteCounters();
+
+    // Recounts every book from the live trades, the same as the V13
+    // backfill. The trades go under their book's version now
+    @Modifying
+    @Query(value = "INSERT INTO book_activity_counter (book_id, trader_login_id, book_version, trade_count, total_notional, last_activity_at)"
+            + " SELECT t.book_id, u.login_id, b.version, COUNT(DISTINCT t.id), COALESCE(SUM(l.notional), 0), MAX(COALESCE(t.last_touch_timestamp, t.created_date))"
+            + " FROM trade t JOIN book b ON b.id = t.book_id JOIN application_user u ON u.id = t.trader_user_id"
+            + " LEFT JOIN trade_leg l ON l.trade_id = t.id WHERE t.active = TRUE"
+            + " GROUP BY t.book_id, u.login_id, b.version", nativeQuery = true)
+    int rebuildCounters();
+}
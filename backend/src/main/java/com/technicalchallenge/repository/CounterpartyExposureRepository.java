@@ -0,0 +1,44 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.CounterpartyExposure;
+import com.technicalchallenge.model.CounterpartyExposureId;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CounterpartyExposureRepository extends JpaRepository<CounterpartyExposure, CounterpartyExposureId> {
+
+    // The book's or trader's largest exposures first, the page size is the
+    // top N read from idx_counterparty_exposure_top. Counterparties without
+    // live legs any more and the scope's total (counterparty id 0) are
+    // skipped
+    @Query("SELECT e FROM CounterpartyExposure e WHERE e.scopeLevel = :scopeLevel AND e.scopeId = :scopeId AND e.counterpartyId <> 0 AND e.legCount > 0 ORDER BY e.totalNotional DESC, e.counterpartyId ASC")
+    List<CounterpartyExposure> findTopExposures(@Param("scopeLevel") String scopeLevel,
+            @Param("scopeId") Long scopeId, Pageable pageable);
+
+    // Adds to the exposure in place, returns 0 when the exposure doesn't exist
+    // yet
+    @Modifying
+    @Query(value = "UPDATE counterparty_exposure SET leg_count = leg_count + :legCount, total_notional = total_notional + :notional, counterparty_name = :counterpartyName"
+            + " WHERE scope_level = :scopeLevel AND scope_id = :scopeId AND counterparty_id = :counterpartyId", nativeQuery = true)
+    int addToExposure(@Param("scopeLevel") String scopeLevel, @Param("scopeId") Long scopeId,
+            @Param("counterpartyId") Long counterpartyId, @Param("counterpartyName") String counterpartyName,
+            @Param("legCount") long legCount, @Param("notional") BigDecimal notional);
+
+    // Creates the exposure empty unless it exists, a write creating the same
+    // exposure concurrently waits for the other and leaves it be instead of
+    // failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO counterparty_exposure (scope_level, scope_id, counterparty_id, counterparty_name, leg_count, total_notional)"
+            + " VALUES (:scopeLevel, :scopeId, :counterpartyId, :counterpartyName, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createExposure(@Param("scopeLevel") String scopeLevel, @Param("scopeId") Long scopeId,
+            @Param("counterpartyId") Long counterpartyId, @Param("counterpartyName") String counterpartyName);
+}
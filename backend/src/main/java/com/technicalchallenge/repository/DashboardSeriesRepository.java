@@ -0,0 +1,24 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.DashboardSeries;
+import com.technicalchallenge.model.DashboardSeriesId;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DashboardSeriesRepository extends JpaRepository<DashboardSeries, DashboardSeriesId> {
+
+    // Every series of the year, appended to by the snapshot job
+    @Query("SELECT s FROM DashboardSeries s WHERE s.seriesYear = :seriesYear")
+    List<DashboardSeries> findYear(@Param("seriesYear") int seriesYear);
+
+    // The trader's or book's series between two years, a year a row
+    @Query("SELECT s FROM DashboardSeries s WHERE s.scopeLevel = :scopeLevel AND s.scopeKey = :scopeKey AND s.seriesYear BETWEEN :fromYear AND :toYear ORDER BY s.metric, s.metricKey, s.seriesYear")
+    List<DashboardSeries> findSeries(@Param("scopeLevel") String scopeLevel, @Param("scopeKey") String scopeKey,
+            @Param("fromYear") int fromYear, @Param("toYear") int toYear);
+}
@@ -0,0 +1,36 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.DistributionBucket;
+import com.technicalchallenge.model.DistributionBucketId;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DistributionBucketRepository extends JpaRepository<DistributionBucket, DistributionBucketId> {
+
+    // The book's or trader's buckets of both metrics, empty buckets are skipped
+    @Query("SELECT b FROM DistributionBucket b WHERE b.scopeLevel = :scopeLevel AND b.scopeId = :scopeId AND b.legCount > 0 ORDER BY b.metric, b.bucket")
+    List<DistributionBucket> findBuckets(@Param("scopeLevel") String scopeLevel, @Param("scopeId") Long scopeId);
+
+    // Adds to the bucket in place, returns 0 when the bucket doesn't exist yet
+    @Modifying
+    @Query(value = "UPDATE distribution_bucket SET leg_count = leg_count + :legCount"
+            + " WHERE scope_level = :scopeLevel AND scope_id = :scopeId AND metric = :metric AND bucket = :bucket", nativeQuery = true)
+    int addToBucket(@Param("scopeLevel") String scopeLevel, @Param("scopeId") Long scopeId,
+            @Param("metric") String metric, @Param("bucket") int bucket, @Param("legCount") long legCount);
+
+    // Creates the bucket empty unless it exists, a write creating the same
+    // bucket concurrently waits for the other and leaves it be instead of
+    // failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO distribution_bucket (scope_level, scope_id, metric, bucket, leg_count)"
+            + " VALUES (:scopeLevel, :scopeId, :metric, :bucket, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createBucket(@Param("scopeLevel") String scopeLevel, @Param("scopeId") Long scopeId,
+            @Param("metric") String metric, @Param("bucket") int bucket);
+}
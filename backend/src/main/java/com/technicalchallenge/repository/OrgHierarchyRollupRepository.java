@@ -0,0 +1,74 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.model.OrgHierarchyRollupId;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrgHierarchyRollupRepository extends JpaRepository<OrgHierarchyRollup, OrgHierarchyRollupId> {
+
+    // Adds to the book's rollup and its ancestors' at minDepth or above (0
+    // includes the book, 1 only its ancestors), returns 0 when the book isn't
+    // in the closure yet
+    @Modifying
+    @Query(value = "UPDATE org_hierarchy_rollup r SET trade_count = trade_count + :tradeCount, total_notional = total_notional + :notional"
+            + " WHERE EXISTS (SELECT 1 FROM org_hierarchy_closure c WHERE c.book_id = :bookId AND c.depth >= :minDepth"
+            + " AND c.ancestor_level = r.node_level AND c.ancestor_id = r.node_id)", nativeQuery = true)
+    int addToAncestors(@Param("bookId") Long bookId, @Param("minDepth") int minDepth,
+            @Param("tradeCount") long tradeCount, @Param("notional") BigDecimal notional);
+
+    // Every node at the level, BOOK for every book's totals
+    List<OrgHierarchyRollup> findByNodeLevel(String nodeLevel);
+
+    // Every desk, sub desk, cost center and book with its parent's id and its
+    // rollup, the whole tree in one read. Rows are level, id, name, parent id,
+    // trade count and notional, the last two null for a node without a rollup
+    @Query(value = "SELECT CAST('BOOK' AS VARCHAR(16)), b.id, b.book_name, b.cost_center_id, r.trade_count, r.total_notional FROM book b"
+            + " LEFT JOIN org_hierarchy_rollup r ON r.node_level = 'BOOK' AND r.node_id = b.id"
+            + " UNION ALL SELECT 'COST_CENTER', cc.id, cc.cost_center_name, cc.subdesk_id, r.trade_count, r.total_notional FROM cost_center cc"
+            + " LEFT JOIN org_hierarchy_rollup r ON r.node_level = 'COST_CENTER' AND r.node_id = cc.id"
+            + " UNION ALL SELECT 'SUB_DESK', sd.id, sd.subdesk_name, sd.desk_id, r.trade_count, r.total_notional FROM sub_desk sd"
+            + " LEFT JOIN org_hierarchy_rollup r ON r.node_level = 'SUB_DESK' AND r.node_id = sd.id"
+            + " UNION ALL SELECT 'DESK', d.id, d.desk_name, CAST(NULL AS BIGINT), r.trade_count, r.total_notional FROM desk d"
+            + " LEFT JOIN org_hierarchy_rollup r ON r.node_level = 'DESK' AND r.node_id = d.id"
+            + " ORDER BY 2", nativeQuery = true)
+    List<Object[]> findHierarchyNodes();
+
+    // Books under the node, from the closure
+    @Query(value = "SELECT c.book_id FROM org_hierarchy_closure c WHERE c.ancestor_level = :level AND c.ancestor_id = :id ORDER BY c.book_id", nativeQuery = true)
+    List<Long> findBookIdsUnder(@Param("level") String level, @Param("id") Long id);
+
+    @Modifying
+    @Query(value = "DELETE FROM org_hierarchy_closure WHERE book_id = :bookId", nativeQuery = true)
+    int deleteClosure(@Param("bookId") Long bookId);
+
+    // The book's ancestors as the hierarchy is now, a write adding the same
+    // book concurrently waits for the other and leaves its rows be
+    @Modifying
+    @Query(value = "INSERT INTO org_hierarchy_closure (ancestor_level, ancestor_id, book_id, depth)"
+            + " SELECT 'BOOK', b.id, b.id, 0 FROM book b WHERE b.id = :bookId"
+            + " UNION ALL SELECT 'COST_CENTER', b.cost_center_id, b.id, 1 FROM book b WHERE b.id = :bookId AND b.cost_center_id IS NOT NULL"
+            + " UNION ALL SELECT 'SUB_DESK', cc.subdesk_id, b.id, 2 FROM book b JOIN cost_center cc ON cc.id = b.cost_center_id"
+            + " WHERE b.id = :bookId AND cc.subdesk_id IS NOT NULL"
+            + " UNION ALL SELECT 'DESK', sd.desk_id, b.id, 3 FROM book b JOIN cost_center cc ON cc.id = b.cost_center_id"
+            + " JOIN sub_desk sd ON sd.id = cc.subdesk_id WHERE b.id = :bookId AND sd.desk_id IS NOT NULL"
+            + " ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertClosure(@Param("bookId") Long bookId);
+
+    // Empty rollups for the book's ancestors that don't have one yet, a write
+    // creating the same rollup concurrently waits for the other and leaves it
+    // be instead of failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO org_hierarchy_rollup (node_level, node_id, trade_count, total_notional)"
+            + " SELECT c.ancestor_level, c.ancestor_id, 0, 0 FROM org_hierarchy_closure c WHERE c.book_id = :bookId"
+            + " ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissingRollups(@Param("bookId") Long bookId);
+}
@@ -0,0 +1,38 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.SavedSearchMember;
+import com.technicalchallenge.model.SavedSearchMemberId;
+
+import java.util.Collection;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SavedSearchMemberRepository
+        extends JpaRepository<SavedSearchMember, SavedSearchMemberId>, SavedSearchMemberRepositoryCustom {
+
+    // The saved search's trade ids (trade.id), a page at a time
+    @Query("SELECT m.tradeId FROM SavedSearchMember m WHERE m.savedSearchId = :savedSearchId ORDER BY m.tradeId")
+    Page<Long> findTradeIds(@Param("savedSearchId") Long savedSearchId, Pageable pageable);
+
+    long countBySavedSearchId(Long savedSearchId);
+
+    // Native insert, doesn't read the member first like save() would
+    @Modifying
+    @Query(value = "INSERT INTO saved_search_member (saved_search_id, trade_id) VALUES (:savedSearchId, :tradeId)", nativeQuery = true)
+    int insertMember(@Param("savedSearchId") Long savedSearchId, @Param("tradeId") Long tradeId);
+
+    @Modifying
+    @Query("DELETE FROM SavedSearchMember m WHERE m.savedSearchId = :savedSearchId AND m.tradeId IN :tradeIds")
+    int deleteMembers(@Param("savedSearchId") Long savedSearchId, @Param("tradeIds") Collection<Long> tradeIds);
+
+    @Modifying
+    @Query("DELETE FROM SavedSearchMember m WHERE m.savedSearchId = :savedSearchId")
+    int deleteAllMembers(@Param("savedSearchId") Long savedSearchId);
+}
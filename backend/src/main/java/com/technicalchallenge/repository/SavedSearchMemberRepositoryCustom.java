@@ -0,0 +1,24 @@
+package com.technicalchallenge.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.model.Trade;
+
+/**
+ * Saved search member writes built from a trade specification, implemented
+ * in {@link SavedSearchMemberRepositoryCustomImpl}.
+ */
+public interface SavedSearchMemberRepositoryCustom {
+
+    /**
+     * Stores the trades (trade.id) matching the specification as members of
+     * the saved search with one INSERT ... SELECT, the ids never leave the
+     * database.
+     *
+     * @param savedSearchId saved search id
+     * @param specification trade specification
+     * @return number of members inserted
+     */
+    int insertMatching(Long savedSearchId, Specification<Trade> specification);
+
+}
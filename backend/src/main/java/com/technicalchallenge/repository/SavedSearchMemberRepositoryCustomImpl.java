@@ -0,0 +1,59 @@
+package com.technicalchallenge.repository;
+
+import org.hibernate.Session;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.tree.insert.SqmInsertSelectStatement;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.model.SavedSearchMember;
+import com.technicalchallenge.model.Trade;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Saved Search Member Repository Custom Implementation
+ *
+ * <p>
+ * Spring Data picks this up as a fragment of
+ * {@link SavedSearchMemberRepository}.
+ *
+ * JPA has no criteria INSERT ... SELECT, Hibernate's insert-select statement
+ * takes the specification's query as its select.
+ * </p>
+ */
+public class SavedSearchMemberRepositoryCustomImpl implements SavedSearchMemberRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int insertMatching(Long savedSearchId, Specification<Trade> specification) {
+
+        HibernateCriteriaBuilder criteriaBuilder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+
+        // SELECT DISTINCT :savedSearchId, t.id FROM trade t WHERE <specification>
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Trade> root = query.from(Trade.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(criteriaBuilder.literal(savedSearchId), root.get("id")).distinct(true);
+
+        SqmInsertSelectStatement<SavedSearchMember> insert = (SqmInsertSelectStatement<SavedSearchMember>) criteriaBuilder
+                .createCriteriaInsertSelect(SavedSearchMember.class);
+        insert.addInsertTargetStateField(insert.getTarget().get("savedSearchId"));
+        insert.addInsertTargetStateField(insert.getTarget().get("tradeId"));
+        insert.setSelectQueryPart(((SqmSelectStatement<Tuple>) query).getQuerySpec());
+
+        return entityManager.unwrap(Session.class).createMutationQuery(insert).executeUpdate();
+    }
+
+}
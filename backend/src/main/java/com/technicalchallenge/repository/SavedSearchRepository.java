@@ -0,0 +1,26 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.SavedSearch;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SavedSearchRepository extends JpaRepository<SavedSearch, Long> {
+
+    List<SavedSearch> findByOwnerLoginIdOrderByName(String ownerLoginId);
+
+    Optional<SavedSearch> findByIdAndOwnerLoginId(Long id, String ownerLoginId);
+
+    boolean existsByOwnerLoginIdAndName(String ownerLoginId, String name);
+
+    // Saved searches a write with these match keys can change, and the unkeyed ones
+    @Query("SELECT s FROM SavedSearch s WHERE s.matchKey IS NULL OR s.matchKey IN :matchKeys")
+    List<SavedSearch> findCandidates(@Param("matchKeys") Collection<String> matchKeys);
+}
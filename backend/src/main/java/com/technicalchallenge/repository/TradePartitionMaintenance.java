@@ -0,0 +1,71 @@
+package com.technicalchallenge.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trade Partition Maintenance
+ *
+ * <p>
+ * Keeps the monthly trade date partitions of trade, trade_leg and cashflow
+ * (db/postgresql V4_1) in shape, on startup and then on the cron:
+ *
+ * - Creates the partitions for the months ahead, so new trades never land in
+ * the default partition
+ *
+ * - Detaches the partitions older than the retention, the detached tables keep
+ * their rows to be archived. A retention of 0 keeps every month.
+ *
+ * Only enabled with trade.partitioning.enabled, the postgres profile.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "trade.partitioning.enabled", havingValue = "true")
+public class TradePartitionMaintenance {
+    private static final Logger logger = LoggerFactory.getLogger(TradePartitionMaintenance.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public TradePartitionMaintenance(JdbcTemplate jdbcTemplate,
+            @Value("${trade.partitioning.months-ahead:3}") int monthsAhead,
+            @Value("${trade.partitioning.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${trade.partitioning.cron:0 0 2 * * *}")
+    public void maintain() {
+
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+        Integer created = jdbcTemplate.queryForObject("SELECT create_trade_partitions(?, ?)", Integer.class,
+                Date.valueOf(thisMonth), Date.valueOf(thisMonth.plusMonths(monthsAhead)));
+        logger.info("Created {} trade partitions up to {} months ahead", created, monthsAhead);
+
+        if (retentionMonths > 0) {
+            LocalDate before = thisMonth.minusMonths(retentionMonths);
+            Integer detached = jdbcTemplate.queryForObject("SELECT detach_trade_partitions(?)", Integer.class,
+                    Date.valueOf(before));
+            logger.info("Detached {} trade partitions before {}", detached, before);
+        }
+    }
+
+}
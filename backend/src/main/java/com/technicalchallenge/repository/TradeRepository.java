@@ -1,17 +1,16 @@
 package com.technicalchallenge.repository;
 
-import com.technicalchallenge.dto.DailySummaryDTO.BookActivity;
-import com.technicalchallenge.dto.TradeSummaryDTO.CounterpartyBreakdown;
 import com.technicalchallenge.dto.TradeSummaryDTO.PersonalView;
-import com.technicalchallenge.dto.TradeSummaryDTO.RiskExposure;
-import com.technicalchallenge.dto.TradeSummaryDTO.TradeTypeBreakdown;
 import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.model.TradeLeg;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
@@ -20,8 +19,10 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 // Trade Repository extends a JPASpecificationExecutor<Trade> to handle multi criteria search
+// and TradeRepositoryCustom for the bounded RSQL slices
 @Repository
-public interface TradeRepository extends JpaRepository<Trade, Long>, JpaSpecificationExecutor<Trade> {
+public interface TradeRepository
+        extends JpaRepository<Trade, Long>, JpaSpecificationExecutor<Trade>, TradeRepositoryCustom {
 
     // Existing methods
     List<Trade> findByTradeId(Long tradeId);
@@ -29,6 +30,13 @@ public interface TradeRepository extends JpaRepository<Trade, Long>, JpaSpecific
     @Query("SELECT MAX(t.tradeId) FROM Trade t")
     Optional<Long> findMaxTradeId();
 
+    // Id range, split into partitions by parallel searches
+    @Query("SELECT MIN(t.id) FROM Trade t")
+    Optional<Long> findMinId();
+
+    @Query("SELECT MAX(t.id) FROM Trade t")
+    Optional<Long> findMaxId();
+
     @Query("SELECT MAX(t.version) FROM Trade t WHERE t.tradeId = :tradeId")
     Optional<Integer> findMaxVersionByTradeId(@Param("tradeId") Long tradeId);
 
@@ -40,6 +48,19 @@ public interface TradeRepository extends JpaRepository<Trade, Long>, JpaSpecific
     @Query("SELECT t FROM Trade t WHERE t.tradeId = :tradeId AND t.active = true ORDER BY t.version DESC")
     Optional<Trade> findLatestActiveVersionByTradeId(@Param("tradeId") Long tradeId);
 
+    // Multi-get, the active trades for many trade ids in one IN query with their
+    // trade level reference data and legs
+    @Query("SELECT t FROM Trade t LEFT JOIN FETCH t.book LEFT JOIN FETCH t.counterparty LEFT JOIN FETCH t.traderUser LEFT JOIN FETCH t.tradeInputterUser LEFT JOIN FETCH t.tradeType LEFT JOIN FETCH t.tradeSubType LEFT JOIN FETCH t.tradeStatus LEFT JOIN FETCH t.tradeLegs WHERE t.tradeId IN :tradeIds AND t.active = true")
+    List<Trade> findActiveTradesWithLegs(@Param("tradeIds") Collection<Long> tradeIds);
+
+    // Trades by id (trade.id) with their legs, for saved search results
+    @Query("SELECT t FROM Trade t LEFT JOIN FETCH t.tradeLegs WHERE t.id IN :ids")
+    List<Trade> findAllWithLegsById(@Param("ids") Collection<Long> ids);
+
+    // Multi-get, loads the cashflows of every leg of the trades in one batch
+    @Query("SELECT DISTINCT l FROM TradeLeg l LEFT JOIN FETCH l.cashflows WHERE l.trade IN :trades")
+    List<TradeLeg> fetchLegCashflows(@Param("trades") Collection<Trade> trades);
+
     // Paginated Filtering
     Page<Trade> findAll(Specification<Trade> specfication, Pageable pageable);
 
@@ -47,35 +68,34 @@ public interface TradeRepository extends JpaRepository<Trade, Long>, JpaSpecific
 
     // Trade Summary DTO
 
-    // Trader's personal trades
-    @Query("SELECT new com.technicalchallenge.dto.TradeSummaryDTO$PersonalView(CONCAT(t.traderUser.firstName,' ', t.traderUser.lastName), t.tradeId, t.tradeDate, t.tradeExecutionDate, t.tradeType.tradeType, t.utiCode, t.tradeStatus.tradeStatus, t.book.bookName, t.counterparty.name, t.version) FROM Trade t JOIN t.traderUser u WHERE t.traderUser.loginId = :username AND t.active = true GROUP BY t.tradeId, t.traderUser.loginId ORDER BY t.tradeType ASC")
+    // Trader's personal trades, one active row for each trade so without a
+    // GROUP BY, read in order from idx_trade_trader_blotter. The page count is
+    // the trader's maintained blotter summary
+    @Query(value = "SELECT new com.technicalchallenge.dto.TradeSummaryDTO$PersonalView(CONCAT(t.traderUser.firstName,' ', t.traderUser.lastName), t.tradeId, t.tradeDate, t.tradeExecutionDate, t.tradeType.tradeType, t.utiCode, t.tradeStatus.tradeStatus, t.book.bookName, t.counterparty.name, t.version) FROM Trade t JOIN t.traderUser u WHERE t.traderUser.loginId = :username AND t.active = true ORDER BY t.tradeType ASC, t.tradeId ASC", countQuery = "SELECT COALESCE(SUM(s.tradeCount), 0) FROM TraderBlotterSummary s WHERE s.traderLoginId = :username")
     Page<PersonalView> findPersonalTradesView(@Param("username") String username,
             Pageable pageable);
 
-    // Total results
-    @Query("SELECT COUNT(DISTINCT t.tradeId), COALESCE(SUM(l.notional), 0) FROM Trade t JOIN t.tradeLegs l JOIN t.traderUser u WHERE t.traderUser.loginId = :username")
-    Object findResultsOfTotals(@Param("username") String username);
-
-    // Total number of trades by status
-    @Query("SELECT t FROM Trade t JOIN t.traderUser u WHERE traderUser.loginId = :username")
-    List<Trade> findAllTrades(@Param("username") String username);
+    // Trader's personal trades without the count query, reads a page size + 1
+    // slice
+    @Query("SELECT new com.technicalchallenge.dto.TradeSummaryDTO$PersonalView(CONCAT(t.traderUser.firstName,' ', t.traderUser.lastName), t.tradeId, t.tradeDate, t.tradeExecutionDate, t.tradeType.tradeType, t.utiCode, t.tradeStatus.tradeStatus, t.book.bookName, t.counterparty.name, t.version) FROM Trade t JOIN t.traderUser u WHERE t.traderUser.loginId = :username AND t.active = true ORDER BY t.tradeType ASC, t.tradeId ASC")
+    Slice<PersonalView> findPersonalTradesSlice(@Param("username") String username, Pageable pageable);
 
-    // Breakdown by trade type
-    @Query("SELECT new com.technicalchallenge.dto.TradeSummaryDTO$TradeTypeBreakdown(t.tradeType.tradeType, SUM(l.notional), ROUND(SUM(l.notional) / SUM(SUM(l.notional)) OVER() * 100, 2)) FROM Trade t JOIN t.tradeLegs l JOIN t.traderUser u WHERE t.traderUser.loginId = :username GROUP BY t.tradeType")
-    List<TradeTypeBreakdown> findByTradeTypeBreakdown(@Param("username") String username);
+    // Number of personal trades, the approximate total is cached. Read from
+    // the trader's maintained blotter summary
+    @Query("SELECT COALESCE(SUM(s.tradeCount), 0) FROM TraderBlotterSummary s WHERE s.traderLoginId = :username")
+    long countPersonalTrades(@Param("username") String username);
 
-    // Breakdown by counterparty
-    @Query("SELECT new com.technicalchallenge.dto.TradeSummaryDTO$CounterpartyBreakdown(t.counterparty.name, SUM(l.notional), ROUND(SUM(l.notional) / SUM(SUM(l.notional)) OVER() * 100, 2)) FROM Trade t JOIN t.counterparty c JOIN t.tradeLegs l JOIN t.traderUser u WHERE t.traderUser.loginId = :username GROUP BY c.name")
-    List<CounterpartyBreakdown> findByCounterpartyBreakdown(@Param("username") String username);
-
-    // Risk Exposure by pay/rec
-    @Query("SELECT new com.technicalchallenge.dto.TradeSummaryDTO$RiskExposure(l.legId, l.rate, sd.desk.deskName, l.currency.currency, l.payReceiveFlag.payRec, SUM(CASE WHEN l.payReceiveFlag.payRec = 'Receive' THEN l.notional ELSE -l.notional END)) FROM Trade t JOIN t.book b JOIN b.costCenter cc JOIN cc.subDesk sd JOIN t.tradeLegs l JOIN t.traderUser u WHERE t.traderUser.loginId = :username GROUP BY l.legId, l.payReceiveFlag.payRec")
-    List<RiskExposure> findRiskExposure(@Param("username") String username);
+    // Total results, the trader's live trades from their maintained blotter
+    // summary (TraderBlotterSummaryService), one row whatever their history
+    @Query("SELECT COALESCE(SUM(s.tradeCount), 0), COALESCE(SUM(s.totalNotional), 0) FROM TraderBlotterSummary s WHERE s.traderLoginId = :username")
+    Object findResultsOfTotals(@Param("username") String username);
 
-    // Daily Summary DTO
+    // Currency mix of every trader's and every book's live trades, read once
+    // a day by the end of day snapshot so reads every active trade by design
+    @Query("SELECT t.traderUser.loginId, l.currency.currency, SUM(l.notional) FROM Trade t JOIN t.tradeLegs l WHERE t.active = true AND l.notional IS NOT NULL GROUP BY t.traderUser.loginId, l.currency.currency")
+    List<Object[]> findTraderCurrencyMix();
 
-    // Book Level Activity
-    @Query("SELECT new com.technicalchallenge.dto.DailySummaryDTO$BookActivity(b.bookName, b.costCenter.costCenterName, cc.subDesk.subdeskName, COALESCE(SUM(l.notional), 0) ,b.version) FROM Trade t JOIN t.book b JOIN b.costCenter cc JOIN cc.subDesk sd  JOIN t.tradeLegs l JOIN t.traderUser u WHERE t.traderUser.loginId = :username AND t.book.id = :bookId GROUP BY b.bookName, b.version, b.costCenter.costCenterName ORDER BY b.version")
-    List<BookActivity> findBookLevelActivitySummary(@Param("username") String username, @Param("bookId") Long bookId);
+    @Query("SELECT t.book.id, l.currency.currency, SUM(l.notional) FROM Trade t JOIN t.tradeLegs l WHERE t.active = true AND l.notional IS NOT NULL GROUP BY t.book.id, l.currency.currency")
+    List<Object[]> findBookCurrencyMix();
 
 }
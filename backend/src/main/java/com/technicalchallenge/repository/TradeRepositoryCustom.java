@@ -0,0 +1,76 @@
+package com.technicalchallenge.repository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.model.Trade;
+
+/**
+ * Trade queries that need direct control over the JPA query, implemented in
+ * {@link TradeRepositoryCustomImpl}.
+ */
+public interface TradeRepositoryCustom {
+
+    /**
+     * Fetches a slice of trades matching the specification without a count
+     * query, reading one extra row to know if there is a next slice.
+     *
+     * @param specification trade specification
+     * @param pageable      page and sort, must be paged
+     * @param timeout       query timeout
+     * @return slice of trades
+     */
+    Slice<Trade> findSlice(Specification<Trade> specification, Pageable pageable, Duration timeout);
+
+    /**
+     * Streams the trades matching the specification through a forward-only
+     * cursor, handing each trade to the action as it's read. The persistence
+     * context is cleared as it goes, so the action must finish with a trade
+     * before returning.
+     *
+     * @param specification trade specification
+     * @param sort          order the trades are read in
+     * @param timeout       query timeout, null for none
+     * @param action        called for each trade
+     * @return number of trades streamed
+     */
+    long streamEach(Specification<Trade> specification, Sort sort, Duration timeout, Consumer<Trade> action);
+
+    /**
+     * Returns the ids (trade.id) of the trades matching the specification
+     * without loading the trades.
+     *
+     * @param specification trade specification
+     * @return matching trade ids in ascending order
+     */
+    List<Long> findIds(Specification<Trade> specification);
+
+    /**
+     * Streams the live trades with ids from fromId to toId as flat rows of
+     * the columns the portfolio figures are made of, without loading the
+     * trades. A trade is one row per leg, or one row with no leg when it has
+     * none, and its rows are next to each other in id order.
+     *
+     * @param fromId first trade id (trade.id)
+     * @param toId   last trade id
+     * @param action called for each row
+     * @return number of rows streamed
+     */
+    long streamPortfolioRows(long fromId, long toId, Consumer<PortfolioRow> action);
+
+    /**
+     * A live trade's leg as the portfolio figures read it, the leg columns
+     * are null for a trade without legs
+     */
+    record PortfolioRow(Long id, String traderLoginId, String tradeStatus, String tradeType,
+            String counterpartyName, Long legId, String currency, String payReceiveFlag, BigDecimal notional) {
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.technicalchallenge.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.specification.JpqlSpecification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Trade Repository Custom Implementation
+ *
+ * <p>
+ * Spring Data picks this up as a fragment of {@link TradeRepository}.
+ *
+ * Streams read through a forward-only cursor with a JDBC fetch size and clear
+ * the persistence context every trade.search.stream.clear-every rows, so the
+ * heap stays flat whatever the result size.
+ *
+ * UPDATED: A {@link JpqlSpecification} (a compiled RSQL query) runs as its
+ * JPQL, so Hibernate's query plan cache serves repeat query shapes.
+ * </p>
+ */
+public class TradeRepositoryCustomImpl implements TradeRepositoryCustom {
+
+    // Standard JPA hint, the timeout is in milliseconds
+    private static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    // Every reference is an outer join so a trade missing one is still read
+    private static final String PORTFOLIO_ROWS = "SELECT new com.technicalchallenge.repository.TradeRepositoryCustom$PortfolioRow("
+            + "t.id, u.loginId, s.tradeStatus, tt.tradeType, c.name, l.legId, cur.currency, pr.payRec, l.notional)"
+            + " FROM Trade t LEFT JOIN t.traderUser u LEFT JOIN t.tradeStatus s LEFT JOIN t.tradeType tt"
+            + " LEFT JOIN t.counterparty c LEFT JOIN t.tradeLegs l LEFT JOIN l.currency cur"
+            + " LEFT JOIN l.payReceiveFlag pr"
+            + " WHERE t.active = true AND t.id BETWEEN :fromId AND :toId ORDER BY t.id, l.legId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${trade.search.stream.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${trade.search.stream.clear-every:500}")
+    private int clearEvery;
+
+    @Override
+    public Slice<Trade> findSlice(Specification<Trade> specification, Pageable pageable, Duration timeout) {
+
+        TypedQuery<Trade> typedQuery = createQuery(specification, pageable.getSort());
+        typedQuery.setFirstResult((int) pageable.getOffset());
+
+        // One extra row tells us if there's more without counting the matches
+        typedQuery.setMaxResults(pageable.getPageSize() + 1);
+
+        if (timeout != null) {
+            typedQuery.setHint(QUERY_TIMEOUT_HINT, Math.toIntExact(timeout.toMillis()));
+        }
+
+        List<Trade> trades = typedQuery.getResultList();
+        boolean hasNext = trades.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? trades.subList(0, pageable.getPageSize()) : trades, pageable, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public long streamEach(Specification<Trade> specification, Sort sort, Duration timeout,
+            Consumer<Trade> action) {
+
+        TypedQuery<Trade> typedQuery = createQuery(specification, sort);
+        typedQuery.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        typedQuery.setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (timeout != null) {
+            typedQuery.setHint(QUERY_TIMEOUT_HINT, Math.toIntExact(timeout.toMillis()));
+        }
+
+        long count = 0;
+        try (ScrollableResults<Trade> results = typedQuery.unwrap(org.hibernate.query.Query.class)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept(results.get());
+                count++;
+
+                // Drop the trades (and their legs) already written
+                if (count % clearEvery == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public long streamPortfolioRows(long fromId, long toId, Consumer<PortfolioRow> action) {
+
+        TypedQuery<PortfolioRow> typedQuery = entityManager.createQuery(PORTFOLIO_ROWS, PortfolioRow.class)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId);
+        typedQuery.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+
+        // Rows, not entities, so nothing builds up in the persistence context
+        long count = 0;
+        try (ScrollableResults<PortfolioRow> results = typedQuery.unwrap(org.hibernate.query.Query.class)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept(results.get());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Trade> specification) {
+
+        if (specification instanceof JpqlSpecification jpql) {
+            return createJpqlQuery(jpql, "distinct " + JpqlSpecification.ROOT + ".id", Sort.by("id"), Long.class)
+                    .getResultList();
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Trade> root = query.from(Trade.class);
+
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(root.get("id")).distinct(true);
+        query.orderBy(criteriaBuilder.asc(root.get("id")));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private TypedQuery<Trade> createQuery(Specification<Trade> specification, Sort sort) {
+
+        if (specification instanceof JpqlSpecification jpql) {
+            String select = (jpql.distinct() ? "distinct " : "") + JpqlSpecification.ROOT;
+            return createJpqlQuery(jpql, select, sort, Trade.class);
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Trade> query = criteriaBuilder.createQuery(Trade.class);
+        Root<Trade> root = query.from(Trade.class);
+
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(root);
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        return entityManager.createQuery(query);
+    }
+
+    // Same query string for the same query shape and sort, only the parameter
+    // values change
+    private <T> TypedQuery<T> createJpqlQuery(JpqlSpecification jpql, String select, Sort sort,
+            Class<T> resultType) {
+
+        StringBuilder query = new StringBuilder("select ").append(select).append(" from Trade ")
+                .append(JpqlSpecification.ROOT).append(jpql.joins()).append(" where ").append(jpql.where());
+
+        String separator = " order by ";
+        for (Sort.Order order : sort) {
+            query.append(separator).append(JpqlSpecification.ROOT).append('.').append(order.getProperty())
+                    .append(order.isAscending() ? " asc" : " desc");
+            separator = ", ";
+        }
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query.toString(), resultType);
+        jpql.parameters().forEach(typedQuery::setParameter);
+        return typedQuery;
+    }
+
+}
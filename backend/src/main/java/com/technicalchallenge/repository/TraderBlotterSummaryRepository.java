@@ -0,0 +1,29 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.TraderBlotterSummary;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TraderBlotterSummaryRepository extends JpaRepository<TraderBlotterSummary, String> {
+
+    // Adds to the trader's totals in place, returns 0 when the trader doesn't
+    // have a summary yet
+    @Modifying
+    @Query(value = "UPDATE trader_blotter_summary SET trade_count = trade_count + :tradeCount, total_notional = total_notional + :notional WHERE trader_login_id = :traderLoginId", nativeQuery = true)
+    int addToSummary(@Param("traderLoginId") String traderLoginId, @Param("tradeCount") long tradeCount,
+            @Param("notional") BigDecimal notional);
+
+    // Creates the trader's totals empty unless they exist, a write creating
+    // the same trader's concurrently waits for the other and leaves them be
+    // instead of failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO trader_blotter_summary (trader_login_id, trade_count, total_notional) VALUES (:traderLoginId, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createSummary(@Param("traderLoginId") String traderLoginId);
+}
@@ -0,0 +1,51 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.TraderDailyRollup;
+import com.technicalchallenge.model.TraderDailyRollupId;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TraderDailyRollupRepository extends JpaRepository<TraderDailyRollup, TraderDailyRollupId> {
+
+    // The trader's days between two trade dates, days without trades are skipped
+    @Query("SELECT r FROM TraderDailyRollup r WHERE r.traderLoginId = :traderLoginId AND r.tradeDate BETWEEN :fromDate AND :toDate AND r.tradeCount > 0 ORDER BY r.tradeDate")
+    List<TraderDailyRollup> findRollups(@Param("traderLoginId") String traderLoginId,
+            @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Adds to the day in place and widens its min and max to the added legs',
+    // returns 0 when the day doesn't exist yet
+    @Modifying
+    @Query(value = "UPDATE trader_daily_rollup SET trade_count = trade_count + :tradeCount, leg_count = leg_count + :legCount, notional_sum = notional_sum + :notional,"
+            + " notional_min = CASE WHEN notional_min IS NULL OR CAST(:min AS NUMERIC(38, 2)) < notional_min THEN CAST(:min AS NUMERIC(38, 2)) ELSE notional_min END,"
+            + " notional_max = CASE WHEN notional_max IS NULL OR CAST(:max AS NUMERIC(38, 2)) > notional_max THEN CAST(:max AS NUMERIC(38, 2)) ELSE notional_max END"
+            + " WHERE trader_login_id = :traderLoginId AND trade_date = :tradeDate", nativeQuery = true)
+    int addToRollup(@Param("traderLoginId") String traderLoginId, @Param("tradeDate") LocalDate tradeDate,
+            @Param("tradeCount") long tradeCount, @Param("legCount") long legCount,
+            @Param("notional") BigDecimal notional, @Param("min") BigDecimal min, @Param("max") BigDecimal max);
+
+    // Creates the day empty unless it exists, a write creating the same day
+    // concurrently waits for the other and leaves it be instead of failing on
+    // the key
+    @Modifying
+    @Query(value = "INSERT INTO trader_daily_rollup (trader_login_id, trade_date, trade_count, leg_count, notional_sum, notional_min, notional_max)"
+            + " VALUES (:traderLoginId, :tradeDate, 0, 0, 0, NULL, NULL) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createRollup(@Param("traderLoginId") String traderLoginId, @Param("tradeDate") LocalDate tradeDate);
+
+    // A min or max can't be taken back, so a day that lost legs reads them
+    // again from its live trades
+    @Modifying
+    @Query(value = "UPDATE trader_daily_rollup r SET"
+            + " notional_min = (SELECT MIN(l.notional) FROM trade t JOIN application_user u ON u.id = t.trader_user_id JOIN trade_leg l ON l.trade_id = t.id WHERE u.login_id = r.trader_login_id AND t.trade_date = r.trade_date AND t.active = TRUE),"
+            + " notional_max = (SELECT MAX(l.notional) FROM trade t JOIN application_user u ON u.id = t.trader_user_id JOIN trade_leg l ON l.trade_id = t.id WHERE u.login_id = r.trader_login_id AND t.trade_date = r.trade_date AND t.active = TRUE)"
+            + " WHERE r.trader_login_id = :traderLoginId AND r.trade_date = :tradeDate", nativeQuery = true)
+    int recomputeMinMax(@Param("traderLoginId") String traderLoginId, @Param("tradeDate") LocalDate tradeDate);
+}
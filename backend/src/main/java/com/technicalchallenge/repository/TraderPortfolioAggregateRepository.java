@@ -0,0 +1,38 @@
+package com.technicalchallenge.repository;
+
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.model.TraderPortfolioAggregateId;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TraderPortfolioAggregateRepository
+        extends JpaRepository<TraderPortfolioAggregate, TraderPortfolioAggregateId> {
+
+    // The trader's whole summary, rows that no longer contribute are skipped
+    @Query("SELECT a FROM TraderPortfolioAggregate a WHERE a.traderLoginId = :traderLoginId AND a.entryCount > 0 ORDER BY a.dimension, a.dimensionKey, a.subKey")
+    List<TraderPortfolioAggregate> findSummary(@Param("traderLoginId") String traderLoginId);
+
+    // Adds to the figure in place, so concurrent writes for the trader don't
+    // overwrite each other, returns 0 when the figure doesn't exist yet
+    @Modifying
+    @Query(value = "UPDATE trader_portfolio_aggregate SET entry_count = entry_count + :count, total_notional = total_notional + :notional WHERE trader_login_id = :traderLoginId AND dimension = :dimension AND dimension_key = :dimensionKey AND sub_key = :subKey", nativeQuery = true)
+    int addToAggregate(@Param("traderLoginId") String traderLoginId, @Param("dimension") String dimension,
+            @Param("dimensionKey") String dimensionKey, @Param("subKey") String subKey, @Param("count") long count,
+            @Param("notional") BigDecimal notional);
+
+    // Creates the figure at zero unless it exists, a write creating the same
+    // figure concurrently waits for the other and leaves it be instead of
+    // failing on the key
+    @Modifying
+    @Query(value = "INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional) VALUES (:traderLoginId, :dimension, :dimensionKey, :subKey, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createAggregate(@Param("traderLoginId") String traderLoginId, @Param("dimension") String dimension,
+            @Param("dimensionKey") String dimensionKey, @Param("subKey") String subKey);
+}
@@ -0,0 +1,132 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.Book;
+import com.technicalchallenge.repository.BookActivityCounterRepository;
+import com.technicalchallenge.repository.BookRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * BookActivityCounter service class keeps each trader's activity counters in
+ * every book up to date as trades are written.
+ *
+ * <p>
+ * The counters are one row per book, trader and book version
+ * (book_activity_counter) with the trade count, leg notional and time of the
+ * last trade write, so the book level activity dashboard is read from a few
+ * rows and the book's names, never from the trades. A write is counted under
+ * the book's version when it's written.
+ *
+ * Every {@link TradeWriteEvent} is applied in the write's transaction over
+ * live (active) trade rows, the same way as the daily rollups
+ * ({@link TraderDailyRollupService}): a booking adds its trade, an amendment
+ * swaps the old version for the new one, a termination or cancellation
+ * keeps the trade as it's still live, and any write is activity. A book
+ * version's row is the change to the trader's live trades while the book
+ * was at that version, an amendment there nets to no trades and only its
+ * change of notional. Added up over the versions they're the trader's live
+ * trades in the book.
+ *
+ * A missing row is created empty with ON CONFLICT DO NOTHING and then added
+ * to, so two writes creating the same row don't fail on its key.
+ *
+ * {@link #rebuild()} recounts every book from the live trades for recovery,
+ * the trades then go under their book's version now.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class BookActivityCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(BookActivityCounterService.class);
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::bookId)
+            .thenComparing(Key::traderLoginId);
+
+    private final BookActivityCounterRepository bookActivityCounterRepository;
+    private final BookRepository bookRepository;
+
+    private record Key(Long bookId, String traderLoginId) {
+    }
+
+    private record Delta(long tradeCount, BigDecimal notional) {
+
+        Delta plus(Delta other) {
+            return new Delta(tradeCount + other.tradeCount, notional.add(other.notional));
+        }
+    }
+
+    /**
+     * Applies the trade write to its book's counters.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted so concurrent writes lock the rows in the same order. The
+        // before row is either the after row or deactivated by the write, so
+        // it always stops counting as it was
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        collect(deltas, event.before(), -1);
+        collect(deltas, event.after(), 1);
+
+        LocalDateTime activityAt = LocalDateTime.now();
+        Map<Long, Integer> bookVersions = new TreeMap<>();
+        deltas.forEach((key, delta) -> {
+            int bookVersion = bookVersions.computeIfAbsent(key.bookId(),
+                    bookId -> bookRepository.findById(bookId).map(Book::getVersion).orElse(0));
+
+            // Counted even when it nets to nothing, it's still activity
+            int updated = bookActivityCounterRepository.addToCounter(key.bookId(), key.traderLoginId(),
+                    bookVersion, delta.tradeCount(), delta.notional(), activityAt);
+            if (updated == 0) {
+                bookActivityCounterRepository.createCounter(key.bookId(), key.traderLoginId(), bookVersion);
+                bookActivityCounterRepository.addToCounter(key.bookId(), key.traderLoginId(), bookVersion,
+                        delta.tradeCount(), delta.notional(), activityAt);
+            }
+        });
+    }
+
+    /**
+     * Recounts every book's counters from the trades.
+     *
+     * @return counters written
+     */
+    public int rebuild() {
+        int deleted = bookActivityCounterRepository.deleteCounters();
+        int rebuilt = bookActivityCounterRepository.rebuildCounters();
+        logger.info("Rebuilt {} book activity counters, {} before", rebuilt, deleted);
+        return rebuilt;
+    }
+
+    // The trade row's contribution to its book, taken away with sign -1
+    private static void collect(Map<Key, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        if (trade == null || !trade.active() || trade.bookId() == null || trade.traderLoginId() == null) {
+            return;
+        }
+
+        BigDecimalSummaryStatistics legs = new BigDecimalSummaryStatistics();
+        trade.legs().forEach(leg -> legs.accept(leg.notional()));
+        BigDecimal notional = legs.getSum();
+        deltas.merge(new Key(trade.bookId(), trade.traderLoginId()),
+                new Delta(sign, sign < 0 ? notional.negate() : notional), Delta::plus);
+    }
+
+}
@@ -9,6 +9,7 @@ import com.technicalchallenge.repository.CostCenterRepository;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +25,7 @@ public class BookService {
     private final BookRepository bookRepository;
     private final CostCenterRepository costCenterRepository;
     private final BookMapper bookMapper;
+    private final HierarchyRollupService hierarchyRollupService;
 
     public List<BookDTO> getAllBooks() {
         logger.info("Retrieving all books");
@@ -54,18 +56,23 @@ public class BookService {
         // If costCenterName is null or blank, do not modify the current costCenter
     }
 
+    // Moves the book's trade totals if it moved to another cost center
+    @Transactional
     public BookDTO saveBook(BookDTO dto) {
         logger.info("Saving book: {}", dto.toString());
         var entity = bookMapper.toEntity(dto);
         logger.debug("Saving book Entity: {}", entity);
         populateReferenceDataByName(entity, dto);
         var saved = bookRepository.save(entity);
+        hierarchyRollupService.onBookSaved(saved.getId());
 
         return bookMapper.toDto(saved);
     }
 
+    @Transactional
     public void deleteBook(Long id) {
         logger.warn("Deleting book with id: {}", id);
+        hierarchyRollupService.onBookDeleted(id);
         bookRepository.deleteById(id);
     }
 
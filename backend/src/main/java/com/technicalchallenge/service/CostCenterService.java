@@ -8,6 +8,7 @@ import com.technicalchallenge.repository.SubDeskRepository;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,8 +21,9 @@ import java.util.Optional;
 public class CostCenterService {
     private static final Logger logger = LoggerFactory.getLogger(CostCenterService.class);
 
-    private CostCenterRepository costCenterRepository;
-    private SubDeskRepository subDeskRepository;
+    private final CostCenterRepository costCenterRepository;
+    private final SubDeskRepository subDeskRepository;
+    private final HierarchyRollupService hierarchyRollupService;
 
     public List<CostCenter> getAllCostCenters() {
         logger.info("Retrieving all cost centers");
@@ -45,10 +47,14 @@ public class CostCenterService {
         // If subDeskName is null or blank, do not modify the current subDesk
     }
 
+    // Moves its books' trade totals if it moved to another sub desk
+    @Transactional
     public CostCenter saveCostCenter(CostCenter costCenter, CostCenterDTO dto) {
         logger.info("Saving cost center: {}", costCenter);
         populateReferenceDataByName(costCenter, dto);
-        return costCenterRepository.save(costCenter);
+        CostCenter saved = costCenterRepository.save(costCenter);
+        hierarchyRollupService.onCostCenterSaved(saved.getId());
+        return saved;
     }
 
     public void deleteCostCenter(Long id) {
@@ -0,0 +1,233 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.BigDecimalPercentages;
+import com.technicalchallenge.dto.CounterpartyConcentrationDTO;
+import com.technicalchallenge.dto.TradeSummaryDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.model.ApplicationUser;
+import com.technicalchallenge.model.CounterpartyExposure;
+import com.technicalchallenge.model.CounterpartyExposureId;
+import com.technicalchallenge.repository.ApplicationUserRepository;
+import com.technicalchallenge.repository.CounterpartyExposureRepository;
+
+/**
+ * CounterpartyExposure service class keeps every book's and trader's leg
+ * notional with each counterparty up to date and serves the largest.
+ *
+ * <p>
+ * The exposures are one row per book or trader and counterparty
+ * (counterparty_exposure), indexed largest first, so the top N is the first
+ * N entries of the index and never a scan of the legs. Exposures are over
+ * live (active) trade rows that aren't CANCELLED: a booking adds its legs,
+ * an amendment swaps the old version's legs for the new one's (moving them
+ * if the counterparty changed), a cancellation takes them away and a
+ * termination leaves them.
+ *
+ * Every book and trader also has a total row (counterparty id
+ * {@link CounterpartyExposure#SCOPE_TOTAL}) added to by the same deltas as
+ * its counterparties, so it leaves cancelled trades out too. The shares are
+ * of that total, so the read is the top N rows and one total, and a scope's
+ * shares add up to 100% across all its counterparties.
+ *
+ * UPDATED: A missing exposure is created empty with ON CONFLICT DO NOTHING
+ * and then added to, so two writes creating the same exposure don't fail on
+ * its key.
+ * </p>
+ */
+@Service
+@Transactional
+public class CounterpartyExposureService {
+
+    private static final String CANCELLED = "CANCELLED";
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::scopeLevel)
+            .thenComparing(Key::scopeId).thenComparing(Key::counterpartyId);
+
+    private final CounterpartyExposureRepository counterpartyExposureRepository;
+    private final ApplicationUserRepository applicationUserRepository;
+    private final BigDecimalPercentages bigDecimalPercentages;
+    private final int maxTop;
+
+    public CounterpartyExposureService(CounterpartyExposureRepository counterpartyExposureRepository,
+            ApplicationUserRepository applicationUserRepository, BigDecimalPercentages bigDecimalPercentages,
+            @Value("${trade.dashboard.counterparties.max-top:50}") int maxTop) {
+        this.counterpartyExposureRepository = counterpartyExposureRepository;
+        this.applicationUserRepository = applicationUserRepository;
+        this.bigDecimalPercentages = bigDecimalPercentages;
+        this.maxTop = maxTop;
+    }
+
+    private record Key(String scopeLevel, Long scopeId, Long counterpartyId) {
+    }
+
+    private record Delta(String counterpartyName, long legCount, BigDecimal notional) {
+
+        // The later row's name, the after row is collected last
+        Delta plus(Delta other) {
+            return new Delta(other.counterpartyName, legCount + other.legCount, notional.add(other.notional));
+        }
+
+        boolean isZero() {
+            return legCount == 0 && notional.signum() == 0;
+        }
+    }
+
+    /**
+     * Applies the trade write to the exposures of its book and trader.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted so concurrent writes lock the rows in the same order. The
+        // before row is either the after row or deactivated by the write, so
+        // it always stops counting as it was, a cancelled after row doesn't
+        // count
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        collect(deltas, event.before(), -1);
+        collect(deltas, event.after(), 1);
+
+        deltas.forEach((key, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            int updated = counterpartyExposureRepository.addToExposure(key.scopeLevel(), key.scopeId(),
+                    key.counterpartyId(), delta.counterpartyName(), delta.legCount(), delta.notional());
+            if (updated == 0) {
+                counterpartyExposureRepository.createExposure(key.scopeLevel(), key.scopeId(),
+                        key.counterpartyId(), delta.counterpartyName());
+                counterpartyExposureRepository.addToExposure(key.scopeLevel(), key.scopeId(),
+                        key.counterpartyId(), delta.counterpartyName(), delta.legCount(), delta.notional());
+            }
+        });
+    }
+
+    /**
+     * The book's largest counterparty exposures
+     *
+     * @param bookId book's unique identification
+     * @param top    how many counterparties, at most
+     *               trade.dashboard.counterparties.max-top
+     * @return the book's concentration
+     */
+    @Transactional(readOnly = true)
+    public CounterpartyConcentrationDTO getBookConcentration(Long bookId, int top) {
+        validateTop(top);
+        List<CounterpartyExposure> exposures = findTopExposures(CounterpartyExposure.BOOK, bookId, top);
+
+        // DashboardDataNotFoundException thrown if the book doesn't have trades
+        if (exposures.isEmpty()) {
+            throw new DashboardDataNotFoundException("Dashboard data was not found for book " + bookId);
+        }
+
+        return toConcentration(CounterpartyExposure.BOOK, bookId, findTotalNotional(CounterpartyExposure.BOOK, bookId),
+                exposures);
+    }
+
+    /**
+     * The trader's largest counterparty exposures
+     *
+     * @param username users authorized username
+     * @param top      how many counterparties, at most
+     *                 trade.dashboard.counterparties.max-top
+     * @return the trader's concentration
+     */
+    @Transactional(readOnly = true)
+    public CounterpartyConcentrationDTO getTraderConcentration(String username, int top) {
+        validateTop(top);
+        ApplicationUser trader = applicationUserRepository.findByLoginId(username)
+                .orElseThrow(() -> new DashboardDataNotFoundException("Dashboard data was not found for " + username));
+        List<CounterpartyExposure> exposures = findTopExposures(CounterpartyExposure.TRADER, trader.getId(), top);
+
+        // DashboardDataNotFoundException thrown if the user doesn't have trades
+        if (exposures.isEmpty()) {
+            throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
+        }
+
+        return toConcentration(CounterpartyExposure.TRADER, trader.getId(),
+                findTotalNotional(CounterpartyExposure.TRADER, trader.getId()), exposures);
+    }
+
+    private List<CounterpartyExposure> findTopExposures(String scopeLevel, Long scopeId, int top) {
+        return counterpartyExposureRepository.findTopExposures(scopeLevel, scopeId, PageRequest.of(0, top));
+    }
+
+    // The scope's total row, what the shares are of
+    private BigDecimal findTotalNotional(String scopeLevel, Long scopeId) {
+        return counterpartyExposureRepository
+                .findById(new CounterpartyExposureId(scopeLevel, scopeId, CounterpartyExposure.SCOPE_TOTAL))
+                .map(CounterpartyExposure::getTotalNotional).orElse(BigDecimal.ZERO);
+    }
+
+    // ValidationException thrown if the top N is out of range
+    private void validateTop(int top) {
+        if (top < 1 || top > maxTop) {
+            throw new ValidationException("top must be between 1 and " + maxTop);
+        }
+    }
+
+    // The trade row's legs with its counterparty and in the scope's total,
+    // taken away with sign -1. A cancelled trade has no exposure
+    private static void collect(Map<Key, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        if (trade == null || !trade.active() || CANCELLED.equals(trade.tradeStatus())
+                || trade.counterpartyId() == null) {
+            return;
+        }
+
+        long legCount = 0;
+        BigDecimal notional = BigDecimal.ZERO;
+        for (TradeSnapshot.LegSnapshot leg : trade.legs()) {
+            legCount++;
+            if (leg.notional() != null) {
+                notional = notional.add(leg.notional());
+            }
+        }
+        if (legCount == 0) {
+            return;
+        }
+
+        Delta delta = new Delta(trade.counterpartyName(), sign * legCount,
+                sign < 0 ? notional.negate() : notional);
+        Delta total = new Delta(null, delta.legCount(), delta.notional());
+        add(deltas, CounterpartyExposure.BOOK, trade.bookId(), trade.counterpartyId(), delta);
+        add(deltas, CounterpartyExposure.BOOK, trade.bookId(), CounterpartyExposure.SCOPE_TOTAL, total);
+        add(deltas, CounterpartyExposure.TRADER, trade.traderUserId(), trade.counterpartyId(), delta);
+        add(deltas, CounterpartyExposure.TRADER, trade.traderUserId(), CounterpartyExposure.SCOPE_TOTAL, total);
+    }
+
+    private static void add(Map<Key, Delta> deltas, String scopeLevel, Long scopeId, Long counterpartyId,
+            Delta delta) {
+        if (scopeId != null) {
+            deltas.merge(new Key(scopeLevel, scopeId, counterpartyId), delta, Delta::plus);
+        }
+    }
+
+    private CounterpartyConcentrationDTO toConcentration(String scopeLevel, Long scopeId, BigDecimal totalNotional,
+            List<CounterpartyExposure> exposures) {
+
+        List<TradeSummaryDTO.CounterpartyBreakdown> topCounterparties = exposures.stream()
+                .map(exposure -> new TradeSummaryDTO.CounterpartyBreakdown(exposure.getCounterpartyName(),
+                        exposure.getTotalNotional(),
+                        bigDecimalPercentages.toPercentageOf(totalNotional, exposure.getTotalNotional())))
+                .toList();
+        return new CounterpartyConcentrationDTO(scopeLevel, scopeId, totalNotional, topCounterparties);
+    }
+
+}
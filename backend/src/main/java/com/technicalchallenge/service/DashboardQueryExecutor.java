@@ -0,0 +1,218 @@
+package com.technicalchallenge.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Dashboard Query Executor
+ *
+ * <p>
+ * Runs a dashboard's independent sections (the page of trades, the totals)
+ * at the same time, each in its own read-only transaction on its own
+ * connection, so the dashboard takes as long as its slowest section rather
+ * than all of them added up.
+ *
+ * - Sections are joined under one deadline,
+ * trade.dashboard.query.deadline-ms from when the batch started
+ * - A section still running at the deadline is timed out and left out of
+ * the dashboard, the dashboard names it as partial
+ * - The section's transaction has the deadline as its timeout, so the
+ * database cancels a query that's still running shortly after
+ *
+ * At most trade.dashboard.query.threads sections run at once, so at most
+ * that many read connections are used by dashboard sections however many
+ * dashboards are loading, it must stay below the connection pool size.
+ *
+ * UPDATED: Sections run on virtual threads, a semaphore of
+ * trade.dashboard.query.threads permits bounds the connections they hold.
+ * Cancelling a section's future doesn't interrupt its query, so nothing is
+ * cancelled that way: each section's transaction times out at the batch's
+ * deadline, rounded up to the second, which cancels its running statement,
+ * and a section that gets its permit after the deadline, or after another
+ * section failed, doesn't start.
+ *
+ * Metrics: trade.dashboard.query.timeouts
+ * </p>
+ */
+@Component
+public class DashboardQueryExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardQueryExecutor.class);
+
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long deadlineNanos;
+    private final Counter timeoutCounter;
+
+    public DashboardQueryExecutor(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${trade.dashboard.query.threads:4}") int threads,
+            @Value("${trade.dashboard.query.deadline-ms:2000}") long deadlineMillis) {
+
+        this.transactionManager = transactionManager;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(Math.max(1, threads));
+
+        this.timeoutCounter = Counter.builder("trade.dashboard.query.timeouts")
+                .description("Dashboard sections left out because they missed the deadline").register(meterRegistry);
+    }
+
+    /**
+     * Starts a dashboard's sections, the deadline starts now.
+     *
+     * @return the batch to submit the sections to
+     */
+    public Batch batch() {
+        return new Batch(System.nanoTime() + deadlineNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A dashboard's sections, submitted and then awaited together
+     */
+    public final class Batch {
+
+        private final long deadline;
+        private final List<Section<?>> sections = new ArrayList<>();
+        private volatile boolean failed;
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Starts the section's query on its own virtual thread.
+         *
+         * @param name  section's name, reported when it times out
+         * @param query reads the section
+         * @return the section, read once the batch is awaited
+         */
+        public <T> Section<T> submit(String name, Supplier<T> query) {
+            Section<T> section = new Section<>(name, CompletableFuture.supplyAsync(() -> run(query), executor));
+            sections.add(section);
+            return section;
+        }
+
+        // Holds a permit for as long as the section's transaction holds its
+        // connection
+        private <T> T run(Supplier<T> query) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted waiting to start the dashboard section");
+            }
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (failed || remaining <= 0) {
+                    throw new CancellationException("Dashboard section not started, the dashboard is done");
+                }
+
+                TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+                readOnlyTransaction.setReadOnly(true);
+                readOnlyTransaction.setTimeout((int) Math.max(1,
+                        TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1)));
+                return readOnlyTransaction.execute(status -> query.get());
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * Waits for the sections until the deadline, a failed section fails
+         * the batch.
+         *
+         * @return names of the sections that timed out, empty when complete
+         */
+        public List<String> await() {
+
+            List<String> timedOut = new ArrayList<>();
+            for (Section<?> section : sections) {
+                try {
+                    section.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Left to its transaction timeout
+                    section.timedOut = true;
+                    timedOut.add(section.name);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed = true;
+                    throw new IllegalStateException("Interrupted waiting for the dashboard", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        // Not started before the deadline
+                        section.timedOut = true;
+                        timedOut.add(section.name);
+                        continue;
+                    }
+                    failed = true;
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            if (!timedOut.isEmpty()) {
+                timeoutCounter.increment(timedOut.size());
+                logger.warn("Dashboard sections {} missed the {} ms deadline", timedOut,
+                        TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+            }
+            return timedOut;
+        }
+    }
+
+    /**
+     * One section of a dashboard
+     */
+    public static final class Section<T> {
+
+        private final String name;
+        private final CompletableFuture<T> future;
+        private boolean timedOut;
+
+        private Section(String name, CompletableFuture<T> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * The section's result, only read after the batch is awaited.
+         *
+         * @return the result, null when it timed out
+         */
+        public T get() {
+            return timedOut ? null : future.join();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.DeltaEncodedSeries;
+import com.technicalchallenge.dto.DashboardHistoryDTO;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.model.DashboardSeries;
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.repository.DashboardSeriesRepository;
+import com.technicalchallenge.repository.OrgHierarchyRollupRepository;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TraderBlotterSummaryRepository;
+
+/**
+ * DashboardSnapshot service class writes every trader's and book's figures
+ * at the end of each day and reads them back as a history.
+ *
+ * <p>
+ * The snapshot job takes the trade count and notional from the maintained
+ * totals (trader_blotter_summary and the BOOK rows of org_hierarchy_rollup)
+ * and the currency mix from one grouped read of the live legs, and appends a
+ * point to each figure's series for the year (dashboard_series). A series
+ * is stored delta encoded ({@link DeltaEncodedSeries}), so a year of a
+ * figure is one row of a few hundred bytes.
+ *
+ * A figure that existed earlier in the year but not today, a currency no
+ * longer traded, gets a 0 point. A day already snapshotted is skipped, so
+ * the job can be run again.
+ * </p>
+ */
+@Service
+@Transactional
+public class DashboardSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotService.class);
+
+    private final DashboardSeriesRepository dashboardSeriesRepository;
+    private final TraderBlotterSummaryRepository traderBlotterSummaryRepository;
+    private final OrgHierarchyRollupRepository orgHierarchyRollupRepository;
+    private final TradeRepository tradeRepository;
+    private final int maxDays;
+
+    public DashboardSnapshotService(DashboardSeriesRepository dashboardSeriesRepository,
+            TraderBlotterSummaryRepository traderBlotterSummaryRepository,
+            OrgHierarchyRollupRepository orgHierarchyRollupRepository, TradeRepository tradeRepository,
+            @Value("${trade.dashboard.history.max-days:731}") int maxDays) {
+        this.dashboardSeriesRepository = dashboardSeriesRepository;
+        this.traderBlotterSummaryRepository = traderBlotterSummaryRepository;
+        this.orgHierarchyRollupRepository = orgHierarchyRollupRepository;
+        this.tradeRepository = tradeRepository;
+        this.maxDays = maxDays;
+    }
+
+    private record Key(String scopeLevel, String scopeKey, String metric, String metricKey) {
+
+        static Key of(DashboardSeries series) {
+            return new Key(series.getScopeLevel(), series.getScopeKey(), series.getMetric(), series.getMetricKey());
+        }
+    }
+
+    // One day's figures as they're decoded
+    private static class Day {
+        private Long tradeCount;
+        private BigDecimal totalNotional;
+        private final Map<String, BigDecimal> currencyMix = new TreeMap<>();
+    }
+
+    @Scheduled(cron = "${trade.dashboard.snapshot.cron:0 55 23 * * *}")
+    public void snapshotEndOfDay() {
+        snapshot(LocalDate.now());
+    }
+
+    /**
+     * Appends the figures as they are now to every series as the date's point.
+     *
+     * @param date trading day the figures are for
+     * @return points written
+     */
+    public int snapshot(LocalDate date) {
+
+        Map<Key, Long> values = new LinkedHashMap<>();
+
+        traderBlotterSummaryRepository.findAll().forEach(summary -> {
+            values.put(new Key(DashboardSeries.TRADER, summary.getTraderLoginId(), DashboardSeries.TRADE_COUNT, ""),
+                    summary.getTradeCount());
+            values.put(new Key(DashboardSeries.TRADER, summary.getTraderLoginId(), DashboardSeries.NOTIONAL, ""),
+                    toHundredths(summary.getTotalNotional()));
+        });
+        orgHierarchyRollupRepository.findByNodeLevel(OrgHierarchyRollup.BOOK).forEach(rollup -> {
+            String bookId = String.valueOf(rollup.getNodeId());
+            values.put(new Key(DashboardSeries.BOOK, bookId, DashboardSeries.TRADE_COUNT, ""),
+                    rollup.getTradeCount());
+            values.put(new Key(DashboardSeries.BOOK, bookId, DashboardSeries.NOTIONAL, ""),
+                    toHundredths(rollup.getTotalNotional()));
+        });
+        putCurrencyMix(values, DashboardSeries.TRADER, tradeRepository.findTraderCurrencyMix());
+        putCurrencyMix(values, DashboardSeries.BOOK, tradeRepository.findBookCurrencyMix());
+
+        Map<Key, DashboardSeries> series = new HashMap<>();
+        for (DashboardSeries existing : dashboardSeriesRepository.findYear(date.getYear())) {
+            series.put(Key.of(existing), existing);
+            values.putIfAbsent(Key.of(existing), 0L);
+        }
+
+        List<DashboardSeries> appended = new ArrayList<>();
+        values.forEach((key, value) -> {
+            DashboardSeries figure = series.get(key);
+            if (figure == null) {
+                figure = new DashboardSeries(key.scopeLevel(), key.scopeKey(), key.metric(), key.metricKey(),
+                        date.getYear(), date, date, 0L, 0, new byte[0]);
+            } else if (!date.isAfter(figure.getLastDate())) {
+                return;
+            }
+
+            figure.setPoints(DeltaEncodedSeries.append(figure.getPoints(), figure.getLastDate(),
+                    figure.getLastValue(), date, value));
+            figure.setLastDate(date);
+            figure.setLastValue(value);
+            figure.setPointCount(figure.getPointCount() + 1);
+            appended.add(figure);
+        });
+
+        dashboardSeriesRepository.saveAll(appended);
+        logger.info("Snapshot {} dashboard figures for {}", appended.size(), date);
+        return appended.size();
+    }
+
+    /**
+     * The trader's end of day figures between two dates
+     *
+     * @param username users authorized username
+     * @param fromDate first date, a year before toDate when null
+     * @param toDate   last date, today when null
+     * @return the trader's history
+     */
+    @Transactional(readOnly = true)
+    public DashboardHistoryDTO getTraderHistory(String username, LocalDate fromDate, LocalDate toDate) {
+        return history(DashboardSeries.TRADER, username, fromDate, toDate);
+    }
+
+    /**
+     * The book's end of day figures between two dates
+     *
+     * @param bookId   book's unique identification
+     * @param fromDate first date, a year before toDate when null
+     * @param toDate   last date, today when null
+     * @return the book's history
+     */
+    @Transactional(readOnly = true)
+    public DashboardHistoryDTO getBookHistory(Long bookId, LocalDate fromDate, LocalDate toDate) {
+        return history(DashboardSeries.BOOK, String.valueOf(bookId), fromDate, toDate);
+    }
+
+    private DashboardHistoryDTO history(String scopeLevel, String scopeKey, LocalDate fromDate, LocalDate toDate) {
+
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusYears(1).plusDays(1);
+        if (from.isAfter(to)) {
+            throw new ValidationException("fromDate " + from + " is after toDate " + to);
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new ValidationException("History is limited to " + maxDays + " days");
+        }
+
+        Map<LocalDate, Day> days = new TreeMap<>();
+        for (DashboardSeries series : dashboardSeriesRepository.findSeries(scopeLevel, scopeKey, from.getYear(),
+                to.getYear())) {
+            for (DeltaEncodedSeries.Point point : DeltaEncodedSeries.decode(series.getPoints(),
+                    series.getFirstDate())) {
+                if (point.date().isBefore(from) || point.date().isAfter(to)) {
+                    continue;
+                }
+                Day day = days.computeIfAbsent(point.date(), date -> new Day());
+                switch (series.getMetric()) {
+                    case DashboardSeries.TRADE_COUNT -> day.tradeCount = point.value();
+                    case DashboardSeries.NOTIONAL -> day.totalNotional = BigDecimal.valueOf(point.value(), 2);
+                    case DashboardSeries.CURRENCY -> {
+                        // A currency that dropped to 0 is no longer in the mix
+                        if (point.value() != 0) {
+                            day.currencyMix.put(series.getMetricKey(), BigDecimal.valueOf(point.value(), 2));
+                        }
+                    }
+                    default -> logger.warn("Unknown dashboard metric {}", series.getMetric());
+                }
+            }
+        }
+
+        // DashboardDataNotFoundException thrown if nothing was snapshotted between the dates
+        if (days.isEmpty()) {
+            throw new DashboardDataNotFoundException(
+                    "Dashboard data was not found for " + scopeKey + " between " + from + " and " + to);
+        }
+
+        List<DashboardHistoryDTO.Point> points = new ArrayList<>(days.size());
+        days.forEach((date, day) -> points.add(
+                new DashboardHistoryDTO.Point(date, day.tradeCount, day.totalNotional, day.currencyMix)));
+        return new DashboardHistoryDTO(scopeLevel, scopeKey, from, to, points);
+    }
+
+    private static void putCurrencyMix(Map<Key, Long> values, String scopeLevel, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (row[0] == null || row[1] == null) {
+                continue;
+            }
+            values.put(new Key(scopeLevel, String.valueOf(row[0]), DashboardSeries.CURRENCY, (String) row[1]),
+                    toHundredths((BigDecimal) row[2]));
+        }
+    }
+
+    private static long toHundredths(BigDecimal notional) {
+        return notional == null ? 0
+                : notional.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+}
@@ -0,0 +1,346 @@
+package com.technicalchallenge.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.technicalchallenge.dto.DashboardDeltaDTO;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.service.TraderPortfolioAggregateService.PortfolioChange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * DashboardStream service class pushes changes to the traders' portfolio
+ * summaries to their connected dashboards as server-sent events.
+ *
+ * <p>
+ * Events on a trader's stream:
+ *
+ * - connected: sent first, the UI fetches the portfolio summary
+ * - delta: a {@link DashboardDeltaDTO} for every committed write to one of
+ * the trader's trades, the figures it changed
+ * - resync: the client fell behind and deltas were dropped, the UI fetches
+ * the portfolio summary again
+ *
+ * Deltas older than the summary the UI holds (asOf) are already in it.
+ *
+ * The committing thread never writes to a client, it adds the event to the
+ * client's bounded queue and a small sender pool writes it. A client whose
+ * queue is full has its queue replaced with a resync, so a slow client costs
+ * one queue and can't hold up the others or the trade writes. Nothing is
+ * sent while the book is quiet apart from a heartbeat comment that finds
+ * disconnected clients.
+ *
+ * UPDATED: The servlet response is written with blocking I/O, so a client
+ * that stops reading blocks its write once the socket buffer is full. A write
+ * still blocked after trade.dashboard.stream.write-timeout-ms drops the
+ * client, nothing more is queued for it and its response is completed once
+ * the write returns (the container's own write timeout ends it).
+ *
+ * UPDATED: The sender pool is fixed at sender-threads threads with room for
+ * sender-queue-size clients waiting to be sent to, it never grows. A client
+ * that can't be queued because every thread is held up by blocked writes is
+ * dropped, its dashboard reconnects and fetches the portfolio summary again,
+ * so stuck clients cost a bounded number of threads however many connect.
+ *
+ * Metrics: trade.dashboard.stream.clients, trade.dashboard.stream.resyncs,
+ * trade.dashboard.stream.write-timeouts and trade.dashboard.stream.overflows
+ * </p>
+ */
+@Service
+public class DashboardStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStreamService.class);
+
+    private final Map<String, List<Client>> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private final ExecutorService sender;
+    private final ScheduledExecutorService watchdog;
+    private final long timeoutMillis;
+    private final long writeTimeoutMillis;
+    private final int queueSize;
+    private final int maxClientsPerUser;
+    private final Counter resyncCounter;
+    private final Counter writeTimeoutCounter;
+    private final Counter overflowCounter;
+
+    // An event waiting to be sent, a null name is a comment
+    private record Message(String name, Object data) {
+    }
+
+    // A connected dashboard and the events waiting to be sent to it
+    private static final class Client {
+        private final String username;
+        private final SseEmitter emitter;
+        private final Queue<Message> queue = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        private Client(String username, SseEmitter emitter) {
+            this.username = username;
+            this.emitter = emitter;
+        }
+    }
+
+    public DashboardStreamService(MeterRegistry meterRegistry,
+            @Value("${trade.dashboard.stream.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${trade.dashboard.stream.queue-size:32}") int queueSize,
+            @Value("${trade.dashboard.stream.max-clients-per-user:5}") int maxClientsPerUser,
+            @Value("${trade.dashboard.stream.sender-threads:2}") int senderThreads,
+            @Value("${trade.dashboard.stream.write-timeout-ms:5000}") long writeTimeoutMillis,
+            @Value("${trade.dashboard.stream.sender-queue-size:256}") int senderQueueSize) {
+
+        this.timeoutMillis = timeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.queueSize = Math.max(1, queueSize);
+        this.maxClientsPerUser = Math.max(1, maxClientsPerUser);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, senderThreads);
+        this.sender = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, senderQueueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.resyncCounter = Counter.builder("trade.dashboard.stream.resyncs")
+                .description("Dashboard streams that fell behind and were told to resync").register(meterRegistry);
+        this.writeTimeoutCounter = Counter.builder("trade.dashboard.stream.write-timeouts")
+                .description("Dashboard streams dropped for a write that didn't finish in time")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("trade.dashboard.stream.overflows")
+                .description("Dashboard streams dropped because the sender pool was full").register(meterRegistry);
+        Gauge.builder("trade.dashboard.stream.clients", clientCount, AtomicInteger::get)
+                .description("Connected dashboard streams").register(meterRegistry);
+    }
+
+    /**
+     * Connects a dashboard to the trader's stream, the trader's oldest stream
+     * is closed when they have too many.
+     *
+     * @param username trader's login
+     * @return the stream
+     */
+    public SseEmitter subscribe(String username) {
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Client client = new Client(username, emitter);
+
+        emitter.onCompletion(() -> remove(client));
+        emitter.onTimeout(() -> close(client));
+        emitter.onError(error -> remove(client));
+
+        // Added and removed under the map's lock for the user, so a client
+        // can't be added to a list that's just been dropped
+        List<Client> userClients = clients.compute(username, (key, value) -> {
+            List<Client> list = value != null ? value : new CopyOnWriteArrayList<>();
+            list.add(client);
+            return list;
+        });
+        clientCount.incrementAndGet();
+
+        // The oldest of a snapshot, a client being removed by another thread
+        // is still counted but can't be picked again
+        List<Client> connected = List.copyOf(userClients);
+        for (int i = 0; i < connected.size() - maxClientsPerUser; i++) {
+            close(connected.get(i));
+        }
+
+        offer(client, new Message("connected", LocalDateTime.now()));
+        return emitter;
+    }
+
+    /**
+     * Pushes the committed write's changes to the traders' dashboards.
+     *
+     * @param event the committed trade write
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<PortfolioChange>> changesByTrader = TraderPortfolioAggregateService.changesOf(event)
+                .stream().filter(change -> clients.containsKey(change.traderLoginId()))
+                .collect(Collectors.groupingBy(PortfolioChange::traderLoginId));
+
+        LocalDateTime now = LocalDateTime.now();
+        changesByTrader.forEach((trader, changes) -> {
+            DashboardDeltaDTO delta = new DashboardDeltaDTO(event.type().name(), event.tradeId(),
+                    changes.stream().map(DashboardStreamService::toChange).toList(), now);
+            for (Client client : clients.getOrDefault(trader, List.of())) {
+                offer(client, new Message("delta", delta));
+            }
+        });
+    }
+
+    /**
+     * Sends a heartbeat comment, writing to a disconnected client fails and
+     * removes it.
+     */
+    @Scheduled(fixedDelayString = "${trade.dashboard.stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        Message heartbeat = new Message(null, "heartbeat");
+        clients.values().forEach(userClients -> userClients.forEach(client -> offer(client, heartbeat)));
+    }
+
+    public int clientCount() {
+        return clientCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.values().forEach(userClients -> userClients.forEach(this::close));
+        sender.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    // Queues the event and starts sending if the client isn't already being
+    // sent to, never writes on the calling thread
+    private void offer(Client client, Message message) {
+
+        synchronized (client) {
+            if (client.closed) {
+                return;
+            }
+            if (client.queue.size() >= queueSize) {
+                client.queue.clear();
+                client.queue.add(new Message("resync", LocalDateTime.now()));
+                resyncCounter.increment();
+            } else {
+                client.queue.add(message);
+            }
+            if (client.sending) {
+                return;
+            }
+            client.sending = true;
+        }
+
+        try {
+            sender.execute(() -> send(client));
+        } catch (RejectedExecutionException e) {
+            // Every sender is held up and the backlog is full, nothing is
+            // being written to the client so its emitter is free to complete
+            logger.debug("Dashboard stream for {} dropped, sender pool full", client.username);
+            overflowCounter.increment();
+            close(client);
+        }
+    }
+
+    // Sends the client's queue, one sender thread per client at a time
+    private void send(Client client) {
+
+        while (true) {
+            Message message;
+            synchronized (client) {
+                message = client.queue.poll();
+                if (message == null || client.closed) {
+                    client.sending = false;
+                    return;
+                }
+            }
+
+            ScheduledFuture<?> writeTimeout = watchdog.schedule(() -> timedOut(client), writeTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+            try {
+                if (message.name() == null) {
+                    client.emitter.send(SseEmitter.event().comment(String.valueOf(message.data())));
+                } else {
+                    client.emitter.send(SseEmitter.event().name(message.name()).data(message.data()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                writeTimeout.cancel(false);
+                logger.debug("Dashboard stream for {} disconnected: {}", client.username, e.getMessage());
+                remove(client);
+                return;
+            }
+
+            if (!writeTimeout.cancel(false)) {
+                // Dropped while the write was blocked, the emitter is only
+                // free to complete now it's back
+                client.emitter.complete();
+                synchronized (client) {
+                    client.sending = false;
+                }
+                return;
+            }
+        }
+    }
+
+    // The client's write is blocked, drop it without touching the emitter
+    // (its methods wait for the blocked write)
+    private void timedOut(Client client) {
+        logger.debug("Dashboard stream for {} dropped, write blocked for {}ms", client.username,
+                writeTimeoutMillis);
+        writeTimeoutCounter.increment();
+        remove(client);
+    }
+
+    private void close(Client client) {
+        remove(client);
+        client.emitter.complete();
+    }
+
+    private void remove(Client client) {
+
+        synchronized (client) {
+            if (client.closed) {
+                return;
+            }
+            client.closed = true;
+            client.queue.clear();
+        }
+
+        clients.computeIfPresent(client.username, (key, value) -> {
+            value.remove(client);
+            return value.isEmpty() ? null : value;
+        });
+        clientCount.decrementAndGet();
+    }
+
+    private static DashboardDeltaDTO.Change toChange(PortfolioChange change) {
+        boolean status = TraderPortfolioAggregate.STATUS.equals(change.dimension());
+        return new DashboardDeltaDTO.Change(change.dimension(), change.dimensionKey(),
+                change.subKey().isEmpty() ? null : change.subKey(),
+                status ? change.count() : null,
+                status ? null : change.notional());
+    }
+
+}
@@ -3,26 +3,39 @@ package com.technicalchallenge.service;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.technicalchallenge.cache.TradeCountCache;
 import com.technicalchallenge.calculations.BigDecimalPercentages;
 import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+import com.technicalchallenge.dto.CountMode;
 import com.technicalchallenge.dto.DailySummaryDTO;
+import com.technicalchallenge.dto.SliceDTO;
 import com.technicalchallenge.dto.TradeSummaryDTO;
 import com.technicalchallenge.dto.DailySummaryDTO.Comparison;
 import com.technicalchallenge.dto.DailySummaryDTO.Metrics;
 import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
-import com.technicalchallenge.model.Trade;
-import com.technicalchallenge.model.TradeLeg;
+import com.technicalchallenge.model.TraderDailyRollup;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.repository.BookActivityCounterRepository;
 import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TraderDailyRollupRepository;
+import com.technicalchallenge.repository.TraderPortfolioAggregateRepository;
+import com.technicalchallenge.service.DashboardQueryExecutor.Section;
 
 import lombok.RequiredArgsConstructor;
 
@@ -46,35 +59,92 @@ public class DashboardViewService {
 
         private final TradeRepository tradeRepository;
         private final BigDecimalPercentages bigDecimalPercentages;
+        private final TradeCountCache tradeCountCache;
+        private final TraderPortfolioAggregateRepository traderPortfolioAggregateRepository;
+        private final TraderDailyRollupRepository traderDailyRollupRepository;
+        private final DashboardQueryExecutor dashboardQueryExecutor;
+        private final BookActivityCounterRepository bookActivityCounterRepository;
 
         /**
          * Dashboard View: Trader's personal trades
          * 
          * <p>
          * Projected view of the trader's personal trades
+         * 
+         * UPDATED: With a NONE or APPROXIMATE count the trades are read as a
+         * slice without the COUNT query, APPROXIMATE adds the cached count from
+         * the {@link TradeCountCache} as the total.
+         * 
+         * UPDATED: The page and the totals are read at the same time on the
+         * {@link DashboardQueryExecutor}, each on its own connection. A section
+         * that misses the deadline is left out and named in partialSections,
+         * if both miss it the request times out.
+         *
+         * UPDATED: The totals and the page count are read from the trader's
+         * maintained blotter summary ({@link TraderBlotterSummaryService}),
+         * over their live trades only.
          * </p>
          * 
-         * @param username users authorized username
-         * @param pageable users can select the page
+         * @param username  users authorized username
+         * @param pageable  users can select the page
+         * @param countMode how the page total is worked out
          */
-        public TradeSummaryDTO getTraderDashboard(String username, Pageable pageable) {
+        @Transactional(propagation = Propagation.NOT_SUPPORTED)
+        public TradeSummaryDTO getTraderDashboard(String username, Pageable pageable, CountMode countMode) {
+
+                // The page and the totals are read at the same time
+                DashboardQueryExecutor.Batch batch = dashboardQueryExecutor.batch();
 
                 // Current user's trading view
-                Page<TradeSummaryDTO.PersonalView> personalView = tradeRepository.findPersonalTradesView(username,
-                                pageable);
+                Section<Page<TradeSummaryDTO.PersonalView>> pageSection = null;
+                Section<SliceDTO<TradeSummaryDTO.PersonalView>> sliceSection = null;
+
+                if (countMode == CountMode.EXACT) {
+                        pageSection = batch.submit("trades",
+                                        () -> tradeRepository.findPersonalTradesView(username, pageable));
+                } else {
+                        sliceSection = batch.submit("trades", () -> {
+                                Slice<TradeSummaryDTO.PersonalView> slice = tradeRepository
+                                                .findPersonalTradesSlice(username, pageable);
+                                Long approximateTotal = null;
+                                if (countMode == CountMode.APPROXIMATE && slice.hasNext()) {
+                                        approximateTotal = tradeCountCache.get("personal:" + username,
+                                                        () -> tradeRepository.countPersonalTrades(username));
+                                }
+                                return SliceDTO.of(slice, approximateTotal);
+                        });
+                }
 
-                Object result = tradeRepository.findResultsOfTotals(username);
+                Section<Object> totalsSection = batch.submit("totals",
+                                () -> tradeRepository.findResultsOfTotals(username));
 
-                // DashboardDataNotFoundException thrown if the user doesn't have trades
-                if (personalView == null || personalView.isEmpty() || result == null) {
-                        throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
+                List<String> partialSections = batch.await();
+                if (partialSections.size() == 2) {
+                        throw new QueryTimeoutException("Dashboard for " + username + " timed out");
                 }
 
-                Object[] totals = (Object[]) result;
+                Page<TradeSummaryDTO.PersonalView> personalView = pageSection != null ? pageSection.get() : null;
+                SliceDTO<TradeSummaryDTO.PersonalView> personalSlice = sliceSection != null ? sliceSection.get()
+                                : null;
+                Object result = totalsSection.get();
+
+                // DashboardDataNotFoundException thrown if the user doesn't have trades,
+                // a section that timed out can't say
+                boolean tradesRead = !partialSections.contains("trades");
+                boolean noTrades = countMode == CountMode.EXACT ? personalView == null || personalView.isEmpty()
+                                : personalSlice == null || personalSlice.content().isEmpty();
+                if ((tradesRead && noTrades) || (!totalsSection.isTimedOut() && result == null)) {
+                        throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
+                }
 
-                // Total amount of trades and notionals
-                Long tradeCount = ((Number) totals[0]).longValue();
-                BigDecimal totalNotional = (BigDecimal) totals[1];
+                // Total amount of trades and notionals, left out if they timed out
+                Long tradeCount = null;
+                BigDecimal totalNotional = null;
+                if (result != null) {
+                        Object[] totals = (Object[]) result;
+                        tradeCount = ((Number) totals[0]).longValue();
+                        totalNotional = (BigDecimal) totals[1];
+                }
 
                 // Personalised projection view
                 TradeSummaryDTO blotterView = new TradeSummaryDTO("Your Personal Trading View", username,
@@ -82,6 +152,9 @@ public class DashboardViewService {
                                 totalNotional, personalView, null, null, null,
                                 null,
                                 null);
+                blotterView.setTradeSlice(personalSlice);
+                blotterView.setPartialSections(partialSections);
+                blotterView.setAsOf(LocalDateTime.now());
 
                 return blotterView;
 
@@ -92,55 +165,81 @@ public class DashboardViewService {
          * 
          * <p>
          * Projected view of the trade portfolio summaries.
+         * 
+         * UPDATED: Read from the trader's maintained aggregates
+         * ({@link TraderPortfolioAggregateService}) instead of loading and
+         * walking every trade, so the read is the same size whatever the size
+         * of the portfolio. Risk exposure is the net pay/receive notional by
+         * currency.
          * </p>
          *
          * @param username users authorized username
          */
         public TradeSummaryDTO getTradePortfolioSummaries(String username) {
 
-                List<Trade> totalTrades = tradeRepository.findAllTrades(username);
+                List<TraderPortfolioAggregate> aggregates = traderPortfolioAggregateRepository.findSummary(username);
 
                 // DashboardDataNotFoundException thrown if the user doesn't have trades
-                if (totalTrades == null || totalTrades.isEmpty()) {
+                if (aggregates == null || aggregates.isEmpty()) {
                         throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
                 }
 
-                // Total notional amounts by currency
-                Map<String, BigDecimal> totalNotionalByCurrency = totalTrades.stream().flatMap(trade -> trade
-                                .getTradeLegs().stream())
-                                .filter(leg -> leg.getCurrency() != null && leg.getNotional() != null)
-                                .collect(Collectors.groupingBy(leg -> leg.getCurrency().getCurrency(),
-                                                Collectors.reducing(BigDecimal.ZERO, TradeLeg::getNotional,
-                                                                BigDecimal::add)));
+                Map<String, BigDecimal> totalNotionalByCurrency = new LinkedHashMap<>();
+                Map<String, Long> totalTradeCountByStatus = new LinkedHashMap<>();
+                Map<String, BigDecimal> notionalByTradeType = new LinkedHashMap<>();
+                Map<String, BigDecimal> notionalByCounterparty = new LinkedHashMap<>();
+                List<TradeSummaryDTO.RiskExposure> riskExposure = new ArrayList<>();
+
+                for (TraderPortfolioAggregate aggregate : aggregates) {
+                        switch (aggregate.getDimension()) {
+                                case TraderPortfolioAggregate.STATUS -> totalTradeCountByStatus
+                                                .put(aggregate.getDimensionKey(), aggregate.getEntryCount());
+                                case TraderPortfolioAggregate.CURRENCY -> totalNotionalByCurrency
+                                                .put(aggregate.getDimensionKey(), aggregate.getTotalNotional());
+                                case TraderPortfolioAggregate.TRADE_TYPE -> notionalByTradeType
+                                                .put(aggregate.getDimensionKey(), aggregate.getTotalNotional());
+                                case TraderPortfolioAggregate.COUNTERPARTY -> notionalByCounterparty
+                                                .put(aggregate.getDimensionKey(), aggregate.getTotalNotional());
+                                case TraderPortfolioAggregate.EXPOSURE -> riskExposure.add(
+                                                new TradeSummaryDTO.RiskExposure(null, null, null,
+                                                                aggregate.getDimensionKey(), aggregate.getSubKey(),
+                                                                aggregate.getTotalNotional()));
+                                default -> {
+                                }
+                        }
+                }
 
-                // Total number of trades by status
-                Map<String, Long> totalTradeCountByStatus = totalTrades.stream()
-                                .collect(Collectors.groupingBy(trade -> trade.getTradeStatus().getTradeStatus(),
-                                                Collectors.counting()));
+                // DashboardDataNotFoundException thrown if the user doesn't have trades
+                if (totalTradeCountByStatus.isEmpty()) {
+                        throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
+                }
 
                 // Breakdown by trade type
-                List<TradeSummaryDTO.TradeTypeBreakdown> byTradeType = tradeRepository
-                                .findByTradeTypeBreakdown(username);
+                BigDecimal tradeTypeTotal = notionalByTradeType.values().stream()
+                                .collect(BigDecimalSummaryStatistics.statistics()).getSum();
+                List<TradeSummaryDTO.TradeTypeBreakdown> byTradeType = notionalByTradeType.entrySet().stream()
+                                .map(entry -> new TradeSummaryDTO.TradeTypeBreakdown(entry.getKey(), entry.getValue(),
+                                                bigDecimalPercentages.toPercentageOf(tradeTypeTotal,
+                                                                entry.getValue())))
+                                .toList();
 
                 // Breakdown by counterparty
-                List<TradeSummaryDTO.CounterpartyBreakdown> byCounterparty = tradeRepository
-                                .findByCounterpartyBreakdown(username);
-
-                // Risk exposure summaries - PayRecieve
-                List<TradeSummaryDTO.RiskExposure> riskExposure = tradeRepository.findRiskExposure(username);
-
-                // DashboardDataNotFoundException thrown if the user doesn't have trades
-                if (totalNotionalByCurrency == null || totalTradeCountByStatus == null
-                                || byTradeType == null || byCounterparty == null
-                                || riskExposure == null) {
-                        throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
-                }
+                BigDecimal counterpartyTotal = notionalByCounterparty.values().stream()
+                                .collect(BigDecimalSummaryStatistics.statistics()).getSum();
+                List<TradeSummaryDTO.CounterpartyBreakdown> byCounterparty = notionalByCounterparty.entrySet()
+                                .stream()
+                                .map(entry -> new TradeSummaryDTO.CounterpartyBreakdown(entry.getKey(),
+                                                entry.getValue(),
+                                                bigDecimalPercentages.toPercentageOf(counterpartyTotal,
+                                                                entry.getValue())))
+                                .toList();
 
                 TradeSummaryDTO portfolioView = new TradeSummaryDTO("Trade Portfolio Summaries",
                                 username, null, null, null, totalNotionalByCurrency, totalTradeCountByStatus,
                                 byTradeType,
                                 byCounterparty,
                                 riskExposure);
+                portfolioView.setAsOf(LocalDateTime.now());
 
                 return portfolioView;
 
@@ -151,6 +250,11 @@ public class DashboardViewService {
          * 
          * <p>
          * Projected view of book level activities.
+         * 
+         * UPDATED: Read from the trader's maintained counters in the book
+         * ({@link BookActivityCounterService}), one row per book version with
+         * its trade count and last activity, instead of grouping the trades
+         * and their legs.
          * </p>
          *
          * @param username users authorized username
@@ -159,7 +263,7 @@ public class DashboardViewService {
         public DailySummaryDTO getBookLevelActivity(String username, Long bookId) {
 
                 // Book level trading view
-                List<DailySummaryDTO.BookActivity> bookView = tradeRepository.findBookLevelActivitySummary(username,
+                List<DailySummaryDTO.BookActivity> bookView = bookActivityCounterRepository.findBookActivity(username,
                                 bookId);
 
                 // DashboardDataNotFoundException thrown if the user doesn't have trades
@@ -180,6 +284,10 @@ public class DashboardViewService {
          * 
          * <p>
          * Projected view of daily trading statistics.
+         * 
+         * UPDATED: Today's and yesterday's figures are read from the trader's
+         * maintained daily rollups ({@link TraderDailyRollupService}) in one
+         * indexed read, instead of loading the trades and their legs.
          * </p>
          *
          * @param username users authorized username
@@ -189,39 +297,23 @@ public class DashboardViewService {
                 LocalDate todaysDate = LocalDate.now();
                 LocalDate yesterdaysDate = todaysDate.minusDays(1);
 
-                // Today's User's Trades
-                List<Trade> todaysTrades = tradeRepository.findAllTrades(username).stream()
-                                .filter(t -> t.getTradeDate().equals(todaysDate)).toList();
+                // Only reads yesterday's and today's rollups
+                Map<LocalDate, TraderDailyRollup> rollups = traderDailyRollupRepository
+                                .findRollups(username, yesterdaysDate, todaysDate).stream()
+                                .collect(Collectors.toMap(TraderDailyRollup::getTradeDate, rollup -> rollup));
 
-                // Previous Days - User's Trades
-                List<Trade> yesterdaysTrades = tradeRepository.findAllTrades(username).stream()
-                                .filter(t -> t.getTradeDate().equals(yesterdaysDate)).toList();
+                // Today's and previous day's summarised User's Trades
+                TraderDailyRollup todaysRollup = rollups.get(todaysDate);
+                TraderDailyRollup yesterdaysRollup = rollups.get(yesterdaysDate);
 
                 // DashboardDataNotFoundException thrown if the user doesn't have trades
-                if (todaysTrades == null || todaysTrades.isEmpty() || yesterdaysTrades == null
-                                || yesterdaysTrades.isEmpty()) {
+                if (todaysRollup == null || yesterdaysRollup == null) {
                         throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
                 }
 
                 // Daily trade count, total of notionals and user-specific performance metrics
-
-                // Today's Summarised User's Trades
-                BigDecimalSummaryStatistics todaysMetrics = todaysTrades.stream()
-                                .flatMap(trade -> trade.getTradeLegs().stream()).map(TradeLeg::getNotional)
-                                .collect(BigDecimalSummaryStatistics.statistics());
-
-                // Yesterday's Summarised User's Trades
-                BigDecimalSummaryStatistics yesterdaysMetrics = yesterdaysTrades.stream()
-                                .flatMap(trade -> trade.getTradeLegs().stream()).map(TradeLeg::getNotional)
-                                .collect(BigDecimalSummaryStatistics.statistics());
-
-                Metrics todaysStats = new Metrics(Long.valueOf(todaysTrades.size()),
-                                todaysMetrics.getAverage(MathContext.DECIMAL64),
-                                todaysMetrics.getSum());
-
-                Metrics yesterdaysStats = new Metrics(Long.valueOf(yesterdaysTrades.size()),
-                                yesterdaysMetrics.getAverage(MathContext.DECIMAL64),
-                                yesterdaysMetrics.getSum());
+                Metrics todaysStats = toMetrics(todaysRollup);
+                Metrics yesterdaysStats = toMetrics(yesterdaysRollup);
 
                 Map<String, DailySummaryDTO.Metrics> metrics = new HashMap<>();
                 metrics.put("todaysMetrics", todaysStats);
@@ -242,8 +334,18 @@ public class DashboardViewService {
                                 username,
                                 null,
                                 metrics, comparisonOfMetrics);
+                dailyView.setAsOf(LocalDateTime.now());
 
                 return dailyView;
 
         }
+
+        // Average is over the legs with a notional, as the trades' legs were
+        private Metrics toMetrics(TraderDailyRollup rollup) {
+                BigDecimal average = rollup.getLegCount() == 0 ? BigDecimal.ZERO
+                                : rollup.getNotionalSum().divide(BigDecimal.valueOf(rollup.getLegCount()),
+                                                MathContext.DECIMAL64);
+                return new Metrics(rollup.getTradeCount(), average, rollup.getNotionalSum(),
+                                rollup.getNotionalMin(), rollup.getNotionalMax());
+        }
 }
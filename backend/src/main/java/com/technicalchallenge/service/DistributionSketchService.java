@@ -0,0 +1,190 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.LogHistogram;
+import com.technicalchallenge.dto.DistributionDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.model.ApplicationUser;
+import com.technicalchallenge.model.DistributionBucket;
+import com.technicalchallenge.repository.ApplicationUserRepository;
+import com.technicalchallenge.repository.DistributionBucketRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DistributionSketch service class keeps a leg notional and rate histogram
+ * for every book and trader up to date and serves their percentiles.
+ *
+ * <p>
+ * The histograms ({@link LogHistogram}) are stored one bucket a row
+ * (distribution_bucket), so a trade write only adds to the buckets of its
+ * legs and the percentiles are read from the scope's non-empty buckets,
+ * never from the trades. That's at most 4 * LogHistogram.MAX_INDEX + 3
+ * (12 003) rows per metric, one for each 1% band the legs' values fall in.
+ * Histograms are over live (active) trade rows, the same as the hierarchy
+ * rollups ({@link HierarchyRollupService}): a booking adds its legs, an
+ * amendment swaps the old version's legs for the new one's, a termination
+ * or cancellation leaves them as the trade's still live.
+ *
+ * UPDATED: A missing bucket is created empty with ON CONFLICT DO NOTHING
+ * and then added to, so two writes creating the same bucket don't fail on
+ * its key. The migration's backfill buckets the stored legs in Java with
+ * LogHistogram.bucketOf, the same as trade writes.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class DistributionSketchService {
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::scopeLevel)
+            .thenComparing(Key::scopeId).thenComparing(Key::metric).thenComparingInt(Key::bucket);
+
+    // Rates are estimated to 1%, more digits would only be noise
+    private static final MathContext RATE_PRECISION = new MathContext(6);
+
+    private final DistributionBucketRepository distributionBucketRepository;
+    private final ApplicationUserRepository applicationUserRepository;
+
+    private record Key(String scopeLevel, Long scopeId, String metric, int bucket) {
+    }
+
+    /**
+     * Applies the trade write to the histograms of its book and trader.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted so concurrent writes lock the rows in the same order. The
+        // before row is either the after row or deactivated by the write, so
+        // it always stops counting as it was
+        Map<Key, Long> deltas = new TreeMap<>(KEY_ORDER);
+        collect(deltas, event.before(), -1);
+        collect(deltas, event.after(), 1);
+
+        deltas.forEach((key, legCount) -> {
+            if (legCount == 0) {
+                return;
+            }
+            int updated = distributionBucketRepository.addToBucket(key.scopeLevel(), key.scopeId(), key.metric(),
+                    key.bucket(), legCount);
+            if (updated == 0) {
+                distributionBucketRepository.createBucket(key.scopeLevel(), key.scopeId(), key.metric(),
+                        key.bucket());
+                distributionBucketRepository.addToBucket(key.scopeLevel(), key.scopeId(), key.metric(),
+                        key.bucket(), legCount);
+            }
+        });
+    }
+
+    /**
+     * Leg notional and rate percentiles of the book's live trades
+     *
+     * @param bookId book's unique identification
+     * @return the book's distribution
+     */
+    @Transactional(readOnly = true)
+    public DistributionDTO getBookDistribution(Long bookId) {
+        List<DistributionBucket> buckets = distributionBucketRepository.findBuckets(DistributionBucket.BOOK, bookId);
+
+        // DashboardDataNotFoundException thrown if the book doesn't have trades
+        if (buckets.isEmpty()) {
+            throw new DashboardDataNotFoundException("Dashboard data was not found for book " + bookId);
+        }
+        return toDistribution(DistributionBucket.BOOK, bookId, buckets);
+    }
+
+    /**
+     * Leg notional and rate percentiles of the trader's live trades
+     *
+     * @param username users authorized username
+     * @return the trader's distribution
+     */
+    @Transactional(readOnly = true)
+    public DistributionDTO getTraderDistribution(String username) {
+        ApplicationUser trader = applicationUserRepository.findByLoginId(username)
+                .orElseThrow(() -> new DashboardDataNotFoundException("Dashboard data was not found for " + username));
+        List<DistributionBucket> buckets = distributionBucketRepository.findBuckets(DistributionBucket.TRADER,
+                trader.getId());
+
+        // DashboardDataNotFoundException thrown if the user doesn't have trades
+        if (buckets.isEmpty()) {
+            throw new DashboardDataNotFoundException("Dashboard data was not found for " + username);
+        }
+        return toDistribution(DistributionBucket.TRADER, trader.getId(), buckets);
+    }
+
+    // The trade row's legs, taken away with sign -1
+    private static void collect(Map<Key, Long> deltas, TradeSnapshot trade, int sign) {
+
+        if (trade == null || !trade.active()) {
+            return;
+        }
+
+        for (TradeSnapshot.LegSnapshot leg : trade.legs()) {
+            if (leg.notional() != null) {
+                int bucket = LogHistogram.bucketOf(leg.notional().doubleValue());
+                add(deltas, DistributionBucket.BOOK, trade.bookId(), DistributionBucket.NOTIONAL, bucket, sign);
+                add(deltas, DistributionBucket.TRADER, trade.traderUserId(), DistributionBucket.NOTIONAL, bucket,
+                        sign);
+            }
+            if (leg.rate() != null) {
+                int bucket = LogHistogram.bucketOf(leg.rate());
+                add(deltas, DistributionBucket.BOOK, trade.bookId(), DistributionBucket.RATE, bucket, sign);
+                add(deltas, DistributionBucket.TRADER, trade.traderUserId(), DistributionBucket.RATE, bucket, sign);
+            }
+        }
+    }
+
+    private static void add(Map<Key, Long> deltas, String scopeLevel, Long scopeId, String metric, int bucket,
+            int sign) {
+        if (scopeId != null) {
+            deltas.merge(new Key(scopeLevel, scopeId, metric, bucket), (long) sign, Long::sum);
+        }
+    }
+
+    private static DistributionDTO toDistribution(String scopeLevel, Long scopeId, List<DistributionBucket> buckets) {
+
+        LogHistogram notionals = new LogHistogram();
+        LogHistogram rates = new LogHistogram();
+        for (DistributionBucket bucket : buckets) {
+            LogHistogram histogram = DistributionBucket.RATE.equals(bucket.getMetric()) ? rates : notionals;
+            histogram.add(bucket.getBucket(), bucket.getLegCount());
+        }
+
+        return new DistributionDTO(scopeLevel, scopeId, quantiles(notionals, false), quantiles(rates, true));
+    }
+
+    private static DistributionDTO.Quantiles quantiles(LogHistogram histogram, boolean rate) {
+        if (histogram.getCount() <= 0) {
+            return null;
+        }
+        return new DistributionDTO.Quantiles(histogram.getCount(), toBigDecimal(histogram.getQuantile(0.5), rate),
+                toBigDecimal(histogram.getQuantile(0.95), rate), toBigDecimal(histogram.getQuantile(0.99), rate));
+    }
+
+    // Notionals to the scale of the notional columns
+    private static BigDecimal toBigDecimal(Double value, boolean rate) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal decimal = BigDecimal.valueOf(value);
+        return rate ? decimal.round(RATE_PRECISION) : decimal.setScale(2, RoundingMode.HALF_EVEN);
+    }
+
+}
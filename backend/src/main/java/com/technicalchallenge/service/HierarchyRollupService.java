@@ -0,0 +1,238 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+import com.technicalchallenge.dto.HierarchyNodeDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.model.OrgHierarchyRollupId;
+import com.technicalchallenge.repository.OrgHierarchyRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * HierarchyRollup service class keeps the trade totals of every desk, sub
+ * desk, cost center and book up to date and returns them as one tree.
+ *
+ * <p>
+ * org_hierarchy_closure holds every book's ancestors, so a write to a book's
+ * trades adds to the book and all of its ancestors in one statement, without
+ * walking the Book > CostCenter > SubDesk > Desk joins. Totals are over live
+ * (active) trade rows: a booking adds its trade, an amendment swaps the old
+ * version for the new one, a termination or cancellation keeps the trade as
+ * it's still live.
+ *
+ * A hierarchy edit (a book moved to another cost center, a cost center to
+ * another sub desk, a sub desk to another desk) moves the books' totals from
+ * their old ancestors to their new ones. A book that isn't in the closure yet
+ * is added on its first trade write, its closure and rollup rows are
+ * inserted with ON CONFLICT DO NOTHING so two first writes to the same book
+ * or ancestor wait for each other instead of failing on the key.
+ *
+ * UPDATED: The tree is one read of every node with its parent's id and its
+ * rollup, not a read of the rollups and then of each level's entities.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class HierarchyRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchyRollupService.class);
+
+    private final OrgHierarchyRollupRepository orgHierarchyRollupRepository;
+
+    private record Delta(long count, BigDecimal notional) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, notional.add(other.notional));
+        }
+
+        boolean isZero() {
+            return count == 0 && notional.signum() == 0;
+        }
+    }
+
+    /**
+     * Applies the trade write to the totals of its books and their ancestors.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted by book so concurrent writes lock the rows in the same order.
+        // The before row is either the after row or deactivated by the write,
+        // so it always stops counting as it was
+        Map<Long, Delta> deltas = new TreeMap<>();
+        collect(deltas, event.before(), -1);
+        collect(deltas, event.after(), 1);
+
+        deltas.forEach((bookId, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            int updated = orgHierarchyRollupRepository.addToAncestors(bookId, 0, delta.count(), delta.notional());
+            if (updated == 0) {
+                rehome(bookId);
+                orgHierarchyRollupRepository.addToAncestors(bookId, 0, delta.count(), delta.notional());
+            }
+        });
+    }
+
+    /**
+     * Moves the book's totals to its ancestors as they are now, after it's
+     * saved.
+     *
+     * @param bookId book's unique identification
+     */
+    public void onBookSaved(Long bookId) {
+        rehome(bookId);
+    }
+
+    /**
+     * Moves the totals of the books under the cost center to its ancestors as
+     * they are now, after it's saved.
+     *
+     * @param costCenterId cost center's unique identification
+     */
+    public void onCostCenterSaved(Long costCenterId) {
+        rehomeAll(orgHierarchyRollupRepository.findBookIdsUnder(OrgHierarchyRollup.COST_CENTER, costCenterId));
+    }
+
+    /**
+     * Moves the totals of the books under the sub desk to its desk as it is
+     * now, after it's saved.
+     *
+     * @param subDeskId sub desk's unique identification
+     */
+    public void onSubDeskSaved(Long subDeskId) {
+        rehomeAll(orgHierarchyRollupRepository.findBookIdsUnder(OrgHierarchyRollup.SUB_DESK, subDeskId));
+    }
+
+    /**
+     * Takes the book out of its ancestors' totals before it's deleted.
+     *
+     * @param bookId book's unique identification
+     */
+    public void onBookDeleted(Long bookId) {
+        Delta totals = totalsOf(bookId);
+        if (!totals.isZero()) {
+            orgHierarchyRollupRepository.addToAncestors(bookId, 1, -totals.count(), totals.notional().negate());
+        }
+        orgHierarchyRollupRepository.deleteClosure(bookId);
+        orgHierarchyRollupRepository.deleteById(new OrgHierarchyRollupId(OrgHierarchyRollup.BOOK, bookId));
+    }
+
+    /**
+     * The whole hierarchy with the totals at every level
+     *
+     * @return desks, and any node without a parent, with the levels below
+     */
+    @Transactional(readOnly = true)
+    public List<HierarchyNodeDTO> getHierarchyTree() {
+
+        Map<String, List<Object[]>> nodesByLevel = orgHierarchyRollupRepository.findHierarchyNodes().stream()
+                .collect(Collectors.groupingBy(row -> (String) row[0]));
+
+        // Built from the books up, each level grouped by its parent's id
+        List<HierarchyNodeDTO> roots = new ArrayList<>();
+        Map<Long, List<HierarchyNodeDTO>> children = Map.of();
+        for (String level : List.of(OrgHierarchyRollup.BOOK, OrgHierarchyRollup.COST_CENTER,
+                OrgHierarchyRollup.SUB_DESK)) {
+            Map<Long, List<HierarchyNodeDTO>> byParent = new HashMap<>();
+            for (Object[] row : nodesByLevel.getOrDefault(level, List.of())) {
+                addTo(idOf(row[3]), node(row, children), byParent, roots);
+            }
+            children = byParent;
+        }
+
+        List<HierarchyNodeDTO> tree = new ArrayList<>();
+        for (Object[] row : nodesByLevel.getOrDefault(OrgHierarchyRollup.DESK, List.of())) {
+            tree.add(node(row, children));
+        }
+
+        // Nodes whose parent was deleted or never set
+        tree.addAll(roots);
+        return tree;
+    }
+
+    private void rehomeAll(Collection<Long> bookIds) {
+        logger.info("Moving the totals of {} books to their new ancestors", bookIds.size());
+        new TreeSet<>(bookIds).forEach(this::rehome);
+    }
+
+    // Takes the book's totals from its old ancestors, rebuilds its closure from
+    // the hierarchy as it is now and adds them to the new ancestors
+    private void rehome(Long bookId) {
+
+        Delta totals = totalsOf(bookId);
+        if (!totals.isZero()) {
+            orgHierarchyRollupRepository.addToAncestors(bookId, 1, -totals.count(), totals.notional().negate());
+        }
+
+        orgHierarchyRollupRepository.deleteClosure(bookId);
+        orgHierarchyRollupRepository.insertClosure(bookId);
+        orgHierarchyRollupRepository.insertMissingRollups(bookId);
+
+        if (!totals.isZero()) {
+            orgHierarchyRollupRepository.addToAncestors(bookId, 1, totals.count(), totals.notional());
+        }
+    }
+
+    private Delta totalsOf(Long bookId) {
+        return orgHierarchyRollupRepository.findById(new OrgHierarchyRollupId(OrgHierarchyRollup.BOOK, bookId))
+                .map(rollup -> new Delta(rollup.getTradeCount(), rollup.getTotalNotional()))
+                .orElse(new Delta(0, BigDecimal.ZERO));
+    }
+
+    // The trade row's contribution to its book, negated with sign -1
+    private static void collect(Map<Long, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        if (trade == null || !trade.active() || trade.bookId() == null) {
+            return;
+        }
+
+        BigDecimalSummaryStatistics legs = new BigDecimalSummaryStatistics();
+        trade.legs().forEach(leg -> legs.accept(leg.notional()));
+        BigDecimal notional = legs.getSum();
+        deltas.merge(trade.bookId(), new Delta(sign, sign < 0 ? notional.negate() : notional), Delta::plus);
+    }
+
+    // A row of findHierarchyNodes with its children, no rollup is no trades
+    private static HierarchyNodeDTO node(Object[] row, Map<Long, List<HierarchyNodeDTO>> children) {
+        Long id = idOf(row[1]);
+        return new HierarchyNodeDTO((String) row[0], id, (String) row[2],
+                row[4] != null ? ((Number) row[4]).longValue() : 0L,
+                row[5] != null ? (BigDecimal) row[5] : BigDecimal.ZERO, children.getOrDefault(id, List.of()));
+    }
+
+    private static Long idOf(Object id) {
+        return id != null ? ((Number) id).longValue() : null;
+    }
+
+    private static void addTo(Long parentId, HierarchyNodeDTO node, Map<Long, List<HierarchyNodeDTO>> byParent,
+            List<HierarchyNodeDTO> roots) {
+        if (parentId == null) {
+            roots.add(node);
+        } else {
+            byParent.computeIfAbsent(parentId, key -> new ArrayList<>()).add(node);
+        }
+    }
+
+}
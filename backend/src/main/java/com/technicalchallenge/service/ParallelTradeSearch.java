@@ -0,0 +1,385 @@
+package com.technicalchallenge.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.mapper.TradeMapper;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.specification.TradeSpecification;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Parallel Trade Search
+ *
+ * <p>
+ * Splits a large multi criteria search into partitions and runs them at the
+ * same time, each in its own read-only transaction on its own connection.
+ *
+ * - A trade date range of at least trade.search.parallel.min-days is split
+ * into equal date ranges
+ * - A search without a date range is split into equal trade id (trade.id)
+ * ranges once the table spans trade.search.parallel.min-id-span ids
+ *
+ * Partitions are mapped to DTOs on their worker, while their session is
+ * open, in id order and merged back into id order with a
+ * {@link SortedMergeIterator}.
+ *
+ * The pool has trade.search.parallel.threads threads, so at most that many
+ * read connections are used by parallel searches however many run at once,
+ * it must stay below the connection pool size.
+ *
+ * UPDATED: The first partition to fail cancels the others, their running
+ * statements are cancelled through their Hibernate session and they stop
+ * before mapping another trade. The search waits for them to give back
+ * their connections, then throws the first failure.
+ *
+ * UPDATED: Partitions stream their trades through a cursor and hand each
+ * mapped trade to a queue of at most trade.search.parallel.queue-size, the
+ * merge takes from the queues as they fill. A partition waits while its
+ * queue is full, so only the merged results are held whole, not every
+ * partition's as well. A search starts once the pool has a thread for every
+ * one of its partitions, so the merge never waits on a partition queued
+ * behind another search's.
+ * </p>
+ */
+@Component
+public class ParallelTradeSearch {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelTradeSearch.class);
+
+    private static final Sort ID_ORDER = Sort.by("id").ascending();
+
+    private final TradeRepository tradeRepository;
+    private final TradeMapper tradeMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor;
+    private final int threads;
+    private final long minDays;
+    private final long minIdSpan;
+    private final int queueSize;
+    private final Semaphore permits;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * A slice of the search, either a trade date range or an id range
+     *
+     * @param fromDate first trade date, null for an id range
+     * @param toDate   last trade date, null for an id range
+     * @param fromId   first id, null for a date range
+     * @param toId     last id, null for a date range
+     */
+    public record Partition(LocalDate fromDate, LocalDate toDate, Long fromId, Long toId) {
+    }
+
+    public ParallelTradeSearch(TradeRepository tradeRepository, TradeMapper tradeMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${trade.search.parallel.threads:4}") int threads,
+            @Value("${trade.search.parallel.min-days:90}") long minDays,
+            @Value("${trade.search.parallel.min-id-span:100000}") long minIdSpan,
+            @Value("${trade.search.parallel.queue-size:1000}") int queueSize) {
+
+        this.tradeRepository = tradeRepository;
+        this.tradeMapper = tradeMapper;
+        this.threads = threads;
+        this.minDays = minDays;
+        this.minIdSpan = minIdSpan;
+        this.queueSize = Math.max(1, queueSize);
+        this.permits = new Semaphore(Math.max(1, threads), true);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "trade-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Splits the search into partitions, one partition means it's too small to
+     * be worth running in parallel.
+     *
+     * @param criteria validated search criteria
+     * @return partitions covering the search
+     */
+    public List<Partition> partition(SearchTradeByCriteria criteria) {
+
+        List<Partition> partitions = new ArrayList<>();
+        if (threads <= 1) {
+            partitions.add(new Partition(criteria.tradeStartDate(), criteria.tradeEndDate(), null, null));
+            return partitions;
+        }
+
+        // Date range, split into equal runs of days
+        if (criteria.tradeStartDate() != null && criteria.tradeEndDate() != null) {
+            long days = ChronoUnit.DAYS.between(criteria.tradeStartDate(), criteria.tradeEndDate()) + 1;
+            int count = days < minDays ? 1 : (int) Math.min(threads, days);
+
+            LocalDate from = criteria.tradeStartDate();
+            for (int i = 0; i < count; i++) {
+                LocalDate to = i == count - 1 ? criteria.tradeEndDate()
+                        : criteria.tradeStartDate().plusDays(days * (i + 1) / count - 1);
+                partitions.add(new Partition(from, to, null, null));
+                from = to.plusDays(1);
+            }
+            return partitions;
+        }
+
+        // No date range, split the ids
+        Long minId = tradeRepository.findMinId().orElse(null);
+        Long maxId = tradeRepository.findMaxId().orElse(null);
+        if (minId == null || maxId - minId + 1 < minIdSpan) {
+            partitions.add(new Partition(null, null, null, null));
+            return partitions;
+        }
+
+        long span = maxId - minId + 1;
+        long from = minId;
+        for (int i = 0; i < threads; i++) {
+            long to = i == threads - 1 ? maxId : minId + span * (i + 1) / threads - 1;
+            partitions.add(new Partition(null, null, from, to));
+            from = to + 1;
+        }
+        return partitions;
+    }
+
+    /**
+     * Runs the partitions in parallel and merges them into id order.
+     *
+     * @param criteria   validated search criteria
+     * @param partitions from {@link #partition}, at most one per thread
+     * @return mapped search results in id order
+     */
+    public List<TradeDTO> search(SearchTradeByCriteria criteria, List<Partition> partitions) {
+
+        if (partitions.size() > Math.max(1, threads)) {
+            throw new IllegalArgumentException("At most " + Math.max(1, threads) + " partitions can run at once");
+        }
+
+        long start = System.nanoTime();
+        Cancellation cancellation = new Cancellation();
+
+        // Waits for a thread for every partition, a partition waiting behind
+        // another search's could never fill the merge
+        permits.acquireUninterruptibly(partitions.size());
+        List<PartitionQueue> queues = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Partition partition : partitions) {
+            PartitionQueue queue = new PartitionQueue(queueSize, cancellation);
+            queues.add(queue);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    searchPartition(criteria, partition, queue, cancellation);
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        List<TradeDTO> results = new ArrayList<>();
+        try {
+            new SortedMergeIterator<>(queues, Comparator.comparing(TradeDTO::getId)).forEachRemaining(results::add);
+        } catch (RuntimeException e) {
+            // A failed partition cancelled the rest, wait for them to roll back
+            // and give back their connections
+            cancellation.fail(e);
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .exceptionally(failure -> null)
+                    .join();
+            throw cancellation.failure();
+        }
+
+        logger.info("Parallel search of {} partitions returned {} trades in {} ms", partitions.size(),
+                results.size(), (System.nanoTime() - start) / 1_000_000);
+        return results;
+    }
+
+    // One partition in its own read-only transaction, each trade mapped while
+    // its session is open and queued for the merge
+    private void searchPartition(SearchTradeByCriteria criteria, Partition partition, PartitionQueue queue,
+            Cancellation cancellation) {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                Session session = entityManager.unwrap(Session.class);
+                cancellation.register(session);
+                try {
+                    tradeRepository.streamEach(specification(criteria, partition), ID_ORDER, null, trade -> {
+                        cancellation.check();
+                        queue.put(tradeMapper.toDto(trade));
+                    });
+                } finally {
+                    cancellation.unregister(session);
+                }
+            });
+            queue.end();
+        } catch (RuntimeException e) {
+            cancellation.fail(e);
+            throw e;
+        }
+    }
+
+    // A partition's mapped trades on their way to the merge. Both sides wait
+    // in short polls so either gives up once the search is cancelled
+    private static final class PartitionQueue implements Iterator<TradeDTO> {
+        private static final TradeDTO END = new TradeDTO();
+        private static final long POLL_MILLIS = 100;
+
+        private final BlockingQueue<TradeDTO> queue;
+        private final Cancellation cancellation;
+        private TradeDTO next;
+
+        PartitionQueue(int size, Cancellation cancellation) {
+            this.queue = new ArrayBlockingQueue<>(size);
+            this.cancellation = cancellation;
+        }
+
+        // Worker side, waits while the merge is behind
+        void put(TradeDTO trade) {
+            try {
+                while (!queue.offer(trade, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    cancellation.check();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Partition interrupted");
+            }
+        }
+
+        void end() {
+            put(END);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = take();
+            }
+            return next != END;
+        }
+
+        @Override
+        public TradeDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TradeDTO trade = next;
+            next = null;
+            return trade;
+        }
+
+        // Merge side, waits while the partition is behind
+        private TradeDTO take() {
+            try {
+                TradeDTO trade;
+                while ((trade = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    cancellation.check();
+                }
+                return trade;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Search interrupted");
+            }
+        }
+    }
+
+    // Stops a search's partitions once one of them fails
+    private static final class Cancellation {
+
+        private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        void register(Session session) {
+            sessions.add(session);
+            check();
+        }
+
+        void unregister(Session session) {
+            sessions.remove(session);
+        }
+
+        void check() {
+            if (failure.get() != null) {
+                throw new CancellationException("Another partition of the search failed");
+            }
+        }
+
+        // Only the first failure cancels, the rest are the cancellations
+        void fail(RuntimeException e) {
+            if (!failure.compareAndSet(null, e)) {
+                return;
+            }
+            for (Session session : sessions) {
+                try {
+                    session.cancelQuery();
+                } catch (RuntimeException cancelFailure) {
+                    logger.debug("Partition query couldn't be cancelled: {}", cancelFailure.getMessage());
+                }
+            }
+        }
+
+        RuntimeException failure() {
+            return failure.get();
+        }
+    }
+
+    // A new specification for every partition, a TradeSpecification can only
+    // build one query
+    private static Specification<Trade> specification(SearchTradeByCriteria criteria, Partition partition) {
+
+        if (partition.fromDate() != null) {
+            return TradeSpecification.getTradeCriteria(new SearchTradeByCriteria(criteria.bookName(),
+                    criteria.counterpartyName(), criteria.traderUserFirstName(), criteria.traderUserLastName(),
+                    criteria.inputterUserFirstName(), criteria.inputterUserLastName(), criteria.tradeStatus(),
+                    partition.fromDate(), partition.toDate()));
+        }
+
+        Specification<Trade> specification = TradeSpecification.getTradeCriteria(criteria);
+        if (partition.fromId() == null) {
+            return specification;
+        }
+        return specification.and((root, query, criteriaBuilder) -> criteriaBuilder.between(root.get("id"),
+                partition.fromId(), partition.toId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
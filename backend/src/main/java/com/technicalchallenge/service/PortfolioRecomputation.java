@@ -0,0 +1,230 @@
+package com.technicalchallenge.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TradeRepositoryCustom.PortfolioRow;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Portfolio Recomputation
+ *
+ * <p>
+ * Recomputes a portfolio wide aggregate from every live trade, for
+ * rebuilding the maintained aggregates after they've drifted from the trades
+ * (a reference data fix, a bug in a listener).
+ *
+ * The trade id (trade.id) space is split into ranges of
+ * trade.recompute.range-size ids. Each range is streamed through
+ * {@link TradeRepository#streamPortfolioRows} in its own read-only
+ * transaction on its own connection and accumulated into a partial result of
+ * the aggregate's {@link Collector}.
+ *
+ * UPDATED: The ranges are read as one flat row per leg (trader, status,
+ * type, counterparty, leg currency, pay/receive and notional) instead of as
+ * trade entities, which loaded each trade's references and legs with more
+ * queries. A trade's rows are put back together into a
+ * {@link TradeSnapshot} carrying only those columns, so the aggregates'
+ * rebuilds collect the same snapshots as their trade writes. The ranges are a fork-join task tree: a task splits its
+ * ranges in half, forks one half and computes the other, so an idle thread
+ * steals whichever ranges are left and a dense range doesn't hold the rest
+ * up. Partial results are combined as the tasks join and finished once at
+ * the end.
+ *
+ * The pool has trade.recompute.threads threads, and each reads on its own
+ * connection while it scans a range. With the caller's connection that must
+ * stay below the connection pool size.
+ * </p>
+ */
+@Component
+public class PortfolioRecomputation {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioRecomputation.class);
+
+    private final TradeRepository tradeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ForkJoinPool pool;
+    private final long rangeSize;
+
+    /**
+     * A range of trade ids, both ends included
+     *
+     * @param fromId first id
+     * @param toId   last id
+     */
+    public record Range(long fromId, long toId) {
+    }
+
+    public PortfolioRecomputation(TradeRepository tradeRepository, PlatformTransactionManager transactionManager,
+            @Value("${trade.recompute.threads:4}") int threads,
+            @Value("${trade.recompute.range-size:50000}") long rangeSize) {
+
+        this.tradeRepository = tradeRepository;
+        this.rangeSize = Math.max(1, rangeSize);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        AtomicLong threadCount = new AtomicLong();
+        this.pool = new ForkJoinPool(Math.max(1, threads), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("trade-recompute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Runs the collector over every live trade.
+     *
+     * @param <A>       the collector's partial result
+     * @param <R>       the aggregate
+     * @param collector accumulates trades into a partial result, combines two
+     *                  partials and finishes the aggregate. The trades only
+     *                  have their id, trader, status, type, counterparty and
+     *                  legs' currency, pay/receive and notional
+     * @return the aggregate over every live trade
+     */
+    public <A, R> R recompute(Collector<TradeSnapshot, A, R> collector) {
+
+        long start = System.nanoTime();
+
+        Long minId = tradeRepository.findMinId().orElse(null);
+        Long maxId = tradeRepository.findMaxId().orElse(null);
+        List<Range> ranges = minId == null ? List.of() : ranges(minId, maxId, rangeSize);
+
+        AtomicLong trades = new AtomicLong();
+        A partial = ranges.isEmpty() ? collector.supplier().get()
+                : pool.invoke(new RangeTask<>(collector, ranges, trades));
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Recomputed {} trades over {} ranges on {} threads in {} ms ({} trades/s)", trades.get(),
+                ranges.size(), pool.getParallelism(), millis, trades.get() * 1000 / millis);
+        return collector.finisher().apply(partial);
+    }
+
+    /**
+     * Splits the ids from minId to maxId into ranges of rangeSize ids, the
+     * last range takes what's left.
+     *
+     * @param minId     first id
+     * @param maxId     last id
+     * @param rangeSize ids in a range
+     * @return ranges in id order
+     */
+    public static List<Range> ranges(long minId, long maxId, long rangeSize) {
+        List<Range> ranges = new ArrayList<>();
+        long from = minId;
+        while (true) {
+            long to = maxId - from < rangeSize ? maxId : from + rangeSize - 1;
+            ranges.add(new Range(from, to));
+            if (to == maxId) {
+                return ranges;
+            }
+            from = to + 1;
+        }
+    }
+
+    // A run of ranges, split in half until it's one range and scanned
+    private class RangeTask<A> extends RecursiveTask<A> {
+
+        private final transient Collector<TradeSnapshot, A, ?> collector;
+        private final transient List<Range> ranges;
+        private final transient AtomicLong trades;
+
+        RangeTask(Collector<TradeSnapshot, A, ?> collector, List<Range> ranges, AtomicLong trades) {
+            this.collector = collector;
+            this.ranges = ranges;
+            this.trades = trades;
+        }
+
+        @Override
+        protected A compute() {
+
+            if (ranges.size() == 1) {
+                return scan(ranges.get(0));
+            }
+
+            int middle = ranges.size() / 2;
+            RangeTask<A> left = new RangeTask<>(collector, ranges.subList(0, middle), trades);
+            RangeTask<A> right = new RangeTask<>(collector, ranges.subList(middle, ranges.size()), trades);
+            left.fork();
+            A rightPartial = right.compute();
+            return collector.combiner().apply(left.join(), rightPartial);
+        }
+
+        private A scan(Range range) {
+            A partial = collector.supplier().get();
+            TradeAssembler assembler = new TradeAssembler(trade -> collector.accumulator().accept(partial, trade));
+            readOnlyTransaction.execute(status -> tradeRepository.streamPortfolioRows(range.fromId(),
+                    range.toId(), assembler));
+            trades.addAndGet(assembler.finish());
+            return partial;
+        }
+    }
+
+    // Puts each trade's rows, next to each other in id order, back together
+    private static class TradeAssembler implements Consumer<PortfolioRow> {
+
+        private final Consumer<TradeSnapshot> action;
+        private final List<LegSnapshot> legs = new ArrayList<>();
+        private PortfolioRow first;
+        private long trades;
+
+        TradeAssembler(Consumer<TradeSnapshot> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void accept(PortfolioRow row) {
+            if (first != null && !first.id().equals(row.id())) {
+                emit();
+            }
+            if (first == null) {
+                first = row;
+            }
+            if (row.legId() != null) {
+                legs.add(new LegSnapshot(row.legId(), row.notional(), null, row.currency(), row.payReceiveFlag()));
+            }
+        }
+
+        // Hands on the last trade, returns the trades assembled
+        long finish() {
+            if (first != null) {
+                emit();
+            }
+            return trades;
+        }
+
+        private void emit() {
+            action.accept(new TradeSnapshot(first.id(), null, null, true, null, null, null,
+                    first.counterpartyName(), first.tradeStatus(), first.tradeType(), null, first.traderLoginId(),
+                    null, null, null, null, null, List.copyOf(legs)));
+            trades++;
+            first = null;
+            legs.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+}
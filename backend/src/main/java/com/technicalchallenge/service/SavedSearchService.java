@@ -0,0 +1,384 @@
+package com.technicalchallenge.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicalchallenge.cache.TradeSearchResultCache;
+import com.technicalchallenge.dto.PaginationDTO;
+import com.technicalchallenge.dto.SavedSearchDTO;
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.InvalidSearchException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.exceptions.referencedata.SavedSearchNotFoundException;
+import com.technicalchallenge.mapper.TradeMapper;
+import com.technicalchallenge.model.SavedSearch;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.repository.SavedSearchMemberRepository;
+import com.technicalchallenge.repository.SavedSearchRepository;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.specification.RsqlPlanCache;
+import com.technicalchallenge.specification.RsqlQuery;
+import com.technicalchallenge.specification.TradeSpecification;
+import com.technicalchallenge.validation.TradeSearchValidator;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * SavedSearch service class keeps the users' standing searches and the trades
+ * that match them.
+ *
+ * <p>
+ * A saved search is a multi criteria search or an RSQL query. Its matching
+ * trades (trade.id, so every version the search would return) are stored in
+ * saved_search_member when it's saved, and every {@link TradeWriteEvent}
+ * rechecks the written trade rows against each saved search in the write's
+ * transaction. Reading a saved search is a lookup of those ids.
+ *
+ * Criteria searches skip writes where neither version of the trade matches
+ * the criteria, RSQL searches recheck the written rows with one indexed query
+ * each. Changes to reference data (renaming a book) aren't trade writes, a
+ * refresh rebuilds the matching trades.
+ *
+ * UPDATED: A search that pins a book, counterparty or trade status (an
+ * equality without wildcards) is keyed on it (match_key), a write only loads
+ * the searches keyed on its own book, counterparty or status and the unkeyed
+ * ones. Rebuilds count the matches then store them with one INSERT ...
+ * SELECT.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class SavedSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(SavedSearchService.class);
+
+    private final SavedSearchRepository savedSearchRepository;
+    private final SavedSearchMemberRepository savedSearchMemberRepository;
+    private final TradeRepository tradeRepository;
+    private final TradeSearchValidator tradeSearchValidator;
+    private final RsqlPlanCache rsqlPlanCache;
+    private final TradeMapper tradeMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${trade.saved-search.max-trades:100000}")
+    private int maxTrades;
+
+    /**
+     * SavedSearch: Saves a search for the current user
+     *
+     * <p>
+     * Exactly one of criteria or rsqlQuery must be given and the name must be
+     * unique for the user. The search runs once to store its matching trades.
+     * </p>
+     *
+     * @param savedSearchDTO name and search
+     * @return saved search with its trade count
+     */
+    public SavedSearchDTO createSavedSearch(SavedSearchDTO savedSearchDTO) {
+
+        String owner = currentUser();
+
+        if (savedSearchDTO.name() == null || savedSearchDTO.name().isBlank()) {
+            throw new ValidationException("Saved search name is required");
+        }
+        if ((savedSearchDTO.criteria() == null) == (savedSearchDTO.rsqlQuery() == null)) {
+            throw new ValidationException("A saved search needs either criteria or an rsqlQuery");
+        }
+        if (savedSearchRepository.existsByOwnerLoginIdAndName(owner, savedSearchDTO.name())) {
+            throw new ValidationException("A saved search called " + savedSearchDTO.name() + " already exists");
+        }
+
+        SavedSearch savedSearch = new SavedSearch();
+        savedSearch.setName(savedSearchDTO.name());
+        savedSearch.setOwnerLoginId(owner);
+
+        if (savedSearchDTO.criteria() != null) {
+            tradeSearchValidator.validateSearch(savedSearchDTO.criteria());
+            savedSearch.setQueryType(SavedSearch.CRITERIA);
+            savedSearch.setQueryText(toJson(savedSearchDTO.criteria()));
+        } else {
+            tradeSearchValidator.validateRSQLSearch(savedSearchDTO.rsqlQuery());
+            savedSearch.setQueryType(SavedSearch.RSQL);
+            savedSearch.setQueryText(savedSearchDTO.rsqlQuery());
+        }
+        savedSearch.setMatchKey(matchKey(savedSearch));
+
+        SavedSearch saved = savedSearchRepository.save(savedSearch);
+        long tradeCount = rebuild(saved);
+        logger.info("Saved search {} for {} matches {} trades", saved.getName(), owner, tradeCount);
+
+        return toDto(saved, tradeCount);
+    }
+
+    /**
+     * SavedSearch: The current user's saved searches
+     *
+     * @return saved searches by name
+     */
+    @Transactional(readOnly = true)
+    public List<SavedSearchDTO> getSavedSearches() {
+        return savedSearchRepository.findByOwnerLoginIdOrderByName(currentUser()).stream()
+                .map(savedSearch -> toDto(savedSearch,
+                        savedSearchMemberRepository.countBySavedSearchId(savedSearch.getId())))
+                .toList();
+    }
+
+    /**
+     * SavedSearch: The trades matching a saved search
+     *
+     * <p>
+     * Reads the stored trade ids, a page at a time if a page is given, then
+     * the trades with their legs and cashflows in batches. Trades are in id
+     * order.
+     * </p>
+     *
+     * @param id         saved search id
+     * @param pagination optional page, pageNo starts at 1
+     * @return page of matching trades
+     */
+    @Transactional(readOnly = true)
+    public Page<TradeDTO> getSavedSearchTrades(Long id, PaginationDTO pagination) {
+
+        SavedSearch savedSearch = getOwnSavedSearch(id);
+
+        Pageable pageable = Pageable.unpaged();
+        if (pagination != null && (pagination.pageNo() != null || pagination.pageSize() != null)) {
+            tradeSearchValidator.validatePage(pagination);
+            pageable = PageRequest.of(pagination.pageNo() - 1, pagination.pageSize());
+        }
+
+        Page<Long> tradeIds = savedSearchMemberRepository.findTradeIds(savedSearch.getId(), pageable);
+        if (tradeIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, tradeIds.getTotalElements());
+        }
+
+        List<Trade> trades = tradeRepository.findAllWithLegsById(tradeIds.getContent());
+        tradeRepository.fetchLegCashflows(trades);
+
+        Map<Long, Trade> tradesById = new HashMap<>();
+        for (Trade trade : trades) {
+            tradesById.put(trade.getId(), trade);
+        }
+
+        List<TradeDTO> content = tradeIds.getContent().stream()
+                .map(tradesById::get)
+                .filter(Objects::nonNull)
+                .map(tradeMapper::toDto)
+                .toList();
+
+        return new PageImpl<>(content, pageable, tradeIds.getTotalElements());
+    }
+
+    /**
+     * SavedSearch: Rebuilds a saved search's trades by running it again
+     *
+     * @param id saved search id
+     * @return saved search with its trade count
+     */
+    public SavedSearchDTO refreshSavedSearch(Long id) {
+
+        SavedSearch savedSearch = getOwnSavedSearch(id);
+        long tradeCount = rebuild(savedSearch);
+
+        return toDto(savedSearch, tradeCount);
+    }
+
+    /**
+     * SavedSearch: Deletes a saved search and its trades
+     *
+     * @param id saved search id
+     */
+    public void deleteSavedSearch(Long id) {
+
+        SavedSearch savedSearch = getOwnSavedSearch(id);
+        savedSearchMemberRepository.deleteAllMembers(savedSearch.getId());
+        savedSearchRepository.delete(savedSearch);
+    }
+
+    /**
+     * Rechecks the written trade rows against the saved searches they could
+     * change, in the write's transaction so the saved searches commit or roll
+     * back with the trade.
+     *
+     * @param event trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        Set<Long> tradeIds = new LinkedHashSet<>();
+        if (event.before() != null && event.before().id() != null) {
+            tradeIds.add(event.before().id());
+        }
+        if (event.after() != null && event.after().id() != null) {
+            tradeIds.add(event.after().id());
+        }
+        if (tradeIds.isEmpty()) {
+            return;
+        }
+
+        Set<String> matchKeys = new HashSet<>();
+        addMatchKeys(matchKeys, event.before());
+        addMatchKeys(matchKeys, event.after());
+
+        int rechecked = 0;
+        for (SavedSearch savedSearch : savedSearchRepository.findCandidates(matchKeys)) {
+
+            // Neither version matches, so the trade wasn't and isn't in the results
+            if (SavedSearch.CRITERIA.equals(savedSearch.getQueryType())) {
+                SearchTradeByCriteria criteria = fromJson(savedSearch.getQueryText());
+                if (!TradeSearchResultCache.matches(criteria, event.before())
+                        && !TradeSearchResultCache.matches(criteria, event.after())) {
+                    continue;
+                }
+            }
+
+            Specification<Trade> writtenTrades = (root, query, criteriaBuilder) -> root.get("id").in(tradeIds);
+            List<Long> matching = tradeRepository.findIds(specification(savedSearch).and(writtenTrades));
+
+            savedSearchMemberRepository.deleteMembers(savedSearch.getId(), tradeIds);
+            for (Long tradeId : matching) {
+                savedSearchMemberRepository.insertMember(savedSearch.getId(), tradeId);
+            }
+            rechecked++;
+        }
+
+        if (rechecked > 0) {
+            logger.debug("Rechecked trade {} against {} saved searches", event.tradeId(), rechecked);
+        }
+    }
+
+    // Replaces the stored trades with the search's current results
+    private long rebuild(SavedSearch savedSearch) {
+
+        long tradeCount = tradeRepository.count(specification(savedSearch));
+        if (tradeCount > maxTrades) {
+            throw new InvalidSearchException("Saved search matches more than " + maxTrades
+                    + " trades, narrow the search");
+        }
+
+        savedSearchMemberRepository.deleteAllMembers(savedSearch.getId());
+        int inserted = savedSearchMemberRepository.insertMatching(savedSearch.getId(), specification(savedSearch));
+        savedSearch.setLastRefreshedDate(LocalDateTime.now());
+
+        return inserted;
+    }
+
+    // The book, counterparty or status every match has, null if the search
+    // doesn't pin one. A criteria value without LIKE wildcards is an equality
+    private String matchKey(SavedSearch savedSearch) {
+
+        String bookName;
+        String counterpartyName;
+        String tradeStatus;
+
+        if (SavedSearch.RSQL.equals(savedSearch.getQueryType())) {
+            RsqlQuery rsqlQuery = rsqlPlanCache.lookup(savedSearch.getQueryText());
+            bookName = rsqlQuery.requiredValue("book.bookName");
+            counterpartyName = rsqlQuery.requiredValue("counterparty.name");
+            tradeStatus = rsqlQuery.requiredValue("tradeStatus.tradeStatus");
+        } else {
+            SearchTradeByCriteria criteria = fromJson(savedSearch.getQueryText());
+            bookName = exact(criteria.bookName());
+            counterpartyName = exact(criteria.counterpartyName());
+            tradeStatus = exact(criteria.tradeStatus());
+        }
+
+        if (bookName != null) {
+            return SavedSearch.BOOK_KEY + bookName;
+        } else if (counterpartyName != null) {
+            return SavedSearch.COUNTERPARTY_KEY + counterpartyName;
+        } else if (tradeStatus != null) {
+            return SavedSearch.STATUS_KEY + tradeStatus;
+        }
+        return null;
+    }
+
+    private static String exact(String pattern) {
+        return pattern == null || pattern.contains("%") || pattern.contains("_") ? null : pattern;
+    }
+
+    // Every key a search matching this version of the trade could have
+    private static void addMatchKeys(Set<String> matchKeys, TradeSnapshot trade) {
+        if (trade == null) {
+            return;
+        }
+        if (trade.bookName() != null) {
+            matchKeys.add(SavedSearch.BOOK_KEY + trade.bookName());
+        }
+        if (trade.counterpartyName() != null) {
+            matchKeys.add(SavedSearch.COUNTERPARTY_KEY + trade.counterpartyName());
+        }
+        if (trade.tradeStatus() != null) {
+            matchKeys.add(SavedSearch.STATUS_KEY + trade.tradeStatus());
+        }
+    }
+
+    // A new specification each time, a TradeSpecification can only build one
+    // query
+    private Specification<Trade> specification(SavedSearch savedSearch) {
+        if (SavedSearch.RSQL.equals(savedSearch.getQueryType())) {
+            return rsqlPlanCache.toSpecification(savedSearch.getQueryText());
+        }
+        return TradeSpecification.getTradeCriteria(fromJson(savedSearch.getQueryText()));
+    }
+
+    private SavedSearch getOwnSavedSearch(Long id) {
+        return savedSearchRepository.findByIdAndOwnerLoginId(id, currentUser())
+                .orElseThrow(() -> new SavedSearchNotFoundException("id", id));
+    }
+
+    private String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "anonymous";
+    }
+
+    private SavedSearchDTO toDto(SavedSearch savedSearch, long tradeCount) {
+        boolean criteria = SavedSearch.CRITERIA.equals(savedSearch.getQueryType());
+        return new SavedSearchDTO(savedSearch.getId(), savedSearch.getName(),
+                criteria ? fromJson(savedSearch.getQueryText()) : null,
+                criteria ? null : savedSearch.getQueryText(),
+                tradeCount, savedSearch.getCreatedDate(), savedSearch.getLastRefreshedDate());
+    }
+
+    private String toJson(SearchTradeByCriteria criteria) {
+        try {
+            return objectMapper.writeValueAsString(criteria);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Search criteria can't be saved: " + e.getOriginalMessage());
+        }
+    }
+
+    private SearchTradeByCriteria fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, SearchTradeByCriteria.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Saved search criteria can't be read: " + e.getOriginalMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.technicalchallenge.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted Merge Iterator
+ *
+ * <p>
+ * Streaming k-way merge of already sorted sources. Holds one element per
+ * source in a heap, so each element costs log k comparisons and sources are
+ * only read as the merge reaches them.
+ * </p>
+ *
+ * @param <T> element type
+ */
+public class SortedMergeIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    // The next element of a source and the rest of it
+    private record Head<T>(T value, Iterator<? extends T> rest) {
+    }
+
+    /**
+     * @param sources    iterators, each sorted by the comparator
+     * @param comparator order of the sources and of the merge
+     */
+    public SortedMergeIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (first, second) -> comparator.compare(first.value(), second.value()));
+
+        for (Iterator<? extends T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+
+        if (head.rest().hasNext()) {
+            heads.add(new Head<>(head.rest().next(), head.rest()));
+        }
+        return head.value();
+    }
+
+}
@@ -8,6 +8,7 @@ import com.technicalchallenge.repository.SubDeskRepository;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +22,7 @@ public class SubDeskService {
 
     private final SubDeskRepository subDeskRepository;
     private final DeskRepository deskRepository;
+    private final HierarchyRollupService hierarchyRollupService;
 
     public List<SubDesk> getAllSubDesks() {
         logger.info("Retrieving all subdesks");
@@ -44,10 +46,14 @@ public class SubDeskService {
         // If deskName is null or blank, do not modify the current desk
     }
 
+    // Moves its books' trade totals if it moved to another desk
+    @Transactional
     public SubDesk saveSubDesk(SubDesk subDesk, SubDeskDTO dto) {
         logger.info("Saving subdesk: {}", subDesk);
         populateReferenceDataByName(subDesk, dto);
-        return subDeskRepository.save(subDesk);
+        SubDesk saved = subDeskRepository.save(subDesk);
+        hierarchyRollupService.onSubDeskSaved(saved.getId());
+        return saved;
     }
 
     public void deleteSubDesk(Long id) {
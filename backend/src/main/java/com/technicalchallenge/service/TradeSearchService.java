@@ -7,19 +7,32 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import com.technicalchallenge.cache.TradeCountCache;
+import com.technicalchallenge.cache.TradeSearchResultCache;
+import com.technicalchallenge.cache.TradeSearchResultCache.SearchKey;
+import com.technicalchallenge.dto.CountMode;
 import com.technicalchallenge.dto.PaginationDTO;
 import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.SliceDTO;
 import com.technicalchallenge.dto.SortDTO;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.mapper.TradeMapper;
 import com.technicalchallenge.model.Trade;
 import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.specification.RsqlCostEstimator;
+import com.technicalchallenge.specification.RsqlCostEstimator.RsqlQueryCost;
+import com.technicalchallenge.specification.RsqlCostEstimator.Verdict;
+import com.technicalchallenge.specification.RsqlPlanCache;
+import com.technicalchallenge.specification.RsqlQuery;
+import com.technicalchallenge.specification.TradeSortColumn;
 import com.technicalchallenge.specification.TradeSpecification;
 import com.technicalchallenge.validation.TradeSearchValidator;
 
-import io.github.perplexhub.rsql.RSQLJPASupport;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
@@ -34,6 +47,12 @@ public class TradeSearchService {
 
     private final TradeSearchValidator tradeSearchValidator;
     private final TradeRepository tradeRepository;
+    private final RsqlPlanCache rsqlPlanCache;
+    private final RsqlCostEstimator rsqlCostEstimator;
+    private final TradeSearchResultCache tradeSearchResultCache;
+    private final TradeCountCache tradeCountCache;
+    private final ParallelTradeSearch parallelTradeSearch;
+    private final TradeMapper tradeMapper;
 
     /**
      * Trade: Multi Criteria Search
@@ -70,6 +89,9 @@ public class TradeSearchService {
      * - Sorts the trades by column name and in order of ASC or DESC,
      * handles if the sort direction is not filled
      * 
+     * UPDATED: Only the indexed {@link TradeSortColumn}s can be sorted,
+     * anything else returns a 400. Sorts end with the id tie-breaker.
+     * 
      * - Includes a sorted, unsorted page request for the user to
      * be able to seperately sort or change the pagination
      * 
@@ -84,26 +106,21 @@ public class TradeSearchService {
             SortDTO sortFields) {
 
         tradeSearchValidator.validateSearch(searchTradeByCriteria);
+        tradeSearchValidator.validateSort(sortFields);
 
         logger.debug("Search validation passed to find trade");
 
-        // Sort By
-        String sortColumn;
+        // Sort By (Default is tradeID), validated against the sortable columns
+        TradeSortColumn sortColumn = TradeSortColumn.of(sortFields.sortBy()).orElse(TradeSortColumn.DEFAULT);
         String sortDirection = sortFields.sortDir(); // Default is ASC
 
-        if (sortFields.sortBy() == null || sortFields.sortBy().isBlank()) {
-            sortColumn = "tradeId"; // Default is tradeID
-        } else {
-            sortColumn = sortFields.sortBy();
-        }
-
         Sort sort = null;
         if (sortDirection == null) {
             sort = Sort.unsorted();
         } else if (sortDirection.equalsIgnoreCase(Sort.Direction.ASC.name())) {
-            sort = Sort.by(sortColumn).ascending();
+            sort = sortColumn.sort(Sort.Direction.ASC);
         } else if (sortDirection.equalsIgnoreCase(Sort.Direction.DESC.name())) {
-            sort = Sort.by(sortColumn).descending();
+            sort = sortColumn.sort(Sort.Direction.DESC);
         }
 
         // Pagination
@@ -139,6 +156,143 @@ public class TradeSearchService {
         return tradeRepository.findAll(specification, pageable);
     }
 
+    /**
+     * Trade: Count-free Filtered Search
+     * 
+     * <p>
+     * Same filter and sort as {@link #getAllTrades}, but reads a page size + 1
+     * slice instead of a page, so there's no COUNT query.
+     * 
+     * - NONE: hasNext only
+     * 
+     * - APPROXIMATE: also the total from the {@link TradeCountCache}, only
+     * counted when the page isn't the last one and the count isn't cached
+     * 
+     * The last page always works out the exact total. Unsorted slices are
+     * ordered by tradeId so the pages don't overlap.
+     * </p>
+     * 
+     * @param searchTradeByCriteria search criteria
+     * @param pagination            page, required
+     * @param sortFields            custom sort
+     * @param countMode             NONE or APPROXIMATE
+     * @return slice of results
+     */
+    public SliceDTO<Trade> getTradeSlice(SearchTradeByCriteria searchTradeByCriteria, PaginationDTO pagination,
+            SortDTO sortFields, CountMode countMode) {
+
+        tradeSearchValidator.validateSearch(searchTradeByCriteria);
+        tradeSearchValidator.validateSort(sortFields);
+        tradeSearchValidator.validatePage(pagination);
+
+        logger.debug("Search validation passed to find trade");
+
+        TradeSortColumn sortColumn = TradeSortColumn.of(sortFields.sortBy()).orElse(TradeSortColumn.DEFAULT);
+        Sort.Direction sortDirection = sortFields.sortDir() == null ? Sort.Direction.ASC
+                : Sort.Direction.fromString(sortFields.sortDir());
+        Pageable pageable = PageRequest.of(pagination.pageNo() - 1, pagination.pageSize(),
+                sortColumn.sort(sortDirection));
+
+        Specification<Trade> specification = TradeSpecification.getTradeCriteria(searchTradeByCriteria);
+
+        logger.info("Retrieving a slice of trades by criteria: {}", searchTradeByCriteria);
+
+        Slice<Trade> slice = tradeRepository.findSlice(specification, pageable, null);
+
+        Long approximateTotal = null;
+        if (countMode == CountMode.APPROXIMATE && slice.hasNext()) {
+            // The specification keeps its predicates, so the count builds its own
+            approximateTotal = tradeCountCache.get("filter:" + searchTradeByCriteria,
+                    () -> tradeRepository.count(TradeSpecification.getTradeCriteria(searchTradeByCriteria)));
+        }
+
+        return SliceDTO.of(slice, approximateTotal);
+    }
+
+    /**
+     * Trade: Cached Multi Criteria Search
+     * 
+     * <p>
+     * Returns the mapped search results from the {@link TradeSearchResultCache},
+     * running {@link #getAllTradesByCriteria} on a miss. Results are cached per
+     * user and invalidated by trade writes that match the criteria.
+     * 
+     * UPDATED: Wide date ranges and searches over a large table are split into
+     * partitions and run in parallel by the {@link ParallelTradeSearch}, results
+     * are then in id order.
+     * </p>
+     * 
+     * @param searchTradeByCriteria search criteria
+     * @return mapped search results
+     */
+    public List<TradeDTO> searchTradesByCriteria(SearchTradeByCriteria searchTradeByCriteria) {
+
+        SearchKey key = tradeSearchResultCache.key("search", searchTradeByCriteria, null, null);
+
+        return tradeSearchResultCache.get(key, () -> {
+
+            // Large searches run as parallel partitions, merged in id order
+            List<ParallelTradeSearch.Partition> partitions = parallelTradeSearch.partition(searchTradeByCriteria);
+            if (partitions.size() > 1) {
+                tradeSearchValidator.validateSearch(searchTradeByCriteria);
+                logger.info("Retrieving all trades by criteria in {} partitions: {}", partitions.size(),
+                        searchTradeByCriteria);
+                return parallelTradeSearch.search(searchTradeByCriteria, partitions);
+            }
+
+            return getAllTradesByCriteria(searchTradeByCriteria).stream()
+                    .map(tradeMapper::toDto)
+                    .toList();
+        });
+    }
+
+    /**
+     * Trade: Cached Filtered Search
+     * 
+     * <p>
+     * Returns the mapped page from the {@link TradeSearchResultCache}, running
+     * {@link #getAllTrades} on a miss.
+     * </p>
+     * 
+     * @param searchTradeByCriteria search criteria
+     * @param pagination            custom pagination
+     * @param sortFields            custom sort
+     * @return mapped page of results
+     */
+    public Page<TradeDTO> searchTrades(SearchTradeByCriteria searchTradeByCriteria, PaginationDTO pagination,
+            SortDTO sortFields) {
+
+        SearchKey key = tradeSearchResultCache.key("filter", searchTradeByCriteria, pagination, sortFields);
+
+        return tradeSearchResultCache.get(key,
+                () -> getAllTrades(searchTradeByCriteria, pagination, sortFields).map(tradeMapper::toDto));
+    }
+
+    /**
+     * Trade: Cached Count-free Filtered Search
+     * 
+     * <p>
+     * Returns the mapped slice from the {@link TradeSearchResultCache},
+     * running {@link #getTradeSlice} on a miss.
+     * </p>
+     * 
+     * @param searchTradeByCriteria search criteria
+     * @param pagination            page, required
+     * @param sortFields            custom sort
+     * @param countMode             NONE or APPROXIMATE
+     * @return mapped slice of results
+     */
+    public SliceDTO<TradeDTO> searchTradeSlice(SearchTradeByCriteria searchTradeByCriteria,
+            PaginationDTO pagination, SortDTO sortFields, CountMode countMode) {
+
+        SearchKey key = tradeSearchResultCache.key("slice-" + countMode, searchTradeByCriteria, pagination,
+                sortFields);
+
+        return tradeSearchResultCache.get(key,
+                () -> getTradeSlice(searchTradeByCriteria, pagination, sortFields, countMode)
+                        .map(tradeMapper::toDto));
+    }
+
     /**
      * Trade: RSQL Search
      * 
@@ -148,20 +302,101 @@ public class TradeSearchService {
      * 
      * Used the plugin recommended which saved time:
      * {@link https://github.com/perplexhub/rsql-jpa-specification}
+     * 
+     * UPDATED: Parsed plans are cached by query shape in the
+     * {@link RsqlPlanCache}, so repeat queries only bind their arguments.
+     * 
+     * UPDATED: The {@link RsqlCostEstimator} checks the query before it runs.
+     * Rejected queries return a 400, broad queries without a page are served
+     * the first page and every query is capped at the hard row limit and
+     * runs under the query timeout. Results are read as a slice, so there's
+     * no count query.
      * </p>
      * 
-     * @param query trade unique identifier
-     * @return powerful results
+     * @param query      RSQL query
+     * @param pagination optional page, pageNo starts at 1
+     * @return slice of results, hasNext if the results were cut off
      */
-    public List<Trade> getAllTradesByRSQL(String query) {
+    public Slice<Trade> getAllTradesByRSQL(String query, PaginationDTO pagination) {
 
         tradeSearchValidator.validateRSQLSearch(query);
         logger.debug("Query validation passed to find trade");
 
-        Specification<Trade> specfication = RSQLJPASupport.toSpecification(query);
+        RsqlQuery rsqlQuery = rsqlPlanCache.lookup(query);
+        RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlQuery);
+        tradeSearchValidator.validateRSQLCost(cost);
+        logger.debug("Rsql query cost: {}", cost);
+
+        // Stable order so pages don't overlap
+        Sort sort = Sort.by("id").ascending();
+        Pageable pageable;
+
+        if (pagination != null && (pagination.pageNo() != null || pagination.pageSize() != null)) {
+            tradeSearchValidator.validateRSQLPage(pagination, rsqlCostEstimator.getMaxRows());
+            pageable = PageRequest.of(pagination.pageNo() - 1, pagination.pageSize(), sort);
+        } else if (cost.verdict() == Verdict.PAGINATE) {
+            logger.info("Rsql query forced into pages of {}: {}", rsqlCostEstimator.getForcedPageSize(),
+                    cost.reason());
+            pageable = PageRequest.of(0, rsqlCostEstimator.getForcedPageSize(), sort);
+        } else {
+            pageable = PageRequest.of(0, rsqlCostEstimator.getMaxRows(), sort);
+        }
+
+        Specification<Trade> specfication = rsqlQuery.toSpecification();
         logger.info("Retrieving all trades by rsql: {}", query);
 
-        return tradeRepository.findAll(specfication);
+        return tradeRepository.findSlice(specfication, pageable, rsqlCostEstimator.getTimeout());
+    }
+
+    /**
+     * Trade: Streamed Multi Criteria Search
+     * 
+     * <p>
+     * Validates the criteria straight away so a bad search still returns a
+     * 400, the trades are read later through a forward-only cursor as the
+     * response is written.
+     * </p>
+     * 
+     * @param searchTradeByCriteria search criteria
+     * @return stream to run while writing the response
+     */
+    public TradeStream streamTradesByCriteria(SearchTradeByCriteria searchTradeByCriteria) {
+
+        tradeSearchValidator.validateSearch(searchTradeByCriteria);
+        logger.debug("Search validation passed to stream trades");
+
+        Specification<Trade> specification = TradeSpecification.getTradeCriteria(searchTradeByCriteria);
+        logger.info("Streaming all trades by criteria: {}", searchTradeByCriteria);
+
+        return action -> tradeRepository.streamEach(specification, Sort.by("id").ascending(), null, action);
+    }
+
+    /**
+     * Trade: Streamed RSQL Search
+     * 
+     * <p>
+     * Streaming keeps memory flat, so broad queries aren't forced into pages
+     * or capped at the row limit. Rejected queries still return a 400 and the
+     * query timeout still applies.
+     * </p>
+     * 
+     * @param query RSQL query
+     * @return stream to run while writing the response
+     */
+    public TradeStream streamTradesByRSQL(String query) {
+
+        tradeSearchValidator.validateRSQLSearch(query);
+        logger.debug("Query validation passed to stream trades");
+
+        RsqlQuery rsqlQuery = rsqlPlanCache.lookup(query);
+        RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlQuery);
+        tradeSearchValidator.validateRSQLCost(cost);
+
+        Specification<Trade> specification = rsqlQuery.toSpecification();
+        logger.info("Streaming all trades by rsql: {}", query);
+
+        return action -> tradeRepository.streamEach(specification, Sort.by("id").ascending(),
+                rsqlCostEstimator.getTimeout(), action);
     }
 
 }
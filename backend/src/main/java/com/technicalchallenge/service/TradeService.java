@@ -1,8 +1,11 @@
 package com.technicalchallenge.service;
 
 import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
 import com.technicalchallenge.exceptions.EntityNotFoundException;
 import com.technicalchallenge.exceptions.InActiveException;
+import com.technicalchallenge.exceptions.ValidationException;
 import com.technicalchallenge.exceptions.referencedata.TradeNotFoundException;
 import com.technicalchallenge.exceptions.referencedata.TradeStatusNotFoundException;
 import com.technicalchallenge.mapper.TradeMapper;
@@ -14,13 +17,20 @@ import com.technicalchallenge.validation.ValidationResult;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Trade service class provides business logic and operations relating
@@ -56,6 +66,10 @@ public class TradeService {
     private final ReferenceDataValidator referenceDataValidator;
     private final AuthorizationService authorizationService;
     private final TradeMapper tradeMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${trade.multi-get.max-ids:500}")
+    private int maxMultiGetIds;
 
     /**
      * Trade: Return all trades that have been created on the system
@@ -103,6 +117,57 @@ public class TradeService {
 
     }
 
+    /**
+     * Trade: Returns many trades by their tradeIds
+     *
+     * <p>
+     * Replaces calling {@link #getTradeById(Long)} in a loop, the privilege is
+     * checked once and the trades are read with one IN query, then their legs'
+     * cashflows in one batch.
+     *
+     * Trades are returned in the requested order. Exception thrown if any trade
+     * is not found. {@link TradeNotFoundException}
+     * </p>
+     *
+     * Privilege: READ TRADE
+     *
+     * @param tradeIds trade unique identifiers, at most trade.multi-get.max-ids
+     * @return the trades in the order of the tradeIds
+     */
+    public List<Trade> getTradesByIds(List<Long> tradeIds) {
+
+        if (tradeIds == null || tradeIds.isEmpty() || tradeIds.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("At least one trade id is required and trade ids can't be empty");
+        }
+        if (tradeIds.size() > maxMultiGetIds) {
+            throw new ValidationException("No more than " + maxMultiGetIds + " trade ids can be requested at once");
+        }
+
+        logger.debug("Retrieving {} trades by id", tradeIds.size());
+
+        Long userId = authorizationService.getCurrentUserId();
+
+        authorizationService.validateUserPrivileges(userId, "READ_TRADE", null);
+
+        Set<Long> requestedIds = new LinkedHashSet<>(tradeIds);
+        List<Trade> trades = tradeRepository.findActiveTradesWithLegs(requestedIds);
+        if (!trades.isEmpty()) {
+            tradeRepository.fetchLegCashflows(trades);
+        }
+
+        Map<Long, Trade> tradesByTradeId = new HashMap<>();
+        for (Trade trade : trades) {
+            tradesByTradeId.putIfAbsent(trade.getTradeId(), trade);
+        }
+
+        List<Long> missingIds = requestedIds.stream().filter(id -> !tradesByTradeId.containsKey(id)).toList();
+        if (!missingIds.isEmpty()) {
+            throw new TradeNotFoundException("tradeId", missingIds);
+        }
+
+        return tradeIds.stream().map(tradesByTradeId::get).toList();
+    }
+
     /**
      * Trade: Create's Trades
      * 
@@ -170,6 +235,8 @@ public class TradeService {
         // Create trade legs and cashflows
         createTradeLegsWithCashflows(tradeDTO, savedTrade);
 
+        publishWrite(TradeWriteEvent.Type.CREATED, null, savedTrade);
+
         logger.info("Successfully created trade with ID: {}", savedTrade.getTradeId());
         return savedTrade;
     }
@@ -289,6 +356,7 @@ public class TradeService {
         Long userId = authorizationService.getCurrentUserId();
         authorizationService.validateUserPrivileges(userId, " AMEND_TRADE", tradeDTO);
         Trade existingTrade = getTradeById(tradeId);
+        TradeSnapshot before = TradeSnapshot.of(existingTrade);
 
         // Deactivate existing trade
         existingTrade.setActive(false);
@@ -316,6 +384,8 @@ public class TradeService {
         // Create new trade legs and cashflows
         createTradeLegsWithCashflows(tradeDTO, savedTrade);
 
+        publishWrite(TradeWriteEvent.Type.AMENDED, before, savedTrade);
+
         logger.info("Successfully amended trade with ID: {}", savedTrade.getTradeId());
         return savedTrade;
     }
@@ -346,10 +416,14 @@ public class TradeService {
         TradeStatus terminatedStatus = tradeStatusRepository.findByTradeStatus("TERMINATED")
                 .orElseThrow(() -> new TradeStatusNotFoundException("TERMINATED"));
 
+        TradeSnapshot before = TradeSnapshot.of(trade);
         trade.setTradeStatus(terminatedStatus);
         trade.setLastTouchTimestamp(LocalDateTime.now());
 
-        return tradeRepository.save(trade);
+        Trade savedTrade = tradeRepository.save(trade);
+        publishWrite(TradeWriteEvent.Type.TERMINATED, before, savedTrade);
+
+        return savedTrade;
     }
 
     /**
@@ -377,10 +451,14 @@ public class TradeService {
         TradeStatus cancelledStatus = tradeStatusRepository.findByTradeStatus("CANCELLED")
                 .orElseThrow(() -> new TradeStatusNotFoundException("CANCELLED"));
 
+        TradeSnapshot before = TradeSnapshot.of(trade);
         trade.setTradeStatus(cancelledStatus);
         trade.setLastTouchTimestamp(LocalDateTime.now());
 
-        return tradeRepository.save(trade);
+        Trade savedTrade = tradeRepository.save(trade);
+        publishWrite(TradeWriteEvent.Type.CANCELLED, before, savedTrade);
+
+        return savedTrade;
     }
 
     // NEW METHOD: Creates Trade Legs with Cashflows (Cleaner Seperation of Concerns
@@ -403,6 +481,12 @@ public class TradeService {
 
     }
 
+    // NEW METHOD: Tells the search cache and aggregate stores about the write,
+    // published inside the transaction so they see it commit or roll back
+    private void publishWrite(TradeWriteEvent.Type type, TradeSnapshot before, Trade after) {
+        eventPublisher.publishEvent(new TradeWriteEvent(type, before, TradeSnapshot.of(after)));
+    }
+
     // NEW METHOD: Generate the next trade ID (sequential)
     private Long generateNextTradeId() {
         // For simplicity, using a static variable. In real scenario, this should be
@@ -0,0 +1,27 @@
+package com.technicalchallenge.service;
+
+import java.util.function.Consumer;
+
+import com.technicalchallenge.model.Trade;
+
+/**
+ * Trade Stream
+ *
+ * <p>
+ * A validated search that hasn't run yet. The trades are read when
+ * {@link #forEach(Consumer)} is called, one at a time, and are detached soon
+ * after the action returns.
+ * </p>
+ */
+@FunctionalInterface
+public interface TradeStream {
+
+    /**
+     * Runs the search, handing each trade to the action as it's read.
+     *
+     * @param action called for each trade
+     * @return number of trades streamed
+     */
+    long forEach(Consumer<Trade> action);
+
+}
@@ -0,0 +1,94 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.repository.TraderBlotterSummaryRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * TraderBlotterSummary service class keeps each trader's personal blotter
+ * totals up to date as trades are written.
+ *
+ * <p>
+ * The totals are one row per trader (trader_blotter_summary) with the count
+ * and leg notional of their live (active) trades, so the blotter header and
+ * its page count are read from one row whatever the trader's history. Like
+ * the hierarchy rollups ({@link HierarchyRollupService}) a booking adds its
+ * trade, an amendment swaps the old version for the new one, a termination
+ * or cancellation keeps the trade as it's still live.
+ *
+ * UPDATED: A trader without totals has them created empty with ON CONFLICT
+ * DO NOTHING and then added to, so two first writes for the same trader
+ * don't fail on its key.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class TraderBlotterSummaryService {
+
+    private final TraderBlotterSummaryRepository traderBlotterSummaryRepository;
+
+    private record Delta(long count, BigDecimal notional) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, notional.add(other.notional));
+        }
+
+        boolean isZero() {
+            return count == 0 && notional.signum() == 0;
+        }
+    }
+
+    /**
+     * Applies the trade write to its traders' totals.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted by trader so concurrent writes lock the rows in the same
+        // order. The before row is either the after row or deactivated by the
+        // write, so it always stops counting as it was
+        Map<String, Delta> deltas = new TreeMap<>();
+        collect(deltas, event.before(), -1);
+        collect(deltas, event.after(), 1);
+
+        deltas.forEach((traderLoginId, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            int updated = traderBlotterSummaryRepository.addToSummary(traderLoginId, delta.count(),
+                    delta.notional());
+            if (updated == 0) {
+                traderBlotterSummaryRepository.createSummary(traderLoginId);
+                traderBlotterSummaryRepository.addToSummary(traderLoginId, delta.count(), delta.notional());
+            }
+        });
+    }
+
+    // The trade row's contribution to its trader, negated with sign -1
+    private static void collect(Map<String, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        if (trade == null || !trade.active() || trade.traderLoginId() == null) {
+            return;
+        }
+
+        BigDecimalSummaryStatistics legs = new BigDecimalSummaryStatistics();
+        trade.legs().forEach(leg -> legs.accept(leg.notional()));
+        BigDecimal notional = legs.getSum();
+        deltas.merge(trade.traderLoginId(), new Delta(sign, sign < 0 ? notional.negate() : notional), Delta::plus);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.repository.TraderDailyRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * TraderDailyRollup service class keeps each trader's per trade date rollups
+ * up to date as trades are written.
+ *
+ * <p>
+ * A rollup holds the trader's trade count and the count, sum, min and max of
+ * their leg notionals for one trade date (trader_daily_rollup), so a day, or
+ * a window of days, is read from one row each instead of the trades.
+ *
+ * Every {@link TradeWriteEvent} is applied in the write's transaction, the
+ * same way as the portfolio aggregates ({@link TraderPortfolioAggregateService}):
+ * the row as it was is taken away and the row as it is now added back, only
+ * while they're active, so a day counts each trade's live version. Legs
+ * taken away and added back cancel out, a day that really loses legs has its
+ * min and max read again from its live trades. A missing day is created
+ * empty first with INSERT ... ON CONFLICT DO NOTHING so two writes creating
+ * it don't fail on its key.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class TraderDailyRollupService {
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::traderLoginId)
+            .thenComparing(Key::tradeDate);
+
+    private final TraderDailyRollupRepository traderDailyRollupRepository;
+
+    private record Key(String traderLoginId, LocalDate tradeDate) {
+    }
+
+    // The change to one day, leg notionals added and taken away
+    private static class Delta {
+        private long tradeCount;
+        private final List<BigDecimal> added = new ArrayList<>();
+        private final List<BigDecimal> removed = new ArrayList<>();
+
+        // Legs taken away and added back leave the day as it was
+        void cancelOut() {
+            Iterator<BigDecimal> iterator = removed.iterator();
+            while (iterator.hasNext()) {
+                BigDecimal notional = iterator.next();
+                for (int i = 0; i < added.size(); i++) {
+                    if (added.get(i).compareTo(notional) == 0) {
+                        added.remove(i);
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return tradeCount == 0 && added.isEmpty() && removed.isEmpty();
+        }
+
+        BigDecimal notional(BigDecimalSummaryStatistics addedStatistics) {
+            return addedStatistics.getSum()
+                    .subtract(removed.stream().collect(BigDecimalSummaryStatistics.statistics()).getSum());
+        }
+    }
+
+    /**
+     * Applies the trade write to the trader's rollups.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        // Sorted so concurrent writes lock the rows in the same order
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+
+        if (event.before() != null) {
+            collect(deltas, event.before(), -1);
+        }
+        if (event.after() != null) {
+            collect(deltas, event.after(), 1);
+        }
+
+        deltas.forEach((key, delta) -> {
+            delta.cancelOut();
+            if (delta.isEmpty()) {
+                return;
+            }
+
+            BigDecimalSummaryStatistics added = delta.added.stream()
+                    .collect(BigDecimalSummaryStatistics.statistics());
+            BigDecimal notional = delta.notional(added);
+            long legCount = delta.added.size() - delta.removed.size();
+
+            int updated = traderDailyRollupRepository.addToRollup(key.traderLoginId(), key.tradeDate(),
+                    delta.tradeCount, legCount, notional, added.getMin(), added.getMax());
+            if (updated == 0) {
+                traderDailyRollupRepository.createRollup(key.traderLoginId(), key.tradeDate());
+                traderDailyRollupRepository.addToRollup(key.traderLoginId(), key.tradeDate(), delta.tradeCount,
+                        legCount, notional, added.getMin(), added.getMax());
+            }
+
+            if (!delta.removed.isEmpty()) {
+                traderDailyRollupRepository.recomputeMinMax(key.traderLoginId(), key.tradeDate());
+            }
+        });
+    }
+
+    // The trade row's contribution to its day, taken away with sign -1,
+    // inactive versions don't contribute
+    private static void collect(Map<Key, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        if (!trade.active() || trade.traderLoginId() == null || trade.tradeDate() == null) {
+            return;
+        }
+
+        Delta delta = deltas.computeIfAbsent(new Key(trade.traderLoginId(), trade.tradeDate()), key -> new Delta());
+        delta.tradeCount += sign;
+
+        for (TradeSnapshot.LegSnapshot leg : trade.legs()) {
+            if (leg.notional() != null) {
+                (sign < 0 ? delta.removed : delta.added).add(leg.notional());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.technicalchallenge.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.repository.TraderPortfolioAggregateRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * TraderPortfolioAggregate service class keeps each trader's portfolio
+ * summary up to date as trades are written.
+ *
+ * <p>
+ * The summary is stored as one row per figure in trader_portfolio_aggregate
+ * (notional by currency, trade count by status, notional by trade type and
+ * by counterparty, pay/receive exposure by currency), so the portfolio
+ * summary dashboard reads a handful of rows whatever the size of the
+ * portfolio.
+ *
+ * Every {@link TradeWriteEvent} is applied in the write's transaction: the
+ * row as it was is taken away and the row as it is now added back, only
+ * while they're active. The summary covers each trade's live version, an
+ * amendment moves the figures from the old version to the new one. Figures
+ * are added to in place so concurrent writes for the same trader don't
+ * overwrite each other, a missing figure is created at zero first with
+ * INSERT ... ON CONFLICT DO NOTHING so two writes creating it don't fail on
+ * its key.
+ *
+ * {@link #rebuild()} recomputes every trader's summary from the trades in
+ * parallel ({@link PortfolioRecomputation}) for recovery.
+ * </p>
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class TraderPortfolioAggregateService {
+    private static final Logger logger = LoggerFactory.getLogger(TraderPortfolioAggregateService.class);
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::traderLoginId)
+            .thenComparing(Key::dimension)
+            .thenComparing(Key::dimensionKey)
+            .thenComparing(Key::subKey);
+
+    private final TraderPortfolioAggregateRepository traderPortfolioAggregateRepository;
+    private final PortfolioRecomputation portfolioRecomputation;
+
+    private record Key(String traderLoginId, String dimension, String dimensionKey, String subKey) {
+    }
+
+    private record Delta(long count, BigDecimal notional) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, notional.add(other.notional));
+        }
+
+        boolean isZero() {
+            return count == 0 && notional.signum() == 0;
+        }
+    }
+
+    /**
+     * A change to one figure of a trader's summary
+     *
+     * @param traderLoginId trader's login
+     * @param dimension     STATUS, CURRENCY, TRADE_TYPE, COUNTERPARTY or EXPOSURE
+     * @param dimensionKey  status, currency, trade type or counterparty name
+     * @param subKey        pay/receive flag for EXPOSURE, empty otherwise
+     * @param count         change to the trade (STATUS) or leg count
+     * @param notional      change to the notional
+     */
+    public record PortfolioChange(String traderLoginId, String dimension, String dimensionKey, String subKey,
+            long count, BigDecimal notional) {
+    }
+
+    /**
+     * Applies the trade write to the writing trader's summary.
+     *
+     * @param event the trade write
+     */
+    @EventListener
+    public void onTradeWrite(TradeWriteEvent event) {
+
+        for (PortfolioChange change : changesOf(event)) {
+            addToAggregate(change.traderLoginId(), change.dimension(), change.dimensionKey(), change.subKey(),
+                    change.count(), change.notional());
+        }
+    }
+
+    /**
+     * The figures a trade write changes, figures it leaves as they were are
+     * left out.
+     *
+     * @param event the trade write
+     * @return changes sorted by trader and figure
+     */
+    public static List<PortfolioChange> changesOf(TradeWriteEvent event) {
+
+        // Sorted so concurrent writes lock the rows in the same order
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+
+        // Live row before minus live row after, an amendment's old version is
+        // deactivated so it's taken away
+        if (event.before() != null) {
+            collect(deltas, event.before(), -1);
+        }
+        if (event.after() != null) {
+            collect(deltas, event.after(), 1);
+        }
+
+        List<PortfolioChange> changes = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                changes.add(new PortfolioChange(key.traderLoginId(), key.dimension(), key.dimensionKey(),
+                        key.subKey(), delta.count(), delta.notional()));
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * Recomputes every trader's summary from the trades and replaces the
+     * stored one. Trades written while it runs may be missed, run it while
+     * trading is quiet.
+     *
+     * @return figures written
+     */
+    public int rebuild() {
+
+        // Each range of trades into its own figures, merged as the ranges join
+        Map<Key, Delta> deltas = portfolioRecomputation.recompute(Collector.<TradeSnapshot, Map<Key, Delta>>of(
+                HashMap::new,
+                (figures, trade) -> collect(figures, trade, 1),
+                (left, right) -> {
+                    right.forEach((key, delta) -> left.merge(key, delta, Delta::plus));
+                    return left;
+                }));
+
+        traderPortfolioAggregateRepository.deleteAllInBatch();
+
+        // Inserted in the same order as the writes lock them
+        Map<Key, Delta> sorted = new TreeMap<>(KEY_ORDER);
+        sorted.putAll(deltas);
+        int written = 0;
+        for (Map.Entry<Key, Delta> entry : sorted.entrySet()) {
+            Key key = entry.getKey();
+            Delta delta = entry.getValue();
+            if (!delta.isZero()) {
+                addToAggregate(key.traderLoginId(), key.dimension(), key.dimensionKey(), key.subKey(),
+                        delta.count(), delta.notional());
+                written++;
+            }
+        }
+
+        logger.info("Rebuilt {} trader portfolio figures", written);
+        return written;
+    }
+
+    // Adds to the figure, creating it first when it doesn't exist yet
+    private void addToAggregate(String traderLoginId, String dimension, String dimensionKey, String subKey,
+            long count, BigDecimal notional) {
+
+        int updated = traderPortfolioAggregateRepository.addToAggregate(traderLoginId, dimension, dimensionKey,
+                subKey, count, notional);
+        if (updated == 0) {
+            traderPortfolioAggregateRepository.createAggregate(traderLoginId, dimension, dimensionKey, subKey);
+            traderPortfolioAggregateRepository.addToAggregate(traderLoginId, dimension, dimensionKey, subKey, count,
+                    notional);
+        }
+    }
+
+    // The trade row's contribution to each figure, negated with sign -1,
+    // inactive versions don't contribute
+    private static void collect(Map<Key, Delta> deltas, TradeSnapshot trade, int sign) {
+
+        String trader = trade.traderLoginId();
+        if (trader == null || !trade.active()) {
+            return;
+        }
+
+        if (trade.tradeStatus() != null) {
+            add(deltas, trader, TraderPortfolioAggregate.STATUS, trade.tradeStatus(), "", sign, BigDecimal.ZERO);
+        }
+
+        for (TradeSnapshot.LegSnapshot leg : trade.legs()) {
+            if (leg.notional() == null) {
+                continue;
+            }
+            BigDecimal notional = sign < 0 ? leg.notional().negate() : leg.notional();
+
+            if (leg.currency() != null) {
+                add(deltas, trader, TraderPortfolioAggregate.CURRENCY, leg.currency(), "", sign, notional);
+            }
+            if (trade.tradeType() != null) {
+                add(deltas, trader, TraderPortfolioAggregate.TRADE_TYPE, trade.tradeType(), "", sign, notional);
+            }
+            if (trade.counterpartyName() != null) {
+                add(deltas, trader, TraderPortfolioAggregate.COUNTERPARTY, trade.counterpartyName(), "", sign,
+                        notional);
+            }
+
+            // Receive legs add to the exposure, pay legs take away from it
+            if (leg.currency() != null && leg.payReceiveFlag() != null) {
+                BigDecimal exposure = "Receive".equals(leg.payReceiveFlag()) ? notional : notional.negate();
+                add(deltas, trader, TraderPortfolioAggregate.EXPOSURE, leg.currency(), leg.payReceiveFlag(), sign,
+                        exposure);
+            }
+        }
+    }
+
+    private static void add(Map<Key, Delta> deltas, String trader, String dimension, String dimensionKey,
+            String subKey, long count, BigDecimal notional) {
+        deltas.merge(new Key(trader, dimension, dimensionKey, subKey), new Delta(count, notional), Delta::plus);
+    }
+
+}
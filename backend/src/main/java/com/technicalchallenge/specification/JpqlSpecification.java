@@ -0,0 +1,44 @@
+package com.technicalchallenge.specification;
+
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.model.Trade;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * JPQL Specification
+ *
+ * <p>
+ * A bound {@link RsqlPlan} rendered as a parameterised JPQL query over
+ * {@code Trade t}. Hibernate only keeps query plans for query strings, never
+ * for criteria queries, so the trade repository runs the JPQL and a repeat
+ * query shape skips Hibernate's query interpretation and SQL rendering.
+ *
+ * Composed with another specification (and, or) it's an ordinary criteria
+ * specification.
+ * </p>
+ *
+ * @param distinct   whether a collection is joined, so trades repeat
+ * @param joins      left joins after the root, e.g. " left join t.book j1"
+ * @param where      where clause with :p0, :p1 parameters
+ * @param parameters parameter values by name
+ * @param criteria   the same query as a criteria specification
+ */
+public record JpqlSpecification(boolean distinct, String joins, String where, Map<String, Object> parameters,
+        Specification<Trade> criteria) implements Specification<Trade> {
+
+    /** Alias of the trade in the rendered query */
+    public static final String ROOT = "t";
+
+    @Override
+    public Predicate toPredicate(Root<Trade> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        return criteria.toPredicate(root, query, criteriaBuilder);
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.technicalchallenge.specification;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.technicalchallenge.specification.RsqlPlan.ComparisonPlanNode;
+import com.technicalchallenge.specification.RsqlPlan.LogicalPlanNode;
+import com.technicalchallenge.specification.RsqlPlan.Operator;
+import com.technicalchallenge.specification.RsqlPlan.PlanNode;
+
+import cz.jirutka.rsql.parser.RSQLParser;
+import cz.jirutka.rsql.parser.RSQLParserException;
+import cz.jirutka.rsql.parser.ast.ComparisonNode;
+import cz.jirutka.rsql.parser.ast.LogicalNode;
+import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.OrNode;
+import io.github.perplexhub.rsql.RSQLOperators;
+
+/**
+ * RSQL Cost Estimator
+ *
+ * <p>
+ * Inspects a compiled {@link RsqlPlan} before it runs and estimates how
+ * expensive it is from the predicate selectivity, the joins it walks and
+ * whether an indexed access path can drive it.
+ *
+ * - ALLOW: selective and indexed, can be returned as a list
+ * - PAGINATE: too broad for one list, served a page at a time
+ * - REJECT: walks too many joins without a selective indexed predicate
+ *
+ * Selectivity is a heuristic fraction of the trade table, AND multiplies its
+ * children and OR adds them.
+ *
+ * Every query, whatever its verdict, is capped at the hard row limit and runs
+ * under the per-request timeout.
+ *
+ * UPDATED: Indexed selectors are listed one by one against the V2 and V3
+ * indexes. Queries the plan can't compile are parsed with the RSQL plugin's
+ * operators and estimated the same way, so they can still be rejected, they
+ * are never served as one list.
+ * </p>
+ */
+@Component
+public class RsqlCostEstimator {
+
+    // Unique identifiers, an equality match returns a handful of versions
+    private static final Set<String> IDENTIFIER_SELECTORS = Set.of("id", "tradeId", "utiCode", "tradeLegs.legId");
+
+    // Selectors an index can drive, keep in step with the migrations
+    // - id, tradeLegs.legId: primary keys
+    // - tradeId: idx_trade_trade_id_active (V2), idx_trade_trade_id_sort (V3)
+    // - book.id, traderUser.id: idx_trade_book_id, idx_trade_trader_user_id_active (V2)
+    // - traderUser.loginId: unique login_id (V1), then idx_trade_trader_user_id_active
+    // - tradeLegs.cashflows.valueDate: idx_cashflow_value_date (V2)
+    // - utiCode, tradeDate, tradeExecutionDate, tradeMaturityDate: the sort indexes (V3)
+    private static final Set<String> INDEXED_SELECTORS = Set.of("id", "tradeId", "utiCode", "tradeDate",
+            "tradeExecutionDate", "tradeMaturityDate", "book.id", "traderUser.id", "traderUser.loginId",
+            "tradeLegs.legId", "tradeLegs.cashflows.valueDate");
+
+    // Parses the queries the plan can't compile, with the RSQL plugin's operators
+    private static final RSQLParser PLUGIN_PARSER = new RSQLParser(RSQLOperators.supportedOperators());
+
+    private static final double IDENTIFIER_SELECTIVITY = 0.0001;
+    private static final double EQUALITY_SELECTIVITY = 0.01;
+    private static final double UNINDEXED_EQUALITY_SELECTIVITY = 0.05;
+    private static final double PREFIX_MATCH_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 0.3;
+    private static final double NEGATION_SELECTIVITY = 0.9;
+
+    private final int maxJoins;
+    private final double paginateSelectivity;
+    private final int maxRows;
+    private final int forcedPageSize;
+    private final Duration timeout;
+
+    public RsqlCostEstimator(@Value("${trade.search.rsql.max-joins:3}") int maxJoins,
+            @Value("${trade.search.rsql.paginate-selectivity:0.2}") double paginateSelectivity,
+            @Value("${trade.search.rsql.max-rows:1000}") int maxRows,
+            @Value("${trade.search.rsql.forced-page-size:100}") int forcedPageSize,
+            @Value("${trade.search.rsql.timeout-ms:5000}") long timeoutMillis) {
+        this.maxJoins = maxJoins;
+        this.paginateSelectivity = paginateSelectivity;
+        this.maxRows = maxRows;
+        this.forcedPageSize = Math.min(forcedPageSize, maxRows);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    // Hard limit on the rows a single RSQL request can return
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    // Page size used when a broad query arrives without a page
+    public int getForcedPageSize() {
+        return forcedPageSize;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public enum Verdict {
+        ALLOW, PAGINATE, REJECT
+    }
+
+    /**
+     * Estimated cost of a RSQL query
+     *
+     * @param selectivity estimated fraction of trades returned
+     * @param joins distinct joins the query walks
+     * @param collectionJoin joins a collection such as tradeLegs
+     * @param usesIndex every branch has an indexed predicate
+     * @param verdict how the query may run
+     * @param reason explanation for PAGINATE or REJECT
+     */
+    public record RsqlQueryCost(double selectivity, int joins, boolean collectionJoin, boolean usesIndex,
+            Verdict verdict, String reason) {
+    }
+
+    /**
+     * Estimates the query cost. Queries the plan couldn't compile are estimated
+     * from the plugin's parse and are at least paginated, one the plugin can't
+     * parse either has an unknown cost.
+     *
+     * @param rsqlQuery looked up query
+     * @return estimated cost
+     */
+    public RsqlQueryCost estimate(RsqlQuery rsqlQuery) {
+
+        Set<String> joins = new HashSet<>();
+        Estimate estimate;
+
+        if (rsqlQuery.isCompiled()) {
+            estimate = estimate(rsqlQuery.plan().getRoot(), rsqlQuery.arguments(), joins);
+        } else {
+            try {
+                estimate = estimate(PLUGIN_PARSER.parse(rsqlQuery.query()), joins);
+            } catch (RSQLParserException e) {
+                return new RsqlQueryCost(1.0, 0, false, false, Verdict.PAGINATE,
+                        "Query cost can't be estimated");
+            }
+        }
+        boolean collectionJoin = joins.contains("tradeLegs");
+
+        // Collection joins multiply the rows before the distinct
+        int joinCount = joins.size() + (collectionJoin ? 1 : 0);
+
+        Verdict verdict = Verdict.ALLOW;
+        String reason = null;
+
+        if (joinCount > maxJoins && !estimate.usesIndex()) {
+            verdict = Verdict.REJECT;
+            reason = "Query walks " + joinCount + " joins without an indexed predicate, add a trade, date, book"
+                    + " or trader filter";
+        } else if (estimate.selectivity() > paginateSelectivity || !estimate.usesIndex()) {
+            verdict = Verdict.PAGINATE;
+            reason = "Query is too broad to return as one list";
+        } else if (!rsqlQuery.isCompiled()) {
+            verdict = Verdict.PAGINATE;
+            reason = "Query cost can't be estimated";
+        }
+
+        return new RsqlQueryCost(estimate.selectivity(), joinCount, collectionJoin, estimate.usesIndex(), verdict,
+                reason);
+    }
+
+    private record Estimate(double selectivity, boolean usesIndex) {
+    }
+
+    private Estimate estimate(PlanNode node, List<List<String>> arguments, Set<String> joins) {
+
+        if (node instanceof LogicalPlanNode logical) {
+            List<Estimate> children = new ArrayList<>();
+            for (PlanNode child : logical.children()) {
+                children.add(estimate(child, arguments, joins));
+            }
+            return combine(logical.and(), children);
+        }
+
+        ComparisonPlanNode comparison = (ComparisonPlanNode) node;
+        return comparison(comparison.selector(), comparison.joinPath(), comparison.operator(),
+                arguments.get(comparison.slot()), joins);
+    }
+
+    // The plugin's parse, every selector segment but the last is taken as a join
+    private Estimate estimate(Node node, Set<String> joins) {
+
+        if (node instanceof LogicalNode logical) {
+            List<Estimate> children = new ArrayList<>();
+            for (Node child : logical.getChildren()) {
+                children.add(estimate(child, joins));
+            }
+            return combine(!(logical instanceof OrNode), children);
+        }
+
+        ComparisonNode comparison = (ComparisonNode) node;
+        List<String> segments = Arrays.asList(comparison.getSelector().split("\\."));
+        return comparison(comparison.getSelector(), segments.subList(0, segments.size() - 1),
+                RsqlPlan.operatorOf(comparison.getOperator()), comparison.getArguments(), joins);
+    }
+
+    private static Estimate combine(boolean and, List<Estimate> children) {
+
+        double selectivity = and ? 1.0 : 0.0;
+        boolean usesIndex = !and;
+
+        for (Estimate child : children) {
+            if (and) {
+                // Any indexed conjunct can drive the query
+                selectivity *= child.selectivity();
+                usesIndex |= child.usesIndex();
+            } else {
+                // Every disjunct needs its own index
+                selectivity += child.selectivity();
+                usesIndex &= child.usesIndex();
+            }
+        }
+        return new Estimate(Math.min(1.0, selectivity), usesIndex);
+    }
+
+    // A null operator is one of the plugin's own (=like=, =isnull=...), taken
+    // as a scan
+    private Estimate comparison(String selector, List<String> joinPath, Operator operator, List<String> values,
+            Set<String> joins) {
+
+        StringBuilder joinKey = new StringBuilder();
+        for (String segment : joinPath) {
+            joinKey.append(joinKey.length() == 0 ? "" : ".").append(segment);
+            joins.add(joinKey.toString());
+        }
+
+        if (operator == null) {
+            return new Estimate(1.0, false);
+        }
+
+        boolean indexed = INDEXED_SELECTORS.contains(selector);
+
+        return switch (operator) {
+            case EQUAL, IN -> equality(selector, values, indexed);
+            case GREATER_THAN, GREATER_THAN_OR_EQUAL, LESS_THAN, LESS_THAN_OR_EQUAL ->
+                new Estimate(RANGE_SELECTIVITY, indexed);
+            case NOT_EQUAL, NOT_IN -> new Estimate(NEGATION_SELECTIVITY, false);
+        };
+    }
+
+    private Estimate equality(String selector, List<String> values, boolean indexed) {
+
+        double selectivity = 0.0;
+        boolean usesIndex = indexed;
+
+        for (String value : values) {
+            if (value.startsWith("*")) {
+                // Leading wildcards can't use an index
+                selectivity += 1.0;
+                usesIndex = false;
+            } else if (value.contains("*")) {
+                selectivity += PREFIX_MATCH_SELECTIVITY;
+            } else if (IDENTIFIER_SELECTORS.contains(selector)) {
+                selectivity += IDENTIFIER_SELECTIVITY;
+            } else {
+                selectivity += indexed ? EQUALITY_SELECTIVITY : UNINDEXED_EQUALITY_SELECTIVITY;
+            }
+        }
+        return new Estimate(Math.min(1.0, selectivity), usesIndex);
+    }
+
+}
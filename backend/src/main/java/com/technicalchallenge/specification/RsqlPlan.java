@@ -0,0 +1,468 @@
+package com.technicalchallenge.specification;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.exceptions.InvalidSearchException;
+import com.technicalchallenge.exceptions.RsqlPlanNotSupportedException;
+import com.technicalchallenge.model.Trade;
+
+import cz.jirutka.rsql.parser.RSQLParser;
+import cz.jirutka.rsql.parser.ast.AndNode;
+import cz.jirutka.rsql.parser.ast.ComparisonNode;
+import cz.jirutka.rsql.parser.ast.ComparisonOperator;
+import cz.jirutka.rsql.parser.ast.LogicalNode;
+import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.NoArgRSQLVisitorAdapter;
+import cz.jirutka.rsql.parser.ast.OrNode;
+import cz.jirutka.rsql.parser.ast.RSQLOperators;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * RSQL Plan
+ *
+ * <p>
+ * A parsed and compiled RSQL query template. Selectors are resolved to
+ * property paths and their Java types once, when the plan is compiled, so
+ * binding a new set of arguments only converts the values and assembles the
+ * predicates.
+ *
+ * The values are passed to the Criteria API as bound parameters, so every
+ * query with the same shape renders the same SQL and reuses the same prepared
+ * statement.
+ *
+ * UPDATED: A bound plan is rendered as parameterised JPQL
+ * ({@link JpqlSpecification}), Hibernate caches the plan of a query string
+ * but not of a criteria query. Joins are left joins, as the RSQL plugin's
+ * are, so a trade without a leg or a book still matches a disjunction on
+ * another selector.
+ * </p>
+ */
+public final class RsqlPlan {
+
+    private static final RSQLParser PARSER = new RSQLParser();
+
+    private final String template;
+    private final PlanNode root;
+    private final int slotCount;
+    private final boolean joinsCollection;
+
+    private RsqlPlan(String template, PlanNode root, int slotCount, boolean joinsCollection) {
+        this.template = template;
+        this.root = root;
+        this.slotCount = slotCount;
+        this.joinsCollection = joinsCollection;
+    }
+
+    /**
+     * Parses the normalised template and resolves each selector against the
+     * {@link Trade} entity.
+     *
+     * Throws {@link RsqlPlanNotSupportedException} if the template uses a
+     * selector or operator the plan can't compile, the caller then falls back to
+     * the RSQL plugin.
+     */
+    public static RsqlPlan compile(String template) {
+        Node node = PARSER.parse(template);
+        Compiler compiler = new Compiler();
+        PlanNode root = node.accept(compiler);
+        return new RsqlPlan(template, root, compiler.slot, compiler.joinsCollection);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    PlanNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Binds the extracted arguments to the plan.
+     *
+     * @param arguments argument slots in query order
+     * @return trade specification, with its JPQL rendering
+     */
+    public JpqlSpecification bind(List<List<String>> arguments) {
+        if (arguments.size() != slotCount) {
+            throw new InvalidSearchException("Query arguments do not match the query");
+        }
+
+        JpqlContext context = new JpqlContext();
+        String where = root.toJpql(context, arguments);
+
+        Specification<Trade> criteria = (rootPath, query, criteriaBuilder) -> {
+            // Collection joins (e.g. tradeLegs) would repeat the trade for each leg
+            if (joinsCollection) {
+                query.distinct(true);
+            }
+            Map<String, From<?, ?>> joins = new HashMap<>();
+            joins.put("", rootPath);
+            return root.toPredicate(joins, criteriaBuilder, arguments);
+        };
+
+        return new JpqlSpecification(joinsCollection, context.joins.toString(), where,
+                Map.copyOf(context.parameters), criteria);
+    }
+
+    // The plan's operator for an RSQL operator, null for the RSQL plugin's own
+    // operators (=like=, =isnull=...)
+    static Operator operatorOf(ComparisonOperator operator) {
+        if (operator.equals(RSQLOperators.EQUAL)) {
+            return Operator.EQUAL;
+        } else if (operator.equals(RSQLOperators.NOT_EQUAL)) {
+            return Operator.NOT_EQUAL;
+        } else if (operator.equals(RSQLOperators.GREATER_THAN)) {
+            return Operator.GREATER_THAN;
+        } else if (operator.equals(RSQLOperators.GREATER_THAN_OR_EQUAL)) {
+            return Operator.GREATER_THAN_OR_EQUAL;
+        } else if (operator.equals(RSQLOperators.LESS_THAN)) {
+            return Operator.LESS_THAN;
+        } else if (operator.equals(RSQLOperators.LESS_THAN_OR_EQUAL)) {
+            return Operator.LESS_THAN_OR_EQUAL;
+        } else if (operator.equals(RSQLOperators.IN)) {
+            return Operator.IN;
+        } else if (operator.equals(RSQLOperators.NOT_IN)) {
+            return Operator.NOT_IN;
+        }
+        return null;
+    }
+
+    /**
+     * The value every matching trade has for the selector: an equality without
+     * wildcards that the whole query is and-ed with.
+     *
+     * @param selector  selector, e.g. book.bookName
+     * @param arguments argument slots in query order
+     * @return the value, null if the query doesn't pin the selector
+     */
+    public String requiredValue(String selector, List<List<String>> arguments) {
+        return requiredValue(root, selector, arguments);
+    }
+
+    private static String requiredValue(PlanNode node, String selector, List<List<String>> arguments) {
+        if (node instanceof LogicalPlanNode logical) {
+            if (!logical.and()) {
+                return null;
+            }
+            for (PlanNode child : logical.children()) {
+                String value = requiredValue(child, selector, arguments);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+        ComparisonPlanNode comparison = (ComparisonPlanNode) node;
+        if (comparison.operator() != Operator.EQUAL || !comparison.selector().equals(selector)) {
+            return null;
+        }
+        List<String> values = arguments.get(comparison.slot());
+        return values.size() != 1 || values.get(0).contains("*") ? null : values.get(0);
+    }
+
+    // Compiled plan nodes
+
+    interface PlanNode {
+        Predicate toPredicate(Map<String, From<?, ?>> joins, CriteriaBuilder criteriaBuilder,
+                List<List<String>> arguments);
+
+        String toJpql(JpqlContext context, List<List<String>> arguments);
+    }
+
+    // Join aliases and parameter values collected while rendering the JPQL
+    static final class JpqlContext {
+
+        private final Map<String, String> aliases = new HashMap<>();
+        private final StringBuilder joins = new StringBuilder();
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        // Reuses joins shared by other comparisons in the same query
+        private String alias(List<String> joinPath) {
+            String alias = JpqlSpecification.ROOT;
+            StringBuilder key = new StringBuilder();
+            for (String segment : joinPath) {
+                key.append('.').append(segment);
+                String parent = alias;
+                alias = aliases.computeIfAbsent(key.toString(), k -> {
+                    String join = "j" + (aliases.size() + 1);
+                    joins.append(" left join ").append(parent).append('.').append(segment).append(' ').append(join);
+                    return join;
+                });
+            }
+            return alias;
+        }
+
+        private String parameter(int slot, Object value) {
+            parameters.put("p" + slot, value);
+            return ":p" + slot;
+        }
+    }
+
+    record LogicalPlanNode(boolean and, List<PlanNode> children) implements PlanNode {
+
+        @Override
+        public Predicate toPredicate(Map<String, From<?, ?>> joins, CriteriaBuilder criteriaBuilder,
+                List<List<String>> arguments) {
+            Predicate[] predicates = children.stream()
+                    .map(child -> child.toPredicate(joins, criteriaBuilder, arguments))
+                    .toArray(Predicate[]::new);
+            return and ? criteriaBuilder.and(predicates) : criteriaBuilder.or(predicates);
+        }
+
+        @Override
+        public String toJpql(JpqlContext context, List<List<String>> arguments) {
+            return children.stream()
+                    .map(child -> child.toJpql(context, arguments))
+                    .collect(Collectors.joining(and ? " and " : " or ", "(", ")"));
+        }
+    }
+
+    enum Operator {
+        EQUAL, NOT_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL, LESS_THAN, LESS_THAN_OR_EQUAL, IN, NOT_IN
+    }
+
+    record ComparisonPlanNode(String selector, List<String> joinPath, String attribute, Class<?> type,
+            Operator operator, int slot) implements PlanNode {
+
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public Predicate toPredicate(Map<String, From<?, ?>> joins, CriteriaBuilder criteriaBuilder,
+                List<List<String>> arguments) {
+
+            Path<?> path = join(joins).get(attribute);
+            List<String> values = values(arguments);
+
+            switch (operator) {
+                case EQUAL, NOT_EQUAL -> {
+                    String value = values.get(0);
+                    Predicate predicate;
+                    // Wildcards match the RSQL plugin's behaviour, e.g. name==*Bank*
+                    if (type == String.class && value.contains("*")) {
+                        predicate = criteriaBuilder.like((Expression<String>) path, value.replace('*', '%'));
+                    } else {
+                        predicate = criteriaBuilder.equal(path, convert(value));
+                    }
+                    return operator == Operator.EQUAL ? predicate : criteriaBuilder.not(predicate);
+                }
+                case GREATER_THAN -> {
+                    return criteriaBuilder.greaterThan((Expression<Comparable>) path, comparable(values.get(0)));
+                }
+                case GREATER_THAN_OR_EQUAL -> {
+                    return criteriaBuilder.greaterThanOrEqualTo((Expression<Comparable>) path,
+                            comparable(values.get(0)));
+                }
+                case LESS_THAN -> {
+                    return criteriaBuilder.lessThan((Expression<Comparable>) path, comparable(values.get(0)));
+                }
+                case LESS_THAN_OR_EQUAL -> {
+                    return criteriaBuilder.lessThanOrEqualTo((Expression<Comparable>) path,
+                            comparable(values.get(0)));
+                }
+                case IN, NOT_IN -> {
+                    Predicate predicate = path.in(convertAll(values));
+                    return operator == Operator.IN ? predicate : criteriaBuilder.not(predicate);
+                }
+                default -> throw new IllegalStateException("Unknown operator " + operator);
+            }
+        }
+
+        @Override
+        public String toJpql(JpqlContext context, List<List<String>> arguments) {
+
+            String path = context.alias(joinPath) + "." + attribute;
+            List<String> values = values(arguments);
+
+            switch (operator) {
+                case EQUAL, NOT_EQUAL -> {
+                    String value = values.get(0);
+                    String comparison;
+                    if (type == String.class && value.contains("*")) {
+                        comparison = path + " like " + context.parameter(slot, value.replace('*', '%'));
+                    } else {
+                        comparison = path + " = " + context.parameter(slot, convert(value));
+                    }
+                    return operator == Operator.EQUAL ? comparison : "not (" + comparison + ")";
+                }
+                case GREATER_THAN -> {
+                    return path + " > " + context.parameter(slot, comparable(values.get(0)));
+                }
+                case GREATER_THAN_OR_EQUAL -> {
+                    return path + " >= " + context.parameter(slot, comparable(values.get(0)));
+                }
+                case LESS_THAN -> {
+                    return path + " < " + context.parameter(slot, comparable(values.get(0)));
+                }
+                case LESS_THAN_OR_EQUAL -> {
+                    return path + " <= " + context.parameter(slot, comparable(values.get(0)));
+                }
+                case IN, NOT_IN -> {
+                    String comparison = path + " in (" + context.parameter(slot, convertAll(values)) + ")";
+                    return operator == Operator.IN ? comparison : "not (" + comparison + ")";
+                }
+                default -> throw new IllegalStateException("Unknown operator " + operator);
+            }
+        }
+
+        private List<String> values(List<List<String>> arguments) {
+            List<String> values = arguments.get(slot);
+            if (operator != Operator.IN && operator != Operator.NOT_IN && values.size() != 1) {
+                throw new InvalidSearchException("Selector " + selector + " expects a single value");
+            }
+            return values;
+        }
+
+        // Reuses joins shared by other comparisons in the same query, left
+        // joins so a missing association doesn't drop the trade
+        private From<?, ?> join(Map<String, From<?, ?>> joins) {
+            From<?, ?> from = joins.get("");
+            StringBuilder key = new StringBuilder();
+            for (String segment : joinPath) {
+                key.append('.').append(segment);
+                From<?, ?> parent = from;
+                from = joins.computeIfAbsent(key.toString(), k -> parent.join(segment, JoinType.LEFT));
+            }
+            return from;
+        }
+
+        private List<Object> convertAll(List<String> values) {
+            List<Object> converted = new ArrayList<>(values.size());
+            values.forEach(value -> converted.add(convert(value)));
+            return converted;
+        }
+
+        @SuppressWarnings("rawtypes")
+        private Comparable comparable(String value) {
+            Object converted = convert(value);
+            if (!(converted instanceof Comparable)) {
+                throw new InvalidSearchException("Selector " + selector + " can't be compared");
+            }
+            return (Comparable) converted;
+        }
+
+        private Object convert(String value) {
+            try {
+                if (type == String.class) {
+                    return value;
+                } else if (type == Long.class || type == long.class) {
+                    return Long.valueOf(value);
+                } else if (type == Integer.class || type == int.class) {
+                    return Integer.valueOf(value);
+                } else if (type == Double.class || type == double.class) {
+                    return Double.valueOf(value);
+                } else if (type == BigDecimal.class) {
+                    return new BigDecimal(value);
+                } else if (type == Boolean.class || type == boolean.class) {
+                    return Boolean.valueOf(value);
+                } else if (type == LocalDate.class) {
+                    return LocalDate.parse(value);
+                } else if (type == LocalDateTime.class) {
+                    return LocalDateTime.parse(value);
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new InvalidSearchException("Invalid value '" + value + "' for " + selector);
+            }
+            throw new InvalidSearchException("Unsupported selector type for " + selector);
+        }
+    }
+
+    // Walks the parsed template, resolving each selector and numbering the slots
+    private static final class Compiler extends NoArgRSQLVisitorAdapter<PlanNode> {
+
+        private int slot = 0;
+        private boolean joinsCollection = false;
+
+        @Override
+        public PlanNode visit(AndNode node) {
+            return new LogicalPlanNode(true, children(node));
+        }
+
+        @Override
+        public PlanNode visit(OrNode node) {
+            return new LogicalPlanNode(false, children(node));
+        }
+
+        private List<PlanNode> children(LogicalNode node) {
+            List<PlanNode> children = new ArrayList<>();
+            for (Node child : node.getChildren()) {
+                children.add(child.accept(this));
+            }
+            return children;
+        }
+
+        @Override
+        public PlanNode visit(ComparisonNode node) {
+            Operator operator = operator(node);
+            String selector = node.getSelector();
+            String[] segments = selector.split("\\.");
+
+            Class<?> type = Trade.class;
+            List<String> joinPath = new ArrayList<>();
+            for (int i = 0; i < segments.length; i++) {
+                Field field = findField(type, segments[i]);
+                if (field == null) {
+                    throw new RsqlPlanNotSupportedException("Unknown selector " + selector);
+                }
+                boolean last = i == segments.length - 1;
+                if (Collection.class.isAssignableFrom(field.getType())) {
+                    if (last) {
+                        throw new RsqlPlanNotSupportedException("Collection selector " + selector);
+                    }
+                    type = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+                    joinsCollection = true;
+                } else {
+                    type = field.getType();
+                }
+                if (!last) {
+                    joinPath.add(segments[i]);
+                }
+            }
+            if (type.getPackage() != null && type.getPackage().equals(Trade.class.getPackage())) {
+                throw new RsqlPlanNotSupportedException("Entity selector " + selector);
+            }
+            return new ComparisonPlanNode(selector, List.copyOf(joinPath), segments[segments.length - 1], type,
+                    operator, slot++);
+        }
+
+        private static Operator operator(ComparisonNode node) {
+            Operator operator = operatorOf(node.getOperator());
+            if (operator == null) {
+                throw new RsqlPlanNotSupportedException("Unsupported operator " + node.getOperator());
+            }
+            return operator;
+        }
+
+        private static Field findField(Class<?> type, String name) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (field.getName().equals(name)) {
+                        return field;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+}
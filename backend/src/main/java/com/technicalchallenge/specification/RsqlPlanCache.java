@@ -0,0 +1,155 @@
+package com.technicalchallenge.specification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import com.technicalchallenge.exceptions.RsqlPlanNotSupportedException;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.specification.RsqlQueryNormaliser.NormalisedQuery;
+
+import cz.jirutka.rsql.parser.RSQLParserException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * RSQL Plan Cache
+ *
+ * <p>
+ * Bounded LRU cache of compiled {@link RsqlPlan}s, keyed by the normalised
+ * query template so repeat queries skip parsing and selector resolution.
+ *
+ * Queries the plan can't compile (plugin-only operators such as =like=, or
+ * syntax errors) are remembered and handed to the RSQL plugin so they keep
+ * the plugin's behaviour.
+ *
+ * Metrics: trade.search.rsql.plan.cache (result=hit|miss),
+ * trade.search.rsql.plan.cache.size and trade.search.rsql.plan.cache.hit.ratio
+ * </p>
+ */
+@Component
+public class RsqlPlanCache {
+    private static final Logger logger = LoggerFactory.getLogger(RsqlPlanCache.class);
+
+    // Marks templates that have to go through the RSQL plugin
+    private static final CachedPlan FALLBACK = new CachedPlan(null);
+
+    private final Map<String, CachedPlan> plans;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public RsqlPlanCache(MeterRegistry meterRegistry,
+            @Value("${trade.search.rsql.plan-cache.max-size:256}") int maxSize) {
+
+        // Access ordered LinkedHashMap evicts the least recently used template
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        this.hitCounter = Counter.builder("trade.search.rsql.plan.cache").tag("result", "hit")
+                .description("RSQL plan cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("trade.search.rsql.plan.cache").tag("result", "miss")
+                .description("RSQL plan cache lookups").register(meterRegistry);
+        Gauge.builder("trade.search.rsql.plan.cache.size", this, RsqlPlanCache::size)
+                .description("Cached RSQL plans").register(meterRegistry);
+        Gauge.builder("trade.search.rsql.plan.cache.hit.ratio", this, RsqlPlanCache::hitRatio)
+                .description("RSQL plan cache hit ratio").register(meterRegistry);
+    }
+
+    /**
+     * Returns the trade specification for the query, compiling and caching its
+     * plan on the first request for that query shape.
+     *
+     * @param query RSQL query
+     * @return trade specification
+     */
+    public Specification<Trade> toSpecification(String query) {
+        return lookup(query).toSpecification();
+    }
+
+    /**
+     * Looks up the compiled plan for the query shape and binds the query's
+     * arguments, the plan is null if the query needs the RSQL plugin.
+     *
+     * @param query RSQL query
+     * @return plan and arguments
+     */
+    public RsqlQuery lookup(String query) {
+
+        NormalisedQuery normalised = RsqlQueryNormaliser.normalise(query);
+
+        // Queries the scanner can't read are left to the plugin
+        if (normalised == null) {
+            return RsqlQuery.fallback(query);
+        }
+
+        CachedPlan cached;
+        synchronized (plans) {
+            cached = plans.get(normalised.template());
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            hitCounter.increment();
+        } else {
+            misses.incrementAndGet();
+            missCounter.increment();
+            cached = compile(normalised);
+            synchronized (plans) {
+                plans.putIfAbsent(normalised.template(), cached);
+            }
+        }
+
+        if (cached.plan() == null || cached.plan().getSlotCount() != normalised.arguments().size()) {
+            return RsqlQuery.fallback(query);
+        }
+
+        return new RsqlQuery(query, cached.plan(), normalised.arguments());
+    }
+
+    private CachedPlan compile(NormalisedQuery normalised) {
+        try {
+            RsqlPlan plan = RsqlPlan.compile(normalised.template());
+            logger.debug("Compiled rsql plan: {}", normalised.template());
+            return new CachedPlan(plan);
+        } catch (RSQLParserException | RsqlPlanNotSupportedException e) {
+            logger.debug("Rsql plan falls back to the plugin: {} ({})", normalised.template(), e.getMessage());
+            return FALLBACK;
+        }
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private record CachedPlan(RsqlPlan plan) {
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.technicalchallenge.specification;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.technicalchallenge.model.Trade;
+
+import io.github.perplexhub.rsql.RSQLJPASupport;
+
+/**
+ * RSQL Query
+ *
+ * <p>
+ * A query looked up in the {@link RsqlPlanCache}: its compiled plan and the
+ * arguments pulled out of the query string. The plan is null when the query
+ * has to go through the RSQL plugin.
+ * </p>
+ */
+public record RsqlQuery(String query, RsqlPlan plan, List<List<String>> arguments) {
+
+    public static RsqlQuery fallback(String query) {
+        return new RsqlQuery(query, null, List.of());
+    }
+
+    public boolean isCompiled() {
+        return plan != null;
+    }
+
+    /**
+     * The value every match has for the selector, see
+     * {@link RsqlPlan#requiredValue}.
+     *
+     * @param selector selector, e.g. book.bookName
+     * @return the value, null if the query doesn't pin it or isn't compiled
+     */
+    public String requiredValue(String selector) {
+        return isCompiled() ? plan.requiredValue(selector, arguments) : null;
+    }
+
+    public Specification<Trade> toSpecification() {
+        return isCompiled() ? plan.bind(arguments) : RSQLJPASupport.toSpecification(query);
+    }
+
+}
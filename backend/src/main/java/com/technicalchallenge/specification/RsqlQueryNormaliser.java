@@ -0,0 +1,216 @@
+package com.technicalchallenge.specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RSQL Query Normaliser
+ *
+ * <p>
+ * Pulls the argument values out of an RSQL query without running the full
+ * parser, so queries with the same shape share one cache key.
+ *
+ * For example {@code counterparty.name==BigBank;tradeDate=ge=2025-01-01} and
+ * {@code counterparty.name == MegaFund and tradeDate=ge=2024-06-01} both
+ * normalise to {@code counterparty.name==?;tradeDate=ge=?}.
+ *
+ * Multi-value arguments, such as {@code =in=(NEW,LIVE)}, become a single
+ * {@code (?)} slot holding the whole list.
+ * </p>
+ */
+public final class RsqlQueryNormaliser {
+
+    // Placeholder used in the normalised template for a single argument slot
+    static final String PLACEHOLDER = "?";
+
+    private RsqlQueryNormaliser() {
+    }
+
+    /**
+     * Normalised query: the template key and the extracted argument slots in the
+     * order they appear in the query.
+     */
+    public record NormalisedQuery(String template, List<List<String>> arguments) {
+    }
+
+    /**
+     * Normalises the query, returns null if the query can't be scanned (the
+     * caller falls back to the plugin's own parser and error handling).
+     */
+    public static NormalisedQuery normalise(String query) {
+        try {
+            return new Scanner(query).scan();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Single pass scanner following the rsql-parser grammar
+    private static final class Scanner {
+
+        private final String input;
+        private final StringBuilder template = new StringBuilder();
+        private final List<List<String>> arguments = new ArrayList<>();
+        private int position = 0;
+
+        Scanner(String input) {
+            this.input = input;
+        }
+
+        NormalisedQuery scan() {
+            scanExpression();
+            skipWhitespace();
+            if (position != input.length()) {
+                throw new IllegalArgumentException("Unexpected character at " + position);
+            }
+            return new NormalisedQuery(template.toString(), arguments);
+        }
+
+        // expression = comparison | "(" expression ")" { logical expression }
+        private void scanExpression() {
+            scanOperand();
+            while (true) {
+                skipWhitespace();
+                if (peek(';') || peek(',')) {
+                    template.append(input.charAt(position++));
+                } else if (peekKeyword("and")) {
+                    template.append(';');
+                    position += 3;
+                } else if (peekKeyword("or")) {
+                    template.append(',');
+                    position += 2;
+                } else {
+                    return;
+                }
+                scanOperand();
+            }
+        }
+
+        private void scanOperand() {
+            skipWhitespace();
+            if (peek('(')) {
+                template.append('(');
+                position++;
+                scanExpression();
+                skipWhitespace();
+                expect(')');
+                template.append(')');
+            } else {
+                scanComparison();
+            }
+        }
+
+        // comparison = selector operator arguments
+        private void scanComparison() {
+            int start = position;
+            while (position < input.length() && isUnreserved(input.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("Missing selector at " + position);
+            }
+            template.append(input, start, position);
+
+            skipWhitespace();
+            template.append(scanOperator());
+            skipWhitespace();
+
+            if (peek('(')) {
+                position++;
+                List<String> values = new ArrayList<>();
+                values.add(scanValue());
+                skipWhitespace();
+                while (peek(',')) {
+                    position++;
+                    values.add(scanValue());
+                    skipWhitespace();
+                }
+                expect(')');
+                arguments.add(values);
+                template.append('(').append(PLACEHOLDER).append(')');
+            } else {
+                arguments.add(List.of(scanValue()));
+                template.append(PLACEHOLDER);
+            }
+        }
+
+        // FIQL operators (==, !=, =gt=, =in=, ...) and the alternative <, <=, >, >=
+        private String scanOperator() {
+            int start = position;
+            if (peek('<') || peek('>')) {
+                position++;
+                if (peek('=')) {
+                    position++;
+                }
+            } else if (peek('!')) {
+                position++;
+                expect('=');
+            } else if (peek('=')) {
+                position++;
+                while (position < input.length() && Character.isLetter(input.charAt(position))) {
+                    position++;
+                }
+                expect('=');
+            } else {
+                throw new IllegalArgumentException("Missing operator at " + position);
+            }
+            return input.substring(start, position);
+        }
+
+        // value = unreserved-str | double-quoted | single-quoted
+        private String scanValue() {
+            skipWhitespace();
+            if (peek('"') || peek('\'')) {
+                char quote = input.charAt(position++);
+                StringBuilder value = new StringBuilder();
+                while (position < input.length() && input.charAt(position) != quote) {
+                    char c = input.charAt(position++);
+                    if (c == '\\' && position < input.length()) {
+                        c = input.charAt(position++);
+                    }
+                    value.append(c);
+                }
+                expect(quote);
+                return value.toString();
+            }
+            int start = position;
+            while (position < input.length() && isUnreserved(input.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("Missing argument at " + position);
+            }
+            return input.substring(start, position);
+        }
+
+        private boolean peek(char c) {
+            return position < input.length() && input.charAt(position) == c;
+        }
+
+        // Keywords must be surrounded by whitespace, e.g. "a==1 and b==2"
+        private boolean peekKeyword(String keyword) {
+            int end = position + keyword.length();
+            return position > 0 && Character.isWhitespace(input.charAt(position - 1))
+                    && input.regionMatches(position, keyword, 0, keyword.length())
+                    && end < input.length() && Character.isWhitespace(input.charAt(end));
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + position);
+            }
+            position++;
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private static boolean isUnreserved(char c) {
+            return !Character.isWhitespace(c) && "\"'();,=!~<>".indexOf(c) < 0;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.technicalchallenge.specification;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Sort;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Trade Sort Column
+ *
+ * <p>
+ * The columns the filtered search can sort by. Each one is backed by a
+ * composite index ending in the id tie-breaker (db/migration V3), so a sorted
+ * page reads the first rows of the index instead of sorting the whole table.
+ *
+ * Any other sortBy is rejected with a 400 before the query runs.
+ * </p>
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TradeSortColumn {
+
+    ID("id", "id"),
+    TRADE_ID("tradeId", "trade_id"),
+    UTI_CODE("utiCode", "uti_code"),
+    TRADE_DATE("tradeDate", "trade_date"),
+    TRADE_EXECUTION_DATE("tradeExecutionDate", "trade_execution_date"),
+    TRADE_MATURITY_DATE("tradeMaturityDate", "trade_maturity_date");
+
+    // Used when sortBy isn't provided
+    public static final TradeSortColumn DEFAULT = TRADE_ID;
+
+    private final String property;
+    private final String column;
+
+    /**
+     * Finds the sortable column for the sortBy property, blank defaults to
+     * tradeId.
+     *
+     * @param sortBy client supplied property
+     * @return sortable column, empty if the property can't be sorted
+     */
+    public static Optional<TradeSortColumn> of(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return Optional.of(DEFAULT);
+        }
+        return Arrays.stream(values()).filter(column -> column.property.equals(sortBy)).findFirst();
+    }
+
+    public static String properties() {
+        return Arrays.stream(values()).map(TradeSortColumn::getProperty).collect(Collectors.joining(", "));
+    }
+
+    // The id tie-breaker keeps pages stable when values repeat
+    public Sort sort(Sort.Direction direction) {
+        Sort sort = Sort.by(direction, property);
+        return this == ID ? sort : sort.and(Sort.by(direction, ID.property));
+    }
+
+}
@@ -2,8 +2,13 @@ package com.technicalchallenge.validation;
 
 import org.springframework.stereotype.Component;
 
+import com.technicalchallenge.dto.PaginationDTO;
 import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.SortDTO;
 import com.technicalchallenge.exceptions.InvalidSearchException;
+import com.technicalchallenge.specification.RsqlCostEstimator.RsqlQueryCost;
+import com.technicalchallenge.specification.RsqlCostEstimator.Verdict;
+import com.technicalchallenge.specification.TradeSortColumn;
 
 /**
  * Search Validator
@@ -43,4 +48,56 @@ public class TradeSearchValidator {
 
     }
 
+    /**
+     * 
+     * 3. Validation for RSQL query cost and pages
+     * 
+     */
+    public void validateRSQLCost(RsqlQueryCost cost) {
+        // Rejected queries walk too many joins without a selective index
+        if (cost.verdict() == Verdict.REJECT) {
+            throw new InvalidSearchException(cost.reason());
+        }
+    }
+
+    public void validateRSQLPage(PaginationDTO pagination, int maxRows) {
+        validatePage(pagination);
+        if (pagination.pageSize() > maxRows) {
+            throw new InvalidSearchException("Page size cannot be more than " + maxRows);
+        }
+    }
+
+    /**
+     * 
+     * 4. Validation for Sorting
+     * 
+     */
+    public void validateSort(SortDTO sortFields) {
+        // Validate sortBy - only the indexed sortable columns are allowed
+        if (TradeSortColumn.of(sortFields.sortBy()).isEmpty()) {
+            throw new InvalidSearchException("Cannot sort by " + sortFields.sortBy() + ", sortable columns are: "
+                    + TradeSortColumn.properties());
+        }
+        // Validate sortDir - if provided it must be ASC or DESC
+        if (sortFields.sortDir() != null && !sortFields.sortDir().equalsIgnoreCase("ASC")
+                && !sortFields.sortDir().equalsIgnoreCase("DESC")) {
+            throw new InvalidSearchException("Sort direction must be ASC or DESC");
+        }
+    }
+
+    /**
+     * 
+     * 5. Validation for Pages
+     * 
+     */
+    public void validatePage(PaginationDTO pagination) {
+        // Validate page - both page number and size are needed and must be positive
+        if (pagination == null || pagination.pageNo() == null || pagination.pageSize() == null) {
+            throw new InvalidSearchException("Page number and page size must both be provided");
+        }
+        if (pagination.pageNo() < 1 || pagination.pageSize() < 1) {
+            throw new InvalidSearchException("Page number and page size must be greater than 0");
+        }
+    }
+
 }
@@ -0,0 +1,91 @@
+package db.migration;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import com.technicalchallenge.calculations.LogHistogram;
+
+/**
+ * Backfills distribution_bucket (V9) from the live trade legs already stored.
+ *
+ * <p>
+ * Written in Java so every leg is bucketed by LogHistogram.bucketOf, the
+ * same as a trade write. The database's LN doesn't round the same as
+ * Math.log, a value on a bucket boundary could be counted in the bucket next
+ * to the one its trade writes take it out of. The legs are read once and
+ * counted in memory, there are at most 12 003 buckets per book or trader
+ * and metric.
+ * </p>
+ */
+public class V9_1__Backfill_distribution_buckets extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private record Key(String scopeLevel, long scopeId, String metric, int bucket) {
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+
+        Connection connection = context.getConnection();
+        Map<Key, Long> counts = new HashMap<>();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(BATCH_SIZE);
+            try (ResultSet legs = statement.executeQuery("SELECT t.book_id, t.trader_user_id, l.notional, l.rate"
+                    + " FROM trade t JOIN trade_leg l ON l.trade_id = t.id WHERE t.active = TRUE")) {
+                while (legs.next()) {
+                    Long bookId = legs.getObject(1, Long.class);
+                    Long traderUserId = legs.getObject(2, Long.class);
+                    BigDecimal notional = legs.getBigDecimal(3);
+                    Double rate = legs.getObject(4, Double.class);
+
+                    if (notional != null) {
+                        int bucket = LogHistogram.bucketOf(notional.doubleValue());
+                        count(counts, "BOOK", bookId, "NOTIONAL", bucket);
+                        count(counts, "TRADER", traderUserId, "NOTIONAL", bucket);
+                    }
+                    if (rate != null) {
+                        int bucket = LogHistogram.bucketOf(rate);
+                        count(counts, "BOOK", bookId, "RATE", bucket);
+                        count(counts, "TRADER", traderUserId, "RATE", bucket);
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO distribution_bucket"
+                + " (scope_level, scope_id, metric, bucket, leg_count) VALUES (?, ?, ?, ?, ?)")) {
+            int batched = 0;
+            for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+                Key key = entry.getKey();
+                insert.setString(1, key.scopeLevel());
+                insert.setLong(2, key.scopeId());
+                insert.setString(3, key.metric());
+                insert.setInt(4, key.bucket());
+                insert.setLong(5, entry.getValue());
+                insert.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void count(Map<Key, Long> counts, String scopeLevel, Long scopeId, String metric, int bucket) {
+        if (scopeId != null) {
+            counts.merge(new Key(scopeLevel, scopeId, metric, bucket), 1L, Long::sum);
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+-- Per trader totals behind the personal blotter header and page count, and
+-- the index its pages are read from
+
+-- trade_count is live (active) trade rows, one for each trade, the notional
+-- is over their legs
+CREATE TABLE trader_blotter_summary (
+    trader_login_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    trade_count BIGINT NOT NULL,
+    total_notional NUMERIC(38, 2) NOT NULL
+);
+
+-- Backfill from the trades already stored
+INSERT INTO trader_blotter_summary (trader_login_id, trade_count, total_notional)
+SELECT u.login_id, COUNT(DISTINCT t.id), COALESCE(SUM(l.notional), 0)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+LEFT JOIN trade_leg l ON l.trade_id = t.id
+WHERE t.active = TRUE
+GROUP BY u.login_id;
+
+-- The personal blotter's pages in their order (trade type, trade id) with
+-- the trade's own columns of the page after them, so a page is read from the
+-- index without visiting the trade rows. Replaces the trader's index, which
+-- is a prefix of it.
+DROP INDEX idx_trade_trader_user_id_active;
+CREATE INDEX idx_trade_trader_blotter ON trade (trader_user_id, active, trade_type_id, trade_id, trade_date,
+    trade_execution_date, uti_code, trade_status_id, book_id, counterparty_id, version);
@@ -0,0 +1,24 @@
+-- End of day dashboard figures of every trader and book, as compact time
+-- series written by the snapshot job (DashboardSnapshotService)
+
+-- One row per figure and calendar year. scope_level is TRADER or BOOK,
+-- scope_key the trader's login id or the book id. metric is TRADE_COUNT,
+-- NOTIONAL or CURRENCY, metric_key the currency for CURRENCY and empty
+-- otherwise. Notionals are in hundredths.
+--
+-- points holds the year's daily points delta encoded (DeltaEncodedSeries)
+-- from first_date, last_date and last_value are its last point so the next
+-- is appended without decoding it.
+CREATE TABLE dashboard_series (
+    scope_level VARCHAR(16) NOT NULL,
+    scope_key VARCHAR(255) NOT NULL,
+    metric VARCHAR(16) NOT NULL,
+    metric_key VARCHAR(16) NOT NULL,
+    series_year INTEGER NOT NULL,
+    first_date DATE NOT NULL,
+    last_date DATE NOT NULL,
+    last_value BIGINT NOT NULL,
+    point_count INTEGER NOT NULL,
+    points BYTEA NOT NULL,
+    PRIMARY KEY (scope_level, scope_key, metric, metric_key, series_year)
+);
@@ -0,0 +1,38 @@
+-- Leg notional of the live trades with every counterparty, in every book and
+-- of every trader, kept up to date by every trade write so the largest
+-- exposures are read from the top of an index
+
+-- scope_level is BOOK or TRADER, scope_id the book id or trader's user id.
+-- leg_count and total_notional are over the live (active) trade legs with
+-- the counterparty, cancelled trades have no exposure
+CREATE TABLE counterparty_exposure (
+    scope_level VARCHAR(16) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    counterparty_id BIGINT NOT NULL,
+    counterparty_name VARCHAR(255),
+    leg_count BIGINT NOT NULL,
+    total_notional NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (scope_level, scope_id, counterparty_id)
+);
+
+-- Backfill from the trades already stored
+INSERT INTO counterparty_exposure (scope_level, scope_id, counterparty_id, counterparty_name, leg_count, total_notional)
+SELECT 'BOOK', t.book_id, c.id, c.name, COUNT(l.leg_id), COALESCE(SUM(l.notional), 0)
+FROM trade t
+JOIN counterparty c ON c.id = t.counterparty_id
+JOIN trade_leg l ON l.trade_id = t.id
+LEFT JOIN trade_status s ON s.id = t.trade_status_id
+WHERE t.active = TRUE AND t.book_id IS NOT NULL AND (s.trade_status IS NULL OR s.trade_status <> 'CANCELLED')
+GROUP BY t.book_id, c.id, c.name
+UNION ALL
+SELECT 'TRADER', t.trader_user_id, c.id, c.name, COUNT(l.leg_id), COALESCE(SUM(l.notional), 0)
+FROM trade t
+JOIN counterparty c ON c.id = t.counterparty_id
+JOIN trade_leg l ON l.trade_id = t.id
+LEFT JOIN trade_status s ON s.id = t.trade_status_id
+WHERE t.active = TRUE AND t.trader_user_id IS NOT NULL AND (s.trade_status IS NULL OR s.trade_status <> 'CANCELLED')
+GROUP BY t.trader_user_id, c.id, c.name;
+
+-- A scope's counterparties largest first, the top N is the first N entries
+CREATE INDEX idx_counterparty_exposure_top ON counterparty_exposure (scope_level, scope_id, total_notional DESC,
+    counterparty_id);
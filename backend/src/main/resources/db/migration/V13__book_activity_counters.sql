@@ -0,0 +1,32 @@
+-- Per book, per trader activity counters behind the book level activity
+-- dashboard, kept up to date by every trade write and split by the book's
+-- version when the trade was written
+
+-- trade_count is the live (active) trade rows the trader gained in the book
+-- while it was at the version, total_notional the change to their legs'
+-- notional, so an amendment nets to no trades. Added up over the versions
+-- they're the trader's live trades in the book. last_activity_at is the last
+-- trade write in the book at that version.
+CREATE TABLE book_activity_counter (
+    book_id BIGINT NOT NULL,
+    trader_login_id VARCHAR(255) NOT NULL,
+    book_version INTEGER NOT NULL,
+    trade_count BIGINT NOT NULL,
+    total_notional NUMERIC(38, 2) NOT NULL,
+    last_activity_at TIMESTAMP(6),
+    PRIMARY KEY (book_id, trader_login_id, book_version)
+);
+
+-- Backfill from the live trades already stored. The book's version when each trade
+-- was written isn't stored, so the trades already stored are under the book's
+-- version now. The same statement rebuilds the counters
+-- (BookActivityCounterRepository.rebuildCounters)
+INSERT INTO book_activity_counter (book_id, trader_login_id, book_version, trade_count, total_notional, last_activity_at)
+SELECT t.book_id, u.login_id, b.version, COUNT(DISTINCT t.id), COALESCE(SUM(l.notional), 0),
+       MAX(COALESCE(t.last_touch_timestamp, t.created_date))
+FROM trade t
+JOIN book b ON b.id = t.book_id
+JOIN application_user u ON u.id = t.trader_user_id
+LEFT JOIN trade_leg l ON l.trade_id = t.id
+WHERE t.active = TRUE
+GROUP BY t.book_id, u.login_id, b.version;
@@ -0,0 +1,15 @@
+-- Privilege to run the actuator endpoints' write operations (the rebuilds of
+-- the trade write aggregates), granted to admins and superusers
+
+-- Left be where the test data inserted it first
+INSERT INTO privilege (id, name)
+SELECT 1012, 'WRITE_ACTUATOR'
+WHERE NOT EXISTS (SELECT 1 FROM privilege WHERE name = 'WRITE_ACTUATOR');
+
+-- Granted by profile, the profiles are only there once the seed data is
+-- (test data grants it itself)
+INSERT INTO user_privilege (userprofile_id, privilege_id)
+SELECT up.id, p.id
+FROM user_profile up, privilege p
+WHERE up.user_type IN ('ADMIN', 'SUPERUSER') AND p.name = 'WRITE_ACTUATOR'
+  AND NOT EXISTS (SELECT 1 FROM user_privilege g WHERE g.userprofile_id = up.id AND g.privilege_id = p.id);
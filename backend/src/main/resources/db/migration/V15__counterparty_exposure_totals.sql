@@ -0,0 +1,11 @@
+-- Every book's and trader's total over its counterparties, the row with
+-- counterparty_id 0, kept up to date by the same trade writes as the
+-- counterparties so the concentration shares are of a total that leaves
+-- cancelled trades out too
+
+-- Backfill from the exposures already stored
+INSERT INTO counterparty_exposure (scope_level, scope_id, counterparty_id, counterparty_name, leg_count, total_notional)
+SELECT scope_level, scope_id, 0, NULL, SUM(leg_count), SUM(total_notional)
+FROM counterparty_exposure
+WHERE counterparty_id <> 0
+GROUP BY scope_level, scope_id;
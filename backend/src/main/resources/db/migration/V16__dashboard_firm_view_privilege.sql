@@ -0,0 +1,16 @@
+-- Privilege to read the firm-wide dashboard figures (the desk hierarchy and
+-- any book's distribution, history and counterparties), granted to
+-- superusers. DASHBOARD_VIEW only reads the trader's own figures
+
+-- Left be where the test data inserted it first
+INSERT INTO privilege (id, name)
+SELECT 1013, 'DASHBOARD_FIRM_VIEW'
+WHERE NOT EXISTS (SELECT 1 FROM privilege WHERE name = 'DASHBOARD_FIRM_VIEW');
+
+-- Granted by profile, the profiles are only there once the seed data is
+-- (test data grants it itself)
+INSERT INTO user_privilege (userprofile_id, privilege_id)
+SELECT up.id, p.id
+FROM user_profile up, privilege p
+WHERE up.user_type = 'SUPERUSER' AND p.name = 'DASHBOARD_FIRM_VIEW'
+  AND NOT EXISTS (SELECT 1 FROM user_privilege g WHERE g.userprofile_id = up.id AND g.privilege_id = p.id);
@@ -0,0 +1,193 @@
+-- Baseline schema, matches the JPA entity mappings (validated on startup)
+
+-- Desk hierarchy
+CREATE TABLE desk (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    desk_name VARCHAR(255)
+);
+
+CREATE TABLE sub_desk (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    subdesk_name VARCHAR(255),
+    desk_id BIGINT REFERENCES desk (id)
+);
+
+CREATE TABLE cost_center (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cost_center_name VARCHAR(255),
+    subdesk_id BIGINT REFERENCES sub_desk (id)
+);
+
+CREATE TABLE book (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_name VARCHAR(255),
+    active BOOLEAN NOT NULL,
+    version INTEGER NOT NULL,
+    cost_center_id BIGINT REFERENCES cost_center (id)
+);
+
+-- Reference data
+CREATE TABLE business_day_convention (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    bdc VARCHAR(255)
+);
+
+CREATE TABLE counterparty (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    address VARCHAR(255),
+    phone_number VARCHAR(255),
+    internal_code BIGINT,
+    created_date DATE,
+    last_modified_date DATE,
+    active BOOLEAN NOT NULL
+);
+
+CREATE TABLE currency (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    currency VARCHAR(255)
+);
+
+CREATE TABLE holiday_calendar (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    holiday_calendar VARCHAR(255)
+);
+
+CREATE TABLE index_table (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    index VARCHAR(255)
+);
+
+CREATE TABLE leg_type (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR(255)
+);
+
+CREATE TABLE pay_rec (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pay_rec VARCHAR(255)
+);
+
+CREATE TABLE schedule (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    schedule VARCHAR(255)
+);
+
+CREATE TABLE trade_status (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    trade_status VARCHAR(255)
+);
+
+CREATE TABLE trade_sub_type (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    trade_sub_type VARCHAR(255)
+);
+
+CREATE TABLE trade_type (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    trade_type VARCHAR(255)
+);
+
+-- Users and privileges
+CREATE TABLE user_profile (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_type VARCHAR(255)
+);
+
+CREATE TABLE privilege (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255)
+);
+
+CREATE TABLE user_privilege (
+    privilege_id BIGINT NOT NULL REFERENCES privilege (id),
+    userprofile_id BIGINT NOT NULL REFERENCES user_profile (id),
+    PRIMARY KEY (privilege_id, userprofile_id)
+);
+
+CREATE TABLE application_user (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    login_id VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255),
+    active BOOLEAN NOT NULL,
+    user_profile_id BIGINT REFERENCES user_profile (id),
+    version INTEGER NOT NULL,
+    last_modified_timestamp TIMESTAMP(6)
+);
+
+-- Trades
+CREATE TABLE trade (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    trade_id BIGINT,
+    version INTEGER,
+    book_id BIGINT REFERENCES book (id),
+    counterparty_id BIGINT REFERENCES counterparty (id),
+    trader_user_id BIGINT REFERENCES application_user (id),
+    inputter_user_id BIGINT REFERENCES application_user (id),
+    trade_type_id BIGINT REFERENCES trade_type (id),
+    trade_sub_type_id BIGINT REFERENCES trade_sub_type (id),
+    trade_status_id BIGINT REFERENCES trade_status (id),
+    uti_code VARCHAR(255),
+    trade_date DATE,
+    trade_start_date DATE,
+    trade_maturity_date DATE,
+    trade_execution_date DATE,
+    additional_fields_id BIGINT,
+    last_touch_timestamp TIMESTAMP(6),
+    validity_start_date DATE,
+    validity_end_date DATE,
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    deactivated_date TIMESTAMP(6)
+);
+
+CREATE TABLE trade_leg (
+    leg_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    notional NUMERIC(38, 2),
+    rate FLOAT(53),
+    trade_id BIGINT REFERENCES trade (id),
+    currency_id BIGINT REFERENCES currency (id),
+    leg_rate_type_id BIGINT REFERENCES leg_type (id),
+    index_id BIGINT REFERENCES index_table (id),
+    holiday_calendar_id BIGINT REFERENCES holiday_calendar (id),
+    calculation_period_schedule_id BIGINT REFERENCES schedule (id),
+    payment_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    fixing_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    pay_rec_id BIGINT REFERENCES pay_rec (id),
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    deactivated_date TIMESTAMP(6)
+);
+
+CREATE TABLE cashflow (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    payment_value NUMERIC(38, 2),
+    value_date DATE,
+    rate FLOAT(53),
+    leg_id BIGINT REFERENCES trade_leg (leg_id),
+    pay_rec_id BIGINT REFERENCES pay_rec (id),
+    payment_type_id BIGINT REFERENCES leg_type (id),
+    payment_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    validity_start_date DATE,
+    validity_end_date DATE
+);
+
+-- field_value is mapped as TEXT, unbounded VARCHAR keeps the VARCHAR type
+-- Hibernate validates against (H2 turns TEXT into a CLOB)
+CREATE TABLE additional_info (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type VARCHAR(255) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    field_name VARCHAR(255) NOT NULL,
+    field_value VARCHAR,
+    field_type VARCHAR(255) NOT NULL,
+    active BOOLEAN NOT NULL,
+    created_date TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    deactivated_date TIMESTAMP(6),
+    version INTEGER NOT NULL
+);
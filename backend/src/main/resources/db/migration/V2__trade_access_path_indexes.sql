@@ -0,0 +1,23 @@
+-- Secondary indexes for the hot trade access paths
+
+-- Trade lookups by business id (findByTradeIdAndActiveTrue, versions)
+CREATE INDEX idx_trade_trade_id_active ON trade (trade_id, active);
+
+-- Trader blotters and dashboards
+CREATE INDEX idx_trade_trader_user_id_active ON trade (trader_user_id, active);
+
+-- Book activity and book filters
+CREATE INDEX idx_trade_book_id ON trade (book_id);
+
+-- Trade date ranges
+CREATE INDEX idx_trade_trade_date ON trade (trade_date);
+
+-- Trade legs by trade
+CREATE INDEX idx_trade_leg_trade_id ON trade_leg (trade_id);
+
+-- Cashflows by leg and by value date
+CREATE INDEX idx_cashflow_leg_id ON cashflow (leg_id);
+CREATE INDEX idx_cashflow_value_date ON cashflow (value_date);
+
+-- Additional info lookups by entity and field
+CREATE INDEX idx_additional_info_entity_field ON additional_info (entity_type, entity_id, field_name, active);
@@ -0,0 +1,12 @@
+-- Indexes behind the sortable blotter columns (TradeSortColumn)
+
+-- Each index ends with the id tie-breaker so ORDER BY <column>, id is read
+-- straight from the index. PostgreSQL scans them backwards for DESC.
+CREATE INDEX idx_trade_trade_id_sort ON trade (trade_id, id);
+CREATE INDEX idx_trade_uti_code_sort ON trade (uti_code, id);
+CREATE INDEX idx_trade_trade_execution_date_sort ON trade (trade_execution_date, id);
+CREATE INDEX idx_trade_trade_maturity_date_sort ON trade (trade_maturity_date, id);
+
+-- Also serves trade date ranges, so it replaces the single column index
+DROP INDEX idx_trade_trade_date;
+CREATE INDEX idx_trade_trade_date_sort ON trade (trade_date, id);
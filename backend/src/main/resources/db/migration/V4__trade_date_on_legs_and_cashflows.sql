@@ -0,0 +1,9 @@
+-- Legs and cashflows carry their trade's trade date, set by the entities on
+-- insert, so they can be stored alongside their trade when trade storage is
+-- partitioned by trade date (db/postgresql)
+
+ALTER TABLE trade_leg ADD COLUMN trade_date DATE;
+ALTER TABLE cashflow ADD COLUMN trade_date DATE;
+
+UPDATE trade_leg SET trade_date = (SELECT t.trade_date FROM trade t WHERE t.id = trade_leg.trade_id);
+UPDATE cashflow SET trade_date = (SELECT l.trade_date FROM trade_leg l WHERE l.leg_id = cashflow.leg_id);
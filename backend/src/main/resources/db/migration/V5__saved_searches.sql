@@ -0,0 +1,29 @@
+-- Saved searches and the trades that currently match them
+
+-- query_text holds the search criteria as JSON or the RSQL query
+CREATE TABLE saved_search (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    owner_login_id VARCHAR(255) NOT NULL,
+    query_type VARCHAR(255) NOT NULL,
+    query_text VARCHAR(4000) NOT NULL,
+    match_key VARCHAR(512),
+    created_date TIMESTAMP(6) NOT NULL,
+    last_refreshed_date TIMESTAMP(6),
+    CONSTRAINT uk_saved_search_owner_name UNIQUE (owner_login_id, name)
+);
+
+-- A trade write only rechecks the saved searches keyed on its book,
+-- counterparty or status and the unkeyed ones
+CREATE INDEX idx_saved_search_match_key ON saved_search (match_key);
+
+-- trade_id is trade.id, there's no foreign key as partitioned trade storage
+-- keys trades on (id, trade_date)
+CREATE TABLE saved_search_member (
+    saved_search_id BIGINT NOT NULL REFERENCES saved_search (id) ON DELETE CASCADE,
+    trade_id BIGINT NOT NULL,
+    PRIMARY KEY (saved_search_id, trade_id)
+);
+
+-- Membership is rechecked per written trade
+CREATE INDEX idx_saved_search_member_trade_id ON saved_search_member (trade_id);
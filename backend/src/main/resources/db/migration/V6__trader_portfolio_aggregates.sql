@@ -0,0 +1,66 @@
+-- Per trader portfolio aggregates behind the portfolio summary dashboard,
+-- kept up to date by every trade write
+
+-- dimension is STATUS, CURRENCY, TRADE_TYPE, COUNTERPARTY or EXPOSURE.
+-- dimension_key is the status, currency, trade type or counterparty name,
+-- sub_key is the pay/receive flag for EXPOSURE and empty otherwise.
+-- entry_count is trades for STATUS and legs for the others, a row whose
+-- entry_count drops to 0 no longer contributes.
+CREATE TABLE trader_portfolio_aggregate (
+    trader_login_id VARCHAR(255) NOT NULL,
+    dimension VARCHAR(32) NOT NULL,
+    dimension_key VARCHAR(255) NOT NULL,
+    sub_key VARCHAR(255) NOT NULL,
+    entry_count BIGINT NOT NULL,
+    total_notional NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (trader_login_id, dimension, dimension_key, sub_key)
+);
+
+-- Backfill from the trades already stored, only each trade's live version
+-- like the writes keep it
+INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional)
+SELECT u.login_id, 'STATUS', s.trade_status, '', COUNT(*), 0
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+JOIN trade_status s ON s.id = t.trade_status_id
+WHERE s.trade_status IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, s.trade_status;
+
+INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional)
+SELECT u.login_id, 'CURRENCY', c.currency, '', COUNT(*), SUM(l.notional)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+JOIN trade_leg l ON l.trade_id = t.id
+JOIN currency c ON c.id = l.currency_id
+WHERE l.notional IS NOT NULL AND c.currency IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, c.currency;
+
+INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional)
+SELECT u.login_id, 'TRADE_TYPE', tt.trade_type, '', COUNT(*), SUM(l.notional)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+JOIN trade_type tt ON tt.id = t.trade_type_id
+JOIN trade_leg l ON l.trade_id = t.id
+WHERE l.notional IS NOT NULL AND tt.trade_type IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, tt.trade_type;
+
+INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional)
+SELECT u.login_id, 'COUNTERPARTY', cp.name, '', COUNT(*), SUM(l.notional)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+JOIN counterparty cp ON cp.id = t.counterparty_id
+JOIN trade_leg l ON l.trade_id = t.id
+WHERE l.notional IS NOT NULL AND cp.name IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, cp.name;
+
+-- Receive legs add to the exposure, pay legs take away from it
+INSERT INTO trader_portfolio_aggregate (trader_login_id, dimension, dimension_key, sub_key, entry_count, total_notional)
+SELECT u.login_id, 'EXPOSURE', c.currency, p.pay_rec, COUNT(*),
+       SUM(CASE WHEN p.pay_rec = 'Receive' THEN l.notional ELSE -l.notional END)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+JOIN trade_leg l ON l.trade_id = t.id
+JOIN currency c ON c.id = l.currency_id
+JOIN pay_rec p ON p.id = l.pay_rec_id
+WHERE l.notional IS NOT NULL AND c.currency IS NOT NULL AND p.pay_rec IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, c.currency, p.pay_rec;
@@ -0,0 +1,26 @@
+-- Per trader, per trade date rollups behind the daily trading statistics
+-- dashboard, kept up to date by every trade write
+
+-- trade_count is trade rows, the notional figures are over their legs with a
+-- notional. A day whose trade_count drops to 0 no longer contributes.
+CREATE TABLE trader_daily_rollup (
+    trader_login_id VARCHAR(255) NOT NULL,
+    trade_date DATE NOT NULL,
+    trade_count BIGINT NOT NULL,
+    leg_count BIGINT NOT NULL,
+    notional_sum NUMERIC(38, 2) NOT NULL,
+    notional_min NUMERIC(38, 2),
+    notional_max NUMERIC(38, 2),
+    PRIMARY KEY (trader_login_id, trade_date)
+);
+
+-- Backfill from the trades already stored, only each trade's live version
+-- like the writes keep it
+INSERT INTO trader_daily_rollup (trader_login_id, trade_date, trade_count, leg_count, notional_sum, notional_min, notional_max)
+SELECT u.login_id, t.trade_date, COUNT(DISTINCT t.id), COUNT(l.notional), COALESCE(SUM(l.notional), 0),
+       MIN(l.notional), MAX(l.notional)
+FROM trade t
+JOIN application_user u ON u.id = t.trader_user_id
+LEFT JOIN trade_leg l ON l.trade_id = t.id
+WHERE t.trade_date IS NOT NULL AND t.active = TRUE
+GROUP BY u.login_id, t.trade_date;
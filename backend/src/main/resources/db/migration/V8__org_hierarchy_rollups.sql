@@ -0,0 +1,52 @@
+-- Desk > sub desk > cost center > book hierarchy closure and the rollups kept
+-- at every level of it, kept up to date by every trade write and hierarchy edit
+
+-- One row for every book and each of its ancestors, the book itself at depth
+-- 0, its cost center at 1, sub desk at 2 and desk at 3. ancestor_level is
+-- BOOK, COST_CENTER, SUB_DESK or DESK.
+CREATE TABLE org_hierarchy_closure (
+    ancestor_level VARCHAR(16) NOT NULL,
+    ancestor_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    depth INTEGER NOT NULL,
+    PRIMARY KEY (ancestor_level, ancestor_id, book_id)
+);
+
+CREATE INDEX idx_org_hierarchy_closure_book ON org_hierarchy_closure (book_id);
+
+-- trade_count is live (active) trade rows booked under the node, the
+-- notional is over their legs
+CREATE TABLE org_hierarchy_rollup (
+    node_level VARCHAR(16) NOT NULL,
+    node_id BIGINT NOT NULL,
+    trade_count BIGINT NOT NULL,
+    total_notional NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (node_level, node_id)
+);
+
+-- Backfill from the hierarchy and the trades already stored
+INSERT INTO org_hierarchy_closure (ancestor_level, ancestor_id, book_id, depth)
+SELECT 'BOOK', b.id, b.id, 0
+FROM book b
+UNION ALL
+SELECT 'COST_CENTER', b.cost_center_id, b.id, 1
+FROM book b
+WHERE b.cost_center_id IS NOT NULL
+UNION ALL
+SELECT 'SUB_DESK', cc.subdesk_id, b.id, 2
+FROM book b
+JOIN cost_center cc ON cc.id = b.cost_center_id
+WHERE cc.subdesk_id IS NOT NULL
+UNION ALL
+SELECT 'DESK', sd.desk_id, b.id, 3
+FROM book b
+JOIN cost_center cc ON cc.id = b.cost_center_id
+JOIN sub_desk sd ON sd.id = cc.subdesk_id
+WHERE sd.desk_id IS NOT NULL;
+
+INSERT INTO org_hierarchy_rollup (node_level, node_id, trade_count, total_notional)
+SELECT c.ancestor_level, c.ancestor_id, COUNT(DISTINCT t.id), COALESCE(SUM(l.notional), 0)
+FROM org_hierarchy_closure c
+LEFT JOIN trade t ON t.book_id = c.book_id AND t.active = TRUE
+LEFT JOIN trade_leg l ON l.trade_id = t.id
+GROUP BY c.ancestor_level, c.ancestor_id;
@@ -0,0 +1,19 @@
+-- Notional and rate distributions of the live trade legs in every book and
+-- of every trader, as log-bucketed histograms (LogHistogram) kept up to date
+-- by every trade write
+
+-- scope_level is BOOK or TRADER, scope_id the book id or trader's user id,
+-- metric NOTIONAL or RATE. leg_count is the live (active) trade legs with a
+-- value in the bucket.
+CREATE TABLE distribution_bucket (
+    scope_level VARCHAR(16) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    metric VARCHAR(16) NOT NULL,
+    bucket INTEGER NOT NULL,
+    leg_count BIGINT NOT NULL,
+    PRIMARY KEY (scope_level, scope_id, metric, bucket)
+);
+
+-- Backfilled from the trades already stored by
+-- V9_1__Backfill_distribution_buckets, in Java so the legs are bucketed by
+-- LogHistogram.bucketOf itself
@@ -0,0 +1,229 @@
+-- Partitions trade, trade_leg and cashflow by trade date (PostgreSQL 15+)
+--
+-- Each table is range partitioned by month on trade_date, legs and cashflows
+-- use their trade's trade date so a trade and its legs and cashflows are kept
+-- in the same month. Queries bounded by trade_date only scan those months.
+--
+-- A partitioned table's keys have to include the partition key, so the
+-- primary keys become (id, trade_date) and the foreign keys between the three
+-- tables carry trade_date. ON UPDATE CASCADE moves the legs and cashflows
+-- with their trade when its trade date is amended.
+--
+-- create_trade_partitions adds the months ahead and detach_trade_partitions
+-- detaches old months, both are run by TradePartitionMaintenance.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM trade WHERE trade_date IS NULL)
+            OR EXISTS (SELECT 1 FROM trade_leg WHERE trade_date IS NULL)
+            OR EXISTS (SELECT 1 FROM cashflow WHERE trade_date IS NULL) THEN
+        RAISE EXCEPTION 'Trades, legs and cashflows without a trade date can''t be partitioned';
+    END IF;
+END $$;
+
+-- 1. Move the current tables aside, their keys and identities are recreated
+
+ALTER TABLE cashflow RENAME TO cashflow_unpartitioned;
+ALTER TABLE cashflow_unpartitioned RENAME CONSTRAINT cashflow_pkey TO cashflow_unpartitioned_pkey;
+ALTER TABLE cashflow_unpartitioned ALTER COLUMN id DROP IDENTITY;
+
+ALTER TABLE trade_leg RENAME TO trade_leg_unpartitioned;
+ALTER TABLE trade_leg_unpartitioned RENAME CONSTRAINT trade_leg_pkey TO trade_leg_unpartitioned_pkey;
+ALTER TABLE trade_leg_unpartitioned ALTER COLUMN leg_id DROP IDENTITY;
+
+ALTER TABLE trade RENAME TO trade_unpartitioned;
+ALTER TABLE trade_unpartitioned RENAME CONSTRAINT trade_pkey TO trade_unpartitioned_pkey;
+ALTER TABLE trade_unpartitioned ALTER COLUMN id DROP IDENTITY;
+
+-- 2. Partitioned tables, same columns as the baseline
+
+CREATE TABLE trade (
+    id BIGSERIAL,
+    trade_id BIGINT,
+    version INTEGER,
+    book_id BIGINT REFERENCES book (id),
+    counterparty_id BIGINT REFERENCES counterparty (id),
+    trader_user_id BIGINT REFERENCES application_user (id),
+    inputter_user_id BIGINT REFERENCES application_user (id),
+    trade_type_id BIGINT REFERENCES trade_type (id),
+    trade_sub_type_id BIGINT REFERENCES trade_sub_type (id),
+    trade_status_id BIGINT REFERENCES trade_status (id),
+    uti_code VARCHAR(255),
+    trade_date DATE NOT NULL,
+    trade_start_date DATE,
+    trade_maturity_date DATE,
+    trade_execution_date DATE,
+    additional_fields_id BIGINT,
+    last_touch_timestamp TIMESTAMP(6),
+    validity_start_date DATE,
+    validity_end_date DATE,
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    deactivated_date TIMESTAMP(6),
+    PRIMARY KEY (id, trade_date)
+) PARTITION BY RANGE (trade_date);
+
+CREATE TABLE trade_leg (
+    leg_id BIGSERIAL,
+    notional NUMERIC(38, 2),
+    rate FLOAT(53),
+    trade_id BIGINT,
+    trade_date DATE NOT NULL,
+    currency_id BIGINT REFERENCES currency (id),
+    leg_rate_type_id BIGINT REFERENCES leg_type (id),
+    index_id BIGINT REFERENCES index_table (id),
+    holiday_calendar_id BIGINT REFERENCES holiday_calendar (id),
+    calculation_period_schedule_id BIGINT REFERENCES schedule (id),
+    payment_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    fixing_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    pay_rec_id BIGINT REFERENCES pay_rec (id),
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    deactivated_date TIMESTAMP(6),
+    PRIMARY KEY (leg_id, trade_date),
+    CONSTRAINT fk_trade_leg_trade FOREIGN KEY (trade_id, trade_date)
+        REFERENCES trade (id, trade_date) ON UPDATE CASCADE
+) PARTITION BY RANGE (trade_date);
+
+CREATE TABLE cashflow (
+    id BIGSERIAL,
+    payment_value NUMERIC(38, 2),
+    value_date DATE,
+    rate FLOAT(53),
+    leg_id BIGINT,
+    trade_date DATE NOT NULL,
+    pay_rec_id BIGINT REFERENCES pay_rec (id),
+    payment_type_id BIGINT REFERENCES leg_type (id),
+    payment_business_day_convention_id BIGINT REFERENCES business_day_convention (id),
+    active BOOLEAN,
+    created_date TIMESTAMP(6),
+    validity_start_date DATE,
+    validity_end_date DATE,
+    PRIMARY KEY (id, trade_date),
+    CONSTRAINT fk_cashflow_trade_leg FOREIGN KEY (leg_id, trade_date)
+        REFERENCES trade_leg (leg_id, trade_date) ON UPDATE CASCADE
+) PARTITION BY RANGE (trade_date);
+
+-- Rows outside the monthly partitions
+CREATE TABLE trade_default PARTITION OF trade DEFAULT;
+CREATE TABLE trade_leg_default PARTITION OF trade_leg DEFAULT;
+CREATE TABLE cashflow_default PARTITION OF cashflow DEFAULT;
+
+-- 3. Partition maintenance
+
+-- Creates the monthly partitions of all three tables from one month to
+-- another, months that already exist are skipped
+CREATE FUNCTION create_trade_partitions(from_month DATE, to_month DATE) RETURNS INTEGER AS $$
+DECLARE
+    partition_month DATE := date_trunc('month', from_month)::date;
+    parent TEXT;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE partition_month <= to_month LOOP
+        FOREACH parent IN ARRAY ARRAY['trade', 'trade_leg', 'cashflow'] LOOP
+            partition_name := parent || to_char(partition_month, '"_p"YYYY_MM');
+            IF to_regclass(partition_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                        partition_name, parent, partition_month, (partition_month + INTERVAL '1 month')::date);
+                created := created + 1;
+            END IF;
+        END LOOP;
+        partition_month := (partition_month + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches the monthly partitions before a month, cashflows then legs then
+-- trades so nothing attached still references a detached row. The detached
+-- tables keep their rows and drop their foreign keys to the partitioned
+-- tables, so they can be archived and dropped on their own.
+CREATE FUNCTION detach_trade_partitions(before_month DATE) RETURNS INTEGER AS $$
+DECLARE
+    parent TEXT;
+    child RECORD;
+    foreign_key RECORD;
+    detached INTEGER := 0;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['cashflow', 'trade_leg', 'trade'] LOOP
+        FOR child IN
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = parent::regclass
+              AND c.relname ~ ('^' || parent || '_p[0-9]{4}_[0-9]{2}$')
+              AND to_date(right(c.relname, 7), 'YYYY_MM') < date_trunc('month', before_month)
+            ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, child.relname);
+
+            FOR foreign_key IN
+                SELECT conname
+                FROM pg_constraint
+                WHERE conrelid = child.relname::regclass
+                  AND contype = 'f'
+                  AND confrelid IN ('trade'::regclass, 'trade_leg'::regclass)
+            LOOP
+                EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', child.relname, foreign_key.conname);
+            END LOOP;
+
+            detached := detached + 1;
+        END LOOP;
+    END LOOP;
+    RETURN detached;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Every month with trades, and at least three months ahead
+SELECT create_trade_partitions(
+        COALESCE((SELECT MIN(trade_date) FROM trade_unpartitioned), CURRENT_DATE),
+        GREATEST((SELECT MAX(trade_date) FROM trade_unpartitioned), (CURRENT_DATE + INTERVAL '3 months')::date));
+
+-- 4. Copy the rows across and carry on the ids
+
+INSERT INTO trade (id, trade_id, version, book_id, counterparty_id, trader_user_id, inputter_user_id,
+        trade_type_id, trade_sub_type_id, trade_status_id, uti_code, trade_date, trade_start_date,
+        trade_maturity_date, trade_execution_date, additional_fields_id, last_touch_timestamp,
+        validity_start_date, validity_end_date, active, created_date, deactivated_date)
+SELECT id, trade_id, version, book_id, counterparty_id, trader_user_id, inputter_user_id,
+        trade_type_id, trade_sub_type_id, trade_status_id, uti_code, trade_date, trade_start_date,
+        trade_maturity_date, trade_execution_date, additional_fields_id, last_touch_timestamp,
+        validity_start_date, validity_end_date, active, created_date, deactivated_date
+FROM trade_unpartitioned;
+
+INSERT INTO trade_leg (leg_id, notional, rate, trade_id, trade_date, currency_id, leg_rate_type_id, index_id,
+        holiday_calendar_id, calculation_period_schedule_id, payment_business_day_convention_id,
+        fixing_business_day_convention_id, pay_rec_id, active, created_date, deactivated_date)
+SELECT leg_id, notional, rate, trade_id, trade_date, currency_id, leg_rate_type_id, index_id,
+        holiday_calendar_id, calculation_period_schedule_id, payment_business_day_convention_id,
+        fixing_business_day_convention_id, pay_rec_id, active, created_date, deactivated_date
+FROM trade_leg_unpartitioned;
+
+INSERT INTO cashflow (id, payment_value, value_date, rate, leg_id, trade_date, pay_rec_id, payment_type_id,
+        payment_business_day_convention_id, active, created_date, validity_start_date, validity_end_date)
+SELECT id, payment_value, value_date, rate, leg_id, trade_date, pay_rec_id, payment_type_id,
+        payment_business_day_convention_id, active, created_date, validity_start_date, validity_end_date
+FROM cashflow_unpartitioned;
+
+SELECT setval('trade_id_seq', COALESCE((SELECT MAX(id) FROM trade), 0) + 1, false);
+SELECT setval('trade_leg_leg_id_seq', COALESCE((SELECT MAX(leg_id) FROM trade_leg), 0) + 1, false);
+SELECT setval('cashflow_id_seq', COALESCE((SELECT MAX(id) FROM cashflow), 0) + 1, false);
+
+DROP TABLE cashflow_unpartitioned;
+DROP TABLE trade_leg_unpartitioned;
+DROP TABLE trade_unpartitioned;
+
+-- 5. The access path and sort indexes (V2, V3), created on every partition
+
+CREATE INDEX idx_trade_trade_id_active ON trade (trade_id, active);
+CREATE INDEX idx_trade_trader_user_id_active ON trade (trader_user_id, active);
+CREATE INDEX idx_trade_book_id ON trade (book_id);
+CREATE INDEX idx_trade_trade_id_sort ON trade (trade_id, id);
+CREATE INDEX idx_trade_uti_code_sort ON trade (uti_code, id);
+CREATE INDEX idx_trade_trade_execution_date_sort ON trade (trade_execution_date, id);
+CREATE INDEX idx_trade_trade_maturity_date_sort ON trade (trade_maturity_date, id);
+CREATE INDEX idx_trade_trade_date_sort ON trade (trade_date, id);
+CREATE INDEX idx_trade_leg_trade_id ON trade_leg (trade_id);
+CREATE INDEX idx_cashflow_leg_id ON cashflow (leg_id);
+CREATE INDEX idx_cashflow_value_date ON cashflow (value_date);
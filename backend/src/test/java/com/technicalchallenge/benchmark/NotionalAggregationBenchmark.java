@@ -0,0 +1,115 @@
+package com.technicalchallenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.technicalchallenge.calculations.BigDecimalSummaryStatistics;
+
+/**
+ * Notional Aggregation Benchmark
+ *
+ * <p>
+ * Times the sum, min and max of leg notionals, at the scale of the notional
+ * columns, three ways: a BigDecimal reduce for each, one pass adding a new
+ * BigDecimal for every value, and BigDecimalSummaryStatistics accumulating
+ * minor units. Each runs sequentially and on a parallel stream.
+ *
+ * Not run by surefire, run the main method from the IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.technicalchallenge.benchmark.NotionalAggregationBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotionalAggregationBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int legs;
+
+    private List<BigDecimal> notionals;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Notionals up to 100 million with pence, as booked
+        Random random = new Random(42);
+        notionals = new ArrayList<>(legs);
+        for (int i = 0; i < legs; i++) {
+            notionals.add(BigDecimal.valueOf(random.nextLong(10_000_000_000L), 2));
+        }
+    }
+
+    @Benchmark
+    public void reduce(Blackhole blackhole) {
+        blackhole.consume(notionals.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+        blackhole.consume(notionals.stream().reduce(BigDecimal::min).orElse(null));
+        blackhole.consume(notionals.stream().reduce(BigDecimal::max).orElse(null));
+    }
+
+    @Benchmark
+    public void reduceParallel(Blackhole blackhole) {
+        blackhole.consume(notionals.parallelStream().reduce(BigDecimal.ZERO, BigDecimal::add));
+        blackhole.consume(notionals.parallelStream().reduce(BigDecimal::min).orElse(null));
+        blackhole.consume(notionals.parallelStream().reduce(BigDecimal::max).orElse(null));
+    }
+
+    // The statistics before minor units, a new BigDecimal sum for every value
+    @Benchmark
+    public void bigDecimalPass(Blackhole blackhole) {
+        BigDecimal sum = BigDecimal.ZERO;
+        BigDecimal min = null;
+        BigDecimal max = null;
+        for (BigDecimal notional : notionals) {
+            sum = sum.add(notional);
+            min = min == null || notional.compareTo(min) < 0 ? notional : min;
+            max = max == null || notional.compareTo(max) > 0 ? notional : max;
+        }
+        blackhole.consume(sum);
+        blackhole.consume(min);
+        blackhole.consume(max);
+    }
+
+    @Benchmark
+    public void statistics(Blackhole blackhole) {
+        consume(blackhole, notionals.stream().collect(BigDecimalSummaryStatistics.statistics()));
+    }
+
+    @Benchmark
+    public void statisticsParallel(Blackhole blackhole) {
+        consume(blackhole, notionals.parallelStream().collect(BigDecimalSummaryStatistics.statistics()));
+    }
+
+    private static void consume(Blackhole blackhole, BigDecimalSummaryStatistics statistics) {
+        blackhole.consume(statistics.getSum());
+        blackhole.consume(statistics.getMin());
+        blackhole.consume(statistics.getMax());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotionalAggregationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
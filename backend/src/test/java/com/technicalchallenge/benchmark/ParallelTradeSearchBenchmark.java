@@ -0,0 +1,126 @@
+package com.technicalchallenge.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.technicalchallenge.BackendApplication;
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.service.ParallelTradeSearch;
+import com.technicalchallenge.service.ParallelTradeSearch.Partition;
+
+/**
+ * Parallel Trade Search Benchmark
+ *
+ * <p>
+ * Times a year long multi criteria search (book name and trade date range)
+ * through ParallelTradeSearch itself, split into 1 to 8 trade date
+ * partitions, each on its own thread, read-only transaction and connection,
+ * mapped to DTOs and merged back into id order. threads=1 is the single
+ * query the search ran before. Every trial starts the application against an
+ * in-memory H2 database of 200 thousand and 1 million trades over five years,
+ * give the fork enough heap (-Xmx4g).
+ *
+ * Run with as many cores as the largest threads value to see the scaling,
+ * not run by surefire:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.technicalchallenge.benchmark.ParallelTradeSearchBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelTradeSearchBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:parallelbenchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    private static final int DAYS = 5 * 365;
+    private static final SearchTradeByCriteria CRITERIA = new SearchTradeByCriteria("FX%", null, null, null,
+            null, null, null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+
+    @Param({ "200000", "1000000" })
+    private int rows;
+
+    @Param({ "1", "2", "4", "8" })
+    private int threads;
+
+    private ConfigurableApplicationContext context;
+    private ParallelTradeSearch parallelTradeSearch;
+    private List<Partition> partitions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Only the migrations, no seed data or SQL logging, and a connection to spare
+        // for every thread
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .run("--server.port=0",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=" + URL,
+                        "--spring.datasource.password=",
+                        "--spring.flyway.locations=classpath:db/migration",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.technicalchallenge=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--spring.datasource.hikari.maximum-pool-size=" + (threads + 2),
+                        "--trade.search.parallel.threads=" + threads,
+                        "--trade.search.parallel.min-days=1");
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("DELETE FROM trade");
+        jdbcTemplate.execute("DELETE FROM book");
+
+        // Only trade and book are read, the other references are left empty
+        jdbcTemplate.execute("INSERT INTO book (id, book_name, active, version)"
+                + " SELECT \"X\", CASEWHEN(MOD(\"X\", 2) = 0, 'FX-BOOK-', 'RATES-BOOK-') || \"X\", true, 1"
+                + " FROM SYSTEM_RANGE(1, 10)");
+        jdbcTemplate.execute("INSERT INTO trade (id, trade_id, version, book_id, uti_code, trade_date, active,"
+                + " created_date)"
+                + " SELECT \"X\", 100000 + \"X\", 1, 1 + MOD(\"X\", 10), 'UTI-' || \"X\","
+                + " DATEADD('DAY', MOD(\"X\", " + DAYS + "), DATE '" + FIRST_DAY + "'), true, CURRENT_TIMESTAMP"
+                + " FROM SYSTEM_RANGE(1, " + rows + ")");
+        jdbcTemplate.execute("ANALYZE");
+
+        parallelTradeSearch = context.getBean(ParallelTradeSearch.class);
+        partitions = parallelTradeSearch.partition(CRITERIA);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void partitionedSearch(Blackhole blackhole) {
+        parallelTradeSearch.search(CRITERIA, partitions).forEach(blackhole::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ParallelTradeSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
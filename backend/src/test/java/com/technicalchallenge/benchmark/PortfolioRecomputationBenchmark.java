@@ -0,0 +1,139 @@
+package com.technicalchallenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.technicalchallenge.BackendApplication;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.service.PortfolioRecomputation;
+
+/**
+ * Portfolio Recomputation Benchmark
+ *
+ * <p>
+ * Times PortfolioRecomputation itself recomputing notional by trader and
+ * currency over every live trade, the ids split into ranges of 50 thousand
+ * scanned as flat rows by the fork-join task tree on 1 to 8 threads, each
+ * range on its own read-only transaction and connection, the partial sums
+ * merged as the tasks join. threads=1 is the single pass it replaces. Every
+ * trial starts the application against an in-memory H2 database of 1 and 5
+ * million trades of one leg each, give the fork enough heap (-Xmx8g).
+ *
+ * Run with as many cores as the largest threads value to see the scaling,
+ * not run by surefire:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.technicalchallenge.benchmark.PortfolioRecomputationBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PortfolioRecomputationBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:recomputebenchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final long RANGE_SIZE = 50000;
+
+    // Notional by trader and currency, the shape of the portfolio figures
+    private static final Collector<TradeSnapshot, ?, Map<String, BigDecimal>> NOTIONAL_BY_TRADER_AND_CURRENCY = Collectors
+            .flatMapping(trade -> trade.legs().stream().filter(leg -> leg.notional() != null)
+                    .map(leg -> Map.entry(trade.traderLoginId() + ":" + leg.currency(), leg.notional())),
+                    Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, BigDecimal::add));
+
+    @Param({ "1000000", "5000000" })
+    private int rows;
+
+    @Param({ "1", "2", "4", "8" })
+    private int threads;
+
+    private ConfigurableApplicationContext context;
+    private PortfolioRecomputation portfolioRecomputation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Only the migrations, no seed data or SQL logging, and a connection to spare
+        // for every thread
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .run("--server.port=0",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=" + URL,
+                        "--spring.datasource.password=",
+                        "--spring.flyway.locations=classpath:db/migration",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.technicalchallenge=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--spring.datasource.hikari.maximum-pool-size=" + (threads + 2),
+                        "--trade.recompute.threads=" + threads,
+                        "--trade.recompute.range-size=" + RANGE_SIZE);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("DELETE FROM trade_leg");
+        jdbcTemplate.execute("DELETE FROM trade");
+
+        // Only the references the flat rows read, the others are left empty
+        jdbcTemplate.execute("INSERT INTO application_user (id, login_id, active, version)"
+                + " SELECT \"X\", 'trader' || \"X\", true, 1 FROM SYSTEM_RANGE(1, 200)");
+        jdbcTemplate.execute("INSERT INTO counterparty (id, name, active)"
+                + " SELECT \"X\", 'COUNTERPARTY-' || \"X\", true FROM SYSTEM_RANGE(1, 50)");
+        jdbcTemplate.execute("INSERT INTO currency (id, currency)"
+                + " VALUES (1, 'USD'), (2, 'EUR'), (3, 'GBP'), (4, 'JPY'), (5, 'CHF')");
+        jdbcTemplate.execute("INSERT INTO trade_status (id, trade_status) VALUES (1, 'NEW'), (2, 'AMENDED')");
+        jdbcTemplate.execute("INSERT INTO trade_type (id, trade_type) VALUES (1, 'Swap'), (2, 'Spot')");
+        jdbcTemplate.execute("INSERT INTO pay_rec (id, pay_rec) VALUES (1, 'Pay'), (2, 'Receive')");
+
+        jdbcTemplate.execute("INSERT INTO trade (id, trade_id, version, counterparty_id, trader_user_id,"
+                + " trade_type_id, trade_status_id, uti_code, trade_date, active, created_date)"
+                + " SELECT \"X\", 100000 + \"X\", 1, 1 + MOD(\"X\", 50), 1 + MOD(\"X\", 200), 1 + MOD(\"X\", 2),"
+                + " 1 + MOD(\"X\", 2), 'UTI-' || \"X\", DATE '2024-01-01', true, CURRENT_TIMESTAMP"
+                + " FROM SYSTEM_RANGE(1, " + rows + ")");
+        jdbcTemplate.execute("INSERT INTO trade_leg (leg_id, notional, trade_id, currency_id, pay_rec_id, active)"
+                + " SELECT \"X\", 1000000 + MOD(\"X\", 1000) * 1000, \"X\", 1 + MOD(\"X\", 5), 1 + MOD(\"X\", 2),"
+                + " true FROM SYSTEM_RANGE(1, " + rows + ")");
+        jdbcTemplate.execute("ANALYZE");
+
+        portfolioRecomputation = context.getBean(PortfolioRecomputation.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void forkJoinRecompute(Blackhole blackhole) {
+        blackhole.consume(portfolioRecomputation.recompute(NOTIONAL_BY_TRADER_AND_CURRENCY));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PortfolioRecomputationBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+
+}
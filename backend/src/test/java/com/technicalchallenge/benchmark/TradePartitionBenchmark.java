@@ -0,0 +1,172 @@
+package com.technicalchallenge.benchmark;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Trade Partition Benchmark
+ *
+ * <p>
+ * Compares a trader's trades for one day and for one month on a flat trade
+ * table and on one partitioned by month on trade date (the layout
+ * V4_1__partition_trades_by_trade_date.sql creates), at 1 and 10 million
+ * trades spread over five years. Prints the plans so the pruned partitions
+ * can be checked.
+ *
+ * H2 can't partition, so it needs a PostgreSQL 15+ database, and builds its
+ * tables in a partition_benchmark schema that is dropped afterwards:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.technicalchallenge.benchmark.TradePartitionBenchmark
+ * -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/trades
+ * -Dbenchmark.postgres.username=... -Dbenchmark.postgres.password=...
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradePartitionBenchmark {
+
+    private static final String SCHEMA = "partition_benchmark";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    private static final int DAYS = 5 * 365;
+    private static final int TRADERS = 200;
+
+    @Param({ "1000000", "10000000" })
+    private int rows;
+
+    @Param({ "flat", "partitioned" })
+    private String layout;
+
+    private Connection connection;
+    private PreparedStatement oneDay;
+    private PreparedStatement oneMonth;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(System.getProperty("benchmark.postgres.url"),
+                System.getProperty("benchmark.postgres.username"), System.getProperty("benchmark.postgres.password"));
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+
+            String columns = "(id BIGINT NOT NULL, trade_id BIGINT, version INTEGER, trader_user_id BIGINT,"
+                    + " book_id BIGINT, uti_code VARCHAR(255), trade_date DATE NOT NULL, active BOOLEAN,"
+                    + " PRIMARY KEY (id, trade_date))";
+
+            if (layout.equals("flat")) {
+                statement.execute("CREATE TABLE " + SCHEMA + ".trade " + columns);
+            } else {
+                statement.execute("CREATE TABLE " + SCHEMA + ".trade " + columns + " PARTITION BY RANGE (trade_date)");
+                for (LocalDate month = FIRST_DAY; month.isBefore(FIRST_DAY.plusDays(DAYS)); month = month
+                        .plusMonths(1)) {
+                    statement.execute(String.format(
+                            "CREATE TABLE %s.trade_p%d_%02d PARTITION OF %s.trade FOR VALUES FROM ('%s') TO ('%s')",
+                            SCHEMA, month.getYear(), month.getMonthValue(), SCHEMA, month, month.plusMonths(1)));
+                }
+            }
+
+            // Trader and trade date, as the dashboard queries filter
+            statement.execute("CREATE INDEX ON " + SCHEMA + ".trade (trader_user_id, trade_date)");
+
+            statement.execute("INSERT INTO " + SCHEMA + ".trade"
+                    + " SELECT x, 100000 + x, 1, x % " + TRADERS + ", x % 10, 'UTI-' || x,"
+                    + " DATE '" + FIRST_DAY + "' + (x % " + DAYS + ")::INTEGER, x % 10 <> 0"
+                    + " FROM generate_series(1, " + rows + ") AS x");
+            statement.execute("ANALYZE " + SCHEMA + ".trade");
+        }
+
+        String sql = "SELECT * FROM " + SCHEMA + ".trade WHERE trader_user_id = ? AND trade_date BETWEEN ? AND ?";
+        LocalDate day = FIRST_DAY.plusYears(2).withDayOfMonth(15);
+
+        oneDay = prepare(sql, day, day);
+        oneMonth = prepare(sql, day.withDayOfMonth(1), day.withDayOfMonth(day.lengthOfMonth()));
+
+        explain("one day", sql, day, day);
+        explain("one month", sql, day.withDayOfMonth(1), day.withDayOfMonth(day.lengthOfMonth()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        oneDay.close();
+        oneMonth.close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void tradesForOneDay(Blackhole blackhole) throws SQLException {
+        read(oneDay, blackhole);
+    }
+
+    @Benchmark
+    public void tradesForOneMonth(Blackhole blackhole) throws SQLException {
+        read(oneMonth, blackhole);
+    }
+
+    private PreparedStatement prepare(String sql, LocalDate from, LocalDate to) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setLong(1, 42L);
+        statement.setDate(2, Date.valueOf(from));
+        statement.setDate(3, Date.valueOf(to));
+        return statement;
+    }
+
+    private void read(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong("id"));
+            }
+        }
+    }
+
+    private void explain(String name, String sql, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement statement = prepare("EXPLAIN " + sql, from, to);
+                ResultSet plan = statement.executeQuery()) {
+            StringBuilder lines = new StringBuilder();
+            while (plan.next()) {
+                lines.append('\n').append(plan.getString(1));
+            }
+            System.out.println("\n" + layout + " " + rows + " rows, " + name + ":" + lines);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TradePartitionBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dbenchmark.postgres.url=" + System.getProperty("benchmark.postgres.url"),
+                        "-Dbenchmark.postgres.username=" + System.getProperty("benchmark.postgres.username"),
+                        "-Dbenchmark.postgres.password=" + System.getProperty("benchmark.postgres.password"))
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.technicalchallenge.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.technicalchallenge.specification.TradeSortColumn;
+
+/**
+ * Trade Sort Plan Benchmark
+ *
+ * <p>
+ * Times the first blotter page for each sortable column in both directions
+ * against 100,000 trades on the Flyway schema, and prints the plan H2 picked
+ * for it. createdDate has no index and is the in-database sort baseline.
+ *
+ * Not run by surefire, run the main method from the IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.technicalchallenge.benchmark.TradeSortPlanBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeSortPlanBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:sortbenchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final int TRADES = 100_000;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({ "id", "tradeId", "utiCode", "tradeDate", "tradeExecutionDate", "tradeMaturityDate", "createdDate" })
+    private String sortBy;
+
+    @Param({ "ASC", "DESC" })
+    private String sortDir;
+
+    private Connection connection;
+    private PreparedStatement page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM trade");
+
+            // Only the trade table is read, so the reference rows are skipped
+            statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            statement.execute("INSERT INTO trade (id, trade_id, version, book_id, counterparty_id, trader_user_id,"
+                    + " uti_code, trade_date, trade_execution_date, trade_maturity_date, active, created_date)"
+                    + " SELECT x, 100000 + MOD(x * 7919, " + TRADES + "), 1, MOD(x, 10), MOD(x, 50), MOD(x, 200),"
+                    + " 'UTI-' || MOD(x * 104729, " + TRADES + "), DATEADD('DAY', -MOD(x, 730), DATE '2025-06-01'),"
+                    + " DATEADD('DAY', -MOD(x, 730), DATE '2025-06-01'), DATEADD('DAY', MOD(x, 3650), DATE '2025-06-01'),"
+                    + " true, DATEADD('SECOND', -MOD(x * 31, 86400), TIMESTAMP '2025-06-01 00:00:00')"
+                    + " FROM SYSTEM_RANGE(1, " + TRADES + ")");
+            statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            statement.execute("ANALYZE");
+        }
+
+        // Same ordering as TradeSortColumn.sort, unsupported columns sort without the index
+        String column = TradeSortColumn.of(sortBy).map(TradeSortColumn::getColumn).orElse("created_date");
+        String orderBy = column.equals("id") ? "id " + sortDir : column + " " + sortDir + ", id " + sortDir;
+        String sql = "SELECT * FROM trade ORDER BY " + orderBy + " OFFSET 0 ROWS FETCH FIRST " + PAGE_SIZE
+                + " ROWS ONLY";
+
+        try (Statement statement = connection.createStatement();
+                ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+            plan.next();
+            System.out.println("\n" + sortBy + " " + sortDir + ": " + plan.getString(1).replace('\n', ' '));
+        }
+
+        page = connection.prepareStatement(sql);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        page.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void firstPage(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = page.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong("id"));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TradeSortPlanBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.technicalchallenge.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.technicalchallenge.cache.DashboardResultCache.Cached;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DashboardResultCacheTest {
+
+        private DashboardResultCache dashboardResultCache;
+        private AtomicInteger computations;
+
+        @BeforeEach
+        void setUp() {
+                // 60 second TTL, refreshed after 30
+                dashboardResultCache = new DashboardResultCache(new SimpleMeterRegistry(), 60, 30, 100, 1);
+                computations = new AtomicInteger();
+        }
+
+        @AfterEach
+        void tearDown() {
+                dashboardResultCache.shutdown();
+        }
+
+        private Cached<String> summary(String username) {
+                return dashboardResultCache.get("summary", username, null, () -> {
+                        computations.incrementAndGet();
+                        return "summary of " + username;
+                });
+        }
+
+        private TradeSnapshot snapshot(String traderLoginId) {
+                return aTrade().traderLoginId(traderLoginId).build();
+        }
+
+        /**
+         * Tests concurrent requests for the same dashboard share one computation
+         */
+        @Test
+        void testGet_ConcurrentRequestsCoalesced() throws Exception {
+
+                // Given - The first computation is held until both requests are in
+                CountDownLatch computing = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                ExecutorService executor = Executors.newFixedThreadPool(2);
+
+                try {
+                        Future<Cached<String>> first = executor.submit(() -> dashboardResultCache.get("summary",
+                                        "john", null, () -> {
+                                                computations.incrementAndGet();
+                                                computing.countDown();
+                                                awaitQuietly(release);
+                                                return "summary of john";
+                                        }));
+                        assertTrue(computing.await(5, TimeUnit.SECONDS));
+
+                        Future<Cached<String>> second = executor.submit(() -> summary("john"));
+
+                        // When - The computation finishes
+                        Thread.sleep(100);
+                        release.countDown();
+
+                        // Then - Both get the one result
+                        assertEquals("summary of john", first.get(5, TimeUnit.SECONDS).value());
+                        assertSame(first.get().value(), second.get(5, TimeUnit.SECONDS).value());
+                        assertEquals(1, computations.get());
+                } finally {
+                        executor.shutdownNow();
+                }
+        }
+
+        @Test
+        void testGet_CachedWithinTtl() {
+
+                // When
+                summary("john");
+                Cached<String> cached = summary("john");
+
+                // Then
+                assertEquals(1, computations.get());
+                assertEquals(0, cached.ageSeconds());
+                assertNotNull(cached.computedAt());
+        }
+
+        @Test
+        void testGet_ExpiredRecomputed() {
+
+                // Given - Nothing is served from the cache
+                dashboardResultCache = new DashboardResultCache(new SimpleMeterRegistry(), 0, 0, 100, 1);
+
+                // When
+                summary("john");
+                summary("john");
+
+                // Then
+                assertEquals(2, computations.get());
+        }
+
+        /**
+         * Tests a trader without trades isn't cached, the next request computes it
+         */
+        @Test
+        void testGet_FailureNotCached() {
+
+                // When
+                assertThrows(DashboardDataNotFoundException.class,
+                                () -> dashboardResultCache.get("summary", "john", null, () -> {
+                                        throw new DashboardDataNotFoundException("Dashboard data was not found for john");
+                                }));
+
+                // Then
+                assertEquals("summary of john", summary("john").value());
+                assertEquals(1, computations.get());
+        }
+
+        /**
+         * Tests a partial dashboard is returned but the next request computes it
+         */
+        @Test
+        void testGet_PartialNotCached() {
+
+                // When
+                Cached<String> partial = dashboardResultCache.get("my-trades", "john", null, () -> {
+                        computations.incrementAndGet();
+                        return "partial";
+                }, value -> !"partial".equals(value));
+
+                // Then
+                assertEquals("partial", partial.value());
+                assertEquals("summary of john", dashboardResultCache.get("my-trades", "john", null, () -> {
+                        computations.incrementAndGet();
+                        return "summary of john";
+                }).value());
+                assertEquals(2, computations.get());
+        }
+
+        /**
+         * Tests a trade write drops only that trader's dashboards
+         */
+        @Test
+        void testOnTradeWrite_TradersDashboardsDropped() {
+
+                // Given
+                summary("john");
+                summary("simon");
+
+                // When
+                dashboardResultCache.onTradeWrite(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, snapshot("john")));
+
+                // Then - John's is computed again, Simon's is still cached
+                summary("john");
+                summary("simon");
+                assertEquals(3, computations.get());
+        }
+
+        private static void awaitQuietly(CountDownLatch latch) {
+                try {
+                        latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+
+}
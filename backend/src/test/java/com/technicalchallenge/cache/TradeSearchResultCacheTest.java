@@ -0,0 +1,127 @@
+package com.technicalchallenge.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.technicalchallenge.cache.TradeSearchResultCache.SearchKey;
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TradeSearchResultCacheTest {
+
+        private TradeSearchResultCache tradeSearchResultCache;
+        private AtomicInteger searches;
+        private SearchTradeByCriteria blotter;
+
+        @BeforeEach
+        void setUp() {
+                ObjectMapper objectMapper = new ObjectMapper();
+                objectMapper.registerModule(new JavaTimeModule());
+                tradeSearchResultCache = new TradeSearchResultCache(objectMapper, new SimpleMeterRegistry(), 10);
+                searches = new AtomicInteger();
+
+                // A trader's blotter: their book, today's trades and status NEW
+                blotter = new SearchTradeByCriteria("FX-BOOK-1", null, null, null, null, null, "NEW",
+                                LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 10));
+        }
+
+        private List<TradeDTO> search(SearchTradeByCriteria criteria) {
+                SearchKey key = tradeSearchResultCache.key("search", criteria, null, null);
+                return tradeSearchResultCache.get(key, () -> {
+                        searches.incrementAndGet();
+                        TradeDTO tradeDTO = new TradeDTO();
+                        tradeDTO.setTradeId(100001L);
+                        return List.of(tradeDTO);
+                });
+        }
+
+        private TradeSnapshot snapshot(String bookName, String status, LocalDate tradeDate) {
+                return aTrade().bookName(bookName).tradeStatus(status).tradeDate(tradeDate).build();
+        }
+
+        /**
+         * Tests a repeat search is served from the cache and reports its size
+         */
+        @Test
+        void testGet_RepeatSearchHitsCache() {
+                search(blotter);
+                search(blotter);
+
+                assertEquals(1, searches.get());
+                assertEquals(0.5, tradeSearchResultCache.hitRatio());
+                assertTrue(tradeSearchResultCache.getBytes() > 0);
+        }
+
+        /**
+         * Tests a write to a trade in the blotter invalidates it
+         */
+        @Test
+        void testOnTradeWrite_MatchingTradeInvalidates() {
+                search(blotter);
+
+                // When - A NEW trade is booked on the same book and date
+                tradeSearchResultCache.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot("FX-BOOK-1", "NEW", LocalDate.of(2025, 1, 10))));
+
+                // Then - The next search runs again
+                search(blotter);
+                assertEquals(2, searches.get());
+                assertEquals(0, tradeSearchResultCache.getHitCount());
+        }
+
+        /**
+         * Tests a trade leaving the blotter's status invalidates it through its
+         * before snapshot
+         */
+        @Test
+        void testOnTradeWrite_TradeLeavingCriteriaInvalidates() {
+                search(blotter);
+
+                tradeSearchResultCache.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED,
+                                snapshot("FX-BOOK-1", "NEW", LocalDate.of(2025, 1, 10)),
+                                snapshot("FX-BOOK-1", "CANCELLED", LocalDate.of(2025, 1, 10))));
+
+                assertEquals(0, tradeSearchResultCache.size());
+                assertEquals(0, tradeSearchResultCache.getBytes());
+        }
+
+        /**
+         * Tests a write on another book leaves the blotter cached
+         */
+        @Test
+        void testOnTradeWrite_OtherBookKeepsEntry() {
+                search(blotter);
+
+                tradeSearchResultCache.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot("RATES-BOOK-1", "NEW", LocalDate.of(2025, 1, 10))));
+
+                search(blotter);
+                assertEquals(1, searches.get());
+        }
+
+        /**
+         * Tests criteria are matched as SQL LIKE patterns
+         */
+        @Test
+        void testMatches_LikePattern() {
+                SearchTradeByCriteria fxBooks = new SearchTradeByCriteria("FX-%", null, null, null, null, null, null,
+                                null, null);
+
+                assertTrue(TradeSearchResultCache.matches(fxBooks, snapshot("FX-BOOK-1", "NEW", null)));
+                assertFalse(TradeSearchResultCache.matches(fxBooks, snapshot("RATES-BOOK-1", "NEW", null)));
+        }
+
+}
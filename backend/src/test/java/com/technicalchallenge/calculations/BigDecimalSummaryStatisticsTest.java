@@ -0,0 +1,133 @@
+package com.technicalchallenge.calculations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class BigDecimalSummaryStatisticsTest {
+
+        private static BigDecimalSummaryStatistics of(String... values) {
+                BigDecimalSummaryStatistics statistics = new BigDecimalSummaryStatistics();
+                for (String value : values) {
+                        statistics.accept(new BigDecimal(value));
+                }
+                return statistics;
+        }
+
+        @Test
+        void testAccept_ExactSumMinMax() {
+
+                // When
+                BigDecimalSummaryStatistics statistics = of("1000000", "2500000.50", "-300.25");
+
+                // Then - At the largest scale accepted, as BigDecimal.add would be
+                assertEquals(3, statistics.getCount());
+                assertEquals(new BigDecimal("3499700.25"), statistics.getSum());
+                assertEquals(new BigDecimal("-300.25"), statistics.getMin());
+                assertEquals(new BigDecimal("2500000.50"), statistics.getMax());
+                assertEquals(new BigDecimal("1166566.75"), statistics.getAverage(MathContext.DECIMAL64));
+        }
+
+        @Test
+        void testAccept_WholeNumbersKeepTheirScale() {
+
+                // When
+                BigDecimalSummaryStatistics statistics = of("1000000", "2000000");
+
+                // Then
+                assertEquals(BigDecimal.valueOf(3000000), statistics.getSum());
+                assertEquals(BigDecimal.valueOf(1000000), statistics.getMin());
+        }
+
+        /**
+         * Tests values with more decimal places or too large for a long, and a
+         * sum that overflows a long, are still exact
+         */
+        @Test
+        void testAccept_PromotedValuesExact() {
+
+                // When
+                BigDecimalSummaryStatistics statistics = of("0.125", "99999999999999999999.99", "90000000000000000",
+                                "90000000000000000");
+
+                // Then
+                assertEquals(new BigDecimal("100180000000000000000.115"), statistics.getSum());
+                assertEquals(new BigDecimal("0.125"), statistics.getMin());
+                assertEquals(new BigDecimal("99999999999999999999.990"), statistics.getMax());
+                assertEquals(4, statistics.getCount());
+        }
+
+        /**
+         * Tests a merge keeps the smallest min and largest max of both sides
+         */
+        @Test
+        void testMerge_ComparesMinAndMax() {
+
+                // Given
+                BigDecimalSummaryStatistics left = of("1", "100");
+                BigDecimalSummaryStatistics right = of("50", "60");
+
+                // When
+                left.merge(right);
+
+                // Then
+                assertEquals(4, left.getCount());
+                assertEquals(BigDecimal.valueOf(211), left.getSum());
+                assertEquals(BigDecimal.ONE, left.getMin());
+                assertEquals(BigDecimal.valueOf(100), left.getMax());
+        }
+
+        @Test
+        void testMerge_EmptySides() {
+
+                // When
+                BigDecimalSummaryStatistics statistics = new BigDecimalSummaryStatistics()
+                                .merge(of("5.50")).merge(new BigDecimalSummaryStatistics());
+
+                // Then
+                assertEquals(new BigDecimal("5.50"), statistics.getSum());
+                assertEquals(new BigDecimal("5.50"), statistics.getMin());
+                assertEquals(new BigDecimal("5.50"), statistics.getMax());
+        }
+
+        @Test
+        void testStatistics_ParallelMatchesSequential() {
+
+                // Given
+                List<BigDecimal> notionals = IntStream.range(0, 100_000)
+                                .mapToObj(i -> BigDecimal.valueOf((i * 7919L) % 1_000_000_00L, 2)).toList();
+
+                // When
+                BigDecimalSummaryStatistics sequential = notionals.stream()
+                                .collect(BigDecimalSummaryStatistics.statistics());
+                BigDecimalSummaryStatistics parallel = notionals.parallelStream()
+                                .collect(BigDecimalSummaryStatistics.statistics());
+
+                // Then
+                assertEquals(notionals.stream().reduce(BigDecimal.ZERO, BigDecimal::add), parallel.getSum());
+                assertEquals(sequential.getSum(), parallel.getSum());
+                assertEquals(sequential.getMin(), parallel.getMin());
+                assertEquals(sequential.getMax(), parallel.getMax());
+                assertEquals(notionals.stream().max(BigDecimal::compareTo).orElseThrow(), parallel.getMax());
+        }
+
+        @Test
+        void testEmpty() {
+
+                // When
+                BigDecimalSummaryStatistics statistics = new BigDecimalSummaryStatistics();
+                statistics.accept(null);
+
+                // Then
+                assertEquals(0, statistics.getCount());
+                assertEquals(BigDecimal.ZERO, statistics.getSum());
+                assertNull(statistics.getMin());
+                assertNull(statistics.getMax());
+        }
+
+}
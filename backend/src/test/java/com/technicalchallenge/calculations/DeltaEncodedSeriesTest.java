@@ -0,0 +1,103 @@
+package com.technicalchallenge.calculations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.technicalchallenge.calculations.DeltaEncodedSeries.Point;
+
+public class DeltaEncodedSeriesTest {
+
+        private static final LocalDate FIRST_DATE = LocalDate.of(2025, 1, 1);
+
+        private static byte[] encode(List<Point> points) {
+                byte[] encoded = null;
+                LocalDate lastDate = FIRST_DATE;
+                long lastValue = 0;
+                for (Point point : points) {
+                        encoded = DeltaEncodedSeries.append(encoded, lastDate, lastValue, point.date(), point.value());
+                        lastDate = point.date();
+                        lastValue = point.value();
+                }
+                return encoded;
+        }
+
+        /**
+         * Tests a year of weekday points is decoded as it was written, in a
+         * couple of bytes a point
+         */
+        @Test
+        void testDecode_YearOfWeekdays() {
+
+                // Given - A notional in hundredths that rises and falls
+                List<Point> points = new ArrayList<>();
+                long value = 4_500_000_000L;
+                for (LocalDate date = FIRST_DATE; date.getYear() == 2025; date = date.plusDays(1)) {
+                        if (date.getDayOfWeek().getValue() >= 6) {
+                                continue;
+                        }
+                        value += date.getDayOfMonth() % 2 == 0 ? 250_000 : -100_000;
+                        points.add(new Point(date, value));
+                }
+
+                // When
+                byte[] encoded = encode(points);
+
+                // Then
+                assertEquals(points, DeltaEncodedSeries.decode(encoded, FIRST_DATE));
+                assertTrue(encoded.length < points.size() * 5, encoded.length + " bytes");
+        }
+
+        @Test
+        void testDecode_UnchangedValueTakesTwoBytes() {
+
+                // When
+                byte[] first = DeltaEncodedSeries.append(null, FIRST_DATE, 0, FIRST_DATE, 12);
+                byte[] second = DeltaEncodedSeries.append(first, FIRST_DATE, 12, FIRST_DATE.plusDays(1), 12);
+
+                // Then
+                assertEquals(2, second.length - first.length);
+                assertEquals(List.of(new Point(FIRST_DATE, 12), new Point(FIRST_DATE.plusDays(1), 12)),
+                                DeltaEncodedSeries.decode(second, FIRST_DATE));
+        }
+
+        @Test
+        void testDecode_ExtremeValues() {
+
+                // Given
+                List<Point> points = List.of(new Point(FIRST_DATE, Long.MAX_VALUE),
+                                new Point(FIRST_DATE.plusDays(1), 0), new Point(FIRST_DATE.plusDays(40), -1),
+                                new Point(FIRST_DATE.plusDays(41), Long.MIN_VALUE + 1));
+
+                // Then
+                assertEquals(points, DeltaEncodedSeries.decode(encode(points), FIRST_DATE));
+        }
+
+        @Test
+        void testAppend_PointBeforeLastRejected() {
+
+                // Given
+                byte[] encoded = DeltaEncodedSeries.append(null, FIRST_DATE, 0, FIRST_DATE.plusDays(5), 1);
+
+                // Then
+                assertThrows(IllegalArgumentException.class, () -> DeltaEncodedSeries.append(encoded,
+                                FIRST_DATE.plusDays(5), 1, FIRST_DATE.plusDays(4), 2));
+        }
+
+        @Test
+        void testDecode_Truncated() {
+
+                // Given - A change that needs more than one byte, cut short
+                byte[] encoded = DeltaEncodedSeries.append(null, FIRST_DATE, 0, FIRST_DATE, 1_000_000);
+
+                // Then
+                assertThrows(IllegalArgumentException.class, () -> DeltaEncodedSeries
+                                .decode(Arrays.copyOf(encoded, encoded.length - 1), FIRST_DATE));
+        }
+
+}
@@ -0,0 +1,134 @@
+package com.technicalchallenge.calculations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LogHistogramTest {
+
+        private static void assertWithinAccuracy(double expected, Double actual) {
+                assertNotNull(actual);
+                assertTrue(Math.abs(actual - expected) <= LogHistogram.RELATIVE_ACCURACY * Math.abs(expected),
+                                expected + " estimated as " + actual);
+        }
+
+        /**
+         * Tests every quantile of 1 to 1000 is within 1% of the real one
+         */
+        @Test
+        void testGetQuantile_WithinRelativeAccuracy() {
+
+                // Given
+                LogHistogram histogram = new LogHistogram();
+                for (int i = 1; i <= 1000; i++) {
+                        histogram.accept(i);
+                }
+
+                // Then - the value at rank quantile * (count - 1)
+                assertEquals(1000, histogram.getCount());
+                assertWithinAccuracy(500, histogram.getQuantile(0.5));
+                assertWithinAccuracy(950, histogram.getQuantile(0.95));
+                assertWithinAccuracy(990, histogram.getQuantile(0.99));
+                assertWithinAccuracy(1, histogram.getQuantile(0));
+                assertWithinAccuracy(1000, histogram.getQuantile(1));
+        }
+
+        @Test
+        void testBucketOf_EstimateWithinRelativeAccuracy() {
+
+                // Given - rates to notionals
+                Random random = new Random(42);
+
+                // Then
+                for (int i = 0; i < 100_000; i++) {
+                        double value = Math.exp(random.nextDouble() * 40 - 10);
+                        assertWithinAccuracy(value, LogHistogram.valueOf(LogHistogram.bucketOf(value)));
+                        assertWithinAccuracy(-value, LogHistogram.valueOf(LogHistogram.bucketOf(-value)));
+                }
+        }
+
+        /**
+         * Tests negative values, zero and positive values are in value order
+         */
+        @Test
+        void testGetQuantile_NegativeValuesAndZero() {
+
+                // Given
+                LogHistogram histogram = new LogHistogram();
+                for (double value : new double[] { 3, -5, 0, 2, -0.5 }) {
+                        histogram.accept(value);
+                }
+
+                // Then
+                assertWithinAccuracy(-5, histogram.getQuantile(0));
+                assertWithinAccuracy(-0.5, histogram.getQuantile(0.25));
+                assertEquals(0.0, histogram.getQuantile(0.5));
+                assertWithinAccuracy(2, histogram.getQuantile(0.75));
+                assertWithinAccuracy(3, histogram.getQuantile(1));
+        }
+
+        /**
+         * Tests values taken away are no longer counted
+         */
+        @Test
+        void testAdd_NegativeCountTakesValuesAway() {
+
+                // Given
+                LogHistogram histogram = new LogHistogram();
+                histogram.accept(100);
+                histogram.accept(1000000);
+
+                // When
+                histogram.add(LogHistogram.bucketOf(1000000), -1);
+
+                // Then - the emptied bucket is removed
+                assertEquals(1, histogram.getCount());
+                assertEquals(1, histogram.getCounts().size());
+                assertWithinAccuracy(100, histogram.getQuantile(0.99));
+        }
+
+        @Test
+        void testMerge_SameAsOneHistogram() {
+
+                // Given
+                LogHistogram all = new LogHistogram();
+                LogHistogram left = new LogHistogram();
+                LogHistogram right = new LogHistogram();
+                Random random = new Random(7);
+                for (int i = 0; i < 10_000; i++) {
+                        double value = random.nextDouble() * 10_000_000;
+                        all.accept(value);
+                        (i % 2 == 0 ? left : right).accept(value);
+                }
+
+                // When
+                left.merge(right);
+
+                // Then
+                assertEquals(all.getCounts(), left.getCounts());
+                assertEquals(all.getQuantile(0.95), left.getQuantile(0.95));
+        }
+
+        @Test
+        void testBucketOf_Clamped() {
+
+                // Then - beyond the largest bucket counts in it
+                assertEquals(2 * LogHistogram.MAX_INDEX + 1, LogHistogram.bucketOf(1e40));
+                assertEquals(-(2 * LogHistogram.MAX_INDEX + 1), LogHistogram.bucketOf(-1e40));
+                assertEquals(0, LogHistogram.bucketOf(0));
+        }
+
+        @Test
+        void testGetQuantile_Empty() {
+
+                // Given
+                LogHistogram histogram = new LogHistogram();
+
+                // Then
+                assertNull(histogram.getQuantile(0.5));
+                assertThrows(IllegalArgumentException.class, () -> histogram.getQuantile(1.5));
+        }
+
+}
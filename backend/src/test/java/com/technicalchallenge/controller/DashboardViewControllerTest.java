@@ -7,8 +7,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.*;
 import org.mockito.InjectMocks;
@@ -22,15 +24,28 @@ import org.springframework.security.core.*;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.technicalchallenge.cache.DashboardResultCache;
+import com.technicalchallenge.cache.DashboardResultCache.Cached;
 import com.technicalchallenge.dto.DailySummaryDTO.*;
 import com.technicalchallenge.dto.TradeSummaryDTO.*;
+import com.technicalchallenge.dto.CountMode;
+import com.technicalchallenge.dto.CounterpartyConcentrationDTO;
 import com.technicalchallenge.dto.DailySummaryDTO;
+import com.technicalchallenge.dto.DashboardHistoryDTO;
+import com.technicalchallenge.dto.DistributionDTO;
+import com.technicalchallenge.dto.HierarchyNodeDTO;
 import com.technicalchallenge.dto.TradeSummaryDTO;
 import com.technicalchallenge.model.*;
 import com.technicalchallenge.model.Currency;
 import com.technicalchallenge.security.ApplicationUserDetails;
+import com.technicalchallenge.service.CounterpartyExposureService;
+import com.technicalchallenge.service.DashboardSnapshotService;
+import com.technicalchallenge.service.DashboardStreamService;
 import com.technicalchallenge.service.DashboardViewService;
+import com.technicalchallenge.service.DistributionSketchService;
+import com.technicalchallenge.service.HierarchyRollupService;
 
 /**
  * Unit tests for {@link DashboardViewController}.
@@ -52,6 +67,24 @@ public class DashboardViewControllerTest {
         @MockBean
         private DashboardViewService dashboardViewService;
 
+        @MockBean
+        private DashboardResultCache dashboardResultCache;
+
+        @MockBean
+        private DashboardStreamService dashboardStreamService;
+
+        @MockBean
+        private HierarchyRollupService hierarchyRollupService;
+
+        @MockBean
+        private DistributionSketchService distributionSketchService;
+
+        @MockBean
+        private DashboardSnapshotService dashboardSnapshotService;
+
+        @MockBean
+        private CounterpartyExposureService counterpartyExposureService;
+
         @InjectMocks
         private ApplicationUserDetails userDetails;
 
@@ -75,6 +108,12 @@ public class DashboardViewControllerTest {
         @BeforeEach
         void setUp() {
 
+                // Dashboard cache computes every request
+                when(dashboardResultCache.get(any(), any(), any(), any())).thenAnswer(invocation -> new Cached<>(
+                                ((Supplier<?>) invocation.getArgument(3)).get(), Instant.now(), System.nanoTime()));
+                when(dashboardResultCache.get(any(), any(), any(), any(), any())).thenAnswer(invocation -> new Cached<>(
+                                ((Supplier<?>) invocation.getArgument(3)).get(), Instant.now(), System.nanoTime()));
+
                 // Privilege Reference
                 Privilege privilege = new Privilege();
                 privilege.setName("DASHBOARD_VIEW");
@@ -203,12 +242,13 @@ public class DashboardViewControllerTest {
                 riskExposure2 = new RiskExposure(1002L, 0.0, "FX", "USD", "Recieve", BigDecimal.valueOf(1000000));
 
                 bookActivity1 = new BookActivity(trade1.getBook().getBookName(), "NY Trading", "FX Options",
-                                BigDecimal.valueOf(4000000), 1);
+                                BigDecimal.valueOf(4000000), 1, 2L, null);
                 bookActivity2 = new BookActivity(trade2.getBook().getBookName(), "NY Trading", "FX Options",
-                                BigDecimal.valueOf(6000000), 1);
+                                BigDecimal.valueOf(6000000), 1, 2L, null);
 
                 comparison = new Comparison(BigDecimal.valueOf(-2000000), BigDecimal.valueOf(40.0));
-                metrics = new Metrics(2L, BigDecimal.valueOf(300000), BigDecimal.valueOf(45000000));
+                metrics = new Metrics(2L, BigDecimal.valueOf(300000), BigDecimal.valueOf(45000000),
+                                BigDecimal.valueOf(100000), BigDecimal.valueOf(500000));
 
                 // Mocked User Authentication for Test (Spring Security)
                 ApplicationUserDetails userDetails = new ApplicationUserDetails(tradeUser);
@@ -240,7 +280,7 @@ public class DashboardViewControllerTest {
                                 null, null, null, null,
                                 null);
 
-                when(dashboardViewService.getTraderDashboard(username, pageable)).thenReturn(personalView);
+                when(dashboardViewService.getTraderDashboard(username, pageable, CountMode.EXACT)).thenReturn(personalView);
 
                 // When/Then - set up a GET request to a test endpoint - tests were successful
                 mockMvc.perform(get("/api/trades/dashboard/my-trades")
@@ -256,7 +296,7 @@ public class DashboardViewControllerTest {
                                 .andExpect(jsonPath("$.trades.content[0].tradeExecutionDate").value(
                                                 LocalDate.of(2026, 05, 17).toString()));
                 // Verifies the search happened once
-                verify(dashboardViewService).getTraderDashboard(any(), any());
+                verify(dashboardViewService).getTraderDashboard(any(), any(), any());
         }
 
         /**
@@ -274,14 +314,14 @@ public class DashboardViewControllerTest {
                                 "Your Personal Trading View", username, null, null, null, null, null, null, null,
                                 null);
 
-                when(dashboardViewService.getTraderDashboard(any(), any())).thenReturn(personalView);
+                when(dashboardViewService.getTraderDashboard(any(), any(), any())).thenReturn(personalView);
 
                 // When/Then - set up a GET request to a test endpoint - tests were successful
                 mockMvc.perform(get("/api/trades/dashboard/my-trades"))
                                 .andExpect(status().isNoContent());
 
                 // Verifies the search happened once
-                verify(dashboardViewService).getTraderDashboard(any(), any());
+                verify(dashboardViewService).getTraderDashboard(any(), any(), any());
         }
 
         /**
@@ -320,7 +360,8 @@ public class DashboardViewControllerTest {
                                 .andExpect(jsonPath("$.riskExposure[0].deskName").value("FX"))
                                 .andExpect(jsonPath("$.traderUsername").value("victoria"))
                                 .andExpect(jsonPath("$.notionalByCounterparty[0].percentage").value(
-                                                40.0));
+                                                40.0))
+                                .andExpect(header().string("Age", "0"));
 
                 // Verifies the search happened once
                 verify(dashboardViewService).getTradePortfolioSummaries(any());
@@ -475,4 +516,139 @@ public class DashboardViewControllerTest {
                 verify(dashboardViewService).getDailyTradingStatistics(username);
         }
 
+        /**
+         * Tests the dashboard stream is opened for the logged in trader
+         */
+        @Test
+        @WithMockUser(username = "victoria", roles = "TRADER")
+        @DisplayName("StreamDashboard: 200 OK Response")
+        void testStreamDashboard() throws Exception {
+
+                // Given - Mocked authorized user and an open stream
+                String username = tradeUser.getLoginId();
+
+                when(dashboardStreamService.subscribe(username)).thenReturn(new SseEmitter());
+
+                // When/Then - set up a GET request to a test endpoint - the stream was opened
+                mockMvc.perform(get("/api/trades/dashboard/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted());
+
+                // Verifies the stream was opened once
+                verify(dashboardStreamService).subscribe(username);
+        }
+
+        /**
+         * Tests the hierarchy is returned with the totals at every level
+         */
+        @Test
+        @WithMockUser(username = "victoria", roles = "TRADER")
+        @DisplayName("GetHierarchyRollups: 200 OK Response")
+        void testGetHierarchyRollups() throws Exception {
+
+                // Given - A desk with one book under it
+                HierarchyNodeDTO bookNode = new HierarchyNodeDTO("BOOK", 1000L, "TestBookA", 2L,
+                                BigDecimal.valueOf(8000000), List.of());
+                HierarchyNodeDTO deskNode = new HierarchyNodeDTO("DESK", 1L, "FX", 2L, BigDecimal.valueOf(8000000),
+                                List.of(bookNode));
+
+                when(hierarchyRollupService.getHierarchyTree()).thenReturn(List.of(deskNode));
+
+                // When/Then - set up a GET request to a test endpoint - tests were successful
+                mockMvc.perform(get("/api/trades/dashboard/hierarchy"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].name").value("FX"))
+                                .andExpect(jsonPath("$[0].tradeCount").value(2))
+                                .andExpect(jsonPath("$[0].children[0].name").value("TestBookA"));
+
+                // Verifies the tree was read once
+                verify(hierarchyRollupService).getHierarchyTree();
+        }
+
+        /**
+         * Tests the book's percentiles are returned from the maintained histograms
+         */
+        @Test
+        @WithMockUser(username = "victoria", roles = "TRADER")
+        @DisplayName("GetBookDistribution: 200 OK Response")
+        void testGetBookDistribution() throws Exception {
+
+                // Given - A book with notionals and rates
+                DistributionDTO distribution = new DistributionDTO("BOOK", 1000L,
+                                new DistributionDTO.Quantiles(100L, new BigDecimal("1000000.00"),
+                                                new BigDecimal("1980000.00"), new BigDecimal("1980000.00")),
+                                new DistributionDTO.Quantiles(100L, new BigDecimal("0.0502799"),
+                                                new BigDecimal("0.0502799"), new BigDecimal("0.0502799")));
+
+                when(distributionSketchService.getBookDistribution(1000L)).thenReturn(distribution);
+
+                // When/Then - set up a GET request to a test endpoint - tests were successful
+                mockMvc.perform(get("/api/trades/dashboard/book/1000/distribution"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.level").value("BOOK"))
+                                .andExpect(jsonPath("$.notional.legCount").value(100))
+                                .andExpect(jsonPath("$.notional.p95").value(1980000.00));
+
+                // Verifies the histograms were read once
+                verify(distributionSketchService).getBookDistribution(1000L);
+        }
+
+        /**
+         * Tests the book's end of day history is returned from its series
+         */
+        @Test
+        @WithMockUser(username = "victoria", roles = "TRADER")
+        @DisplayName("GetBookHistory: 200 OK Response")
+        void testGetBookHistory() throws Exception {
+
+                // Given - Two days snapshotted for the book
+                LocalDate fromDate = LocalDate.of(2025, 11, 6);
+                LocalDate toDate = LocalDate.of(2025, 11, 7);
+                DashboardHistoryDTO history = new DashboardHistoryDTO("BOOK", "1000", fromDate, toDate, List.of(
+                                new DashboardHistoryDTO.Point(fromDate, 2L, new BigDecimal("3000000.00"),
+                                                Map.of("EUR", new BigDecimal("3000000.00"))),
+                                new DashboardHistoryDTO.Point(toDate, 3L, new BigDecimal("4000000.00"),
+                                                Map.of("EUR", new BigDecimal("4000000.00")))));
+
+                when(dashboardSnapshotService.getBookHistory(1000L, fromDate, toDate)).thenReturn(history);
+
+                // When/Then - set up a GET request to a test endpoint - tests were successful
+                mockMvc.perform(get("/api/trades/dashboard/book/1000/history")
+                                .param("fromDate", "2025-11-06")
+                                .param("toDate", "2025-11-07"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.points.length()").value(2))
+                                .andExpect(jsonPath("$.points[1].tradeCount").value(3))
+                                .andExpect(jsonPath("$.points[1].currencyMix.EUR").value(4000000.00));
+
+                // Verifies the series were read once
+                verify(dashboardSnapshotService).getBookHistory(1000L, fromDate, toDate);
+        }
+
+        /**
+         * Tests the book's top counterparties are returned from the maintained
+         * exposures
+         */
+        @Test
+        @WithMockUser(username = "victoria", roles = "TRADER")
+        @DisplayName("GetBookCounterparties: 200 OK Response")
+        void testGetBookCounterparties() throws Exception {
+
+                // Given - The book's largest counterparty
+                CounterpartyConcentrationDTO concentration = new CounterpartyConcentrationDTO("BOOK", 1000L,
+                                new BigDecimal("10000000.00"), List.of(counterpartyBreakdown));
+
+                when(counterpartyExposureService.getBookConcentration(1000L, 5)).thenReturn(concentration);
+
+                // When/Then - set up a GET request to a test endpoint - tests were successful
+                mockMvc.perform(get("/api/trades/dashboard/book/1000/counterparties").param("top", "5"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.level").value("BOOK"))
+                                .andExpect(jsonPath("$.topCounterparties.length()").value(1))
+                                .andExpect(jsonPath("$.topCounterparties[0].counterpartyName")
+                                                .value("TestcounterpartyA"));
+
+                // Verifies the top exposures were read once
+                verify(counterpartyExposureService).getBookConcentration(1000L, 5);
+        }
+
 }
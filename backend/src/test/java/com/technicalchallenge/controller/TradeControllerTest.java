@@ -348,6 +348,61 @@ public class TradeControllerTest {
                 verify(tradeService).getTradeById(9999L);
         }
 
+        @Test
+        @WithMockUser(username = "john", authorities = { "READ_TRADE" })
+        @DisplayName("GetTradesByIds: 200 OK Response")
+        void testGetTradesByIds() throws Exception {
+                // Given
+                when(tradeService.getTradesByIds(List.of(1001L, 1002L))).thenReturn(List.of(trade, trade));
+
+                // When/Then
+                mockMvc.perform(get("/api/trades")
+                                .param("ids", "1001,1002")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$", hasSize(2)))
+                                .andExpect(jsonPath("$[0].tradeId", is(1001)));
+
+                verify(tradeService).getTradesByIds(List.of(1001L, 1002L));
+                verify(tradeService, never()).getAllTrades();
+        }
+
+        @Test
+        @WithMockUser(username = "john", authorities = { "READ_TRADE" })
+        @DisplayName("PostTradesByIds: 200 OK Response")
+        void testPostTradesByIds() throws Exception {
+                // Given
+                when(tradeService.getTradesByIds(List.of(1001L, 1002L, 1003L)))
+                                .thenReturn(List.of(trade, trade, trade));
+
+                // When/Then
+                mockMvc.perform(post("/api/trades/multi-get")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1001, 1002, 1003]"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$", hasSize(3)));
+
+                verify(tradeService).getTradesByIds(List.of(1001L, 1002L, 1003L));
+        }
+
+        @Test
+        @WithMockUser(username = "john", authorities = { "READ_TRADE" })
+        @DisplayName("GetTradesByIdsNotFound: 404 NOT FOUND")
+        void testGetTradesByIdsNotFound() throws Exception {
+                // Given
+                when(tradeService.getTradesByIds(List.of(1001L, 9999L)))
+                                .thenThrow(new TradeNotFoundException("tradeId", List.of(9999L)));
+
+                // When/Then
+                mockMvc.perform(get("/api/trades")
+                                .param("ids", "1001,9999")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(status().isNotFound());
+        }
+
         @Test
         @WithMockUser(username = "john", authorities = { "CREATE_TRADE" })
         @DisplayName("CreateTrade: 201 CREATED")
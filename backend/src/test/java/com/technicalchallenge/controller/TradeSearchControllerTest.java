@@ -1,6 +1,9 @@
 package com.technicalchallenge.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -17,15 +20,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.*;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.technicalchallenge.dto.CountMode;
+import com.technicalchallenge.dto.SliceDTO;
 import com.technicalchallenge.dto.TradeDTO;
 import com.technicalchallenge.mapper.TradeMapper;
 import com.technicalchallenge.model.ApplicationUser;
@@ -37,6 +45,7 @@ import com.technicalchallenge.model.UserProfile;
 import com.technicalchallenge.security.ApplicationUserDetails;
 import com.technicalchallenge.service.TradeSearchService;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -146,10 +155,6 @@ public class TradeSearchControllerTest {
                 tradeDTO.setCounterpartyId(1L);
                 tradeDTO.setCounterpartyName("TestCounterpartyA");
 
-                // 2nd Trade Entity
-                Trade trade2 = new Trade();
-                trade2.setId(2L);
-                trade2.setCounterparty(counterparty);
 
                 // 2nd TradeDTO
                 TradeDTO tradeDTO2 = new TradeDTO();
@@ -157,12 +162,10 @@ public class TradeSearchControllerTest {
                 tradeDTO2.setCounterpartyId(1L);
                 tradeDTO2.setCounterpartyName("TestCounterpartyA");
 
-                List<Trade> tradeDTOlList = List.of(trade2, trade);
-                Page<Trade> trades = new PageImpl<>(tradeDTOlList);
+                List<TradeDTO> tradeDTOlList = List.of(tradeDTO2, tradeDTO);
+                Page<TradeDTO> trades = new PageImpl<>(tradeDTOlList);
 
-                when(tradeSearchService.getAllTrades(any(), any(), any())).thenReturn(trades);
-                when(tradeMapper.toDto(trade)).thenReturn(tradeDTO);
-                when(tradeMapper.toDto(trade2)).thenReturn(tradeDTO2);
+                when(tradeSearchService.searchTrades(any(), any(), any())).thenReturn(trades);
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -183,7 +186,7 @@ public class TradeSearchControllerTest {
                                 .andExpect(jsonPath("$.content[0].id", is(2)))
                                 .andExpect(jsonPath("$.content[1].id", is(1)));
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTrades(any(), any(),
+                verify(tradeSearchService).searchTrades(any(), any(),
                                 any());
         }
 
@@ -195,8 +198,8 @@ public class TradeSearchControllerTest {
         @DisplayName("GetTradesByFilterNoContent: 204 NO CONTENT")
         void testGetTradesByFilterNoContent() throws Exception {
                 // Given - Mocked page and service returns empty list
-                Page<Trade> trades = new PageImpl<>(Collections.emptyList());
-                when(tradeSearchService.getAllTrades(any(), any(), any())).thenReturn(trades);
+                Page<TradeDTO> trades = new PageImpl<>(Collections.emptyList());
+                when(tradeSearchService.searchTrades(any(), any(), any())).thenReturn(trades);
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -212,10 +215,39 @@ public class TradeSearchControllerTest {
                                 .andExpect(status().isNoContent());
 
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTrades(any(), any(),
+                verify(tradeSearchService).searchTrades(any(), any(),
                                 any());
         }
 
+        /**
+         * Tests the count-free filter returns hasNext and the approximate total
+         */
+        @Test
+        @WithMockUser(username = "john", roles = "TRADER")
+        @DisplayName("GetTradesByFilterSlice: 200 OK Response")
+        void testGetTradesByFilterSlice() throws Exception {
+                // Given - A full first page with an approximate total
+                SliceDTO<TradeDTO> slice = new SliceDTO<>(List.of(tradeDTO), 1, 1, true, 40L, false);
+                when(tradeSearchService.searchTradeSlice(any(), any(), any(), eq(CountMode.APPROXIMATE)))
+                                .thenReturn(slice);
+
+                // When/Then
+                mockMvc.perform(get("/api/trades/filter")
+                                .param("pageNo", "1")
+                                .param("pageSize", "1")
+                                .param("count", "APPROXIMATE")
+                                .accept(MediaType.APPLICATION_JSON))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content.length()").value(1))
+                                .andExpect(jsonPath("$.hasNext").value(true))
+                                .andExpect(jsonPath("$.totalElements").value(40))
+                                .andExpect(jsonPath("$.totalExact").value(false));
+
+                // Verifies the slice was read instead of the counted page
+                verify(tradeSearchService).searchTradeSlice(any(), any(), any(), eq(CountMode.APPROXIMATE));
+                verify(tradeSearchService, never()).searchTrades(any(), any(), any());
+        }
+
         /**
          * Tests expected response code when a trade has been searched using RSQL
          */
@@ -225,7 +257,7 @@ public class TradeSearchControllerTest {
         void testGetAllTradesByRSQL() throws Exception {
                 // Given - New Trade and mocked service method
                 List<Trade> trades = List.of(trade);
-                when(tradeSearchService.getAllTradesByRSQL(any())).thenReturn(trades);
+                when(tradeSearchService.getAllTradesByRSQL(any(), any())).thenReturn(new SliceImpl<>(trades));
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -243,7 +275,61 @@ public class TradeSearchControllerTest {
                                 .andExpect(jsonPath("$[0].bookName", is("TestBook")))
                                 .andExpect(jsonPath("$[0].counterpartyName", is("TestCounterparty")));
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTradesByRSQL(any());
+                verify(tradeSearchService).getAllTradesByRSQL(any(), any());
+        }
+
+        /**
+         * Tests a cut off rsql search links to the next page
+         */
+        @Test
+        @WithMockUser(username = "john", roles = "TRADER")
+        @DisplayName("GetAllTradesByRsqlNextPage: 200 OK Response with Link header")
+        void testGetAllTradesByRsqlNextPage() throws Exception {
+                // Given - Mocked service returns the first page of a broad query
+                when(tradeSearchService.getAllTradesByRSQL(any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade), PageRequest.of(0, 1), true));
+
+                // When/Then
+                mockMvc.perform(get("/api/trades/rsql")
+                                .param("query", "counterparty.name==*Bank*"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$", hasSize(1)))
+                                // expect a link to the second page
+                                .andExpect(header().string("Link", containsString("pageNo=2")))
+                                .andExpect(header().string("Link", containsString("rel=\"next\"")));
+        }
+
+        /**
+         * Tests the rsql search streams one trade per line as NDJSON
+         */
+        @Test
+        @WithMockUser(username = "john", roles = "TRADER")
+        @DisplayName("StreamTradesByRSQL: 200 OK Response as NDJSON")
+        void testStreamTradesByRSQL() throws Exception {
+                // Given - Mocked service streams two trades
+                when(tradeSearchService.streamTradesByRSQL(any())).thenReturn(action -> {
+                        action.accept(trade);
+                        action.accept(trade);
+                        return 2;
+                });
+
+                // When - The client asks for NDJSON
+                MvcResult result = mockMvc.perform(get("/api/trades/rsql")
+                                .param("query", "counterparty.name==*Bank*")
+                                .accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                // Then - Each trade is written on its own line
+                String body = mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn().getResponse().getContentAsString();
+
+                String[] lines = body.split("\n");
+                assertEquals(2, lines.length);
+                assertEquals("TestBook", objectMapper.readTree(lines[0]).get("bookName").asText());
+                verify(tradeSearchService).streamTradesByRSQL(any());
         }
 
         /**
@@ -254,7 +340,7 @@ public class TradeSearchControllerTest {
         @DisplayName("GetAllTradesByRsqlNoContent: 204 NO CONTENT")
         void testGetAllTradesByRsqlNoContent() throws Exception {
                 // Given - Mocked Service returns empty list
-                when(tradeSearchService.getAllTradesByRSQL(any())).thenReturn(List.of());
+                when(tradeSearchService.getAllTradesByRSQL(any(), any())).thenReturn(new SliceImpl<>(List.of()));
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -265,7 +351,7 @@ public class TradeSearchControllerTest {
                                 // expect response status 204 NO CONTENT
                                 .andExpect(status().isNoContent());
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTradesByRSQL(any());
+                verify(tradeSearchService).getAllTradesByRSQL(any(), any());
         }
 
         /**
@@ -276,8 +362,8 @@ public class TradeSearchControllerTest {
         @DisplayName("GetTradesByFilterNoContent: 200 OK Response")
         void testGetAllTradesByCriteria() throws Exception {
                 // Given - New Trade and mocked service method
-                List<Trade> trades = List.of(trade);
-                when(tradeSearchService.getAllTradesByCriteria(any())).thenReturn(trades);
+                List<TradeDTO> trades = List.of(tradeDTO);
+                when(tradeSearchService.searchTradesByCriteria(any())).thenReturn(trades);
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -295,7 +381,7 @@ public class TradeSearchControllerTest {
                                 .andExpect(jsonPath("$[0].bookName", is("TestBook")))
                                 .andExpect(jsonPath("$[0].tradeStatus", is("LIVE")));
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTradesByCriteria(any());
+                verify(tradeSearchService).searchTradesByCriteria(any());
         }
 
         /**
@@ -306,7 +392,7 @@ public class TradeSearchControllerTest {
         @DisplayName("GetAllTradesByCriteriaNoContent: 204 NO CONTENT")
         void testGetAllTradesByCriteriaNoContent() throws Exception {
                 // Given - Mocked Service returns empty list
-                when(tradeSearchService.getAllTradesByCriteria(any())).thenReturn(List.of());
+                when(tradeSearchService.searchTradesByCriteria(any())).thenReturn(List.of());
 
                 // When/Then
                 // set up a GET request to a test endpoint
@@ -316,7 +402,7 @@ public class TradeSearchControllerTest {
                                 // expect response status 204 NO CONTENT
                                 .andExpect(status().isNoContent());
                 // Verifies the search happened once
-                verify(tradeSearchService).getAllTradesByCriteria(any());
+                verify(tradeSearchService).searchTradesByCriteria(any());
         }
 
 }
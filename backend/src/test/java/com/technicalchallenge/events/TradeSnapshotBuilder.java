@@ -0,0 +1,126 @@
+package com.technicalchallenge.events;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+
+/**
+ * Builds TradeSnapshots for tests, an active NEW Swap on FX-BOOK-1 with
+ * BigBank booked by john and no legs unless told otherwise.
+ */
+public final class TradeSnapshotBuilder {
+
+        private Long id = 1L;
+        private Long tradeId = 100001L;
+        private Integer version = 1;
+        private boolean active = true;
+        private Long bookId = 1L;
+        private String bookName = "FX-BOOK-1";
+        private Long counterpartyId = 1L;
+        private String counterpartyName = "BigBank";
+        private String tradeStatus = "NEW";
+        private String tradeType = "Swap";
+        private Long traderUserId = 1L;
+        private String traderLoginId = "john";
+        private LocalDate tradeDate;
+        private List<LegSnapshot> legs = List.of();
+
+        private TradeSnapshotBuilder() {
+        }
+
+        public static TradeSnapshotBuilder aTrade() {
+                return new TradeSnapshotBuilder();
+        }
+
+        public TradeSnapshotBuilder id(Long id) {
+                this.id = id;
+                return this;
+        }
+
+        public TradeSnapshotBuilder tradeId(Long tradeId) {
+                this.tradeId = tradeId;
+                return this;
+        }
+
+        public TradeSnapshotBuilder version(Integer version) {
+                this.version = version;
+                return this;
+        }
+
+        public TradeSnapshotBuilder active(boolean active) {
+                this.active = active;
+                return this;
+        }
+
+        public TradeSnapshotBuilder book(Long bookId, String bookName) {
+                this.bookId = bookId;
+                this.bookName = bookName;
+                return this;
+        }
+
+        public TradeSnapshotBuilder bookId(Long bookId) {
+                this.bookId = bookId;
+                return this;
+        }
+
+        public TradeSnapshotBuilder bookName(String bookName) {
+                this.bookName = bookName;
+                return this;
+        }
+
+        public TradeSnapshotBuilder counterparty(Long counterpartyId, String counterpartyName) {
+                this.counterpartyId = counterpartyId;
+                this.counterpartyName = counterpartyName;
+                return this;
+        }
+
+        public TradeSnapshotBuilder tradeStatus(String tradeStatus) {
+                this.tradeStatus = tradeStatus;
+                return this;
+        }
+
+        public TradeSnapshotBuilder tradeType(String tradeType) {
+                this.tradeType = tradeType;
+                return this;
+        }
+
+        public TradeSnapshotBuilder trader(Long traderUserId, String traderLoginId) {
+                this.traderUserId = traderUserId;
+                this.traderLoginId = traderLoginId;
+                return this;
+        }
+
+        public TradeSnapshotBuilder traderLoginId(String traderLoginId) {
+                this.traderLoginId = traderLoginId;
+                return this;
+        }
+
+        public TradeSnapshotBuilder tradeDate(LocalDate tradeDate) {
+                this.tradeDate = tradeDate;
+                return this;
+        }
+
+        public TradeSnapshotBuilder legs(LegSnapshot... legs) {
+                this.legs = List.of(legs);
+                return this;
+        }
+
+        // A fixed EUR pay leg at 5% and a floating EUR receive leg
+        public TradeSnapshotBuilder payAndReceive(BigDecimal payNotional, BigDecimal receiveNotional) {
+                return legs(new LegSnapshot(1L, payNotional, 0.05, "EUR", "Pay"),
+                                new LegSnapshot(2L, receiveNotional, null, "EUR", "Receive"));
+        }
+
+        public TradeSnapshotBuilder payAndReceive(long payNotional, long receiveNotional) {
+                return payAndReceive(BigDecimal.valueOf(payNotional), BigDecimal.valueOf(receiveNotional));
+        }
+
+        public TradeSnapshot build() {
+                return new TradeSnapshot(id, tradeId, version, active, bookId, bookName, counterpartyId,
+                                counterpartyName, tradeStatus, tradeType, traderUserId, traderLoginId, "John", "Smith",
+                                "John", "Smith", tradeDate, legs);
+        }
+
+}
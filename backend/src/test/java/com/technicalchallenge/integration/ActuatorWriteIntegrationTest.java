@@ -0,0 +1,63 @@
+package com.technicalchallenge.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration Tests for the actuator's write operations
+ */
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+public class ActuatorWriteIntegrationTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        /**
+         * Tests a trader can't rebuild the book activity counters
+         */
+        @Test
+        void shouldForbidRebuildWithoutWriteActuator() throws Exception {
+
+                mockMvc.perform(post("/actuator/bookactivity")
+                                .with(httpBasic("simon", "password")))
+                                .andExpect(status().isForbidden());
+        }
+
+        /**
+         * Tests an admin rebuilds the book activity counters, one per trader
+         * and book of the test data's live trades
+         */
+        @Test
+        void shouldRebuildWithWriteActuator() throws Exception {
+
+                mockMvc.perform(post("/actuator/bookactivity")
+                                .with(httpBasic("alice", "password")))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.countersRebuilt").value(2));
+        }
+
+        /**
+         * Tests the write operations still need a login
+         */
+        @Test
+        void shouldRejectRebuildWithoutLogin() throws Exception {
+
+                mockMvc.perform(post("/actuator/bookactivity"))
+                                .andExpect(status().isUnauthorized());
+        }
+
+}
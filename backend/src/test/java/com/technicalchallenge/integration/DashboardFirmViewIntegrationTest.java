@@ -0,0 +1,67 @@
+package com.technicalchallenge.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration Tests for the dashboard's firm-wide figures
+ */
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+public class DashboardFirmViewIntegrationTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        /**
+         * Tests a trader can't read the hierarchy or a book's figures with
+         * DASHBOARD_VIEW alone, access denied is answered 401
+         */
+        @Test
+        void shouldForbidFirmFiguresWithoutFirmView() throws Exception {
+
+                for (String url : new String[] { "/api/trades/dashboard/hierarchy",
+                                "/api/trades/dashboard/book/1000/distribution", "/api/trades/dashboard/book/1000/history",
+                                "/api/trades/dashboard/book/1000/counterparties" }) {
+                        mockMvc.perform(get(url)
+                                        .with(httpBasic("simon", "password")))
+                                        .andExpect(status().isUnauthorized());
+                }
+        }
+
+        /**
+         * Tests a superuser reads the hierarchy
+         */
+        @Test
+        void shouldReturnHierarchyWithFirmView() throws Exception {
+
+                mockMvc.perform(get("/api/trades/dashboard/hierarchy")
+                                .with(httpBasic("stuart", "password")))
+                                .andExpect(status().isOk());
+        }
+
+        /**
+         * Tests a trader still reads their own counterparties, none are
+         * maintained for the test data's trades
+         */
+        @Test
+        void shouldReturnOwnCounterpartiesWithDashboardView() throws Exception {
+
+                mockMvc.perform(get("/api/trades/dashboard/counterparties")
+                                .with(httpBasic("simon", "password")))
+                                .andExpect(status().isNoContent());
+        }
+
+}
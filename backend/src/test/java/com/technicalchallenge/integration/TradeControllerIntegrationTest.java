@@ -202,6 +202,24 @@ public class TradeControllerIntegrationTest {
                                 .andExpect(jsonPath("$.content[0].utiCode").value("UTI-001"));
         }
 
+        /**
+         * Paginated Filter Search: Tests expected response code when the sort column
+         * isn't one of the indexed sortable columns
+         */
+        @Test
+        void shouldReturnBadRequestForUnsupportedSort() throws Exception {
+
+                mockMvc.perform(get("/api/trades/filter")
+                                .with(httpBasic("simon", "password"))
+                                .param("sortBy", "counterparty.name")
+                                .param("sortDir", "asc")
+                                .param("pageNo", "1")
+                                .param("pageSize", "4")
+                                .contentType(
+                                                MediaType.APPLICATION_JSON))
+                                .andExpect(status().isBadRequest());
+        }
+
         /**
          * Paginated Filter Search: Tests expected response code when no results have
          * been found
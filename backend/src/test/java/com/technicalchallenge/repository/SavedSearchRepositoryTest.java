@@ -0,0 +1,98 @@
+package com.technicalchallenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.model.SavedSearch;
+import com.technicalchallenge.specification.RsqlPlanCache;
+import com.technicalchallenge.specification.TradeSpecification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the saved search queries against the test data.sql trades: 1000 on
+ * FX-BOOK-1 with BigBank and two legs, 1001 and 1002 on RATES-BOOK-1 with
+ * MegaFund, 1001 with one leg.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:savedsearches")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+public class SavedSearchRepositoryTest {
+
+        @Autowired
+        private SavedSearchRepository savedSearchRepository;
+
+        @Autowired
+        private SavedSearchMemberRepository savedSearchMemberRepository;
+
+        private final RsqlPlanCache rsqlPlanCache = new RsqlPlanCache(new SimpleMeterRegistry(), 16);
+
+        private SavedSearch savedSearch(String name, String matchKey) {
+                SavedSearch savedSearch = new SavedSearch();
+                savedSearch.setName(name);
+                savedSearch.setOwnerLoginId("simon");
+                savedSearch.setQueryType(SavedSearch.RSQL);
+                savedSearch.setQueryText("tradeId==100001");
+                savedSearch.setMatchKey(matchKey);
+                return savedSearchRepository.save(savedSearch);
+        }
+
+        /**
+         * Tests a criteria search's trades are stored with one insert
+         */
+        @Test
+        void testInsertMatching_CriteriaSearch() {
+                SavedSearch saved = savedSearch("MegaFund", "COUNTERPARTY:MegaFund");
+
+                int inserted = savedSearchMemberRepository.insertMatching(saved.getId(), TradeSpecification
+                                .getTradeCriteria(new SearchTradeByCriteria(null, "MegaFund", null, null, null, null,
+                                                null, null, null)));
+
+                assertEquals(2, inserted);
+                assertEquals(List.of(1001L, 1002L),
+                                savedSearchMemberRepository.findTradeIds(saved.getId(), Pageable.unpaged()).getContent());
+        }
+
+        /**
+         * Tests a compiled RSQL search joining the legs stores each trade once
+         */
+        @Test
+        void testInsertMatching_RsqlSearchJoiningLegs() {
+                SavedSearch saved = savedSearch("Legs", null);
+
+                int inserted = savedSearchMemberRepository.insertMatching(saved.getId(),
+                                rsqlPlanCache.toSpecification("tradeLegs.notional=gt=0"));
+
+                assertEquals(2, inserted);
+                assertEquals(List.of(1000L, 1001L),
+                                savedSearchMemberRepository.findTradeIds(saved.getId(), Pageable.unpaged()).getContent());
+        }
+
+        /**
+         * Tests a write loads the searches keyed on its values and the unkeyed
+         * ones
+         */
+        @Test
+        void testFindCandidates() {
+                savedSearch("FX", "BOOK:FX-BOOK-1");
+                savedSearch("Rates", "BOOK:RATES-BOOK-1");
+                savedSearch("Any", null);
+
+                List<String> names = savedSearchRepository
+                                .findCandidates(Set.of("BOOK:FX-BOOK-1", "COUNTERPARTY:BigBank", "STATUS:LIVE"))
+                                .stream().map(SavedSearch::getName).sorted().toList();
+
+                assertEquals(List.of("Any", "FX"), names);
+        }
+
+}
@@ -0,0 +1,207 @@
+package com.technicalchallenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.specification.TradeSortColumn;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Explains every SQL statement the TradeRepository queries run against a
+ * large seeded dataset and fails if the planner picks a full scan of a large
+ * table, and checks the sortable columns are read in index order. Uses its
+ * own in-memory database so the seeded trades don't leak into the other
+ * tests.
+ */
+@DataJpaTest(properties = {
+                "spring.datasource.url=jdbc:h2:mem:queryplans",
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                + "com.technicalchallenge.repository.TradeRepositoryQueryPlanTest$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+public class TradeRepositoryQueryPlanTest {
+
+        private static final int TRADERS = 100;
+        private static final int TRADES = 20_000;
+
+        // Large tables that must always be reached through an index
+        private static final Pattern FULL_SCAN = Pattern
+                        .compile("(?i)\\b(trade|trade_leg|cashflow|additional_info)\\.tableScan");
+
+        @Autowired
+        private TradeRepository tradeRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        /**
+         * Records the SQL Hibernate sends so it can be explained
+         */
+        public static class RecordingStatementInspector implements StatementInspector {
+
+                static final List<String> statements = new CopyOnWriteArrayList<>();
+
+                @Override
+                public String inspect(String sql) {
+                        statements.add(sql);
+                        return sql;
+                }
+        }
+
+        @BeforeEach
+        void setUp() {
+                // ANALYZE commits, so the seeded rows outlive each test's rollback
+                if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trade WHERE id > 100000", Long.class) > 0) {
+                        return;
+                }
+
+                // Given - 100 traders, 20,000 trades over a year and two legs per trade
+                jdbcTemplate.update("INSERT INTO application_user (id, first_name, last_name, login_id, password,"
+                                + " active, user_profile_id, version)"
+                                + " SELECT 5000 + x, 'Trader', 'No' || x, 'trader' || x, 'password', true, 1000, 1"
+                                + " FROM SYSTEM_RANGE(1, " + TRADERS + ")");
+
+                jdbcTemplate.update("INSERT INTO trade (id, trade_id, version, book_id, counterparty_id, trader_user_id,"
+                                + " inputter_user_id, trade_type_id, trade_sub_type_id, trade_status_id, uti_code, trade_date,"
+                                + " trade_start_date, trade_maturity_date, trade_execution_date, active, created_date)"
+                                + " SELECT 100000 + x, 500000 + x, 1, 1000 + MOD(x, 2), 1000 + MOD(x, 2),"
+                                + " 5001 + MOD(x, " + TRADERS + "), 5001 + MOD(x, " + TRADERS + "), 1000 + MOD(x, 3), 1000,"
+                                + " 1000 + MOD(x, 6), 'UTI' || x, DATEADD('DAY', -MOD(x, 365), DATE '2025-06-01'),"
+                                + " DATE '2025-06-03', DATE '2030-06-03', DATE '2025-06-01', MOD(x, 10) <> 0,"
+                                + " CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, " + TRADES + ")");
+
+                jdbcTemplate.update("INSERT INTO trade_leg (leg_id, notional, rate, trade_id, currency_id,"
+                                + " leg_rate_type_id, pay_rec_id, active, created_date)"
+                                + " SELECT 200000 + x, 1000000, 0.05, 100000 + (x + 1) / 2, 1000 + MOD(x, 3),"
+                                + " 1000 + MOD(x, 2), 1000 + MOD(x, 2), true, CURRENT_TIMESTAMP"
+                                + " FROM SYSTEM_RANGE(1, " + (TRADES * 2) + ")");
+
+                // Refresh the planner's statistics for the seeded rows
+                jdbcTemplate.execute("ANALYZE");
+        }
+
+        /**
+         * Tests no TradeRepository query plans a full scan of trade, trade_leg,
+         * cashflow or additional_info
+         */
+        @Test
+        void testTradeRepositoryQueries_NoFullScans() {
+                // findByActiveTrueOrderByTradeIdDesc returns every active trade so reads the
+                // whole table by design, and the specification searches are planned per filter
+                Map<String, Runnable> queries = new LinkedHashMap<>();
+                queries.put("findByTradeId", () -> tradeRepository.findByTradeId(500001L));
+                queries.put("findMaxTradeId", () -> tradeRepository.findMaxTradeId());
+                queries.put("findMaxVersionByTradeId", () -> tradeRepository.findMaxVersionByTradeId(500001L));
+                queries.put("findByTradeIdAndActiveTrue", () -> tradeRepository.findByTradeIdAndActiveTrue(500001L));
+                queries.put("findLatestActiveVersionByTradeId",
+                                () -> tradeRepository.findLatestActiveVersionByTradeId(500001L));
+                queries.put("findActiveTradesWithLegs",
+                                () -> tradeRepository.findActiveTradesWithLegs(List.of(500001L, 500002L)));
+                queries.put("fetchLegCashflows", () -> tradeRepository.fetchLegCashflows(
+                                List.of(entityManager.getReference(Trade.class, 100001L))));
+                queries.put("findPersonalTradesView",
+                                () -> tradeRepository.findPersonalTradesView("trader1", PageRequest.of(0, 10)));
+                queries.put("findPersonalTradesSlice",
+                                () -> tradeRepository.findPersonalTradesSlice("trader1", PageRequest.of(0, 10)));
+                queries.put("countPersonalTrades", () -> tradeRepository.countPersonalTrades("trader1"));
+                queries.put("findResultsOfTotals", () -> tradeRepository.findResultsOfTotals("trader1"));
+                queries.put("streamPortfolioRows",
+                                () -> tradeRepository.streamPortfolioRows(100001L, 100100L, row -> {
+                                }));
+
+                List<String> failures = new ArrayList<>();
+
+                for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+                        // When - The query runs and each statement it sent is explained
+                        entityManager.clear();
+                        RecordingStatementInspector.statements.clear();
+                        query.getValue().run();
+
+                        List<String> statements = List.copyOf(RecordingStatementInspector.statements);
+                        assertFalse(statements.isEmpty(), query.getKey() + " didn't run any SQL");
+
+                        for (String sql : statements) {
+                                String plan = explain(sql);
+                                if (FULL_SCAN.matcher(plan).find()) {
+                                        failures.add(query.getKey() + ":\n" + plan);
+                                }
+                        }
+                }
+
+                // Then - Every large table was reached through an index
+                assertTrue(failures.isEmpty(), "Queries planned full scans:\n\n" + String.join("\n\n", failures));
+        }
+
+        /**
+         * Tests a sorted page on each sortable column reads its index in order
+         * instead of sorting the trade table
+         */
+        @Test
+        void testSortableColumns_IndexSorted() {
+                List<String> failures = new ArrayList<>();
+
+                for (TradeSortColumn column : TradeSortColumn.values()) {
+                        // id sorts on the primary key
+                        if (column == TradeSortColumn.ID) {
+                                continue;
+                        }
+
+                        // When - The first page is sorted by the column, H2 only reads indexes in
+                        // their declared ascending order
+                        RecordingStatementInspector.statements.clear();
+                        tradeRepository.findAll((Specification<Trade>) null,
+                                        PageRequest.of(0, 50, column.sort(Sort.Direction.ASC)));
+
+                        String plan = explain(RecordingStatementInspector.statements.get(0));
+                        if (!plan.contains("index sorted")) {
+                                failures.add(column.getProperty() + ":\n" + plan);
+                        }
+                }
+
+                // Then - Every sortable column has an index that returns rows in order
+                assertTrue(failures.isEmpty(), "Sorts not served by an index:\n\n" + String.join("\n\n", failures));
+        }
+
+        // The plan doesn't depend on the values, so every parameter is bound to null
+        private String explain(String sql) {
+                return jdbcTemplate.query(connection -> {
+                        var statement = connection.prepareStatement("EXPLAIN " + sql);
+                        int parameters = statement.getParameterMetaData().getParameterCount();
+                        for (int i = 1; i <= parameters; i++) {
+                                statement.setObject(i, null);
+                        }
+                        return statement;
+                }, resultSet -> {
+                        StringBuilder plan = new StringBuilder();
+                        while (resultSet.next()) {
+                                plan.append(resultSet.getString(1));
+                        }
+                        return plan.toString();
+                });
+        }
+
+}
@@ -0,0 +1,573 @@
+package com.technicalchallenge.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+import com.technicalchallenge.calculations.BigDecimalPercentages;
+import com.technicalchallenge.calculations.LogHistogram;
+import com.technicalchallenge.dto.DailySummaryDTO.BookActivity;
+import com.technicalchallenge.dto.HierarchyNodeDTO;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.CounterpartyExposure;
+import com.technicalchallenge.model.CounterpartyExposureId;
+import com.technicalchallenge.model.DistributionBucket;
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.model.OrgHierarchyRollupId;
+import com.technicalchallenge.model.TraderBlotterSummary;
+import com.technicalchallenge.model.TraderDailyRollup;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.service.BookActivityCounterService;
+import com.technicalchallenge.service.CounterpartyExposureService;
+import com.technicalchallenge.service.DistributionSketchService;
+import com.technicalchallenge.service.HierarchyRollupService;
+import com.technicalchallenge.service.PortfolioRecomputation;
+import com.technicalchallenge.service.TraderBlotterSummaryService;
+import com.technicalchallenge.service.TraderDailyRollupService;
+import com.technicalchallenge.service.TraderPortfolioAggregateService;
+
+/**
+ * Runs the aggregates kept up to date by trade writes against H2.
+ *
+ * The schema is migrated up to the last version before the aggregates, the
+ * test data.sql trades are loaded, an inactive earlier version of a trade is
+ * added and the rest of the migrations run, so their backfills read the
+ * seeded trades. Each test then books, amends and cancels a trade through the
+ * services' native SQL and reads back the stored rows.
+ */
+@DataJpaTest(properties = {
+                "spring.datasource.url=jdbc:h2:mem:tradewriteaggregates;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "spring.flyway.target=5",
+                "spring.jpa.hibernate.ddl-auto=none" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import({ TraderPortfolioAggregateService.class, TraderDailyRollupService.class, HierarchyRollupService.class,
+                DistributionSketchService.class, TraderBlotterSummaryService.class, CounterpartyExposureService.class,
+                BookActivityCounterService.class, BigDecimalPercentages.class })
+public class TradeWriteAggregatesTest {
+
+        @Autowired
+        private DataSource dataSource;
+
+        @Autowired
+        private TestEntityManager entityManager;
+
+        @Autowired
+        private TraderPortfolioAggregateRepository traderPortfolioAggregateRepository;
+
+        @Autowired
+        private TraderPortfolioAggregateService traderPortfolioAggregateService;
+
+        @Autowired
+        private TraderDailyRollupRepository traderDailyRollupRepository;
+
+        @Autowired
+        private TraderDailyRollupService traderDailyRollupService;
+
+        @Autowired
+        private OrgHierarchyRollupRepository orgHierarchyRollupRepository;
+
+        @Autowired
+        private HierarchyRollupService hierarchyRollupService;
+
+        @Autowired
+        private DistributionBucketRepository distributionBucketRepository;
+
+        @Autowired
+        private DistributionSketchService distributionSketchService;
+
+        @Autowired
+        private TraderBlotterSummaryRepository traderBlotterSummaryRepository;
+
+        @Autowired
+        private TraderBlotterSummaryService traderBlotterSummaryService;
+
+        @Autowired
+        private CounterpartyExposureRepository counterpartyExposureRepository;
+
+        @Autowired
+        private CounterpartyExposureService counterpartyExposureService;
+
+        @Autowired
+        private BookActivityCounterRepository bookActivityCounterRepository;
+
+        @Autowired
+        private BookActivityCounterService bookActivityCounterService;
+
+        @Autowired
+        private TradeRepository tradeRepository;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        @MockBean
+        private PortfolioRecomputation portfolioRecomputation;
+
+        @BeforeAll
+        void migrateOverSeededTrades() {
+                // Trade 100001's first version, amended away to trade 1000
+                new JdbcTemplate(dataSource).execute("INSERT INTO trade (id, trade_id, version, book_id,"
+                                + " counterparty_id, trader_user_id, inputter_user_id, trade_type_id, trade_status_id,"
+                                + " trade_date, active, created_date) VALUES (999, 100001, 0, 1000, 1000, 1003, 1003,"
+                                + " 1001, 1000, '2024-05-31', false, '2024-05-31T10:30:00')");
+                new JdbcTemplate(dataSource).execute("INSERT INTO trade_leg (leg_id, notional, rate, trade_id,"
+                                + " currency_id, pay_rec_id, active, created_date) VALUES (999, 2000000.00, 0.05, 999,"
+                                + " 1000, 1000, false, '2024-05-31T10:30:00')");
+
+                Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        }
+
+        // simon's trades are 1000, a LIVE Swap with BigBank traded on
+        // 2024-06-01 of a USD pay and a USD receive leg of 1,000,000. Read past
+        // the native updates
+        private Map<String, TraderPortfolioAggregate> portfolio() {
+                entityManager.clear();
+                return traderPortfolioAggregateRepository.findSummary("simon").stream().collect(Collectors.toMap(
+                                aggregate -> aggregate.getDimension() + ":" + aggregate.getDimensionKey() + ":"
+                                                + aggregate.getSubKey(),
+                                aggregate -> aggregate));
+        }
+
+        private static void assertFigure(TraderPortfolioAggregate aggregate, long count, String notional) {
+                assertNotNull(aggregate);
+                assertEquals(count, aggregate.getEntryCount());
+                assertEquals(new BigDecimal(notional), aggregate.getTotalNotional());
+        }
+
+        private List<TraderDailyRollup> days() {
+                entityManager.clear();
+                return traderDailyRollupRepository.findRollups("simon", LocalDate.of(2024, 5, 1),
+                                LocalDate.of(2024, 6, 30));
+        }
+
+        private static void assertDay(TraderDailyRollup day, String tradeDate, long tradeCount, long legCount,
+                        String sum, String min, String max) {
+                assertEquals(LocalDate.parse(tradeDate), day.getTradeDate());
+                assertEquals(tradeCount, day.getTradeCount());
+                assertEquals(legCount, day.getLegCount());
+                assertEquals(new BigDecimal(sum), day.getNotionalSum());
+                assertEquals(new BigDecimal(min), day.getNotionalMin());
+                assertEquals(new BigDecimal(max), day.getNotionalMax());
+        }
+
+        // FX-BOOK-1 is under London Trading, FX Spot and the FX desk
+        private void assertNode(String level, long id, long tradeCount, String notional) {
+                entityManager.clear();
+                OrgHierarchyRollup rollup = orgHierarchyRollupRepository.findById(new OrgHierarchyRollupId(level, id))
+                                .orElseThrow();
+                assertEquals(tradeCount, rollup.getTradeCount());
+                assertEquals(new BigDecimal(notional), rollup.getTotalNotional());
+        }
+
+        // simon's non-empty notional buckets, by bucket
+        private Map<Integer, Long> notionalBuckets() {
+                entityManager.clear();
+                return distributionBucketRepository.findBuckets(DistributionBucket.TRADER, 1003L).stream()
+                                .filter(bucket -> DistributionBucket.NOTIONAL.equals(bucket.getMetric()))
+                                .collect(Collectors.toMap(DistributionBucket::getBucket,
+                                                DistributionBucket::getLegCount));
+        }
+
+        private static int bucketOf(String notional) {
+                return LogHistogram.bucketOf(Double.parseDouble(notional));
+        }
+
+        private void assertSummary(String traderLoginId, long tradeCount, String notional) {
+                entityManager.clear();
+                TraderBlotterSummary summary = traderBlotterSummaryRepository.findById(traderLoginId).orElseThrow();
+                assertEquals(tradeCount, summary.getTradeCount());
+                assertEquals(new BigDecimal(notional), summary.getTotalNotional());
+        }
+
+        // simon's counterparties with live legs, by name
+        private Map<String, CounterpartyExposure> exposures() {
+                entityManager.clear();
+                return counterpartyExposureRepository.findTopExposures(CounterpartyExposure.TRADER, 1003L,
+                                PageRequest.of(0, 10)).stream()
+                                .collect(Collectors.toMap(CounterpartyExposure::getCounterpartyName,
+                                                exposure -> exposure));
+        }
+
+        // simon's total over his counterparties
+        private BigDecimal exposureTotal() {
+                entityManager.clear();
+                return counterpartyExposureRepository.findById(new CounterpartyExposureId(CounterpartyExposure.TRADER,
+                                1003L, CounterpartyExposure.SCOPE_TOTAL)).orElseThrow().getTotalNotional();
+        }
+
+        // simon's activity in FX-BOOK-1, by book version
+        private List<BookActivity> bookActivity() {
+                entityManager.clear();
+                return bookActivityCounterRepository.findBookActivity("simon", 1000L);
+        }
+
+        private static TradeSnapshot simonsTrade(Long id, String status, String tradeDate, String notional) {
+                return aTrade().id(id).tradeId(200001L).book(1000L, "FX-BOOK-1").trader(1003L, "simon")
+                                .tradeStatus(status)
+                                .tradeDate(LocalDate.parse(tradeDate))
+                                .legs(new LegSnapshot(2000L, new BigDecimal(notional), 0.05, "USD", "Pay")).build();
+        }
+
+        private void write(TradeWriteEvent event) {
+                traderPortfolioAggregateService.onTradeWrite(event);
+                traderDailyRollupService.onTradeWrite(event);
+                hierarchyRollupService.onTradeWrite(event);
+                distributionSketchService.onTradeWrite(event);
+                traderBlotterSummaryService.onTradeWrite(event);
+                counterpartyExposureService.onTradeWrite(event);
+                bookActivityCounterService.onTradeWrite(event);
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade
+         */
+        @Test
+        void testPortfolioBackfill_LiveVersionsOnly() {
+
+                Map<String, TraderPortfolioAggregate> portfolio = portfolio();
+
+                assertFigure(portfolio.get("STATUS:LIVE:"), 1, "0.00");
+                assertNull(portfolio.get("STATUS:NEW:"));
+                assertFigure(portfolio.get("CURRENCY:USD:"), 2, "2000000.00");
+                assertFigure(portfolio.get("EXPOSURE:USD:Pay"), 1, "-1000000.00");
+                assertFigure(portfolio.get("EXPOSURE:USD:Receive"), 1, "1000000.00");
+        }
+
+        /**
+         * Tests a booking creates and adds to the figures, an amendment moves
+         * them to the new version and a cancellation moves the trade's status
+         */
+        @Test
+        void testPortfolio_BookAmendCancel() {
+
+                // When - Booked
+                TradeSnapshot booked = simonsTrade(2000L, "NEW", "2024-06-01", "500000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+
+                // Then
+                Map<String, TraderPortfolioAggregate> portfolio = portfolio();
+                assertFigure(portfolio.get("STATUS:NEW:"), 1, "0.00");
+                assertFigure(portfolio.get("CURRENCY:USD:"), 3, "2500000.00");
+                assertFigure(portfolio.get("EXPOSURE:USD:Pay"), 2, "-1500000.00");
+
+                // When - Amended to a larger notional
+                TradeSnapshot amended = simonsTrade(2001L, "AMENDED", "2024-06-01", "700000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED, booked, amended));
+
+                // Then - The old version no longer counts
+                portfolio = portfolio();
+                assertNull(portfolio.get("STATUS:NEW:"));
+                assertFigure(portfolio.get("STATUS:AMENDED:"), 1, "0.00");
+                assertFigure(portfolio.get("CURRENCY:USD:"), 3, "2700000.00");
+
+                // When - Cancelled
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED, amended,
+                                simonsTrade(2001L, "CANCELLED", "2024-06-01", "700000")));
+
+                // Then
+                portfolio = portfolio();
+                assertNull(portfolio.get("STATUS:AMENDED:"));
+                assertFigure(portfolio.get("STATUS:CANCELLED:"), 1, "0.00");
+                assertFigure(portfolio.get("STATUS:LIVE:"), 1, "0.00");
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade, the
+         * inactive one traded the day before has no day
+         */
+        @Test
+        void testDailyRollupBackfill_LiveVersionsOnly() {
+
+                List<TraderDailyRollup> days = days();
+
+                assertEquals(1, days.size());
+                assertDay(days.get(0), "2024-06-01", 1, 2, "2000000.00", "1000000.00", "1000000.00");
+        }
+
+        /**
+         * Tests an amendment onto another trade date moves the trade to that
+         * day and the day it left reads its min and max again from its live
+         * trades, a cancellation leaves the days as they were
+         */
+        @Test
+        void testDailyRollup_BookAmendCancel() {
+
+                // When - Booked
+                TradeSnapshot booked = simonsTrade(2000L, "NEW", "2024-06-01", "500000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+
+                // Then
+                List<TraderDailyRollup> days = days();
+                assertEquals(1, days.size());
+                assertDay(days.get(0), "2024-06-01", 2, 3, "2500000.00", "500000.00", "1000000.00");
+
+                // When - Amended onto the next day
+                TradeSnapshot amended = simonsTrade(2001L, "AMENDED", "2024-06-02", "700000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED, booked, amended));
+
+                // Then
+                days = days();
+                assertEquals(2, days.size());
+                assertDay(days.get(0), "2024-06-01", 1, 2, "2000000.00", "1000000.00", "1000000.00");
+                assertDay(days.get(1), "2024-06-02", 1, 1, "700000.00", "700000.00", "700000.00");
+
+                // When - Cancelled
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED, amended,
+                                simonsTrade(2001L, "CANCELLED", "2024-06-02", "700000")));
+
+                // Then
+                days = days();
+                assertDay(days.get(1), "2024-06-02", 1, 1, "700000.00", "700000.00", "700000.00");
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade at
+         * every level
+         */
+        @Test
+        void testHierarchyBackfill_LiveVersionsOnly() {
+
+                assertNode(OrgHierarchyRollup.BOOK, 1000L, 1, "2000000.00");
+                assertNode(OrgHierarchyRollup.COST_CENTER, 1000L, 1, "2000000.00");
+                assertNode(OrgHierarchyRollup.DESK, 1000L, 1, "2000000.00");
+                assertNode(OrgHierarchyRollup.DESK, 1001L, 2, "10000000.00");
+        }
+
+        /**
+         * Tests a booking on a book that isn't in the closure yet adds it and
+         * its rollup, and an amendment onto another book moves the trade
+         */
+        @Test
+        void testHierarchy_NewBookBookAmend() {
+
+                // Given - A second book under London Trading
+                new JdbcTemplate(dataSource).update("INSERT INTO book (id, book_name, active, version, cost_center_id)"
+                                + " VALUES (1002, 'FX-BOOK-2', true, 1, 1000)");
+
+                // When - Booked on it
+                TradeSnapshot booked = aTrade().id(2000L).tradeId(200001L).book(1002L, "FX-BOOK-2")
+                                .trader(1003L, "simon").legs(new LegSnapshot(2000L, new BigDecimal("500000"), 0.05,
+                                                "USD", "Pay"))
+                                .build();
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+
+                // Then
+                assertNode(OrgHierarchyRollup.BOOK, 1002L, 1, "500000.00");
+                assertNode(OrgHierarchyRollup.COST_CENTER, 1000L, 2, "2500000.00");
+                assertNode(OrgHierarchyRollup.DESK, 1000L, 2, "2500000.00");
+
+                // When - Amended onto FX-BOOK-1
+                write(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED, booked,
+                                simonsTrade(2001L, "AMENDED", "2024-06-01", "700000")));
+
+                // Then
+                assertNode(OrgHierarchyRollup.BOOK, 1002L, 0, "0.00");
+                assertNode(OrgHierarchyRollup.BOOK, 1000L, 2, "2700000.00");
+                assertNode(OrgHierarchyRollup.DESK, 1000L, 2, "2700000.00");
+        }
+
+        /**
+         * Tests the tree is read with every node under its parent and the
+         * backfilled totals, a desk without sub desks has no children
+         */
+        @Test
+        void testHierarchyTree_NodesUnderParents() {
+
+                // When
+                List<HierarchyNodeDTO> tree = hierarchyRollupService.getHierarchyTree();
+
+                // Then - FX > FX Spot > London Trading > FX-BOOK-1
+                assertEquals(List.of("FX", "Rates", "Credit"), tree.stream().map(HierarchyNodeDTO::name).toList());
+                HierarchyNodeDTO fx = tree.get(0);
+                assertEquals(1L, fx.tradeCount());
+                assertEquals(List.of("FX Spot", "FX Options"),
+                                fx.children().stream().map(HierarchyNodeDTO::name).toList());
+                HierarchyNodeDTO book = fx.children().get(0).children().get(0).children().get(0);
+                assertEquals("FX-BOOK-1", book.name());
+                assertEquals(new BigDecimal("2000000.00"), book.totalNotional());
+                assertEquals(List.of(), tree.get(2).children());
+                assertEquals(0L, tree.get(2).tradeCount());
+        }
+
+        /**
+         * Tests the backfill buckets the live legs the way trade writes do,
+         * the inactive version's 2,000,000 leg isn't counted
+         */
+        @Test
+        void testDistributionBackfill_LiveVersionsOnly() {
+
+                assertEquals(Map.of(bucketOf("1000000"), 2L), notionalBuckets());
+        }
+
+        /**
+         * Tests a booking creates its bucket and an amendment moves the leg to
+         * the new notional's bucket
+         */
+        @Test
+        void testDistribution_BookAmend() {
+
+                // When - Booked
+                TradeSnapshot booked = simonsTrade(2000L, "NEW", "2024-06-01", "500000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+
+                // Then
+                assertEquals(Map.of(bucketOf("1000000"), 2L, bucketOf("500000"), 1L), notionalBuckets());
+
+                // When - Amended to a larger notional
+                write(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED, booked,
+                                simonsTrade(2001L, "AMENDED", "2024-06-01", "700000")));
+
+                // Then
+                assertEquals(Map.of(bucketOf("1000000"), 2L, bucketOf("700000"), 1L), notionalBuckets());
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade, a
+         * booking adds to the trader's totals and the first booking of a
+         * trader without any creates them
+         */
+        @Test
+        void testBlotterSummary_BackfillAndBookings() {
+
+                // Then - Backfilled
+                assertSummary("simon", 1, "2000000.00");
+
+                // When
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                simonsTrade(2000L, "NEW", "2024-06-01", "500000")));
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, aTrade().id(2001L).tradeId(200002L)
+                                .trader(1010L, "newtrader")
+                                .legs(new LegSnapshot(2001L, new BigDecimal("300000"), 0.05, "USD", "Pay")).build()));
+
+                // Then
+                assertSummary("simon", 2, "2500000.00");
+                assertSummary("newtrader", 1, "300000.00");
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade, a
+         * booking with another counterparty adds it and cancelling the trade
+         * takes its legs away again, from the total too
+         */
+        @Test
+        void testCounterpartyExposure_BackfillBookCancel() {
+
+                // Then - Backfilled
+                Map<String, CounterpartyExposure> exposures = exposures();
+                assertEquals(1, exposures.size());
+                assertEquals(2L, exposures.get("BigBank").getLegCount());
+                assertEquals(new BigDecimal("2000000.00"), exposures.get("BigBank").getTotalNotional());
+                assertEquals(new BigDecimal("2000000.00"), exposureTotal());
+
+                // When - Booked with MegaFund
+                TradeSnapshot booked = aTrade().id(2000L).tradeId(200001L).counterparty(1001L, "MegaFund")
+                                .trader(1003L, "simon")
+                                .legs(new LegSnapshot(2000L, new BigDecimal("500000"), 0.05, "USD", "Pay")).build();
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+
+                // Then
+                exposures = exposures();
+                assertEquals(1L, exposures.get("MegaFund").getLegCount());
+                assertEquals(new BigDecimal("500000.00"), exposures.get("MegaFund").getTotalNotional());
+                assertEquals(new BigDecimal("2500000.00"), exposureTotal());
+
+                // When - Cancelled
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED, booked, aTrade().id(2000L)
+                                .tradeId(200001L).counterparty(1001L, "MegaFund").trader(1003L, "simon")
+                                .tradeStatus("CANCELLED")
+                                .legs(new LegSnapshot(2000L, new BigDecimal("500000"), 0.05, "USD", "Pay")).build()));
+
+                // Then
+                assertEquals(Set.of("BigBank"), exposures().keySet());
+                assertEquals(new BigDecimal("2000000.00"), exposureTotal());
+        }
+
+        /**
+         * Tests the backfill only counts the live version of each trade, a
+         * booking creates and adds to the book version's counters and an
+         * amendment only changes their notional
+         */
+        @Test
+        void testBookActivity_BackfillBookAmend() {
+
+                // Then - Backfilled
+                List<BookActivity> activity = bookActivity();
+                assertEquals(1, activity.size());
+                assertEquals(1L, activity.get(0).tradeCount());
+                assertEquals(new BigDecimal("2000000.00"), activity.get(0).totalNotional());
+
+                // When
+                TradeSnapshot booked = simonsTrade(2000L, "NEW", "2024-06-01", "500000");
+                write(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, booked));
+                write(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED, booked,
+                                simonsTrade(2001L, "AMENDED", "2024-06-01", "800000")));
+
+                // Then
+                activity = bookActivity();
+                assertEquals(1, activity.size());
+                assertEquals(1, activity.get(0).version());
+                assertEquals(2L, activity.get(0).tradeCount());
+                assertEquals(new BigDecimal("2800000.00"), activity.get(0).totalNotional());
+                assertNotNull(activity.get(0).lastActivityAt());
+        }
+
+        /**
+         * Tests the recomputation reads the live trades from the flat rows,
+         * each trade put back together with its legs, over ranges of one id
+         */
+        @Test
+        void testPortfolioRecompute_LiveTradesFromRows() {
+
+                // Given
+                PortfolioRecomputation recomputation = new PortfolioRecomputation(tradeRepository, transactionManager,
+                                2, 1);
+
+                // When
+                List<TradeSnapshot> trades;
+                try {
+                        trades = recomputation.recompute(Collectors.toList());
+                } finally {
+                        recomputation.shutdown();
+                }
+
+                // Then - Trade 999 is an inactive version
+                Map<Long, TradeSnapshot> byId = trades.stream()
+                                .collect(Collectors.toMap(TradeSnapshot::id, trade -> trade));
+                assertEquals(Set.of(1000L, 1001L, 1002L), byId.keySet());
+                TradeSnapshot simons = byId.get(1000L);
+                assertEquals("simon", simons.traderLoginId());
+                assertEquals("LIVE", simons.tradeStatus());
+                assertEquals("Swap", simons.tradeType());
+                assertEquals("BigBank", simons.counterpartyName());
+                assertEquals(List.of(new LegSnapshot(1000L, new BigDecimal("1000000.00"), null, "USD", "Pay"),
+                                new LegSnapshot(1001L, new BigDecimal("1000000.00"), null, "USD", "Receive")),
+                                simons.legs());
+        }
+
+}
@@ -0,0 +1,163 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.Book;
+import com.technicalchallenge.repository.BookActivityCounterRepository;
+import com.technicalchallenge.repository.BookRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class BookActivityCounterServiceTest {
+
+        @Mock
+        private BookActivityCounterRepository bookActivityCounterRepository;
+
+        @Mock
+        private BookRepository bookRepository;
+
+        @InjectMocks
+        private BookActivityCounterService bookActivityCounterService;
+
+        private TradeSnapshot snapshot(Long id, Long bookId, String tradeStatus, boolean active) {
+                return aTrade().id(id).active(active).bookId(bookId).tradeStatus(tradeStatus).trader(7L, "john")
+                                .payAndReceive(1000000, 2000000).build();
+        }
+
+        private Book book(int version) {
+                Book book = new Book();
+                book.setId(10L);
+                book.setVersion(version);
+                return book;
+        }
+
+        /**
+         * Tests the trader's first trade at the book's version creates its
+         * counters empty and then adds to them
+         */
+        @Test
+        void testOnTradeWrite_BookingCountedUnderBookVersion() {
+
+                // Given - The book is at version 3 and the trader's first trade in it
+                when(bookRepository.findById(10L)).thenReturn(Optional.of(book(3)));
+                when(bookActivityCounterRepository.addToCounter(anyLong(), anyString(), anyInt(), anyLong(), any(),
+                                any())).thenReturn(0);
+
+                // When
+                bookActivityCounterService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, 10L, "NEW", true)));
+
+                // Then
+                var inOrder = inOrder(bookActivityCounterRepository);
+                inOrder.verify(bookActivityCounterRepository).addToCounter(eq(10L), eq("john"), eq(3), eq(1L),
+                                eq(BigDecimal.valueOf(3000000)), any());
+                inOrder.verify(bookActivityCounterRepository).createCounter(10L, "john", 3);
+                inOrder.verify(bookActivityCounterRepository).addToCounter(eq(10L), eq("john"), eq(3), eq(1L),
+                                eq(BigDecimal.valueOf(3000000)), any());
+        }
+
+        /**
+         * Tests an amendment swaps the old version for the new one, the trade
+         * isn't counted again
+         */
+        @Test
+        void testOnTradeWrite_AmendmentSwapsVersion() {
+
+                // Given
+                when(bookRepository.findById(10L)).thenReturn(Optional.of(book(1)));
+                when(bookActivityCounterRepository.addToCounter(anyLong(), anyString(), anyInt(), anyLong(), any(),
+                                any())).thenReturn(1);
+
+                // When
+                TradeSnapshot amended = aTrade().id(2L).bookId(10L).tradeStatus("AMENDED").trader(7L, "john")
+                                .payAndReceive(1500000, 2000000).build();
+                bookActivityCounterService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 10L, "NEW", true), amended));
+
+                // Then - Only the change of notional
+                verify(bookActivityCounterRepository).addToCounter(eq(10L), eq("john"), eq(1), eq(0L),
+                                argThat(notional -> notional.compareTo(BigDecimal.valueOf(500000)) == 0), any());
+                verify(bookActivityCounterRepository, never()).createCounter(any(), any(), anyInt());
+        }
+
+        /**
+         * Tests a trade moved to another book leaves the old book's counters
+         * and joins the new one's
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesBook() {
+
+                // Given
+                Book other = book(2);
+                other.setId(20L);
+                when(bookRepository.findById(10L)).thenReturn(Optional.of(book(1)));
+                when(bookRepository.findById(20L)).thenReturn(Optional.of(other));
+                when(bookActivityCounterRepository.addToCounter(anyLong(), anyString(), anyInt(), anyLong(), any(),
+                                any())).thenReturn(1);
+
+                // When
+                bookActivityCounterService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 10L, "NEW", true), snapshot(2L, 20L, "AMENDED", true)));
+
+                // Then
+                verify(bookActivityCounterRepository).addToCounter(eq(10L), eq("john"), eq(1), eq(-1L),
+                                eq(BigDecimal.valueOf(-3000000)), any());
+                verify(bookActivityCounterRepository).addToCounter(eq(20L), eq("john"), eq(2), eq(1L),
+                                eq(BigDecimal.valueOf(3000000)), any());
+        }
+
+        /**
+         * Tests a cancellation changes neither the count nor the notional but
+         * is still the book's last activity
+         */
+        @Test
+        void testOnTradeWrite_CancellationIsActivity() {
+
+                // Given
+                when(bookRepository.findById(10L)).thenReturn(Optional.of(book(1)));
+                when(bookActivityCounterRepository.addToCounter(anyLong(), anyString(), anyInt(), anyLong(), any(),
+                                any())).thenReturn(1);
+
+                // When
+                bookActivityCounterService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED,
+                                snapshot(1L, 10L, "NEW", true), snapshot(1L, 10L, "CANCELLED", true)));
+
+                // Then
+                verify(bookActivityCounterRepository).addToCounter(eq(10L), eq("john"), eq(1), eq(0L),
+                                argThat(notional -> notional.signum() == 0), any());
+        }
+
+        @Test
+        void testRebuild_RecountsFromTrades() {
+
+                // Given
+                when(bookActivityCounterRepository.deleteCounters()).thenReturn(5);
+                when(bookActivityCounterRepository.rebuildCounters()).thenReturn(4);
+
+                // When
+                int rebuilt = bookActivityCounterService.rebuild();
+
+                // Then - The counters are deleted before they're recounted
+                assertEquals(4, rebuilt);
+                var inOrder = inOrder(bookActivityCounterRepository);
+                inOrder.verify(bookActivityCounterRepository).deleteCounters();
+                inOrder.verify(bookActivityCounterRepository).rebuildCounters();
+        }
+
+}
@@ -32,6 +32,9 @@ public class BookServiceTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private HierarchyRollupService hierarchyRollupService;
+
     private Book book;
     private BookDTO bookDTO;
 
@@ -39,7 +42,7 @@ public class BookServiceTest {
     void setUp() {
         // Set up test data
 
-        bookService = new BookService(bookRepository, costCenterRepository, bookMapper);
+        bookService = new BookService(bookRepository, costCenterRepository, bookMapper, hierarchyRollupService);
 
         bookDTO = new BookDTO();
         bookDTO.setId(1L);
@@ -106,6 +109,7 @@ public class BookServiceTest {
         assertNotNull(saved); // Checks if the bookid is not null
         assertEquals(2L, saved.getId()); // Checks that the expected and actual bookId match
         verify(bookRepository).save(book);// Verifies if the book was saved
+        verify(hierarchyRollupService).onBookSaved(2L); // Verifies its totals were moved
     }
 
     @Test
@@ -114,6 +118,7 @@ public class BookServiceTest {
         doNothing().when(bookRepository).deleteById(bookId);
         bookService.deleteBook(bookId);
         verify(bookRepository, times(1)).deleteById(bookId);
+        verify(hierarchyRollupService).onBookDeleted(bookId);
     }
 
     /**
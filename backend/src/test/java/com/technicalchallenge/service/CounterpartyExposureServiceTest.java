@@ -0,0 +1,215 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import com.technicalchallenge.calculations.BigDecimalPercentages;
+import com.technicalchallenge.dto.CounterpartyConcentrationDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.model.ApplicationUser;
+import com.technicalchallenge.model.CounterpartyExposure;
+import com.technicalchallenge.model.CounterpartyExposureId;
+import com.technicalchallenge.repository.ApplicationUserRepository;
+import com.technicalchallenge.repository.CounterpartyExposureRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class CounterpartyExposureServiceTest {
+
+        @Mock
+        private CounterpartyExposureRepository counterpartyExposureRepository;
+
+        @Mock
+        private ApplicationUserRepository applicationUserRepository;
+
+        private CounterpartyExposureService counterpartyExposureService;
+
+        @BeforeEach
+        void setUp() {
+                // At most 50 counterparties a read
+                counterpartyExposureService = new CounterpartyExposureService(counterpartyExposureRepository,
+                                applicationUserRepository, new BigDecimalPercentages(), 50);
+        }
+
+        private TradeSnapshot snapshot(Long id, Long counterpartyId, String counterpartyName, String tradeStatus,
+                        boolean active) {
+                return aTrade().id(id).active(active).bookId(10L).counterparty(counterpartyId, counterpartyName)
+                                .tradeStatus(tradeStatus).trader(7L, "john").payAndReceive(1000000, 2000000).build();
+        }
+
+        @Test
+        void testOnTradeWrite_BookingAddsToBookAndTrader() {
+
+                // Given
+                when(counterpartyExposureRepository.addToExposure(anyString(), anyLong(), anyLong(), any(),
+                                anyLong(), any())).thenReturn(1);
+                when(counterpartyExposureRepository.addToExposure(eq("TRADER"), eq(7L), eq(1L), any(), anyLong(),
+                                any())).thenReturn(0, 1);
+
+                // When
+                counterpartyExposureService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, 1L, "BigBank", "NEW", true)));
+
+                // Then - The trader's first trade with the counterparty creates the exposure
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 1L, "BigBank", 2L,
+                                BigDecimal.valueOf(3000000));
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 0L, null, 2L,
+                                BigDecimal.valueOf(3000000));
+                verify(counterpartyExposureRepository).createExposure("TRADER", 7L, 1L, "BigBank");
+                verify(counterpartyExposureRepository, times(2)).addToExposure("TRADER", 7L, 1L, "BigBank", 2L,
+                                BigDecimal.valueOf(3000000));
+                verify(counterpartyExposureRepository).addToExposure("TRADER", 7L, 0L, null, 2L,
+                                BigDecimal.valueOf(3000000));
+                verify(counterpartyExposureRepository, never()).createExposure(eq("BOOK"), any(), any(), any());
+        }
+
+        /**
+         * Tests an amendment to another counterparty moves the legs to it
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesCounterparty() {
+
+                // Given
+                when(counterpartyExposureRepository.addToExposure(anyString(), anyLong(), anyLong(), any(),
+                                anyLong(), any())).thenReturn(1);
+
+                // When
+                counterpartyExposureService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 1L, "BigBank", "NEW", true),
+                                snapshot(2L, 2L, "MegaFund", "AMENDED", true)));
+
+                // Then - The totals are unchanged and left be
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 1L, "BigBank", -2L,
+                                BigDecimal.valueOf(-3000000));
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 2L, "MegaFund", 2L,
+                                BigDecimal.valueOf(3000000));
+                verify(counterpartyExposureRepository).addToExposure("TRADER", 7L, 1L, "BigBank", -2L,
+                                BigDecimal.valueOf(-3000000));
+                verify(counterpartyExposureRepository).addToExposure("TRADER", 7L, 2L, "MegaFund", 2L,
+                                BigDecimal.valueOf(3000000));
+                verifyNoMoreInteractions(counterpartyExposureRepository);
+        }
+
+        /**
+         * Tests a cancellation takes the trade's legs away though its row is
+         * still live, and deactivating the cancelled row changes nothing
+         */
+        @Test
+        void testOnTradeWrite_CancellationThenDeactivation() {
+
+                // Given
+                when(counterpartyExposureRepository.addToExposure(anyString(), anyLong(), anyLong(), any(),
+                                anyLong(), any())).thenReturn(1);
+
+                // When
+                counterpartyExposureService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED,
+                                snapshot(1L, 1L, "BigBank", "NEW", true),
+                                snapshot(1L, 1L, "BigBank", "CANCELLED", true)));
+
+                // Then - Taken from the totals too
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 1L, "BigBank", -2L,
+                                BigDecimal.valueOf(-3000000));
+                verify(counterpartyExposureRepository).addToExposure("BOOK", 10L, 0L, null, -2L,
+                                BigDecimal.valueOf(-3000000));
+                verify(counterpartyExposureRepository).addToExposure("TRADER", 7L, 1L, "BigBank", -2L,
+                                BigDecimal.valueOf(-3000000));
+                verify(counterpartyExposureRepository).addToExposure("TRADER", 7L, 0L, null, -2L,
+                                BigDecimal.valueOf(-3000000));
+
+                // When
+                counterpartyExposureService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 1L, "BigBank", "CANCELLED", true),
+                                snapshot(1L, 1L, "BigBank", "CANCELLED", false)));
+
+                // Then
+                verifyNoMoreInteractions(counterpartyExposureRepository);
+        }
+
+        @Test
+        void testGetBookConcentration_SharesOfBookTotal() {
+
+                // Given - Two of the book's counterparties out of 10 million
+                when(counterpartyExposureRepository.findTopExposures("BOOK", 10L, PageRequest.of(0, 2))).thenReturn(
+                                List.of(new CounterpartyExposure("BOOK", 10L, 2L, "MegaFund", 4L,
+                                                new BigDecimal("6000000.00")),
+                                                new CounterpartyExposure("BOOK", 10L, 1L, "BigBank", 2L,
+                                                                new BigDecimal("3000000.00"))));
+                when(counterpartyExposureRepository.findById(new CounterpartyExposureId("BOOK", 10L, 0L)))
+                                .thenReturn(Optional.of(new CounterpartyExposure("BOOK", 10L, 0L, null, 8L,
+                                                new BigDecimal("10000000.00"))));
+
+                // When
+                CounterpartyConcentrationDTO concentration = counterpartyExposureService.getBookConcentration(10L,
+                                2);
+
+                // Then - Largest first
+                assertEquals(new BigDecimal("10000000.00"), concentration.totalNotional());
+                assertEquals(2, concentration.topCounterparties().size());
+                assertEquals("MegaFund", concentration.topCounterparties().get(0).counterpartyName());
+                assertEquals(0, new BigDecimal("60").compareTo(concentration.topCounterparties().get(0).percentage()));
+                assertEquals(0, new BigDecimal("30").compareTo(concentration.topCounterparties().get(1).percentage()));
+        }
+
+        @Test
+        void testGetTraderConcentration_SharesOfTraderTotal() {
+
+                // Given
+                ApplicationUser trader = new ApplicationUser();
+                trader.setId(7L);
+                when(applicationUserRepository.findByLoginId("john")).thenReturn(Optional.of(trader));
+                when(counterpartyExposureRepository.findTopExposures("TRADER", 7L, PageRequest.of(0, 10)))
+                                .thenReturn(List.of(new CounterpartyExposure("TRADER", 7L, 1L, "BigBank", 2L,
+                                                new BigDecimal("3000000.00"))));
+                when(counterpartyExposureRepository.findById(new CounterpartyExposureId("TRADER", 7L, 0L)))
+                                .thenReturn(Optional.of(new CounterpartyExposure("TRADER", 7L, 0L, null, 3L,
+                                                new BigDecimal("4000000.00"))));
+
+                // When
+                CounterpartyConcentrationDTO concentration = counterpartyExposureService.getTraderConcentration("john",
+                                10);
+
+                // Then
+                assertEquals("TRADER", concentration.level());
+                assertEquals(0, new BigDecimal("75").compareTo(concentration.topCounterparties().get(0).percentage()));
+        }
+
+        @Test
+        void testGetConcentration_TopOutOfRange() {
+
+                // Then
+                assertThrows(ValidationException.class, () -> counterpartyExposureService.getBookConcentration(10L, 0));
+                assertThrows(ValidationException.class,
+                                () -> counterpartyExposureService.getTraderConcentration("john", 51));
+                verifyNoInteractions(counterpartyExposureRepository, applicationUserRepository);
+        }
+
+        @Test
+        void testGetBookConcentration_NoExposures() {
+
+                // Given
+                when(counterpartyExposureRepository.findTopExposures("BOOK", 10L, PageRequest.of(0, 10)))
+                                .thenReturn(List.of());
+
+                // Then
+                assertThrows(DashboardDataNotFoundException.class,
+                                () -> counterpartyExposureService.getBookConcentration(10L, 10));
+        }
+
+}
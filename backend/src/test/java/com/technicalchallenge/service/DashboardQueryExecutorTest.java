@@ -0,0 +1,168 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.service.DashboardQueryExecutor.Batch;
+import com.technicalchallenge.service.DashboardQueryExecutor.Section;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DashboardQueryExecutorTest {
+
+        private SimpleMeterRegistry meterRegistry;
+        private PlatformTransactionManager transactionManager;
+        private DashboardQueryExecutor dashboardQueryExecutor;
+
+        @BeforeEach
+        void setUp() {
+                // Two threads, a half second deadline
+                meterRegistry = new SimpleMeterRegistry();
+                transactionManager = mock(PlatformTransactionManager.class);
+                dashboardQueryExecutor = new DashboardQueryExecutor(transactionManager, meterRegistry, 2, 500);
+        }
+
+        @AfterEach
+        void tearDown() {
+                dashboardQueryExecutor.shutdown();
+        }
+
+        /**
+         * Tests the sections run at the same time, each waits for the other to
+         * start
+         */
+        @Test
+        void testAwait_SectionsRunConcurrently() {
+
+                // Given
+                CountDownLatch started = new CountDownLatch(2);
+                Batch batch = dashboardQueryExecutor.batch();
+
+                // When
+                Section<String> trades = batch.submit("trades", () -> {
+                        started.countDown();
+                        return awaitQuietly(started) ? "trades" : null;
+                });
+                Section<String> totals = batch.submit("totals", () -> {
+                        started.countDown();
+                        return awaitQuietly(started) ? "totals" : null;
+                });
+
+                // Then
+                assertEquals(List.of(), batch.await());
+                assertEquals("trades", trades.get());
+                assertEquals("totals", totals.get());
+        }
+
+        /**
+         * Tests a section that misses the deadline is named and left out
+         */
+        @Test
+        void testAwait_SlowSectionTimedOut() {
+
+                // Given
+                CountDownLatch never = new CountDownLatch(1);
+                Batch batch = dashboardQueryExecutor.batch();
+
+                // When
+                Section<String> trades = batch.submit("trades", () -> "trades");
+                Section<String> totals = batch.submit("totals", () -> {
+                        awaitQuietly(never);
+                        return "totals";
+                });
+
+                // Then
+                assertEquals(List.of("totals"), batch.await());
+                assertEquals("trades", trades.get());
+                assertTrue(totals.isTimedOut());
+                assertNull(totals.get());
+                assertEquals(1.0, meterRegistry.get("trade.dashboard.query.timeouts").counter().count());
+        }
+
+        /**
+         * Tests a section's read-only transaction times out at the deadline,
+         * rounded up to the second, so the database cancels its query
+         */
+        @Test
+        void testSubmit_TransactionTimesOutAtDeadline() {
+
+                // Given
+                Batch batch = dashboardQueryExecutor.batch();
+
+                // When
+                batch.submit("trades", () -> "trades");
+                batch.await();
+
+                // Then
+                verify(transactionManager).getTransaction(
+                                argThat(definition -> definition.isReadOnly() && definition.getTimeout() == 1));
+        }
+
+        /**
+         * Tests a section still waiting for a permit at the deadline never
+         * starts and is left out
+         */
+        @Test
+        void testAwait_SectionWaitingPastDeadlineNotStarted() {
+
+                // Given - Both permits held past the deadline
+                CountDownLatch release = new CountDownLatch(1);
+                Batch batch = dashboardQueryExecutor.batch();
+                batch.submit("trades", () -> awaitQuietly(release));
+                batch.submit("totals", () -> awaitQuietly(release));
+                CountDownLatch ran = new CountDownLatch(1);
+
+                // When
+                batch.submit("risk", () -> {
+                        ran.countDown();
+                        return "risk";
+                });
+                List<String> timedOut = batch.await();
+                release.countDown();
+
+                // Then
+                assertEquals(List.of("trades", "totals", "risk"), timedOut);
+                assertFalse(awaitQuietly(ran, 200));
+        }
+
+        @Test
+        void testAwait_FailureRethrown() {
+
+                // Given
+                Batch batch = dashboardQueryExecutor.batch();
+
+                // When
+                batch.submit("trades", () -> {
+                        throw new DashboardDataNotFoundException("Dashboard data was not found for john");
+                });
+
+                // Then
+                assertThrows(DashboardDataNotFoundException.class, batch::await);
+        }
+
+        private static boolean awaitQuietly(CountDownLatch latch) {
+                return awaitQuietly(latch, 5000);
+        }
+
+        private static boolean awaitQuietly(CountDownLatch latch, long millis) {
+                try {
+                        return latch.await(millis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                }
+        }
+
+}
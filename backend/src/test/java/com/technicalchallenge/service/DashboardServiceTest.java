@@ -1,10 +1,17 @@
 package com.technicalchallenge.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
@@ -18,13 +25,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.technicalchallenge.cache.TradeCountCache;
 import com.technicalchallenge.calculations.BigDecimalPercentages;
+import com.technicalchallenge.dto.CountMode;
 import com.technicalchallenge.dto.DailySummaryDTO;
 import com.technicalchallenge.dto.TradeSummaryDTO;
 import com.technicalchallenge.dto.DailySummaryDTO.BookActivity;
@@ -43,7 +55,14 @@ import com.technicalchallenge.model.Schedule;
 import com.technicalchallenge.model.Trade;
 import com.technicalchallenge.model.TradeLeg;
 import com.technicalchallenge.model.TradeStatus;
+import com.technicalchallenge.model.TraderDailyRollup;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.repository.BookActivityCounterRepository;
 import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TraderDailyRollupRepository;
+import com.technicalchallenge.repository.TraderPortfolioAggregateRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * Unit tests for {@link DashboardViewService}.
@@ -65,6 +84,23 @@ public class DashboardServiceTest {
     @Mock
     private BigDecimalPercentages bigDecimalPercentages;
 
+    @Spy
+    private TradeCountCache tradeCountCache = new TradeCountCache(new SimpleMeterRegistry(), 16, 60);
+
+    @Mock
+    private TraderPortfolioAggregateRepository traderPortfolioAggregateRepository;
+
+    @Mock
+    private TraderDailyRollupRepository traderDailyRollupRepository;
+
+    @Mock
+    private BookActivityCounterRepository bookActivityCounterRepository;
+
+    // Sections run on the executor's threads, a second deadline
+    @Spy
+    private DashboardQueryExecutor dashboardQueryExecutor = new DashboardQueryExecutor(
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 2, 1000);
+
     @InjectMocks
     private DashboardViewService dashboardViewService;
 
@@ -215,12 +251,17 @@ public class DashboardServiceTest {
         riskExposure2 = new RiskExposure(1002L, 0.0, "FX", "USD", "Recieve", BigDecimal.valueOf(1000000));
 
         bookActivity1 = new BookActivity(trade1.getBook().getBookName(), "NY Trading", "FX Options",
-                BigDecimal.valueOf(4000000), 1);
+                BigDecimal.valueOf(4000000), 1, 2L, null);
         bookActivity2 = new BookActivity(trade2.getBook().getBookName(), "NY Trading", "FX Options",
-                BigDecimal.valueOf(6000000), 1);
+                BigDecimal.valueOf(6000000), 1, 2L, null);
 
     }
 
+    private TraderPortfolioAggregate aggregate(String dimension, String key, String subKey, Long count,
+            long notional) {
+        return new TraderPortfolioAggregate("john", dimension, key, subKey, count, BigDecimal.valueOf(notional));
+    }
+
     /**
      * Tests if viewing personal trades is successful
      */
@@ -241,7 +282,7 @@ public class DashboardServiceTest {
         when(tradeRepository.findPersonalTradesView(any(), any(Pageable.class))).thenReturn(mockPage);
 
         // When - getTraderDashboard method call
-        TradeSummaryDTO result = dashboardViewService.getTraderDashboard(username, pageable);
+        TradeSummaryDTO result = dashboardViewService.getTraderDashboard(username, pageable, CountMode.EXACT);
 
         // Then - Verified results match expected personal view
         assertNotNull(result);
@@ -251,6 +292,65 @@ public class DashboardServiceTest {
 
     }
 
+    /**
+     * Tests the approximate personal view reads a slice and counts once
+     */
+    @Test
+    @DisplayName("FindTradersPersonalViewSlice: Reads a slice with a cached approximate total")
+    void testFindTradersPersonalViewSlice_ApproximateTotal() {
+
+        // Given - A full first page with more to come and a count of 40 trades
+        String username = "john";
+        Pageable pageable = PageRequest.of(0, 1);
+        Object totals = new Object[] { 40L, BigDecimal.valueOf(1000000) };
+
+        when(tradeRepository.findResultsOfTotals(any())).thenReturn(totals);
+        when(tradeRepository.findPersonalTradesSlice(any(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(personal), pageable, true));
+        when(tradeRepository.countPersonalTrades(username)).thenReturn(40L);
+
+        // When - The first page is requested twice
+        dashboardViewService.getTraderDashboard(username, pageable, CountMode.APPROXIMATE);
+        TradeSummaryDTO result = dashboardViewService.getTraderDashboard(username, pageable,
+                CountMode.APPROXIMATE);
+
+        // Then - The slice has an approximate total and the page count query never ran
+        assertEquals(1, result.getTradeSlice().content().size());
+        assertTrue(result.getTradeSlice().hasNext());
+        assertEquals(40L, result.getTradeSlice().totalElements());
+        assertFalse(result.getTradeSlice().totalExact());
+        verify(tradeRepository, times(1)).countPersonalTrades(username);
+        verify(tradeRepository, never()).findPersonalTradesView(any(), any(Pageable.class));
+    }
+
+    /**
+     * Tests the personal view is returned without the totals when they miss the
+     * deadline
+     */
+    @Test
+    @DisplayName("FindTradersPersonalView: Totals that time out are left out")
+    void testFindTradersPersonalView_TotalsTimedOut() {
+
+        // Given - The totals take longer than the deadline
+        String username = "john";
+        Pageable pageable = PageRequest.of(0, 4);
+        Page<PersonalView> mockPage = new PageImpl<>(List.of(personal));
+
+        when(tradeRepository.findResultsOfTotals(any())).thenAnswer(invocation -> {
+            Thread.sleep(3000);
+            return new Object[] { 1L, BigDecimal.valueOf(1000000) };
+        });
+        when(tradeRepository.findPersonalTradesView(any(), any(Pageable.class))).thenReturn(mockPage);
+
+        // When - getTraderDashboard method call
+        TradeSummaryDTO result = dashboardViewService.getTraderDashboard(username, pageable, CountMode.EXACT);
+
+        // Then - The trades are there, the totals are named as partial
+        assertEquals(1, result.getTrades().getContent().size());
+        assertNull(result.getTradeCount());
+        assertEquals(List.of("totals"), result.getPartialSections());
+    }
+
     /**
      * Tests if viewing personal trades throws a exception
      */
@@ -265,7 +365,7 @@ public class DashboardServiceTest {
         // When - A DashboardDataNotFoundException is thrown and assertThrows returns
         // the exceptions
         DashboardDataNotFoundException exception = assertThrows(DashboardDataNotFoundException.class, () -> {
-            dashboardViewService.getTraderDashboard(username, pageable);
+            dashboardViewService.getTraderDashboard(username, pageable, CountMode.EXACT);
         });
 
         // Then - Verifies the exception was thrown.
@@ -283,10 +383,13 @@ public class DashboardServiceTest {
         // Given - Trader's username and mocked stubs
         String username = "john";
 
-        when(tradeRepository.findAllTrades(any())).thenReturn(List.of(trade1, trade2));
-        when(tradeRepository.findByTradeTypeBreakdown(any())).thenReturn(List.of(tradeTypeBreakdown));
-        when(tradeRepository.findByCounterpartyBreakdown(any())).thenReturn(List.of(counterpartyBreakdown));
-        when(tradeRepository.findRiskExposure(any())).thenReturn(List.of(riskExposure1, riskExposure2));
+        when(traderPortfolioAggregateRepository.findSummary(username)).thenReturn(List.of(
+                aggregate(TraderPortfolioAggregate.COUNTERPARTY, "TestcounterpartyA", "", 2L, 4000000),
+                aggregate(TraderPortfolioAggregate.CURRENCY, "EUR", "", 4L, 19000000),
+                aggregate(TraderPortfolioAggregate.EXPOSURE, "EUR", "Pay", 2L, -13000000),
+                aggregate(TraderPortfolioAggregate.EXPOSURE, "EUR", "Receive", 2L, 6000000),
+                aggregate(TraderPortfolioAggregate.STATUS, "NEW", "", 2L, 0),
+                aggregate(TraderPortfolioAggregate.TRADE_TYPE, "Option", "", 1L, 2000000)));
 
         // When - getTradePortfolioSummaries method call
         TradeSummaryDTO result = dashboardViewService.getTradePortfolioSummaries(username);
@@ -300,6 +403,10 @@ public class DashboardServiceTest {
         assertEquals(2, result.getRiskExposure().size());
         assertEquals(BigDecimal.valueOf(2000000),
                 result.getNotionalByTradeType().get(0).totalNotional());
+        assertEquals(BigDecimal.valueOf(-13000000), result.getRiskExposure().get(0).totalNotional());
+
+        // Read from the aggregates, the trades aren't loaded
+        verifyNoInteractions(tradeRepository);
 
     }
 
@@ -335,7 +442,7 @@ public class DashboardServiceTest {
         String username = "john";
         Long bookId = trade1.getBook().getId();
 
-        when(tradeRepository.findBookLevelActivitySummary(any(), any()))
+        when(bookActivityCounterRepository.findBookActivity(any(), any()))
                 .thenReturn(List.of(bookActivity1, bookActivity2));
 
         // When - getBookLevelActivity method call
@@ -384,7 +491,12 @@ public class DashboardServiceTest {
         trade1.setTradeDate(todaysDate);
         trade2.setTradeDate(yesterdaysDate);
 
-        when(tradeRepository.findAllTrades(any())).thenReturn(List.of(trade1, trade2));
+        // Rollups of trade1's and trade2's legs
+        when(traderDailyRollupRepository.findRollups(username, yesterdaysDate, todaysDate)).thenReturn(List.of(
+                new TraderDailyRollup(username, yesterdaysDate, 1L, 2L, BigDecimal.valueOf(14000000),
+                        BigDecimal.valueOf(4000000), BigDecimal.valueOf(10000000)),
+                new TraderDailyRollup(username, todaysDate, 1L, 2L, BigDecimal.valueOf(5000000),
+                        BigDecimal.valueOf(2000000), BigDecimal.valueOf(3000000))));
 
         when(bigDecimalPercentages.toPercentageOf(new BigDecimal(
                 14000000),
@@ -403,6 +515,8 @@ public class DashboardServiceTest {
         assertTrue(result.getTodaysDate().isEqual(LocalDate.now()));
         assertEquals(new BigDecimal(2500000), metricsResult.averageNotional());
         assertEquals(1L, metricsResult.tradeCount());
+        assertEquals(BigDecimal.valueOf(2000000), metricsResult.minNotional());
+        assertEquals(BigDecimal.valueOf(3000000), metricsResult.maxNotional());
         assertEquals(new BigDecimal(-9000000), comparisonResult.difference());
         assertEquals(new BigDecimal("-64.29"), comparisonResult.percentageChange());
 
@@ -0,0 +1,199 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.calculations.DeltaEncodedSeries;
+import com.technicalchallenge.dto.DashboardHistoryDTO;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.model.DashboardSeries;
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.model.TraderBlotterSummary;
+import com.technicalchallenge.repository.DashboardSeriesRepository;
+import com.technicalchallenge.repository.OrgHierarchyRollupRepository;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TraderBlotterSummaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class DashboardSnapshotServiceTest {
+
+        private static final LocalDate TODAY = LocalDate.of(2025, 11, 7);
+
+        @Mock
+        private DashboardSeriesRepository dashboardSeriesRepository;
+
+        @Mock
+        private TraderBlotterSummaryRepository traderBlotterSummaryRepository;
+
+        @Mock
+        private OrgHierarchyRollupRepository orgHierarchyRollupRepository;
+
+        @Mock
+        private TradeRepository tradeRepository;
+
+        private DashboardSnapshotService dashboardSnapshotService;
+
+        @BeforeEach
+        void setUp() {
+                // At most two years of history
+                dashboardSnapshotService = new DashboardSnapshotService(dashboardSeriesRepository,
+                                traderBlotterSummaryRepository, orgHierarchyRollupRepository, tradeRepository, 731);
+        }
+
+        // A series of the trader's with the points given
+        private static DashboardSeries series(String metric, String metricKey, LocalDate firstDate, long... values) {
+                DashboardSeries series = new DashboardSeries(DashboardSeries.TRADER, "john", metric, metricKey,
+                                firstDate.getYear(), firstDate, firstDate, 0L, 0, null);
+                for (int i = 0; i < values.length; i++) {
+                        LocalDate date = firstDate.plusDays(i);
+                        series.setPoints(DeltaEncodedSeries.append(series.getPoints(), series.getLastDate(),
+                                        series.getLastValue(), date, values[i]));
+                        series.setLastDate(date);
+                        series.setLastValue(values[i]);
+                        series.setPointCount(i + 1);
+                }
+                return series;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, DashboardSeries> snapshotWritten() {
+                ArgumentCaptor<List<DashboardSeries>> saved = ArgumentCaptor.forClass(List.class);
+                verify(dashboardSeriesRepository).saveAll(saved.capture());
+                return saved.getValue().stream().collect(Collectors.toMap(
+                                series -> series.getScopeLevel() + ":" + series.getScopeKey() + ":"
+                                                + series.getMetric() + ":" + series.getMetricKey(),
+                                Function.identity()));
+        }
+
+        @Test
+        void testSnapshot_NewSeriesForTradersAndBooks() {
+
+                // Given
+                when(traderBlotterSummaryRepository.findAll()).thenReturn(
+                                List.of(new TraderBlotterSummary("john", 2L, new BigDecimal("3000000.50"))));
+                when(orgHierarchyRollupRepository.findByNodeLevel(OrgHierarchyRollup.BOOK)).thenReturn(List.of(
+                                new OrgHierarchyRollup(OrgHierarchyRollup.BOOK, 10L, 2L,
+                                                new BigDecimal("3000000.50"))));
+                when(tradeRepository.findTraderCurrencyMix()).thenReturn(
+                                List.<Object[]>of(new Object[] { "john", "EUR", new BigDecimal("3000000.50") }));
+                when(tradeRepository.findBookCurrencyMix()).thenReturn(
+                                List.<Object[]>of(new Object[] { 10L, "EUR", new BigDecimal("3000000.50") }));
+                when(dashboardSeriesRepository.findYear(2025)).thenReturn(List.of());
+
+                // When
+                int written = dashboardSnapshotService.snapshot(TODAY);
+
+                // Then - Notionals in hundredths, one point from today
+                assertEquals(6, written);
+                Map<String, DashboardSeries> series = snapshotWritten();
+                DashboardSeries notional = series.get("TRADER:john:NOTIONAL:");
+                assertEquals(TODAY, notional.getFirstDate());
+                assertEquals(300000050L, notional.getLastValue());
+                assertEquals(List.of(new DeltaEncodedSeries.Point(TODAY, 300000050L)),
+                                DeltaEncodedSeries.decode(notional.getPoints(), notional.getFirstDate()));
+                assertEquals(2L, series.get("BOOK:10:TRADE_COUNT:").getLastValue());
+                assertEquals(300000050L, series.get("BOOK:10:CURRENCY:EUR").getLastValue());
+        }
+
+        /**
+         * Tests a day is appended to the year's series, a currency no longer
+         * traded drops to 0 and a day already snapshotted is skipped
+         */
+        @Test
+        void testSnapshot_AppendsToTheYear() {
+
+                // Given - Yesterday's EUR and USD, only EUR today and the count already written
+                LocalDate yesterday = TODAY.minusDays(1);
+                DashboardSeries eur = series(DashboardSeries.CURRENCY, "EUR", yesterday, 100);
+                DashboardSeries usd = series(DashboardSeries.CURRENCY, "USD", yesterday, 200);
+                DashboardSeries count = series(DashboardSeries.TRADE_COUNT, "", TODAY, 2);
+
+                when(traderBlotterSummaryRepository.findAll())
+                                .thenReturn(List.of(new TraderBlotterSummary("john", 3L, BigDecimal.ONE)));
+                when(orgHierarchyRollupRepository.findByNodeLevel(OrgHierarchyRollup.BOOK)).thenReturn(List.of());
+                when(tradeRepository.findTraderCurrencyMix()).thenReturn(
+                                List.<Object[]>of(new Object[] { "john", "EUR", new BigDecimal("1.50") }));
+                when(tradeRepository.findBookCurrencyMix()).thenReturn(List.of());
+                when(dashboardSeriesRepository.findYear(2025)).thenReturn(List.of(eur, usd, count));
+
+                // When
+                dashboardSnapshotService.snapshot(TODAY);
+
+                // Then
+                Map<String, DashboardSeries> series = snapshotWritten();
+                assertEquals(List.of(new DeltaEncodedSeries.Point(yesterday, 100),
+                                new DeltaEncodedSeries.Point(TODAY, 150)),
+                                DeltaEncodedSeries.decode(eur.getPoints(), eur.getFirstDate()));
+                assertEquals(2, eur.getPointCount());
+                assertEquals(0L, usd.getLastValue());
+                assertFalse(series.containsKey("TRADER:john:TRADE_COUNT:"));
+                assertEquals(2L, count.getLastValue());
+        }
+
+        @Test
+        void testGetTraderHistory_PointsBetweenDates() {
+
+                // Given - Three days of figures, USD no longer traded on the last
+                LocalDate firstDate = TODAY.minusDays(2);
+                when(dashboardSeriesRepository.findSeries(DashboardSeries.TRADER, "john", 2025, 2025)).thenReturn(
+                                List.of(series(DashboardSeries.TRADE_COUNT, "", firstDate, 1, 2, 3),
+                                                series(DashboardSeries.NOTIONAL, "", firstDate, 100, 250, 300),
+                                                series(DashboardSeries.CURRENCY, "EUR", firstDate, 100, 200, 300),
+                                                series(DashboardSeries.CURRENCY, "USD", firstDate, 0, 50, 0)));
+
+                // When
+                DashboardHistoryDTO history = dashboardSnapshotService.getTraderHistory("john",
+                                TODAY.minusDays(1), TODAY);
+
+                // Then - The first day is before fromDate
+                assertEquals(2, history.points().size());
+                DashboardHistoryDTO.Point yesterday = history.points().get(0);
+                assertEquals(TODAY.minusDays(1), yesterday.date());
+                assertEquals(2L, yesterday.tradeCount());
+                assertEquals(new BigDecimal("2.50"), yesterday.totalNotional());
+                assertEquals(Map.of("EUR", new BigDecimal("2.00"), "USD", new BigDecimal("0.50")),
+                                yesterday.currencyMix());
+                assertEquals(Map.of("EUR", new BigDecimal("3.00")), history.points().get(1).currencyMix());
+        }
+
+        @Test
+        void testGetTraderHistory_RangeTooLong() {
+
+                // Then
+                assertThrows(ValidationException.class, () -> dashboardSnapshotService.getTraderHistory("john",
+                                TODAY.minusYears(3), TODAY));
+                assertThrows(ValidationException.class, () -> dashboardSnapshotService.getTraderHistory("john",
+                                TODAY, TODAY.minusDays(1)));
+                verify(dashboardSeriesRepository, never()).findSeries(any(), any(), anyInt(), anyInt());
+        }
+
+        @Test
+        void testGetBookHistory_NothingSnapshotted() {
+
+                // Given
+                when(dashboardSeriesRepository.findSeries(DashboardSeries.BOOK, "10", 2024, 2025))
+                                .thenReturn(List.of());
+
+                // Then
+                assertThrows(DashboardDataNotFoundException.class,
+                                () -> dashboardSnapshotService.getBookHistory(10L, TODAY.minusYears(1), TODAY));
+                verify(dashboardSeriesRepository, never()).saveAll(anyList());
+        }
+
+}
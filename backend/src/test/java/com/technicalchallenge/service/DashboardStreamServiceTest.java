@@ -0,0 +1,161 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.service.TraderPortfolioAggregateService.PortfolioChange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DashboardStreamServiceTest {
+
+        private SimpleMeterRegistry meterRegistry;
+        private DashboardStreamService dashboardStreamService;
+
+        @BeforeEach
+        void setUp() {
+                // Two streams per user, one sender
+                meterRegistry = new SimpleMeterRegistry();
+                dashboardStreamService = new DashboardStreamService(meterRegistry, 60000, 4, 2, 1, 5000, 16);
+        }
+
+        @AfterEach
+        void tearDown() {
+                dashboardStreamService.shutdown();
+        }
+
+        private TradeSnapshot snapshot(Long id, String status, String traderLoginId) {
+                return aTrade().id(id).tradeStatus(status).traderLoginId(traderLoginId)
+                                .legs(new LegSnapshot(1L, BigDecimal.valueOf(1000000), 0.05, "EUR", "Pay")).build();
+        }
+
+        @Test
+        void testSubscribe_ClientCounted() {
+
+                // When
+                assertNotNull(dashboardStreamService.subscribe("john"));
+                dashboardStreamService.subscribe("simon");
+
+                // Then
+                assertEquals(2, dashboardStreamService.clientCount());
+                assertEquals(2.0, meterRegistry.get("trade.dashboard.stream.clients").gauge().value());
+        }
+
+        /**
+         * Tests a trader opening more streams than allowed closes their oldest
+         */
+        @Test
+        void testSubscribe_OldestClosedOverLimit() {
+
+                // When
+                dashboardStreamService.subscribe("john");
+                dashboardStreamService.subscribe("john");
+                dashboardStreamService.subscribe("john");
+                dashboardStreamService.subscribe("simon");
+
+                // Then
+                assertEquals(3, dashboardStreamService.clientCount());
+        }
+
+        /**
+         * Tests writes for traders without a stream are ignored
+         */
+        @Test
+        void testOnTradeWrite_NoStreamForTrader() {
+
+                // Given
+                dashboardStreamService.subscribe("simon");
+
+                // When/Then
+                assertDoesNotThrow(() -> dashboardStreamService.onTradeWrite(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, snapshot(1L, "NEW", "john"))));
+                assertEquals(1, dashboardStreamService.clientCount());
+        }
+
+        /**
+         * Tests a client that can't be queued while the only sender is held up
+         * by a blocked write is dropped rather than given a thread
+         */
+        @Test
+        void testSubscribe_DroppedWhenSenderFull() throws InterruptedException {
+
+                // Given room for one client waiting and the sender blocked
+                // writing to john (the emitter's lock is held)
+                dashboardStreamService.shutdown();
+                dashboardStreamService = new DashboardStreamService(meterRegistry, 60000, 4, 2, 1, 5000, 1);
+                SseEmitter john = dashboardStreamService.subscribe("john");
+                synchronized (john) {
+                        dashboardStreamService.heartbeat();
+                        awaitSenderBlocked();
+
+                        // When simon waits for the sender and ashley can't
+                        dashboardStreamService.subscribe("simon");
+                        dashboardStreamService.subscribe("ashley");
+
+                        // Then
+                        assertEquals(2, dashboardStreamService.clientCount());
+                        assertEquals(1.0, meterRegistry.get("trade.dashboard.stream.overflows").counter().count());
+                }
+        }
+
+        private void awaitSenderBlocked() throws InterruptedException {
+                for (int i = 0; i < 500; i++) {
+                        if (Thread.getAllStackTraces().keySet().stream()
+                                        .anyMatch(thread -> thread.getName().startsWith("dashboard-stream-")
+                                                        && thread.getState() == Thread.State.BLOCKED)) {
+                                return;
+                        }
+                        Thread.sleep(10);
+                }
+                fail("Sender never blocked");
+        }
+
+        @Test
+        void testShutdown_ClientsClosed() {
+
+                // Given
+                dashboardStreamService.subscribe("john");
+                dashboardStreamService.subscribe("simon");
+
+                // When
+                dashboardStreamService.shutdown();
+
+                // Then
+                assertEquals(0, dashboardStreamService.clientCount());
+        }
+
+        /**
+         * Tests the delta pushed for a cancellation moves the trade between
+         * statuses and leaves the notionals as they were
+         */
+        @Test
+        void testChangesOf_CancellationMovesStatus() {
+
+                // When
+                List<PortfolioChange> changes = TraderPortfolioAggregateService.changesOf(new TradeWriteEvent(
+                                TradeWriteEvent.Type.CANCELLED, snapshot(1L, "NEW", "john"),
+                                snapshot(1L, "CANCELLED", "john")));
+
+                // Then
+                assertEquals(2, changes.size());
+                assertTrue(changes.stream()
+                                .allMatch(change -> TraderPortfolioAggregate.STATUS.equals(change.dimension())));
+                assertEquals(-1, changes.stream().filter(change -> "NEW".equals(change.dimensionKey()))
+                                .findFirst().orElseThrow().count());
+                assertEquals(1, changes.stream().filter(change -> "CANCELLED".equals(change.dimensionKey()))
+                                .findFirst().orElseThrow().count());
+        }
+
+}
@@ -0,0 +1,152 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.calculations.LogHistogram;
+import com.technicalchallenge.dto.DistributionDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.DashboardDataNotFoundException;
+import com.technicalchallenge.model.ApplicationUser;
+import com.technicalchallenge.model.DistributionBucket;
+import com.technicalchallenge.repository.ApplicationUserRepository;
+import com.technicalchallenge.repository.DistributionBucketRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class DistributionSketchServiceTest {
+
+        @Mock
+        private DistributionBucketRepository distributionBucketRepository;
+
+        @Mock
+        private ApplicationUserRepository applicationUserRepository;
+
+        @InjectMocks
+        private DistributionSketchService distributionSketchService;
+
+        private static final int MILLION = LogHistogram.bucketOf(1000000);
+        private static final int TWO_MILLION = LogHistogram.bucketOf(2000000);
+        private static final int FIVE_PERCENT = LogHistogram.bucketOf(0.05);
+
+        private TradeSnapshot snapshot(Long id, Long bookId, boolean active, BigDecimal secondNotional) {
+                return aTrade().id(id).active(active).bookId(bookId).trader(7L, "john")
+                                .payAndReceive(BigDecimal.valueOf(1000000), secondNotional).build();
+        }
+
+        @Test
+        void testOnTradeWrite_BookingAddsLegsToBookAndTrader() {
+
+                // Given
+                when(distributionBucketRepository.addToBucket(anyString(), anyLong(), anyString(), anyInt(),
+                                anyLong())).thenReturn(1);
+
+                // When
+                distributionSketchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, 10L, true, BigDecimal.valueOf(2000000))));
+
+                // Then - legs without a rate aren't in the rate histogram
+                verify(distributionBucketRepository).addToBucket("BOOK", 10L, "NOTIONAL", MILLION, 1);
+                verify(distributionBucketRepository).addToBucket("BOOK", 10L, "NOTIONAL", TWO_MILLION, 1);
+                verify(distributionBucketRepository).addToBucket("BOOK", 10L, "RATE", FIVE_PERCENT, 1);
+                verify(distributionBucketRepository).addToBucket("TRADER", 7L, "NOTIONAL", MILLION, 1);
+                verify(distributionBucketRepository).addToBucket("TRADER", 7L, "NOTIONAL", TWO_MILLION, 1);
+                verify(distributionBucketRepository).addToBucket("TRADER", 7L, "RATE", FIVE_PERCENT, 1);
+                verify(distributionBucketRepository, never()).createBucket(any(), any(), any(), anyInt());
+        }
+
+        /**
+         * Tests an amendment only moves the leg that changed
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesChangedLeg() {
+
+                // Given
+                when(distributionBucketRepository.addToBucket(anyString(), anyLong(), anyString(), anyInt(),
+                                anyLong())).thenReturn(1);
+
+                // When
+                distributionSketchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 10L, true, BigDecimal.valueOf(1000000)),
+                                snapshot(2L, 10L, true, BigDecimal.valueOf(2000000))));
+
+                // Then
+                verify(distributionBucketRepository).addToBucket("BOOK", 10L, "NOTIONAL", MILLION, -1);
+                verify(distributionBucketRepository).addToBucket("BOOK", 10L, "NOTIONAL", TWO_MILLION, 1);
+                verify(distributionBucketRepository).addToBucket("TRADER", 7L, "NOTIONAL", MILLION, -1);
+                verify(distributionBucketRepository).addToBucket("TRADER", 7L, "NOTIONAL", TWO_MILLION, 1);
+                verifyNoMoreInteractions(distributionBucketRepository);
+        }
+
+        @Test
+        void testOnTradeWrite_NewBucketCreated() {
+
+                // Given
+                when(distributionBucketRepository.addToBucket(anyString(), anyLong(), anyString(), anyInt(),
+                                anyLong())).thenReturn(0);
+
+                // When
+                distributionSketchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, 10L, true, null)));
+
+                // Then
+                verify(distributionBucketRepository).createBucket("BOOK", 10L, "NOTIONAL", MILLION);
+                verify(distributionBucketRepository, times(2)).addToBucket("BOOK", 10L, "NOTIONAL", MILLION, 1);
+                verify(distributionBucketRepository).createBucket("TRADER", 7L, "RATE", FIVE_PERCENT);
+                verify(distributionBucketRepository, times(2)).addToBucket("TRADER", 7L, "RATE", FIVE_PERCENT, 1);
+        }
+
+        @Test
+        void testGetBookDistribution_PercentilesFromBuckets() {
+
+                // Given - 99 legs of a million and one of two million
+                List<DistributionBucket> buckets = new ArrayList<>();
+                buckets.add(new DistributionBucket("BOOK", 10L, "NOTIONAL", MILLION, 99L));
+                buckets.add(new DistributionBucket("BOOK", 10L, "NOTIONAL", TWO_MILLION, 1L));
+                buckets.add(new DistributionBucket("BOOK", 10L, "RATE", FIVE_PERCENT, 100L));
+                when(distributionBucketRepository.findBuckets("BOOK", 10L)).thenReturn(buckets);
+
+                // When
+                DistributionDTO distribution = distributionSketchService.getBookDistribution(10L);
+
+                // Then
+                assertEquals(100L, distribution.notional().legCount());
+                assertEquals(2, distribution.notional().median().scale());
+                assertTrue(distribution.notional().median().subtract(BigDecimal.valueOf(1000000)).abs()
+                                .compareTo(BigDecimal.valueOf(10000)) <= 0);
+                assertEquals(distribution.notional().median(), distribution.notional().p99());
+                assertTrue(distribution.rate().median().subtract(new BigDecimal("0.05")).abs()
+                                .compareTo(new BigDecimal("0.0005")) <= 0);
+        }
+
+        @Test
+        void testGetTraderDistribution_NoTrades() {
+
+                // Given
+                ApplicationUser trader = new ApplicationUser();
+                trader.setId(7L);
+                when(applicationUserRepository.findByLoginId("john")).thenReturn(Optional.of(trader));
+                when(distributionBucketRepository.findBuckets("TRADER", 7L)).thenReturn(List.of());
+
+                // Then
+                assertThrows(DashboardDataNotFoundException.class,
+                                () -> distributionSketchService.getTraderDistribution("john"));
+        }
+
+}
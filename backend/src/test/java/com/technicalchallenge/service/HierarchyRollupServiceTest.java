@@ -0,0 +1,180 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.dto.HierarchyNodeDTO;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.OrgHierarchyRollup;
+import com.technicalchallenge.model.OrgHierarchyRollupId;
+import com.technicalchallenge.repository.OrgHierarchyRollupRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class HierarchyRollupServiceTest {
+
+        @Mock
+        private OrgHierarchyRollupRepository orgHierarchyRollupRepository;
+
+        @InjectMocks
+        private HierarchyRollupService hierarchyRollupService;
+
+        private TradeSnapshot snapshot(Long id, Long bookId, boolean active) {
+                return aTrade().id(id).active(active).bookId(bookId).payAndReceive(1000000, 2000000).build();
+        }
+
+        @Test
+        void testOnTradeWrite_BookingAddsToBookAndAncestors() {
+
+                // Given
+                when(orgHierarchyRollupRepository.addToAncestors(anyLong(), anyInt(), anyLong(), any()))
+                                .thenReturn(4);
+
+                // When
+                hierarchyRollupService.onTradeWrite(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, snapshot(1L, 10L, true)));
+
+                // Then
+                verify(orgHierarchyRollupRepository).addToAncestors(10L, 0, 1, BigDecimal.valueOf(3000000));
+                verify(orgHierarchyRollupRepository, never()).insertClosure(any());
+        }
+
+        /**
+         * Tests an amendment into another book moves the trade between the books
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesBooks() {
+
+                // Given
+                when(orgHierarchyRollupRepository.addToAncestors(anyLong(), anyInt(), anyLong(), any()))
+                                .thenReturn(4);
+
+                // When
+                hierarchyRollupService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, 10L, true), snapshot(2L, 20L, true)));
+
+                // Then
+                verify(orgHierarchyRollupRepository).addToAncestors(10L, 0, -1, BigDecimal.valueOf(-3000000));
+                verify(orgHierarchyRollupRepository).addToAncestors(20L, 0, 1, BigDecimal.valueOf(3000000));
+        }
+
+        /**
+         * Tests a termination keeps the live trade where it was
+         */
+        @Test
+        void testOnTradeWrite_TerminationLeavesTotals() {
+
+                // When
+                hierarchyRollupService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.TERMINATED,
+                                snapshot(1L, 10L, true), snapshot(1L, 10L, true)));
+
+                // Then
+                verifyNoInteractions(orgHierarchyRollupRepository);
+        }
+
+        /**
+         * Tests a book that isn't in the closure yet is added before its totals
+         */
+        @Test
+        void testOnTradeWrite_NewBookAddedToClosure() {
+
+                // Given
+                when(orgHierarchyRollupRepository.addToAncestors(anyLong(), anyInt(), anyLong(), any()))
+                                .thenReturn(0, 4);
+                when(orgHierarchyRollupRepository.findById(new OrgHierarchyRollupId(OrgHierarchyRollup.BOOK, 10L)))
+                                .thenReturn(Optional.empty());
+
+                // When
+                hierarchyRollupService.onTradeWrite(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, snapshot(1L, 10L, true)));
+
+                // Then
+                InOrder inOrder = inOrder(orgHierarchyRollupRepository);
+                inOrder.verify(orgHierarchyRollupRepository).insertClosure(10L);
+                inOrder.verify(orgHierarchyRollupRepository).insertMissingRollups(10L);
+                inOrder.verify(orgHierarchyRollupRepository).addToAncestors(10L, 0, 1, BigDecimal.valueOf(3000000));
+        }
+
+        /**
+         * Tests a book moved to another cost center takes its totals with it
+         */
+        @Test
+        void testOnBookSaved_TotalsMoved() {
+
+                // Given
+                when(orgHierarchyRollupRepository.findById(new OrgHierarchyRollupId(OrgHierarchyRollup.BOOK, 10L)))
+                                .thenReturn(Optional.of(new OrgHierarchyRollup(OrgHierarchyRollup.BOOK, 10L, 2L,
+                                                BigDecimal.valueOf(5000000))));
+
+                // When
+                hierarchyRollupService.onBookSaved(10L);
+
+                // Then - Taken from the old ancestors, the closure rebuilt, added to the new
+                InOrder inOrder = inOrder(orgHierarchyRollupRepository);
+                inOrder.verify(orgHierarchyRollupRepository).addToAncestors(10L, 1, -2, BigDecimal.valueOf(-5000000));
+                inOrder.verify(orgHierarchyRollupRepository).deleteClosure(10L);
+                inOrder.verify(orgHierarchyRollupRepository).insertClosure(10L);
+                inOrder.verify(orgHierarchyRollupRepository).insertMissingRollups(10L);
+                inOrder.verify(orgHierarchyRollupRepository).addToAncestors(10L, 1, 2, BigDecimal.valueOf(5000000));
+        }
+
+        @Test
+        void testOnCostCenterSaved_BooksUnderItMoved() {
+
+                // Given
+                when(orgHierarchyRollupRepository.findBookIdsUnder(OrgHierarchyRollup.COST_CENTER, 5L))
+                                .thenReturn(List.of(10L, 11L));
+                when(orgHierarchyRollupRepository.findById(any())).thenReturn(Optional.empty());
+
+                // When
+                hierarchyRollupService.onCostCenterSaved(5L);
+
+                // Then
+                verify(orgHierarchyRollupRepository).insertClosure(10L);
+                verify(orgHierarchyRollupRepository).insertClosure(11L);
+                verify(orgHierarchyRollupRepository, never()).addToAncestors(anyLong(), anyInt(), anyLong(), any());
+        }
+
+        @Test
+        void testGetHierarchyTree_TotalsAtEveryLevel() {
+
+                // Given - FX > FX Options > NY Trading > FX-BOOK-1
+                BigDecimal notional = BigDecimal.valueOf(3000000);
+                when(orgHierarchyRollupRepository.findHierarchyNodes()).thenReturn(List.of(
+                                new Object[] { OrgHierarchyRollup.DESK, 1L, "FX", null, 1L, notional },
+                                new Object[] { OrgHierarchyRollup.SUB_DESK, 2L, "FX Options", 1L, 1L, notional },
+                                new Object[] { OrgHierarchyRollup.COST_CENTER, 3L, "NY Trading", 2L, 1L, notional },
+                                new Object[] { OrgHierarchyRollup.BOOK, 4L, "FX-BOOK-1", 3L, 1L, notional },
+                                new Object[] { OrgHierarchyRollup.BOOK, 5L, "FX-BOOK-2", null, null, null }));
+
+                // When
+                List<HierarchyNodeDTO> tree = hierarchyRollupService.getHierarchyTree();
+
+                // Then - The desk first, the book without a cost center at the top with no trades
+                assertEquals(2, tree.size());
+                HierarchyNodeDTO deskNode = tree.get(0);
+                assertEquals("FX", deskNode.name());
+                assertEquals(1L, deskNode.tradeCount());
+                HierarchyNodeDTO bookNode = deskNode.children().get(0).children().get(0).children().get(0);
+                assertEquals("FX-BOOK-1", bookNode.name());
+                assertEquals(notional, bookNode.totalNotional());
+                assertEquals("FX-BOOK-2", tree.get(1).name());
+                assertEquals(0L, tree.get(1).tradeCount());
+        }
+
+}
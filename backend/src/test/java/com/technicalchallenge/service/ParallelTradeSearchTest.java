@@ -0,0 +1,222 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import org.hibernate.Session;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.TradeDTO;
+import com.technicalchallenge.mapper.TradeMapper;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.service.ParallelTradeSearch.Partition;
+
+import jakarta.persistence.EntityManager;
+
+@ExtendWith(MockitoExtension.class)
+public class ParallelTradeSearchTest {
+
+        @Mock
+        private TradeRepository tradeRepository;
+
+        @Mock
+        private TradeMapper tradeMapper;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
+        @Mock
+        private EntityManager entityManager;
+
+        private ParallelTradeSearch parallelTradeSearch;
+
+        @BeforeEach
+        void setUp() {
+                // Given - 4 threads, date ranges from 90 days, id ranges from 1,000 ids
+                // and queues of one trade, so the partitions wait on the merge
+                parallelTradeSearch = new ParallelTradeSearch(tradeRepository, tradeMapper, transactionManager, 4,
+                                90, 1000, 1);
+                ReflectionTestUtils.setField(parallelTradeSearch, "entityManager", entityManager);
+        }
+
+        @AfterEach
+        void tearDown() {
+                parallelTradeSearch.shutdown();
+        }
+
+        private SearchTradeByCriteria tradeDates(LocalDate from, LocalDate to) {
+                return new SearchTradeByCriteria("FX%", null, null, null, null, null, null, from, to);
+        }
+
+        // Streams the trades to the partition's action
+        private static Answer<Long> streams(long... ids) {
+                return invocation -> {
+                        Consumer<Trade> action = invocation.getArgument(3);
+                        for (long id : ids) {
+                                Trade trade = new Trade();
+                                trade.setId(id);
+                                action.accept(trade);
+                        }
+                        return (long) ids.length;
+                };
+        }
+
+        /**
+         * Tests a wide date range is split into contiguous date ranges
+         */
+        @Test
+        void testPartition_WideDateRangeSplit() {
+
+                // When - A year of trades
+                List<Partition> partitions = parallelTradeSearch
+                                .partition(tradeDates(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)));
+
+                // Then - One range per thread, each starting the day after the last
+                assertEquals(4, partitions.size());
+                assertEquals(LocalDate.of(2025, 1, 1), partitions.get(0).fromDate());
+                assertEquals(LocalDate.of(2025, 12, 31), partitions.get(3).toDate());
+                for (int i = 1; i < partitions.size(); i++) {
+                        assertEquals(partitions.get(i - 1).toDate().plusDays(1), partitions.get(i).fromDate());
+                }
+        }
+
+        @Test
+        void testPartition_ShortDateRangeNotSplit() {
+
+                // When - A month of trades
+                List<Partition> partitions = parallelTradeSearch
+                                .partition(tradeDates(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+
+                // Then
+                assertEquals(1, partitions.size());
+                verifyNoInteractions(tradeRepository);
+        }
+
+        @Test
+        void testPartition_NoDateRangeSplitById() {
+
+                // Given - 10,000 trade ids
+                when(tradeRepository.findMinId()).thenReturn(Optional.of(1L));
+                when(tradeRepository.findMaxId()).thenReturn(Optional.of(10_000L));
+
+                // When
+                List<Partition> partitions = parallelTradeSearch.partition(tradeDates(null, null));
+
+                // Then - Contiguous id ranges covering every id
+                assertEquals(4, partitions.size());
+                assertEquals(1L, partitions.get(0).fromId());
+                assertEquals(10_000L, partitions.get(3).toId());
+                for (int i = 1; i < partitions.size(); i++) {
+                        assertEquals(partitions.get(i - 1).toId() + 1, partitions.get(i).fromId());
+                }
+        }
+
+        /**
+         * Tests the partitions' results are merged back into id order
+         */
+        @Test
+        @SuppressWarnings("unchecked")
+        void testSearch_MergedInIdOrder() {
+
+                // Given - Three partitions whose ids interleave
+                when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+                when(tradeRepository.streamEach(any(Specification.class), any(Sort.class), isNull(), any()))
+                                .thenAnswer(streams(1, 4, 7)).thenAnswer(streams(2, 5, 8))
+                                .thenAnswer(streams(3, 6, 9));
+                when(tradeMapper.toDto(any(Trade.class))).thenAnswer(invocation -> {
+                        TradeDTO tradeDTO = new TradeDTO();
+                        tradeDTO.setId(((Trade) invocation.getArgument(0)).getId());
+                        return tradeDTO;
+                });
+
+                List<Partition> partitions = List.of(new Partition(null, null, 1L, 3L),
+                                new Partition(null, null, 4L, 6L), new Partition(null, null, 7L, 9L));
+
+                // When
+                List<TradeDTO> result = parallelTradeSearch.search(tradeDates(null, null), partitions);
+
+                // Then
+                assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L),
+                                result.stream().map(TradeDTO::getId).toList());
+                verify(tradeRepository, times(3)).streamEach(any(Specification.class), any(Sort.class), isNull(),
+                                any());
+        }
+
+        /**
+         * Tests a failed partition cancels the others' queries and stops their
+         * mapping, and its own failure is the one thrown
+         */
+        @Test
+        @SuppressWarnings("unchecked")
+        void testSearch_FailedPartitionCancelsTheOthers() throws Exception {
+
+                // Given - One partition of 1,000 trades, the other fails once the first is mapping
+                CountDownLatch mapping = new CountDownLatch(1);
+                CountDownLatch cancelled = new CountDownLatch(1);
+                Session first = mock(Session.class);
+                Session second = mock(Session.class);
+                doAnswer(invocation -> {
+                        cancelled.countDown();
+                        return null;
+                }).when(first).cancelQuery();
+                doAnswer(invocation -> {
+                        cancelled.countDown();
+                        return null;
+                }).when(second).cancelQuery();
+                when(entityManager.unwrap(Session.class)).thenReturn(first, second);
+
+                IllegalStateException failure = new IllegalStateException("Statement timed out");
+                AtomicInteger calls = new AtomicInteger();
+                when(tradeRepository.streamEach(any(Specification.class), any(Sort.class), isNull(), any()))
+                                .thenAnswer(invocation -> {
+                                        if (calls.getAndIncrement() == 0) {
+                                                return streams(LongStream.rangeClosed(1, 1000).toArray())
+                                                                .answer(invocation);
+                                        }
+                                        assertTrue(mapping.await(5, TimeUnit.SECONDS));
+                                        throw failure;
+                                });
+                when(tradeMapper.toDto(any(Trade.class))).thenAnswer(invocation -> {
+                        mapping.countDown();
+                        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+                        return new TradeDTO();
+                });
+
+                List<Partition> partitions = List.of(new Partition(null, null, 1L, 1000L),
+                                new Partition(null, null, 1001L, 2000L));
+
+                // When
+                IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                                () -> parallelTradeSearch.search(tradeDates(null, null), partitions));
+
+                // Then - The mapping partition stopped after the trade it was on
+                assertSame(failure, thrown);
+                verify(tradeMapper, times(1)).toDto(any(Trade.class));
+                assertEquals(0, cancelled.getCount());
+        }
+
+}
@@ -0,0 +1,142 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.repository.TradeRepositoryCustom.PortfolioRow;
+
+@ExtendWith(MockitoExtension.class)
+public class PortfolioRecomputationTest {
+
+        @Mock
+        private TradeRepository tradeRepository;
+
+        private PortfolioRecomputation portfolioRecomputation;
+
+        @BeforeEach
+        void setUp() {
+                // Four threads, ranges of three ids
+                portfolioRecomputation = new PortfolioRecomputation(tradeRepository,
+                                mock(PlatformTransactionManager.class), 4, 3);
+        }
+
+        @AfterEach
+        void tearDown() {
+                portfolioRecomputation.shutdown();
+        }
+
+        private static PortfolioRow row(long id, Long legId, String notional, String payReceiveFlag) {
+                return new PortfolioRow(id, "john", "NEW", "Swap", "BigBank", legId, legId != null ? "EUR" : null,
+                                payReceiveFlag, notional != null ? new BigDecimal(notional) : null);
+        }
+
+        @Test
+        void testRanges_CoverEveryIdOnce() {
+
+                // Then - The last range takes what's left
+                assertEquals(List.of(new PortfolioRecomputation.Range(1, 3), new PortfolioRecomputation.Range(4, 6),
+                                new PortfolioRecomputation.Range(7, 7)), PortfolioRecomputation.ranges(1, 7, 3));
+                assertEquals(List.of(new PortfolioRecomputation.Range(5, 5)), PortfolioRecomputation.ranges(5, 5, 3));
+                assertEquals(List.of(new PortfolioRecomputation.Range(Long.MAX_VALUE - 1, Long.MAX_VALUE)),
+                                PortfolioRecomputation.ranges(Long.MAX_VALUE - 1, Long.MAX_VALUE, 3));
+        }
+
+        /**
+         * Tests every range is streamed on the pool and the partial results
+         * are combined into one
+         */
+        @Test
+        void testRecompute_CombinesEveryRange() {
+
+                // Given - Ids 1 to 30 are ten ranges, each range streams two trades
+                Set<String> threads = ConcurrentHashMap.newKeySet();
+                when(tradeRepository.findMinId()).thenReturn(Optional.of(1L));
+                when(tradeRepository.findMaxId()).thenReturn(Optional.of(30L));
+                when(tradeRepository.streamPortfolioRows(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+                        threads.add(Thread.currentThread().getName());
+                        long fromId = invocation.getArgument(0);
+                        Consumer<PortfolioRow> action = invocation.getArgument(2);
+                        action.accept(row(fromId, 1L, "100", "Pay"));
+                        action.accept(row(fromId + 1, 2L, "200", "Pay"));
+                        return 2L;
+                });
+
+                // When
+                long trades = portfolioRecomputation.recompute(Collectors.counting());
+
+                // Then
+                assertEquals(20L, trades);
+                verify(tradeRepository, times(10)).streamPortfolioRows(anyLong(), anyLong(), any());
+                assertTrue(threads.stream().allMatch(thread -> thread.startsWith("trade-recompute-")));
+        }
+
+        /**
+         * Tests a trade's rows are put back together into one trade with
+         * every leg, and a trade without legs is still a trade
+         */
+        @Test
+        void testRecompute_AssemblesTradesFromRows() {
+
+                // Given - One range
+                when(tradeRepository.findMinId()).thenReturn(Optional.of(1L));
+                when(tradeRepository.findMaxId()).thenReturn(Optional.of(3L));
+                when(tradeRepository.streamPortfolioRows(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+                        Consumer<PortfolioRow> action = invocation.getArgument(2);
+                        action.accept(row(1L, 10L, "100", "Pay"));
+                        action.accept(row(1L, 11L, "200", "Receive"));
+                        action.accept(row(2L, null, null, null));
+                        action.accept(row(3L, 12L, "300", "Pay"));
+                        return 4L;
+                });
+
+                // When
+                List<TradeSnapshot> trades = portfolioRecomputation.recompute(Collectors.toList());
+
+                // Then
+                assertEquals(List.of(1L, 2L, 3L), trades.stream().map(TradeSnapshot::id).toList());
+                assertEquals(List.of(new LegSnapshot(10L, new BigDecimal("100"), null, "EUR", "Pay"),
+                                new LegSnapshot(11L, new BigDecimal("200"), null, "EUR", "Receive")),
+                                trades.get(0).legs());
+                assertTrue(trades.get(1).legs().isEmpty());
+                assertTrue(trades.stream().allMatch(trade -> trade.active() && "john".equals(trade.traderLoginId())
+                                && "NEW".equals(trade.tradeStatus()) && "Swap".equals(trade.tradeType())
+                                && "BigBank".equals(trade.counterpartyName())));
+        }
+
+        @Test
+        void testRecompute_NoTrades() {
+
+                // Given
+                when(tradeRepository.findMinId()).thenReturn(Optional.empty());
+                when(tradeRepository.findMaxId()).thenReturn(Optional.empty());
+
+                // When
+                List<TradeSnapshot> trades = portfolioRecomputation.recompute(Collectors.toList());
+
+                // Then
+                assertTrue(trades.isEmpty());
+                verify(tradeRepository, never()).streamPortfolioRows(anyLong(), anyLong(), any());
+        }
+
+}
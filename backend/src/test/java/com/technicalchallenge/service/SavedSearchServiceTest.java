@@ -0,0 +1,270 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.technicalchallenge.dto.SavedSearchDTO;
+import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.exceptions.InvalidSearchException;
+import com.technicalchallenge.exceptions.ValidationException;
+import com.technicalchallenge.exceptions.referencedata.SavedSearchNotFoundException;
+import com.technicalchallenge.mapper.TradeMapper;
+import com.technicalchallenge.model.SavedSearch;
+import com.technicalchallenge.model.Trade;
+import com.technicalchallenge.repository.SavedSearchMemberRepository;
+import com.technicalchallenge.repository.SavedSearchRepository;
+import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.specification.RsqlPlanCache;
+import com.technicalchallenge.validation.TradeSearchValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class SavedSearchServiceTest {
+
+        @Mock
+        private SavedSearchRepository savedSearchRepository;
+
+        @Mock
+        private SavedSearchMemberRepository savedSearchMemberRepository;
+
+        @Mock
+        private TradeRepository tradeRepository;
+
+        @Mock
+        private TradeSearchValidator tradeSearchValidator;
+
+        @Mock
+        private TradeMapper tradeMapper;
+
+        @Spy
+        private RsqlPlanCache rsqlPlanCache = new RsqlPlanCache(new SimpleMeterRegistry(), 16);
+
+        @Spy
+        private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        @InjectMocks
+        private SavedSearchService savedSearchService;
+
+        private SearchTradeByCriteria amendedFxTrades;
+
+        @BeforeEach
+        void setUp() {
+                ReflectionTestUtils.setField(savedSearchService, "maxTrades", 1000);
+                SecurityContextHolder.getContext()
+                                .setAuthentication(new UsernamePasswordAuthenticationToken("john", null, List.of()));
+
+                amendedFxTrades = new SearchTradeByCriteria("FX%", null, null, null, null, null, "AMENDED", null,
+                                null);
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        private TradeSnapshot snapshot(Long id, String bookName, String status) {
+                return aTrade().id(id).bookName(bookName).tradeStatus(status).build();
+        }
+
+        private SavedSearch savedSearch(Long id, String queryType, String queryText) {
+                SavedSearch savedSearch = new SavedSearch();
+                savedSearch.setId(id);
+                savedSearch.setName("Saved " + id);
+                savedSearch.setOwnerLoginId("john");
+                savedSearch.setQueryType(queryType);
+                savedSearch.setQueryText(queryText);
+                return savedSearch;
+        }
+
+        /**
+         * Tests saving a search stores its criteria and the trades it matches
+         */
+        @Test
+        void testCreateSavedSearch_StoresMatchingTrades() {
+
+                // Given - The criteria match two trades
+                when(savedSearchRepository.save(any(SavedSearch.class))).thenAnswer(invocation -> {
+                        SavedSearch saved = invocation.getArgument(0);
+                        saved.setId(7L);
+                        return saved;
+                });
+                when(tradeRepository.count(ArgumentMatchers.<Specification<Trade>>any())).thenReturn(2L);
+                when(savedSearchMemberRepository.insertMatching(eq(7L), any())).thenReturn(2);
+
+                // When
+                SavedSearchDTO result = savedSearchService.createSavedSearch(
+                                new SavedSearchDTO(null, "Amended FX", amendedFxTrades, null, null, null, null));
+
+                // Then - The members are stored in one insert and the criteria round trip
+                assertEquals(7L, result.id());
+                assertEquals(2L, result.tradeCount());
+                assertEquals(amendedFxTrades, result.criteria());
+                assertNotNull(result.lastRefreshedDate());
+                verify(savedSearchMemberRepository).deleteAllMembers(7L);
+                verify(savedSearchMemberRepository).insertMatching(eq(7L), any());
+                verify(savedSearchMemberRepository, never()).insertMember(any(), any());
+
+                // The book is a LIKE pattern, so the search is keyed on its status
+                ArgumentCaptor<SavedSearch> saved = ArgumentCaptor.forClass(SavedSearch.class);
+                verify(savedSearchRepository).save(saved.capture());
+                assertEquals("STATUS:AMENDED", saved.getValue().getMatchKey());
+        }
+
+        /**
+         * Tests a search matching more than the limit isn't stored
+         */
+        @Test
+        void testCreateSavedSearch_TooManyTrades() {
+
+                // Given
+                when(savedSearchRepository.save(any(SavedSearch.class))).thenAnswer(invocation -> {
+                        SavedSearch saved = invocation.getArgument(0);
+                        saved.setId(7L);
+                        return saved;
+                });
+                when(tradeRepository.count(ArgumentMatchers.<Specification<Trade>>any())).thenReturn(1001L);
+
+                // When/Then
+                assertThrows(InvalidSearchException.class, () -> savedSearchService.createSavedSearch(
+                                new SavedSearchDTO(null, "Amended FX", amendedFxTrades, null, null, null, null)));
+                verify(savedSearchMemberRepository, never()).insertMatching(any(), any());
+        }
+
+        /**
+         * Tests an RSQL search is keyed on the book it's and-ed with, and a
+         * disjunction isn't keyed
+         */
+        @Test
+        void testCreateSavedSearch_RsqlMatchKey() {
+
+                // Given
+                when(savedSearchRepository.save(any(SavedSearch.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // When
+                savedSearchService.createSavedSearch(new SavedSearchDTO(null, "FX 1", null,
+                                "book.bookName==FX-BOOK-1;tradeDate=ge=2025-01-01", null, null, null));
+                savedSearchService.createSavedSearch(new SavedSearchDTO(null, "FX 1 or 2", null,
+                                "book.bookName==FX-BOOK-1,book.bookName==FX-BOOK-2", null, null, null));
+
+                // Then
+                ArgumentCaptor<SavedSearch> saved = ArgumentCaptor.forClass(SavedSearch.class);
+                verify(savedSearchRepository, times(2)).save(saved.capture());
+                assertEquals("BOOK:FX-BOOK-1", saved.getAllValues().get(0).getMatchKey());
+                assertNull(saved.getAllValues().get(1).getMatchKey());
+        }
+
+        @Test
+        void testCreateSavedSearch_CriteriaAndRsql() {
+
+                // When - Both kinds of search are given
+                assertThrows(ValidationException.class, () -> savedSearchService.createSavedSearch(
+                                new SavedSearchDTO(null, "Both", amendedFxTrades, "tradeId==1", null, null, null)));
+
+                // Then
+                verifyNoInteractions(savedSearchRepository, tradeRepository);
+        }
+
+        /**
+         * Tests a write to a trade that matches the criteria rechecks only the
+         * written trade rows
+         */
+        @Test
+        void testOnTradeWrite_MatchingTradeRechecked() throws Exception {
+
+                // Given - An amendment to an FX trade, the new version is AMENDED
+                SavedSearch saved = savedSearch(7L, SavedSearch.CRITERIA,
+                                objectMapper.writeValueAsString(amendedFxTrades));
+                when(savedSearchRepository.findCandidates(any())).thenReturn(List.of(saved));
+                when(tradeRepository.findIds(any())).thenReturn(List.of(21L));
+
+                // When
+                savedSearchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(20L, "FX-BOOK-1", "NEW"), snapshot(21L, "FX-BOOK-1", "AMENDED")));
+
+                // Then - Only searches keyed on either version (or unkeyed) are loaded
+                verify(savedSearchRepository).findCandidates(Set.of("BOOK:FX-BOOK-1", "COUNTERPARTY:BigBank",
+                                "STATUS:NEW", "STATUS:AMENDED"));
+
+                // Then - Both rows are dropped and the matching one added back
+                verify(savedSearchMemberRepository).deleteMembers(7L, Set.of(20L, 21L));
+                verify(savedSearchMemberRepository).insertMember(7L, 21L);
+                verify(savedSearchMemberRepository, never()).insertMember(7L, 20L);
+        }
+
+        /**
+         * Tests writes that can't match the criteria skip the saved search
+         */
+        @Test
+        void testOnTradeWrite_UnrelatedTradeSkipped() throws Exception {
+
+                // Given - A rates trade can never match the FX books
+                SavedSearch saved = savedSearch(7L, SavedSearch.CRITERIA,
+                                objectMapper.writeValueAsString(amendedFxTrades));
+                when(savedSearchRepository.findCandidates(any())).thenReturn(List.of(saved));
+
+                // When
+                savedSearchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(30L, "RATES-BOOK-1", "NEW")));
+
+                // Then - Nothing is queried or written
+                verify(tradeRepository, never()).findIds(any());
+                verifyNoInteractions(savedSearchMemberRepository);
+        }
+
+        @Test
+        void testOnTradeWrite_RsqlSearchRechecked() {
+
+                // Given
+                when(savedSearchRepository.findCandidates(any()))
+                                .thenReturn(List.of(savedSearch(8L, SavedSearch.RSQL, "tradeStatus.tradeStatus==AMENDED")));
+                when(tradeRepository.findIds(any())).thenReturn(List.of());
+
+                // When - The trade no longer matches
+                savedSearchService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CANCELLED,
+                                snapshot(40L, "FX-BOOK-1", "AMENDED"), snapshot(40L, "FX-BOOK-1", "CANCELLED")));
+
+                // Then - Its membership is removed
+                verify(savedSearchMemberRepository).deleteMembers(eq(8L), eq(Set.of(40L)));
+                verify(savedSearchMemberRepository, never()).insertMember(any(), any());
+        }
+
+        @Test
+        void testGetSavedSearchTrades_OtherUsersSearch() {
+
+                // Given - The saved search belongs to someone else
+                when(savedSearchRepository.findByIdAndOwnerLoginId(9L, "john")).thenReturn(Optional.empty());
+
+                // When/Then
+                assertThrows(SavedSearchNotFoundException.class,
+                                () -> savedSearchService.getSavedSearchTrades(9L, null));
+                verifyNoInteractions(savedSearchMemberRepository);
+        }
+
+}
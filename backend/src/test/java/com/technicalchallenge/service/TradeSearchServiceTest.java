@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,19 +14,25 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import com.technicalchallenge.cache.TradeCountCache;
+import com.technicalchallenge.dto.CountMode;
 import com.technicalchallenge.dto.PaginationDTO;
 import com.technicalchallenge.dto.SearchTradeByCriteria;
+import com.technicalchallenge.dto.SliceDTO;
 import com.technicalchallenge.dto.SortDTO;
 import com.technicalchallenge.dto.TradeDTO;
 import com.technicalchallenge.dto.TradeLegDTO;
@@ -39,8 +46,12 @@ import com.technicalchallenge.model.Trade;
 import com.technicalchallenge.model.TradeLeg;
 import com.technicalchallenge.model.TradeStatus;
 import com.technicalchallenge.repository.TradeRepository;
+import com.technicalchallenge.specification.RsqlCostEstimator;
+import com.technicalchallenge.specification.RsqlPlanCache;
 import com.technicalchallenge.validation.TradeSearchValidator;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 public class TradeSearchServiceTest {
 
@@ -50,6 +61,15 @@ public class TradeSearchServiceTest {
         @Mock
         private TradeSearchValidator tradeSearchValidator;
 
+        @Spy
+        private RsqlPlanCache rsqlPlanCache = new RsqlPlanCache(new SimpleMeterRegistry(), 16);
+
+        @Spy
+        private RsqlCostEstimator rsqlCostEstimator = new RsqlCostEstimator(3, 0.2, 1000, 100, 5000);
+
+        @Spy
+        private TradeCountCache tradeCountCache = new TradeCountCache(new SimpleMeterRegistry(), 16, 60);
+
         @InjectMocks
         private TradeSearchService tradeSearchService;
 
@@ -365,19 +385,61 @@ public class TradeSearchServiceTest {
                 trade3.setTradeId(100003L);
                 trade3.setCounterparty(counterparty);
 
-                // Mocked finding all trades based on the Specification - <Specification<Trade>
-                when(tradeRepository.findAll(ArgumentMatchers.<Specification<Trade>>any()))
-                                .thenReturn(List.of(trade2, trade3));
+                // Mocked finding a slice of trades based on the Specification - <Specification<Trade>
+                when(tradeRepository.findSlice(ArgumentMatchers.<Specification<Trade>>any(), any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade2, trade3)));
 
                 // When - Uses the rsql method call from the service to check if the trades with
                 // same "counterpartyName" have been found.
-                List<Trade> result = tradeSearchService.getAllTradesByRSQL(query);
+                List<Trade> result = tradeSearchService.getAllTradesByRSQL(query, new PaginationDTO(null, null))
+                                .getContent();
 
                 // Then - Verifies that 2 trades were found and the search matches the
                 // counterpartyName.
                 assertEquals(2, result.size());
                 assertEquals("TestCounterpartyC", result.get(0).getCounterparty().getName());
-                verify(tradeRepository, times(1)).findAll(ArgumentMatchers.<Specification<Trade>>any());
+                verify(tradeRepository, times(1)).findSlice(ArgumentMatchers.<Specification<Trade>>any(), any(),
+                                any());
+        }
+
+        /**
+         * Tests a broad RSQL query without a page is forced into the first page
+         */
+        @Test
+        void testGetTradesByRSQL_BroadQueryForcedIntoPage() {
+                // Given - An unindexed wildcard match on the counterparty name
+                String query = "counterparty.name==*Bank*";
+
+                when(tradeRepository.findSlice(ArgumentMatchers.<Specification<Trade>>any(), any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade)));
+
+                // When - No page was requested
+                tradeSearchService.getAllTradesByRSQL(query, new PaginationDTO(null, null));
+
+                // Then - The repository was asked for the first forced page under the timeout
+                verify(tradeRepository).findSlice(ArgumentMatchers.<Specification<Trade>>any(),
+                                eq(PageRequest.of(0, 100, Sort.by("id").ascending())),
+                                eq(Duration.ofMillis(5000)));
+        }
+
+        /**
+         * Tests a selective indexed RSQL query is capped at the hard row limit
+         */
+        @Test
+        void testGetTradesByRSQL_SelectiveQueryCappedAtMaxRows() {
+                // Given - An equality match on the trade id
+                String query = "tradeId==100001";
+
+                when(tradeRepository.findSlice(ArgumentMatchers.<Specification<Trade>>any(), any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade)));
+
+                // When
+                tradeSearchService.getAllTradesByRSQL(query, new PaginationDTO(null, null));
+
+                // Then - The query runs unpaged up to the hard row limit
+                verify(tradeRepository).findSlice(ArgumentMatchers.<Specification<Trade>>any(),
+                                eq(PageRequest.of(0, 1000, Sort.by("id").ascending())),
+                                eq(Duration.ofMillis(5000)));
         }
 
         /**
@@ -567,4 +629,87 @@ public class TradeSearchServiceTest {
                                 any(Pageable.class));
         }
 
+        /**
+         * Tests sorted pages end with the id tie-breaker in the same direction
+         */
+        @Test
+        void testPagedAndSortedResultsOfTrades_IdTieBreaker() {
+                // Given - A trade date sort in descending order
+                SearchTradeByCriteria criteriaSearch = new SearchTradeByCriteria(null, null, null, null, null, null,
+                                null, null,
+                                null);
+                PaginationDTO pagination = new PaginationDTO(1, 20);
+                SortDTO sortField = new SortDTO("tradeDate", "desc");
+
+                when(tradeRepository.findAll(ArgumentMatchers
+                                .<Specification<Trade>>any(), any(Pageable.class)))
+                                .thenReturn(Page.empty());
+
+                // When - Pagniated Filter method call
+                tradeSearchService.getAllTrades(criteriaSearch, pagination, sortField);
+
+                // Then - The page is sorted by trade date then id, both descending
+                ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+                verify(tradeRepository).findAll(ArgumentMatchers.<Specification<Trade>>any(), pageable.capture());
+                assertEquals(Sort.by(Sort.Direction.DESC, "tradeDate").and(Sort.by(Sort.Direction.DESC, "id")),
+                                pageable.getValue().getSort());
+        }
+
+        /**
+         * Tests the approximate slice reads page size + 1 rows and counts once
+         */
+        @Test
+        void testTradeSlice_ApproximateTotal() {
+                // Given - A full page with more to come and 1,000 matching trades
+                SearchTradeByCriteria criteriaSearch = new SearchTradeByCriteria(null, null, null, null, null, null,
+                                null, null,
+                                null);
+                PaginationDTO pagination = new PaginationDTO(1, 2);
+                SortDTO sortField = new SortDTO("tradeDate", "desc");
+
+                when(tradeRepository.findSlice(any(), any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade, trade), PageRequest.of(0, 2), true));
+                when(tradeRepository.count(ArgumentMatchers.<Specification<Trade>>any())).thenReturn(1000L);
+
+                // When - The slice is requested twice
+                tradeSearchService.getTradeSlice(criteriaSearch, pagination, sortField, CountMode.APPROXIMATE);
+                SliceDTO<Trade> result = tradeSearchService.getTradeSlice(criteriaSearch, pagination, sortField,
+                                CountMode.APPROXIMATE);
+
+                // Then - The total is approximate, counted once and the page query never ran
+                assertEquals(2, result.content().size());
+                assertTrue(result.hasNext());
+                assertEquals(1000L, result.totalElements());
+                assertFalse(result.totalExact());
+                verify(tradeRepository, times(1)).count(ArgumentMatchers.<Specification<Trade>>any());
+                verify(tradeRepository, never()).findAll(ArgumentMatchers.<Specification<Trade>>any(),
+                                any(Pageable.class));
+        }
+
+        /**
+         * Tests the last slice works out the exact total without counting
+         */
+        @Test
+        void testTradeSlice_LastPageExactTotal() {
+                // Given - The third page of two, holding the last trade
+                SearchTradeByCriteria criteriaSearch = new SearchTradeByCriteria(null, null, null, null, null, null,
+                                null, null,
+                                null);
+                PaginationDTO pagination = new PaginationDTO(3, 2);
+                SortDTO sortField = new SortDTO(null, null);
+
+                when(tradeRepository.findSlice(any(), any(), any()))
+                                .thenReturn(new SliceImpl<>(List.of(trade), PageRequest.of(2, 2), false));
+
+                // When - The slice is requested without a count
+                SliceDTO<Trade> result = tradeSearchService.getTradeSlice(criteriaSearch, pagination, sortField,
+                                CountMode.NONE);
+
+                // Then - 2 full pages and 1 trade make an exact total of 5
+                assertFalse(result.hasNext());
+                assertEquals(5L, result.totalElements());
+                assertTrue(result.totalExact());
+                verify(tradeRepository, never()).count(ArgumentMatchers.<Specification<Trade>>any());
+        }
+
 }
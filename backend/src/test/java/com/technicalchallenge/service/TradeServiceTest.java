@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.technicalchallenge.dto.TradeDTO;
 import com.technicalchallenge.dto.TradeLegDTO;
+import com.technicalchallenge.events.TradeWriteEvent;
 import com.technicalchallenge.exceptions.ValidationException;
 import com.technicalchallenge.exceptions.referencedata.TradeNotFoundException;
 import com.technicalchallenge.mapper.TradeLegMapper;
@@ -32,10 +33,13 @@ import com.technicalchallenge.validation.ValidationResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -46,6 +50,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -81,6 +86,9 @@ public class TradeServiceTest {
     @Mock
     private TradeLegMapper tradeLegMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TradeService tradeService;
 
@@ -114,7 +122,7 @@ public class TradeServiceTest {
         objectMapper.registerModule(new JavaTimeModule());
 
         tradeService = new TradeService(tradeRepository, tradeLegService, cashflowService, tradeStatusRepository,
-                tradeValidator, referenceDataValidator, authorizationService, tradeMapper);
+                tradeValidator, referenceDataValidator, authorizationService, tradeMapper, eventPublisher);
 
         // TraderUser Reference
         traderUser = new ApplicationUser();
@@ -404,6 +412,63 @@ public class TradeServiceTest {
 
     }
 
+    /**
+     * Tests many trades are read in one query, checked once and returned in the
+     * requested order
+     */
+    @Test
+    void testGetTradesByIds_RequestOrder() {
+
+        // Given
+        ReflectionTestUtils.setField(tradeService, "maxMultiGetIds", 500);
+        Trade trade2 = new Trade();
+        trade2.setTradeId(100002L);
+        List<Trade> trades = List.of(trade2, trade);
+
+        when(tradeRepository.findActiveTradesWithLegs(any())).thenReturn(trades);
+
+        // When
+        List<Trade> result = tradeService.getTradesByIds(List.of(100001L, 100002L, 100001L));
+
+        // Then
+        assertEquals(List.of(100001L, 100002L, 100001L), result.stream().map(Trade::getTradeId).toList());
+        verify(authorizationService, times(1)).validateUserPrivileges(any(), eq("READ_TRADE"), any());
+        verify(tradeRepository, times(1)).findActiveTradesWithLegs(any());
+        verify(tradeRepository, times(1)).fetchLegCashflows(trades);
+        verify(tradeRepository, never()).findByTradeIdAndActiveTrue(any());
+    }
+
+    @Test
+    void testGetTradesByIds_NotFound() {
+
+        // Given
+        ReflectionTestUtils.setField(tradeService, "maxMultiGetIds", 500);
+        when(tradeRepository.findActiveTradesWithLegs(any())).thenReturn(List.of(trade));
+
+        // When
+        TradeNotFoundException exception = assertThrows(TradeNotFoundException.class, () -> {
+            tradeService.getTradesByIds(List.of(100001L, 999L));
+        });
+
+        // Then
+        assertTrue(exception.getMessage().contains("Trade is not found with tradeId: [999]"));
+    }
+
+    @Test
+    void testGetTradesByIds_TooManyIds() {
+
+        // Given
+        ReflectionTestUtils.setField(tradeService, "maxMultiGetIds", 2);
+
+        // When
+        assertThrows(ValidationException.class, () -> {
+            tradeService.getTradesByIds(List.of(1L, 2L, 3L));
+        });
+
+        // Then
+        verifyNoInteractions(tradeRepository);
+    }
+
     /**
      * Tests if amending a trade is successful
      */
@@ -539,4 +604,29 @@ public class TradeServiceTest {
         verify(tradeRepository).save(any(Trade.class));
     }
 
+    /**
+     * Tests terminating a trade publishes the write with the trade before and
+     * after the status change
+     */
+    @Test
+    void testTerminateTrade_PublishesTradeWriteEvent() {
+
+        // Given - The trade is NEW until it's terminated
+        findByTradeId(1L, trade);
+        TradeStatus terminated = new TradeStatus();
+        terminated.setTradeStatus("TERMINATED");
+        when(tradeStatusRepository.findByTradeStatus("TERMINATED")).thenReturn(Optional.of(terminated));
+        when(tradeRepository.save(any(Trade.class))).thenReturn(trade);
+
+        // When
+        tradeService.terminateTrade(trade.getId());
+
+        // Then - The event carries both statuses
+        ArgumentCaptor<TradeWriteEvent> event = ArgumentCaptor.forClass(TradeWriteEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(TradeWriteEvent.Type.TERMINATED, event.getValue().type());
+        assertEquals("NEW", event.getValue().before().tradeStatus());
+        assertEquals("TERMINATED", event.getValue().after().tradeStatus());
+    }
+
 }
@@ -0,0 +1,114 @@
+package com.technicalchallenge.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.repository.TraderBlotterSummaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class TraderBlotterSummaryServiceTest {
+
+        @Mock
+        private TraderBlotterSummaryRepository traderBlotterSummaryRepository;
+
+        @InjectMocks
+        private TraderBlotterSummaryService traderBlotterSummaryService;
+
+        private TradeSnapshot snapshot(Long id, String traderLoginId, boolean active, long secondNotional) {
+                return aTrade().id(id).active(active).bookId(10L).traderLoginId(traderLoginId)
+                                .payAndReceive(1000000, secondNotional).build();
+        }
+
+        @Test
+        void testOnTradeWrite_BookingAddsToTrader() {
+
+                // Given
+                when(traderBlotterSummaryRepository.addToSummary(anyString(), anyLong(), any())).thenReturn(1);
+
+                // When
+                traderBlotterSummaryService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, "john", true, 2000000)));
+
+                // Then
+                verify(traderBlotterSummaryRepository).addToSummary("john", 1, BigDecimal.valueOf(3000000));
+                verify(traderBlotterSummaryRepository, never()).createSummary(any());
+        }
+
+        /**
+         * Tests an amendment replaces the old version instead of counting both
+         */
+        @Test
+        void testOnTradeWrite_AmendmentReplacesVersion() {
+
+                // Given
+                when(traderBlotterSummaryRepository.addToSummary(anyString(), anyLong(), any())).thenReturn(1);
+
+                // When
+                traderBlotterSummaryService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, "john", true, 2000000), snapshot(2L, "john", true, 4000000)));
+
+                // Then - Still one trade, with the new version's notional
+                verify(traderBlotterSummaryRepository).addToSummary("john", 0, BigDecimal.valueOf(2000000));
+        }
+
+        /**
+         * Tests a termination keeps the live trade in the totals
+         */
+        @Test
+        void testOnTradeWrite_TerminationLeavesTotals() {
+
+                // When
+                traderBlotterSummaryService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.TERMINATED,
+                                snapshot(1L, "john", true, 2000000), snapshot(1L, "john", true, 2000000)));
+
+                // Then
+                verifyNoInteractions(traderBlotterSummaryRepository);
+        }
+
+        @Test
+        void testOnTradeWrite_NewTraderCreated() {
+
+                // Given
+                when(traderBlotterSummaryRepository.addToSummary(anyString(), anyLong(), any())).thenReturn(0);
+
+                // When
+                traderBlotterSummaryService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(1L, "john", true, 2000000)));
+
+                // Then
+                verify(traderBlotterSummaryRepository).createSummary("john");
+                verify(traderBlotterSummaryRepository, times(2)).addToSummary("john", 1, BigDecimal.valueOf(3000000));
+        }
+
+        /**
+         * Tests an amendment to another trader moves the trade between them
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesTraders() {
+
+                // Given
+                when(traderBlotterSummaryRepository.addToSummary(anyString(), anyLong(), any())).thenReturn(1);
+
+                // When
+                traderBlotterSummaryService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(1L, "john", true, 2000000), snapshot(2L, "victoria", true, 2000000)));
+
+                // Then
+                verify(traderBlotterSummaryRepository).addToSummary("john", -1, BigDecimal.valueOf(-3000000));
+                verify(traderBlotterSummaryRepository).addToSummary("victoria", 1, BigDecimal.valueOf(3000000));
+        }
+
+}
@@ -0,0 +1,99 @@
+package com.technicalchallenge.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.repository.TraderDailyRollupRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class TraderDailyRollupServiceTest {
+
+        private static final LocalDate TRADE_DATE = LocalDate.of(2025, 11, 7);
+
+        @Mock
+        private TraderDailyRollupRepository traderDailyRollupRepository;
+
+        @InjectMocks
+        private TraderDailyRollupService traderDailyRollupService;
+
+        private TradeSnapshot snapshot(Long id, String status, LocalDate tradeDate) {
+                return aTrade().id(id).tradeStatus(status).tradeDate(tradeDate).payAndReceive(3000000, 2000000)
+                                .build();
+        }
+
+        /**
+         * Tests a booking on a new day creates the day's rollup and adds to it
+         */
+        @Test
+        void testOnTradeWrite_BookingInsertsDay() {
+
+                // Given - The trader has no trades that day
+                when(traderDailyRollupRepository.addToRollup(anyString(), any(), anyLong(), anyLong(), any(), any(),
+                                any())).thenReturn(0);
+
+                // When
+                traderDailyRollupService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null,
+                                snapshot(10L, "NEW", TRADE_DATE)));
+
+                // Then - One trade, two legs
+                verify(traderDailyRollupRepository).createRollup("john", TRADE_DATE);
+                verify(traderDailyRollupRepository, times(2)).addToRollup("john", TRADE_DATE, 1L, 2L,
+                                BigDecimal.valueOf(5000000), BigDecimal.valueOf(2000000),
+                                BigDecimal.valueOf(3000000));
+                verify(traderDailyRollupRepository, never()).recomputeMinMax(anyString(), any());
+        }
+
+        /**
+         * Tests a termination leaves the day as it was, nothing is written
+         */
+        @Test
+        void testOnTradeWrite_TerminationUnchanged() {
+
+                // When - Same row, same day, same legs
+                traderDailyRollupService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.TERMINATED,
+                                snapshot(10L, "NEW", TRADE_DATE), snapshot(10L, "TERMINATED", TRADE_DATE)));
+
+                // Then
+                verifyNoInteractions(traderDailyRollupRepository);
+        }
+
+        /**
+         * Tests an amendment onto another trade date moves the trade to that
+         * day, the old day reads its min and max again
+         */
+        @Test
+        void testOnTradeWrite_AmendmentMovesDay() {
+
+                // Given
+                when(traderDailyRollupRepository.addToRollup(anyString(), any(), anyLong(), anyLong(), any(), any(),
+                                any())).thenReturn(1);
+
+                // When
+                traderDailyRollupService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(10L, "NEW", TRADE_DATE), snapshot(11L, "AMENDED", TRADE_DATE.plusDays(1))));
+
+                // Then
+                verify(traderDailyRollupRepository).addToRollup("john", TRADE_DATE.plusDays(1), 1L, 2L,
+                                BigDecimal.valueOf(5000000), BigDecimal.valueOf(2000000),
+                                BigDecimal.valueOf(3000000));
+                verify(traderDailyRollupRepository).addToRollup("john", TRADE_DATE, -1L, -2L,
+                                BigDecimal.valueOf(-5000000), null, null);
+                verify(traderDailyRollupRepository).recomputeMinMax("john", TRADE_DATE);
+                verify(traderDailyRollupRepository, never()).createRollup(anyString(), any());
+        }
+
+}
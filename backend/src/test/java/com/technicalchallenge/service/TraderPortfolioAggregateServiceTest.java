@@ -0,0 +1,183 @@
+package com.technicalchallenge.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static com.technicalchallenge.events.TradeSnapshotBuilder.aTrade;
+
+import java.math.BigDecimal;
+import java.util.stream.Collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.technicalchallenge.events.TradeSnapshot;
+import com.technicalchallenge.events.TradeSnapshot.LegSnapshot;
+import com.technicalchallenge.events.TradeWriteEvent;
+import com.technicalchallenge.model.TraderPortfolioAggregate;
+import com.technicalchallenge.repository.TraderPortfolioAggregateRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class TraderPortfolioAggregateServiceTest {
+
+        @Mock
+        private TraderPortfolioAggregateRepository traderPortfolioAggregateRepository;
+
+        @Mock
+        private PortfolioRecomputation portfolioRecomputation;
+
+        @InjectMocks
+        private TraderPortfolioAggregateService traderPortfolioAggregateService;
+
+        private TradeSnapshot snapshot(Long id, String status) {
+                return aTrade().id(id).tradeStatus(status).payAndReceive(1000000, 1000000).build();
+        }
+
+        /**
+         * Tests a new booking adds to every figure of the trader's summary
+         */
+        @Test
+        void testOnTradeWrite_BookingAddsFigures() {
+
+                // Given - None of the figures exist yet
+                when(traderPortfolioAggregateRepository.addToAggregate(anyString(), anyString(), anyString(),
+                                anyString(), anyLong(), any())).thenReturn(0);
+
+                // When
+                traderPortfolioAggregateService.onTradeWrite(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, snapshot(10L, "NEW")));
+
+                // Then - One trade, two legs, each figure created and added to
+                verify(traderPortfolioAggregateRepository).createAggregate("john", TraderPortfolioAggregate.STATUS,
+                                "NEW", "");
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.STATUS, "NEW", "", 1L, BigDecimal.ZERO);
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.CURRENCY, "EUR", "", 2L, BigDecimal.valueOf(2000000));
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.TRADE_TYPE, "Swap", "", 2L, BigDecimal.valueOf(2000000));
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.COUNTERPARTY, "BigBank", "", 2L,
+                                BigDecimal.valueOf(2000000));
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.EXPOSURE, "EUR", "Pay", 1L, BigDecimal.valueOf(-1000000));
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate("john",
+                                TraderPortfolioAggregate.EXPOSURE, "EUR", "Receive", 1L,
+                                BigDecimal.valueOf(1000000));
+                verify(traderPortfolioAggregateRepository, times(6)).createAggregate(anyString(), anyString(),
+                                anyString(), anyString());
+        }
+
+        /**
+         * Tests a termination only moves the trade between statuses, the
+         * notional figures cancel out and aren't written
+         */
+        @Test
+        void testOnTradeWrite_TerminationMovesStatus() {
+
+                // Given - The figures exist
+                when(traderPortfolioAggregateRepository.addToAggregate(anyString(), anyString(), anyString(),
+                                anyString(), anyLong(), any())).thenReturn(1);
+
+                // When
+                traderPortfolioAggregateService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.TERMINATED,
+                                snapshot(10L, "NEW"), snapshot(10L, "TERMINATED")));
+
+                // Then
+                verify(traderPortfolioAggregateRepository).addToAggregate("john", TraderPortfolioAggregate.STATUS,
+                                "NEW", "", -1L, BigDecimal.ZERO);
+                verify(traderPortfolioAggregateRepository).addToAggregate("john", TraderPortfolioAggregate.STATUS,
+                                "TERMINATED", "", 1L, BigDecimal.ZERO);
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate(anyString(), anyString(),
+                                anyString(), anyString(), anyLong(), any());
+                verify(traderPortfolioAggregateRepository, never()).createAggregate(anyString(), anyString(),
+                                anyString(), anyString());
+        }
+
+        /**
+         * Tests an amendment moves the figures from the deactivated old
+         * version to the new one
+         */
+        @Test
+        void testOnTradeWrite_AmendmentReplacesOldVersion() {
+
+                // Given
+                when(traderPortfolioAggregateRepository.addToAggregate(anyString(), anyString(), anyString(),
+                                anyString(), anyLong(), any())).thenReturn(1);
+
+                // When - The new version is a different trade row
+                traderPortfolioAggregateService.onTradeWrite(new TradeWriteEvent(TradeWriteEvent.Type.AMENDED,
+                                snapshot(10L, "NEW"), snapshot(11L, "AMENDED")));
+
+                // Then - Same legs, so only the status moves
+                verify(traderPortfolioAggregateRepository).addToAggregate("john", TraderPortfolioAggregate.STATUS,
+                                "NEW", "", -1L, BigDecimal.ZERO);
+                verify(traderPortfolioAggregateRepository).addToAggregate("john", TraderPortfolioAggregate.STATUS,
+                                "AMENDED", "", 1L, BigDecimal.ZERO);
+                verify(traderPortfolioAggregateRepository, times(2)).addToAggregate(anyString(), anyString(),
+                                anyString(), anyString(), anyLong(), any());
+        }
+
+        /**
+         * Tests a version that's no longer active isn't counted
+         */
+        @Test
+        void testChangesOf_InactiveVersionLeftOut() {
+
+                // When - An event about an already deactivated row
+                TradeSnapshot deactivated = aTrade().id(10L).active(false).payAndReceive(1000000, 1000000).build();
+                var changes = TraderPortfolioAggregateService.changesOf(
+                                new TradeWriteEvent(TradeWriteEvent.Type.CREATED, null, deactivated));
+
+                // Then
+                assertTrue(changes.isEmpty());
+        }
+
+        // A trade as the recomputation reads it, one EUR leg
+        private TradeSnapshot recomputed(Long id, String status) {
+                return aTrade().id(id).tradeStatus(status).counterparty(null, null).tradeType(null)
+                                .legs(new LegSnapshot(1L, BigDecimal.valueOf(1000000), null, "EUR", null)).build();
+        }
+
+        /**
+         * Tests the summary is replaced with the figures recomputed from two
+         * ranges of trades
+         */
+        @Test
+        @SuppressWarnings("unchecked")
+        void testRebuild_ReplacesFiguresFromTrades() {
+
+                // Given - One trade in each range, combined at the end
+                when(portfolioRecomputation.recompute(any())).thenAnswer(invocation -> {
+                        Collector<TradeSnapshot, Object, Object> collector = invocation.getArgument(0);
+                        Object left = collector.supplier().get();
+                        collector.accumulator().accept(left, recomputed(10L, "NEW"));
+                        Object right = collector.supplier().get();
+                        collector.accumulator().accept(right, recomputed(11L, "NEW"));
+                        return collector.finisher().apply(collector.combiner().apply(left, right));
+                });
+
+                // When
+                int written = traderPortfolioAggregateService.rebuild();
+
+                // Then - Trade count by status and notional by currency
+                assertEquals(2, written);
+                var inOrder = inOrder(traderPortfolioAggregateRepository);
+                inOrder.verify(traderPortfolioAggregateRepository).deleteAllInBatch();
+                inOrder.verify(traderPortfolioAggregateRepository).createAggregate("john",
+                                TraderPortfolioAggregate.CURRENCY, "EUR", "");
+                inOrder.verify(traderPortfolioAggregateRepository).addToAggregate("john",
+                                TraderPortfolioAggregate.CURRENCY, "EUR", "", 2L, BigDecimal.valueOf(2000000));
+                inOrder.verify(traderPortfolioAggregateRepository).createAggregate("john",
+                                TraderPortfolioAggregate.STATUS, "NEW", "");
+                inOrder.verify(traderPortfolioAggregateRepository).addToAggregate("john",
+                                TraderPortfolioAggregate.STATUS, "NEW", "", 2L, BigDecimal.ZERO);
+        }
+
+}
@@ -0,0 +1,110 @@
+package com.technicalchallenge.specification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.technicalchallenge.specification.RsqlCostEstimator.RsqlQueryCost;
+import com.technicalchallenge.specification.RsqlCostEstimator.Verdict;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RsqlCostEstimatorTest {
+
+        private RsqlPlanCache rsqlPlanCache;
+        private RsqlCostEstimator rsqlCostEstimator;
+
+        @BeforeEach
+        void setUp() {
+                rsqlPlanCache = new RsqlPlanCache(new SimpleMeterRegistry(), 16);
+                rsqlCostEstimator = new RsqlCostEstimator(3, 0.2, 1000, 100, 5000);
+        }
+
+        /**
+         * Tests a selective indexed query can be returned as a list
+         */
+        @Test
+        void testEstimate_SelectiveIndexedQueryAllowed() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup("tradeId==100001"));
+
+                assertEquals(Verdict.ALLOW, cost.verdict());
+                assertTrue(cost.usesIndex());
+        }
+
+        /**
+         * Tests an unindexed leading wildcard is forced into pages
+         */
+        @Test
+        void testEstimate_LeadingWildcardPaginated() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup("counterparty.name==*Bank*"));
+
+                assertEquals(Verdict.PAGINATE, cost.verdict());
+                assertFalse(cost.usesIndex());
+        }
+
+        /**
+         * Tests a query walking too many joins without an indexed predicate is
+         * rejected
+         */
+        @Test
+        void testEstimate_DeepJoinsWithoutIndexRejected() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup(
+                                "tradeLegs.cashflows.paymentValue=gt=0;counterparty.name!=BigBank;tradeStatus.tradeStatus==LIVE"));
+
+                assertEquals(Verdict.REJECT, cost.verdict());
+                assertNotNull(cost.reason());
+        }
+
+        /**
+         * Tests the same deep joins are allowed to run when an indexed date range
+         * drives the query
+         */
+        @Test
+        void testEstimate_DeepJoinsWithIndexNotRejected() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup(
+                                "tradeLegs.cashflows.paymentValue=gt=0;counterparty.name!=BigBank;tradeDate=ge=2025-01-01"));
+
+                assertNotEquals(Verdict.REJECT, cost.verdict());
+        }
+
+        /**
+         * Tests a book attribute without an index doesn't count as indexed
+         */
+        @Test
+        void testEstimate_UnindexedBookAttributePaginated() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup("book.bookName==FX-BOOK-1"));
+
+                assertEquals(Verdict.PAGINATE, cost.verdict());
+                assertFalse(cost.usesIndex());
+        }
+
+        /**
+         * Tests a query left to the RSQL plugin is still estimated and rejected
+         * when it walks too many joins without an indexed predicate
+         */
+        @Test
+        void testEstimate_PluginQueryRejected() {
+                RsqlQuery rsqlQuery = rsqlPlanCache.lookup(
+                                "tradeLegs.cashflows.paymentValue=gt=0;counterparty.name=like=Bank;tradeStatus.tradeStatus==LIVE");
+
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlQuery);
+
+                assertFalse(rsqlQuery.isCompiled());
+                assertEquals(Verdict.REJECT, cost.verdict());
+        }
+
+        /**
+         * Tests a selective indexed query left to the RSQL plugin is paginated,
+         * never returned as one list
+         */
+        @Test
+        void testEstimate_PluginQueryPaginated() {
+                RsqlQueryCost cost = rsqlCostEstimator.estimate(rsqlPlanCache.lookup(
+                                "tradeId==100001;counterparty.name=like=Bank"));
+
+                assertEquals(Verdict.PAGINATE, cost.verdict());
+                assertTrue(cost.usesIndex());
+        }
+
+}
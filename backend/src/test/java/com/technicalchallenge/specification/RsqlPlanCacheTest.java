@@ -0,0 +1,134 @@
+package com.technicalchallenge.specification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.technicalchallenge.exceptions.InvalidSearchException;
+import com.technicalchallenge.exceptions.RsqlPlanNotSupportedException;
+import com.technicalchallenge.specification.RsqlQueryNormaliser.NormalisedQuery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RsqlPlanCacheTest {
+
+        private MeterRegistry meterRegistry;
+        private RsqlPlanCache rsqlPlanCache;
+
+        @BeforeEach
+        void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                rsqlPlanCache = new RsqlPlanCache(meterRegistry, 2);
+        }
+
+        /**
+         * Tests queries with the same shape normalise to the same template
+         */
+        @Test
+        void testNormalise_SameShapeSameTemplate() {
+                // Given - Two queries with different values, spacing and logical keywords
+                NormalisedQuery first = RsqlQueryNormaliser
+                                .normalise("counterparty.name==BigBank;tradeDate=ge=2025-01-01");
+                NormalisedQuery second = RsqlQueryNormaliser
+                                .normalise("counterparty.name == 'Mega Fund' and tradeDate=ge=2024-06-01");
+
+                // Then - Both share a template and keep their own arguments
+                assertEquals("counterparty.name==?;tradeDate=ge=?", first.template());
+                assertEquals(first.template(), second.template());
+                assertEquals(List.of(List.of("Mega Fund"), List.of("2024-06-01")), second.arguments());
+        }
+
+        /**
+         * Tests multi value arguments are pulled out into a single slot
+         */
+        @Test
+        void testNormalise_MultiValueArguments() {
+                NormalisedQuery normalised = RsqlQueryNormaliser
+                                .normalise("tradeStatus.tradeStatus=in=(NEW,LIVE),(book.bookName==FX-BOOK-1)");
+
+                assertEquals("tradeStatus.tradeStatus=in=(?),(book.bookName==?)", normalised.template());
+                assertEquals(List.of("NEW", "LIVE"), normalised.arguments().get(0));
+        }
+
+        /**
+         * Tests a query that can't be scanned is not normalised
+         */
+        @Test
+        void testNormalise_InvalidQuery() {
+                assertNull(RsqlQueryNormaliser.normalise("counterparty.name=="));
+        }
+
+        /**
+         * Tests the second query with the same shape is served from the cache
+         */
+        @Test
+        void testToSpecification_RepeatQueryHitsCache() {
+                // When - The same shape is requested twice
+                assertNotNull(rsqlPlanCache.toSpecification("counterparty.name==BigBank"));
+                assertNotNull(rsqlPlanCache.toSpecification("counterparty.name==MegaFund"));
+
+                // Then - One miss compiled the plan and one hit reused it
+                assertEquals(1, rsqlPlanCache.getMissCount());
+                assertEquals(1, rsqlPlanCache.getHitCount());
+                assertEquals(0.5, rsqlPlanCache.hitRatio());
+                assertEquals(1.0, meterRegistry.get("trade.search.rsql.plan.cache").tag("result", "hit").counter()
+                                .count());
+        }
+
+        /**
+         * Tests the least recently used plan is evicted when the cache is full
+         */
+        @Test
+        void testToSpecification_EvictsLeastRecentlyUsed() {
+                rsqlPlanCache.toSpecification("counterparty.name==BigBank");
+                rsqlPlanCache.toSpecification("tradeId==100001");
+                rsqlPlanCache.toSpecification("version==1");
+
+                // Then - The cache stays at its maximum size and the first shape misses again
+                assertEquals(2, rsqlPlanCache.size());
+                rsqlPlanCache.toSpecification("counterparty.name==BigBank");
+                assertEquals(4, rsqlPlanCache.getMissCount());
+        }
+
+        /**
+         * Tests compiled plans resolve the selector types
+         */
+        @Test
+        void testCompile_ResolvesSelectors() {
+                RsqlPlan plan = RsqlPlan.compile("tradeLegs.notional=gt=?;tradeDate=le=?");
+
+                assertEquals(2, plan.getSlotCount());
+                assertThrows(InvalidSearchException.class, () -> plan.bind(List.of(List.of("1"))));
+        }
+
+        /**
+         * Tests a bound plan renders parameterised JPQL with one left join per
+         * path and the values as parameters
+         */
+        @Test
+        void testBind_RendersJpql() {
+                RsqlPlan plan = RsqlPlan.compile("counterparty.name==?,(tradeLegs.notional=gt=?;counterparty.active==?)");
+
+                JpqlSpecification jpql = plan.bind(List.of(List.of("*Bank*"), List.of("100"), List.of("true")));
+
+                assertTrue(jpql.distinct());
+                assertEquals(" left join t.counterparty j1 left join t.tradeLegs j2", jpql.joins());
+                assertEquals("(j1.name like :p0 or (j2.notional > :p1 and j1.active = :p2))", jpql.where());
+                assertEquals(Map.of("p0", "%Bank%", "p1", new BigDecimal("100"), "p2", true), jpql.parameters());
+        }
+
+        /**
+         * Tests selectors that aren't on the trade can't be compiled
+         */
+        @Test
+        void testCompile_UnknownSelector() {
+                assertThrows(RsqlPlanNotSupportedException.class, () -> RsqlPlan.compile("unknown.field==?"));
+        }
+
+}
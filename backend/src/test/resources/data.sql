@@ -38,6 +38,12 @@ INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1001, 1002);
 INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1003, 1001), (1003, 1002);
 -- (1002) Admin (Writeuser, Readuser & Deactivateuser Trades)
 INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1002, 1004), (1002, 1003), (1002, 1011);
+-- (1002) Admin and (1004) Superuser (Actuator writes, WRITE_ACTUATOR is also inserted by the V14 migration)
+INSERT INTO privilege (id, name) SELECT 1012, 'WRITE_ACTUATOR' WHERE NOT EXISTS (SELECT 1 FROM privilege WHERE name = 'WRITE_ACTUATOR');
+INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1002, 1012), (1004, 1012);
+-- (1004) Superuser (Firm-wide dashboard figures, DASHBOARD_FIRM_VIEW is also inserted by the V16 migration)
+INSERT INTO privilege (id, name) SELECT 1013, 'DASHBOARD_FIRM_VIEW' WHERE NOT EXISTS (SELECT 1 FROM privilege WHERE name = 'DASHBOARD_FIRM_VIEW');
+INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1004, 1013);
 -- (1004) Superuser (All Access)
 INSERT INTO user_privilege (userprofile_id, privilege_id) VALUES (1004, 1000), (1004, 1001), (1004, 1002), (1004, 1003), (1004, 1004), (1004, 1005), (1004, 1006),(1004, 1007),(1004, 1008),(1004, 1009), (1004, 1010), (1004, 1011);
 